@@ -0,0 +1,228 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.clusters;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import rx.Observable;
+
+import com.microsoft.azure.spark.tools.http.AmbariHttpObservable;
+import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.http.InvokedByMethodHeader;
+import com.microsoft.azure.spark.tools.log.Logger;
+import com.microsoft.azure.spark.tools.restapi.ambari.clusters.ClusterResponse;
+import com.microsoft.azure.spark.tools.restapi.ambari.clusters.ClusterResponse.DesiredConfig;
+import com.microsoft.azure.spark.tools.restapi.ambari.clusters.GetCluster;
+import com.microsoft.azure.spark.tools.restapi.ambari.clusters.configurations.ConfigurationsResponse;
+import com.microsoft.azure.spark.tools.restapi.ambari.clusters.configurations.GetConfigurations;
+import com.microsoft.azure.spark.tools.utils.Pair;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * The Ambari REST client to get the configs of an HDInsight cluster, such as the core site config
+ * {@link HdiClusterDetail} and {@link HdiClusterDetail#createDefaultDeployable()} consume.
+ *
+ * <p>The configs got are cached with their tags. For each lookup, only the tags in effect are got with the
+ * `desired_configs` field of the cluster, and a config is fetched again only when its tag is changed.
+ */
+public class AmbariConfigurationClient implements Logger {
+    public static final String CORE_SITE = "core-site";
+
+    /**
+     * The config properties of a tag.
+     */
+    private static class TaggedConfig {
+        private final String tag;
+        private final Map<String, String> properties;
+
+        TaggedConfig(final String tag, final Map<String, String> properties) {
+            this.tag = tag;
+            this.properties = Collections.unmodifiableMap(new HashMap<>(properties));
+        }
+    }
+
+    private final String connectionUrl;
+    private final String clusterName;
+    private final @Nullable String username;
+    private final @Nullable String password;
+    private final HttpObservable http;
+    private final Map<String, TaggedConfig> configs = new ConcurrentHashMap<>();
+    private final AtomicLong configFetches = new AtomicLong();
+
+    /**
+     * Constructor of the Ambari client with the HDInsight cluster gateway credential.
+     *
+     * @param connectionUrl the cluster HTTPS endpoint, such as https://hdicluster.azurehdinsight.net
+     * @param clusterName the cluster name in Ambari
+     * @param username the cluster gateway user name
+     * @param password the cluster gateway password
+     */
+    public AmbariConfigurationClient(final String connectionUrl,
+                                     final String clusterName,
+                                     final @Nullable String username,
+                                     final @Nullable String password) {
+        this(connectionUrl, clusterName, username, password, new AmbariHttpObservable(username, password));
+    }
+
+    AmbariConfigurationClient(final String connectionUrl,
+                              final String clusterName,
+                              final @Nullable String username,
+                              final @Nullable String password,
+                              final HttpObservable http) {
+        this.connectionUrl = StringUtils.removeEnd(connectionUrl, "/");
+        this.clusterName = clusterName;
+        this.username = username;
+        this.password = password;
+        this.http = http;
+    }
+
+    public String getClusterName() {
+        return clusterName;
+    }
+
+    /**
+     * Getter of the Ambari cluster resource URL.
+     *
+     * @return the URL, such as https://hdicluster.azurehdinsight.net/api/v1/clusters/hdicluster
+     */
+    public String getClusterUrl() {
+        return connectionUrl + "/api/v1/clusters/" + clusterName;
+    }
+
+    /**
+     * Getter of the configs fetched from Ambari, excluding the tags lookup, which is for monitoring the cache hits.
+     *
+     * @return the count of configs fetched
+     */
+    public long getConfigFetches() {
+        return configFetches.get();
+    }
+
+    /**
+     * Get the core site config in effect.
+     *
+     * @return Observable of the core site properties
+     */
+    public Observable<Map<String, String>> getCoreSiteConfig() {
+        return getConfig(CORE_SITE);
+    }
+
+    /**
+     * Get the config in effect of a config type.
+     *
+     * @param type the config type, such as `core-site` and `spark2-defaults`
+     * @return Observable of the config properties
+     */
+    public Observable<Map<String, String>> getConfig(final String type) {
+        return getConfigs(type).map(typeConfigs -> typeConfigs.getOrDefault(type, Collections.emptyMap()));
+    }
+
+    /**
+     * Get the configs in effect of config types, with one tags lookup, and only the configs changed are fetched.
+     *
+     * @param types the config types
+     * @return Observable of the config properties by the config type
+     */
+    public Observable<Map<String, Map<String, String>>> getConfigs(final String... types) {
+        return getDesiredConfigs()
+                .flatMap(desiredConfigs -> Observable.from(Arrays.asList(types))
+                        .flatMap(type -> getTaggedConfig(type, desiredConfigs.get(type)))
+                        .toMap(Pair::getFirst, Pair::getSecond));
+    }
+
+    /**
+     * Get the gateway config as HDInsight management API returns, which the Ambari client is authenticated with.
+     *
+     * @return the gateway config properties
+     */
+    public Map<String, String> getGatewayConf() {
+        final Map<String, String> gatewayConf = new HashMap<>();
+        final String user = username;
+        final String pass = password;
+
+        if (user != null && StringUtils.isNotBlank(user) && pass != null) {
+            gatewayConf.put(HdiClusterMetadata.GATEWAY_AUTH_ENABLED_KEY, "true");
+            gatewayConf.put(HdiClusterMetadata.GATEWAY_AUTH_USERNAME_KEY, user);
+            gatewayConf.put(HdiClusterMetadata.GATEWAY_AUTH_PASSWORD_KEY, pass);
+        } else {
+            gatewayConf.put(HdiClusterMetadata.GATEWAY_AUTH_ENABLED_KEY, "false");
+        }
+
+        return gatewayConf;
+    }
+
+    /**
+     * Fetch the cluster metadata with the core site config in effect, such as for {@link HdiClusterMetadataCache}.
+     *
+     * @return Observable of the cluster metadata
+     */
+    public Observable<HdiClusterMetadata> fetchMetadata() {
+        return getCoreSiteConfig().map(coreSite -> new HdiClusterMetadata(
+                clusterName, connectionUrl, coreSite, getGatewayConf(), System.currentTimeMillis()));
+    }
+
+    /**
+     * Drop the configs cached, to fetch them again at the next lookup.
+     */
+    public void invalidate() {
+        configs.clear();
+    }
+
+    private Observable<Map<String, DesiredConfig>> getDesiredConfigs() {
+        return http.get(getClusterUrl(),
+                        singletonList(new GetCluster.FieldsParameter("Clusters/desired_configs")),
+                        singletonList(new InvokedByMethodHeader("getDesiredConfigs")),
+                        ClusterResponse.class)
+                .map(clusterResponse -> clusterResponse.getFirst().getDesiredConfigs());
+    }
+
+    private Observable<Pair<String, Map<String, String>>> getTaggedConfig(final String type,
+                                                                         final @Nullable DesiredConfig desired) {
+        if (desired == null) {
+            return Observable.error(new IllegalArgumentException(
+                    "No config type `" + type + "` found in Ambari cluster " + clusterName));
+        }
+
+        final TaggedConfig cached = configs.get(type);
+        if (cached != null && cached.tag.equals(desired.getTag())) {
+            return Observable.just(Pair.of(type, cached.properties));
+        }
+
+        log().debug("Fetch Ambari config " + type + " with tag " + desired.getTag()
+                + (cached != null ? ", which was " + cached.tag : ""));
+
+        final List<Header> headers = singletonList(new InvokedByMethodHeader("getConfig"));
+
+        return http.get(getClusterUrl() + "/configurations",
+                        Arrays.asList(new GetConfigurations.TypeParameter(type),
+                                new GetConfigurations.TagParameter(desired.getTag())),
+                        headers,
+                        ConfigurationsResponse.class)
+                .flatMap(configsResponse -> {
+                    configFetches.incrementAndGet();
+
+                    return Observable.from(configsResponse.getFirst().getItems())
+                            .first()
+                            .onErrorResumeNext(err -> Observable.error(new IllegalArgumentException(
+                                    "No config type `" + type + "` with tag " + desired.getTag()
+                                            + " found in Ambari cluster " + clusterName, err)));
+                })
+                .map(config -> {
+                    final TaggedConfig fetched = new TaggedConfig(desired.getTag(), config.getProperties());
+                    configs.put(type, fetched);
+
+                    return Pair.of(type, fetched.properties);
+                });
+    }
+}
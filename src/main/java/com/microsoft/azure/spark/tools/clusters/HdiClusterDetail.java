@@ -12,6 +12,7 @@ import com.microsoft.azure.management.hdinsight.v2018_06_01_preview.implementati
 import com.microsoft.azure.management.hdinsight.v2018_06_01_preview.implementation.HDInsightManager;
 import com.microsoft.azure.spark.tools.job.AzureBlobStorageDeploy;
 import com.microsoft.azure.spark.tools.job.Deployable;
+import com.microsoft.azure.spark.tools.utils.Lazy;
 import com.microsoft.azure.spark.tools.utils.WasbUri;
 import org.apache.commons.lang3.StringUtils;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -28,16 +29,22 @@ public final class HdiClusterDetail implements ClusterDetail, HdiCluster, Cluste
     private final Map<String, String> gatewayConf;
     private final Cluster cluster;
 
+    // The URLs are got for each request, memoize them rather than looking up the cluster properties every time
+    private final Lazy<String> connectionUrl = new Lazy<>();
+    private final Lazy<String> yarnUIBaseUrl = new Lazy<>();
+    private final Lazy<String> livyConnectionUrl = new Lazy<>();
+    private final Lazy<String> yarnNMConnectionUrl = new Lazy<>();
+
     public String getYarnUIBaseUrl() {
-        return this.getConnectionUrl() + "/yarnui/";
+        return this.yarnUIBaseUrl.getOrEvaluate(() -> this.getConnectionUrl() + "/yarnui/");
     }
 
     public String getLivyConnectionUrl() {
-        return this.getConnectionUrl() + "/livy/";
+        return this.livyConnectionUrl.getOrEvaluate(() -> this.getConnectionUrl() + "/livy/");
     }
 
     public String getYarnNMConnectionUrl() {
-        return this.getYarnUIBaseUrl() + "ws/v1/clusters/apps/";
+        return this.yarnNMConnectionUrl.getOrEvaluate(() -> this.getYarnUIBaseUrl() + "ws/v1/clusters/apps/");
     }
 
     public String getName() {
@@ -49,6 +56,10 @@ public final class HdiClusterDetail implements ClusterDetail, HdiCluster, Cluste
     }
 
     public String getConnectionUrl() {
+        return this.connectionUrl.getOrEvaluate(this::findConnectionUrl);
+    }
+
+    private String findConnectionUrl() {
         ConnectivityEndpoint httpConnEP = inner().properties().connectivityEndpoints()
                 .stream()
                 .filter(it -> StringUtils.equalsIgnoreCase(it.name(), "HTTPS"))
@@ -90,6 +101,30 @@ public final class HdiClusterDetail implements ClusterDetail, HdiCluster, Cluste
                 && StringUtils.equalsIgnoreCase(isGWAuthCredEnabled, "true");
     }
 
+    /**
+     * Constructor with the cluster metadata cached, which skips looking up the connection URL from the cluster
+     * properties.
+     *
+     * @param cluster the HDInsight cluster got from the management SDK
+     * @param metadata the cluster metadata cached, such as by {@link HdiClusterMetadataCache}
+     */
+    public HdiClusterDetail(final Cluster cluster, final HdiClusterMetadata metadata) {
+        this(cluster, metadata.getCoreSiteConfig(), metadata.getGatewayConf());
+
+        this.connectionUrl.getOrEvaluate(metadata::getConnectionUrl);
+    }
+
+    /**
+     * Convert to the cluster metadata without the management SDK dependency, to cache or to use in the short-lived
+     * clients.
+     *
+     * @return the cluster metadata fetched now
+     */
+    public HdiClusterMetadata toMetadata() {
+        return new HdiClusterMetadata(
+                getName(), getConnectionUrl(), coreSiteConfig, gatewayConf, System.currentTimeMillis());
+    }
+
     public String etag() {
         return this.cluster.etag();
     }
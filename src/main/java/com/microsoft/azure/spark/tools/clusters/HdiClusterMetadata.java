@@ -0,0 +1,163 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.clusters;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.StringUtils;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.microsoft.azure.spark.tools.job.AzureBlobStorageDeploy;
+import com.microsoft.azure.spark.tools.job.Deployable;
+import com.microsoft.azure.spark.tools.utils.WasbUri;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The HDInsight cluster metadata needed to submit and monitor Spark batch jobs, which are the connection URL,
+ * the core site config and the gateway config. Unlike {@link HdiClusterDetail}, it doesn't depend on the
+ * HDInsight management SDK, so that it can be cached on disk by {@link HdiClusterMetadataCache} and used directly
+ * by the short-lived clients without the cluster discovery.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class HdiClusterMetadata implements ClusterDetail, HdiCluster, DefaultStorage {
+    static final String GATEWAY_AUTH_ENABLED_KEY = "restAuthCredential.isEnabled";
+    static final String GATEWAY_AUTH_USERNAME_KEY = "restAuthCredential.username";
+    static final String GATEWAY_AUTH_PASSWORD_KEY = "restAuthCredential.password";
+
+    private final String name;
+    private final String connectionUrl;
+    private final Map<String, String> coreSiteConfig;
+    private final Map<String, String> gatewayConf;
+    private final long fetchedMillis;
+
+    /**
+     * Constructor of HDInsight cluster metadata.
+     *
+     * @param name the cluster name
+     * @param connectionUrl the cluster HTTPS endpoint, such as https://hdicluster.azurehdinsight.net
+     * @param coreSiteConfig the cluster core site config
+     * @param gatewayConf the cluster gateway config
+     * @param fetchedMillis the timestamp the metadata was fetched from the cluster
+     */
+    @JsonCreator
+    public HdiClusterMetadata(@JsonProperty("name") final String name,
+                              @JsonProperty("connectionUrl") final String connectionUrl,
+                              @JsonProperty("coreSiteConfig") final @Nullable Map<String, String> coreSiteConfig,
+                              @JsonProperty("gatewayConf") final @Nullable Map<String, String> gatewayConf,
+                              @JsonProperty("fetchedMillis") final long fetchedMillis) {
+        this.name = name;
+        this.connectionUrl = StringUtils.removeEnd(connectionUrl, "/");
+        this.coreSiteConfig = Collections.unmodifiableMap(
+                coreSiteConfig == null ? new HashMap<>() : new HashMap<>(coreSiteConfig));
+        this.gatewayConf = Collections.unmodifiableMap(
+                gatewayConf == null ? new HashMap<>() : new HashMap<>(gatewayConf));
+        this.fetchedMillis = fetchedMillis;
+    }
+
+    @Override
+    @JsonProperty("name")
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    @JsonIgnore
+    public String getTitle() {
+        return getName();
+    }
+
+    @Override
+    @JsonProperty("connectionUrl")
+    public String getConnectionUrl() {
+        return connectionUrl;
+    }
+
+    @Override
+    @JsonIgnore
+    public String getLivyConnectionUrl() {
+        return getConnectionUrl() + "/livy/";
+    }
+
+    @Override
+    @JsonIgnore
+    public String getYarnUIBaseUrl() {
+        return getConnectionUrl() + "/yarnui/";
+    }
+
+    @Override
+    @JsonIgnore
+    public String getYarnNMConnectionUrl() {
+        return getYarnUIBaseUrl() + "ws/v1/clusters/apps/";
+    }
+
+    @JsonProperty("coreSiteConfig")
+    public Map<String, String> getCoreSiteConfig() {
+        return coreSiteConfig;
+    }
+
+    @JsonProperty("gatewayConf")
+    public Map<String, String> getGatewayConf() {
+        return gatewayConf;
+    }
+
+    /**
+     * Getter of the timestamp the metadata was fetched from the cluster, to check the freshness.
+     *
+     * @return the fetched timestamp in milliseconds
+     */
+    @JsonProperty("fetchedMillis")
+    public long getFetchedMillis() {
+        return fetchedMillis;
+    }
+
+    /**
+     * Copy the metadata with a new fetched timestamp.
+     *
+     * @param newFetchedMillis the new fetched timestamp in milliseconds
+     * @return the metadata copied
+     */
+    public HdiClusterMetadata withFetchedMillis(final long newFetchedMillis) {
+        return new HdiClusterMetadata(name, connectionUrl, coreSiteConfig, gatewayConf, newFetchedMillis);
+    }
+
+    @JsonIgnore
+    public boolean isGatewayRestAuthCredentialEnabled() {
+        return StringUtils.equalsIgnoreCase(gatewayConf.get(GATEWAY_AUTH_ENABLED_KEY), "true");
+    }
+
+    @Override
+    @JsonIgnore
+    public @Nullable String getHttpUserName() {
+        return isGatewayRestAuthCredentialEnabled() ? gatewayConf.get(GATEWAY_AUTH_USERNAME_KEY) : null;
+    }
+
+    @Override
+    @JsonIgnore
+    public @Nullable String getHttpPassword() {
+        return isGatewayRestAuthCredentialEnabled() ? gatewayConf.get(GATEWAY_AUTH_PASSWORD_KEY) : null;
+    }
+
+    @Override
+    public Deployable createDefaultDeployable() {
+        final String defaultFS = getCoreSiteConfig().get("fs.defaultFS");
+
+        if (defaultFS == null) {
+            throw new IllegalArgumentException("No `fs.defaultFS` found from HDInsight core site config");
+        }
+
+        final WasbUri defaultBlobUri = WasbUri.parse(defaultFS);
+        final String storageKey = getCoreSiteConfig().get(defaultBlobUri.getHadoopBlobFsPropertyKey());
+
+        if (storageKey == null) {
+            throw new IllegalArgumentException("No default storage account key found from HDInsight core site config");
+        }
+
+        return new AzureBlobStorageDeploy(storageKey, defaultBlobUri);
+    }
+}
@@ -0,0 +1,194 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.clusters;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+import com.microsoft.azure.spark.tools.log.Logger;
+import com.microsoft.azure.spark.tools.utils.CacheFiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The on-disk TTL cache of HDInsight cluster metadata, to skip the cluster discovery with the management SDK, which
+ * costs seconds, at the client starting. The cached metadata is returned at once even if it's expired, and
+ * refreshed in background, so that only the first run of a cluster pays for the discovery.
+ *
+ * <p>The metadata includes the storage account key and the gateway credential, the cache file is written through
+ * a temporary file, which is only readable and writable by the owner on POSIX file systems, and moved atomically.
+ */
+public final class HdiClusterMetadataCache implements Logger {
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final TypeReference<Map<String, HdiClusterMetadata>> ENTRIES_TYPE =
+            new TypeReference<Map<String, HdiClusterMetadata>>() { };
+
+    private final File file;
+    private final long ttlMillis;
+    private final Scheduler scheduler;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, HdiClusterMetadata> entries = new ConcurrentHashMap<>();
+    private final Set<String> refreshingKeys = ConcurrentHashMap.newKeySet();
+
+    private HdiClusterMetadataCache(final File file, final long ttlMillis, final Scheduler scheduler) {
+        this.file = file;
+        this.ttlMillis = ttlMillis;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Open the cache file with the default TTL, or start with an empty cache if not existing or broken.
+     *
+     * @param file the cache file
+     * @return the cache opened
+     */
+    public static HdiClusterMetadataCache open(final File file) {
+        return open(file, DEFAULT_TTL_MILLIS, Schedulers.io());
+    }
+
+    /**
+     * Open the cache file, or start with an empty cache if not existing or broken.
+     *
+     * @param file the cache file
+     * @param ttlMillis the time to live of the cached metadata, in milliseconds
+     * @param scheduler the scheduler to refresh the expired metadata on, whose clock is also used for the TTL
+     * @return the cache opened
+     */
+    public static HdiClusterMetadataCache open(final File file, final long ttlMillis, final Scheduler scheduler) {
+        final HdiClusterMetadataCache cache = new HdiClusterMetadataCache(file, ttlMillis, scheduler);
+        cache.load();
+
+        return cache;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * Get the cluster metadata cached, fresh or expired.
+     *
+     * @param key the cluster key, such as the cluster resource ID
+     * @return the metadata cached, or null if not cached
+     */
+    public @Nullable HdiClusterMetadata getIfPresent(final String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Check if the cached metadata is still alive.
+     *
+     * @param metadata the metadata cached
+     * @return true for the metadata not expired
+     */
+    public boolean isFresh(final HdiClusterMetadata metadata) {
+        return scheduler.now() - metadata.getFetchedMillis() < ttlMillis;
+    }
+
+    /**
+     * Get the cluster metadata, from cache if cached, or from the loader. The expired metadata is still returned,
+     * with the loader subscribed in background to refresh the cache.
+     *
+     * @param key the cluster key, such as the cluster resource ID
+     * @param loader the Observable to fetch the metadata from the cluster, such as with
+     *               {@link HdiClusterDetail#toMetadata()}
+     * @return Observable of the cluster metadata
+     */
+    public Observable<HdiClusterMetadata> get(final String key, final Observable<HdiClusterMetadata> loader) {
+        return Observable.defer(() -> {
+            final HdiClusterMetadata cached = getIfPresent(key);
+
+            if (cached == null) {
+                return loader.map(metadata -> put(key, metadata));
+            }
+
+            if (!isFresh(cached)) {
+                refreshInBackground(key, loader);
+            }
+
+            return Observable.just(cached);
+        });
+    }
+
+    /**
+     * Put the cluster metadata into cache, and write the cache file.
+     *
+     * @param key the cluster key, such as the cluster resource ID
+     * @param metadata the metadata fetched from the cluster
+     * @return the metadata cached, stamped with the current time
+     */
+    public HdiClusterMetadata put(final String key, final HdiClusterMetadata metadata) {
+        final HdiClusterMetadata stamped = metadata.withFetchedMillis(scheduler.now());
+        entries.put(key, stamped);
+        save();
+
+        return stamped;
+    }
+
+    /**
+     * Remove the cluster metadata from cache, such as after the cluster is deleted or the credential is changed.
+     *
+     * @param key the cluster key, such as the cluster resource ID
+     */
+    public void invalidate(final String key) {
+        if (entries.remove(key) != null) {
+            save();
+        }
+    }
+
+    private void refreshInBackground(final String key, final Observable<HdiClusterMetadata> loader) {
+        if (!refreshingKeys.add(key)) {
+            // The refreshing is in progress
+            return;
+        }
+
+        loader.first()
+                .subscribeOn(scheduler)
+                .doAfterTerminate(() -> refreshingKeys.remove(key))
+                .subscribe(
+                        metadata -> put(key, metadata),
+                        err -> log().warn("Failed to refresh the cached HDInsight cluster metadata of " + key, err));
+    }
+
+    private void load() {
+        if (!file.isFile()) {
+            return;
+        }
+
+        try {
+            final Map<String, HdiClusterMetadata> loaded = objectMapper.readValue(file, ENTRIES_TYPE);
+
+            if (loaded != null) {
+                entries.putAll(loaded);
+            }
+        } catch (IOException ex) {
+            // The cache is an optimization, start from empty to fetch the metadata again
+            log().warn("Ignore the broken HDInsight cluster metadata cache file " + file, ex);
+        }
+    }
+
+    private synchronized void save() {
+        try {
+            CacheFiles.writeAtomically(file, objectMapper, new LinkedHashMap<>(entries));
+        } catch (IOException ex) {
+            // The metadata is still cached in memory
+            log().warn("Failed to write the HDInsight cluster metadata cache file " + file, ex);
+        }
+    }
+}
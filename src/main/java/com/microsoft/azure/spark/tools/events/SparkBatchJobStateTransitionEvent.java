@@ -0,0 +1,37 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.events;
+
+import com.microsoft.azure.spark.tools.job.SparkBatchJobState;
+
+public class SparkBatchJobStateTransitionEvent implements SparkBatchJobSubmissionEvent {
+    private final SparkBatchJobState from;
+    private final SparkBatchJobState to;
+    private final long timestampMillis;
+
+    public SparkBatchJobStateTransitionEvent(final SparkBatchJobState from,
+                                             final SparkBatchJobState to,
+                                             final long timestampMillis) {
+        this.from = from;
+        this.to = to;
+        this.timestampMillis = timestampMillis;
+    }
+
+    public SparkBatchJobState getFrom() {
+        return from;
+    }
+
+    public SparkBatchJobState getTo() {
+        return to;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    @Override
+    public String toString() {
+        return from + " -> " + to + " at " + timestampMillis;
+    }
+}
@@ -40,6 +40,8 @@ import org.apache.http.ssl.SSLContextBuilder;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import rx.Observable;
 import rx.exceptions.Exceptions;
+import rx.subjects.PublishSubject;
+import rx.subjects.Subject;
 
 import com.microsoft.azure.spark.tools.log.Logger;
 import com.microsoft.azure.spark.tools.utils.JsonConverter;
@@ -89,6 +91,12 @@ public class HttpObservable implements Logger {
      */
     private @Nullable TrustStrategy trustStrategy = null;
 
+    /**
+     * The metrics of requests sent, serialized for the requests from different threads.
+     */
+    private final Subject<HttpRequestMetric, HttpRequestMetric> requestMetricSubject =
+            PublishSubject.<HttpRequestMetric>create().toSerialized();
+
     /*
      * Constructors
      */
@@ -222,6 +230,15 @@ public class HttpObservable implements Logger {
         return defaultParameters;
     }
 
+    /**
+     * Getter of the request metrics, tagged by the operation name in {@link InvokedByMethodHeader}.
+     *
+     * @return the hot observable of request metrics
+     */
+    public Observable<HttpRequestMetric> getRequestMetrics() {
+        return requestMetricSubject.asObservable();
+    }
+
     /*
      * Helper functions
      */
@@ -388,10 +405,40 @@ public class HttpObservable implements Logger {
                 httpRequest.setHeader(entity.getContentType());
             }
 
-            return getHttpClient().execute(httpRequest, getHttpContext());
+            final long startNanos = System.nanoTime();
+
+            try {
+                CloseableHttpResponse response = getHttpClient().execute(httpRequest, getHttpContext());
+                publishRequestMetric(httpRequest, response.getStatusLine().getStatusCode(), startNanos, null);
+
+                return response;
+            } catch (IOException ex) {
+                publishRequestMetric(httpRequest, -1, startNanos, ex);
+
+                throw ex;
+            }
         });
     }
 
+    private void publishRequestMetric(final HttpRequestBase httpRequest,
+                                      final int statusCode,
+                                      final long startNanos,
+                                      final @Nullable Throwable error) {
+        if (!requestMetricSubject.hasObservers()) {
+            return;
+        }
+
+        final Header operationHeader = httpRequest.getFirstHeader(InvokedByMethodHeader.NAME);
+
+        requestMetricSubject.onNext(new HttpRequestMetric(
+                operationHeader != null ? operationHeader.getValue() : HttpRequestMetric.UNTAGGED_OPERATION,
+                httpRequest.getMethod(),
+                httpRequest.getURI(),
+                statusCode,
+                System.nanoTime() - startNanos,
+                error));
+    }
+
     /*
      * RESTful API operations with response conversion for specified type
      */
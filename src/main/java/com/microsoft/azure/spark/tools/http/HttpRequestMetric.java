@@ -0,0 +1,79 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.http;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.net.URI;
+
+/**
+ * The metric of a HTTP request sent by {@link HttpObservable}, tagged by the operation name
+ * from {@link InvokedByMethodHeader}.
+ */
+public class HttpRequestMetric {
+    /**
+     * The operation name for the requests without {@link InvokedByMethodHeader}.
+     */
+    public static final String UNTAGGED_OPERATION = "untagged";
+
+    private final String operation;
+    private final String method;
+    private final URI uri;
+    private final int statusCode;
+    private final long elapsedNanos;
+    private final @Nullable Throwable error;
+
+    public HttpRequestMetric(final String operation,
+                             final String method,
+                             final URI uri,
+                             final int statusCode,
+                             final long elapsedNanos,
+                             final @Nullable Throwable error) {
+        this.operation = operation;
+        this.method = method;
+        this.uri = uri;
+        this.statusCode = statusCode;
+        this.elapsedNanos = elapsedNanos;
+        this.error = error;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * Getter of the response status code.
+     *
+     * @return the response status code, or -1 if no response got
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Getter of the elapsed time from sending the request to getting the response status.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public @Nullable Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s %s -> %d in %d ms", operation, method, uri, statusCode, elapsedNanos / 1000000);
+    }
+}
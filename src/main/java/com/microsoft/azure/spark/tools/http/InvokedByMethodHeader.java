@@ -0,0 +1,23 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.http;
+
+import org.apache.http.message.BasicHeader;
+
+/**
+ * The request tagging header to carry the operation name which sends the request, for service side diagnostics.
+ * The operation name also tags the {@link HttpRequestMetric} of the request.
+ */
+public class InvokedByMethodHeader extends BasicHeader {
+    public static final String NAME = "X-Invoked-By-Method";
+
+    /**
+     * Constructs with the operation name.
+     *
+     * @param operation the operation name which sends the request
+     */
+    public InvokedByMethodHeader(final String operation) {
+        super(NAME, operation);
+    }
+}
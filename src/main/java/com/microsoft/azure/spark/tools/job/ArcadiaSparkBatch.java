@@ -3,24 +3,40 @@
 
 package com.microsoft.azure.spark.tools.job;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
 import org.apache.http.message.BasicHeader;
-import rx.Observable;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import rx.Observer;
 
 import com.microsoft.azure.spark.tools.clusters.ArcadiaCompute;
 import com.microsoft.azure.spark.tools.events.MessageInfoType;
 import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.http.HttpResponse;
+import com.microsoft.azure.spark.tools.restapi.livy.batches.Batch;
+import com.microsoft.azure.spark.tools.restapi.livy.batches.BatchState;
 import com.microsoft.azure.spark.tools.restapi.livy.batches.api.PostBatches;
 import com.microsoft.azure.spark.tools.utils.Pair;
 
 import java.util.Arrays;
 import java.util.List;
 
+import static com.microsoft.azure.spark.tools.events.MessageInfoType.Info;
+
+/**
+ * The Spark batch job on Arcadia compute, which is submitted and monitored with the Livy compatible batch APIs,
+ * with the `x-ms-workspace-name` header. The job scheduler state in the batch and batch state response headers is
+ * reported as the job progress, and the job result is taken as the job state if the job ended before Livy got it.
+ */
 public class ArcadiaSparkBatch extends LivySparkBatch implements DeployableBatch {
+    static final String SCHEDULER_STATE_HEADER = "x-ms-job-scheduler-state";
+    static final String SCHEDULER_STATE_ENDED = "Ended";
+    static final String JOB_RESULT_HEADER = "x-ms-job-result";
+
     private final Deployable deployDelegate;
     private final PostBatches.Options arcadiaSubmitOptions;
     private final ArcadiaCompute arcadiaCompute;
+    private volatile @Nullable String schedulerState = null;
 
     public ArcadiaSparkBatch(final ArcadiaCompute compute,
                              final PostBatches submissionParameter,
@@ -43,21 +59,50 @@ public class ArcadiaSparkBatch extends LivySparkBatch implements DeployableBatch
         return this.arcadiaSubmitOptions.build();
     }
 
-    @Override
-    public Observable<Pair<MessageInfoType, String>> getSubmissionLog() {
-        // No batches/{id}/log API support yet
-        return Observable.empty();
+    public @Nullable String getSchedulerState() {
+        return schedulerState;
     }
 
     @Override
-    public Observable<String> awaitStarted() {
-        // No submission log and driver log fetching supports
-        return Observable.empty();
+    protected Batch interpretBatchResponse(final Batch batch, final HttpResponse response) {
+        final String batchState = interpretStateResponse(batch.getState(), response);
+
+        return batchState.equals(batch.getState()) ? batch : batch.withState(batchState);
     }
 
     @Override
-    public Observable<Pair<String, String>> awaitDone() {
-        return Observable.empty();
+    protected String interpretStateResponse(final String batchState, final HttpResponse response) {
+        final String currentSchedulerState = getHeaderValue(response, SCHEDULER_STATE_HEADER);
+
+        if (currentSchedulerState != null && !currentSchedulerState.equals(schedulerState)) {
+            this.schedulerState = currentSchedulerState;
+            getCtrlSubject().onNext(new Pair<>(Info, "The Spark job scheduler state is " + currentSchedulerState));
+        }
+
+        final SparkBatchJobState livyState = SparkBatchJobState.fromLivy(batchState);
+        if (!SCHEDULER_STATE_ENDED.equalsIgnoreCase(currentSchedulerState)
+                || (livyState != null && livyState.isDone())) {
+            return batchState;
+        }
+
+        // The job ended before Livy got it, such as failed to acquire the Spark pool, map the job result instead
+        final String jobResult = StringUtils.defaultString(getHeaderValue(response, JOB_RESULT_HEADER));
+        switch (jobResult) {
+            case "Succeeded":
+                return BatchState.SUCCESS.toString();
+            case "Failed":
+                return BatchState.DEAD.toString();
+            case "Cancelled":
+                return BatchState.KILLED.toString();
+            default:
+                return batchState;
+        }
+    }
+
+    private static @Nullable String getHeaderValue(final HttpResponse response, final String name) {
+        final Header header = response.getRaw().getFirstHeader(name);
+
+        return header != null ? header.getValue() : null;
     }
 
     @Override
@@ -38,11 +38,21 @@ public class AzureBlobStorageDeploy implements Deployable, Logger {
      */
     public AzureBlobStorageDeploy(final String storageAccessKey, final WasbUri fsRoot) {
         this.fsRoot = fsRoot;
+        this.storageAccount = createStorageAccount(storageAccessKey, fsRoot);
+    }
 
+    /**
+     * Create the storage account with the access key, over HTTPS.
+     *
+     * @param storageAccessKey the Azure Blob storage access key
+     * @param fsRoot the WASB URI for Blob root with container
+     * @return the storage account created
+     */
+    static CloudStorageAccount createStorageAccount(final String storageAccessKey, final WasbUri fsRoot) {
         StorageCredentialsAccountAndKey storageCredentials =
                 new StorageCredentialsAccountAndKey(fsRoot.getStorageAccount(), storageAccessKey);
         try {
-            this.storageAccount = new CloudStorageAccount(storageCredentials, true);
+            return new CloudStorageAccount(storageCredentials, true);
         } catch (URISyntaxException e) {
             throw new RuntimeException(e.getMessage(), e);
         }
@@ -51,12 +51,33 @@ public class HdiSparkBatch extends LivySparkBatch implements SparkLogFetcher, De
                 .flatMap(delegate -> delegate.fetch(type, logOffset, size));
     }
 
+    @Override
+    public Observable<SparkLogChunk> fetchChunk(final String type, final long byteOffset, final int maxBytes) {
+        return getDriverLogFetcherDelegate()
+                .observable()
+                .first()
+                .flatMap(delegate -> delegate.fetchChunk(type, byteOffset, maxBytes));
+    }
+
+    /**
+     * Can the driver log fetcher tell the exact byte offset of the tail chunk, which is asked without waiting for
+     * the driver log fetcher located at the job started.
+     *
+     * @return true if the driver log fetcher is located and can tell the tail offset
+     */
+    @Override
+    public boolean isTailOffsetKnown() {
+        final SparkLogFetcher delegate = getDriverLogFetcherDelegate().getWithNull();
+
+        return delegate != null && delegate.isTailOffsetKnown();
+    }
+
     @Override
     public Observable<String> awaitPostDone() {
         return Observable.empty();
     }
 
-    private LaterInit<SparkLogFetcher> getDriverLogFetcherDelegate() {
+    LaterInit<SparkLogFetcher> getDriverLogFetcherDelegate() {
         return driverLogFetcherDelegate;
     }
 
@@ -72,6 +93,9 @@ public class HdiSparkBatch extends LivySparkBatch implements SparkLogFetcher, De
                                     (YarnCluster) HdiSparkBatch.this.getCluster(),
                                     HdiSparkBatch.this.getHttp());
 
+                            // Locate the driver log from Livy application info rather than probing Yarn
+                            driverContainerLogFetcher.setDriverLogUrlHint(HdiSparkBatch.this::getDriverLogUrl);
+
                             driverLogFetcherDelegate.setIfNull(driverContainerLogFetcher);
                         })
                 );
@@ -0,0 +1,151 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import rx.Observable;
+
+import com.microsoft.azure.spark.tools.clusters.LivyCluster;
+import com.microsoft.azure.spark.tools.clusters.YarnCluster;
+import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.http.InvokedByMethodHeader;
+import com.microsoft.azure.spark.tools.restapi.livy.batches.api.GetBatches;
+import com.microsoft.azure.spark.tools.restapi.livy.batches.api.GetBatchesResponse;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.AppsResponse;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.GetApps;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.App;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.YarnApplicationState;
+import com.microsoft.azure.spark.tools.utils.Pair;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * The capacity probe of a Livy cluster, with the count of Livy batches not done yet, and the resources usage
+ * summed from the running Yarn applications if the cluster is a Yarn cluster.
+ */
+public class LivyClusterCapacityProbe {
+    static final int LIVY_BATCHES_LOOKUP = 100;
+
+    /**
+     * The capacity signals probed from the cluster.
+     */
+    public static class Capacity {
+        private final int activeBatches;
+        private final float clusterUsagePercentage;
+        private final Map<String, Float> queueUsagePercentages;
+
+        public Capacity(final int activeBatches,
+                        final float clusterUsagePercentage,
+                        final Map<String, Float> queueUsagePercentages) {
+            this.activeBatches = activeBatches;
+            this.clusterUsagePercentage = clusterUsagePercentage;
+            this.queueUsagePercentages = queueUsagePercentages;
+        }
+
+        /**
+         * Getter of the Livy batches count which are not done yet.
+         *
+         * @return the active Livy batches count
+         */
+        public int getActiveBatches() {
+            return activeBatches;
+        }
+
+        public float getClusterUsagePercentage() {
+            return clusterUsagePercentage;
+        }
+
+        /**
+         * Get the resources usage of a Yarn queue, the queue name is matched with or without the `root.` prefix.
+         *
+         * @param queue the Yarn queue name
+         * @return the usage percentage of the queue, or 0 for no application running in the queue
+         */
+        public float getQueueUsagePercentage(final String queue) {
+            final String leafQueue = StringUtils.removeStart(queue, "root.");
+
+            return queueUsagePercentages.getOrDefault(leafQueue, 0f);
+        }
+    }
+
+    private final LivyCluster cluster;
+    private final HttpObservable http;
+
+    public LivyClusterCapacityProbe(final LivyCluster cluster, final HttpObservable http) {
+        this.cluster = cluster;
+        this.http = http;
+    }
+
+    public LivyCluster getCluster() {
+        return cluster;
+    }
+
+    /**
+     * Probe the cluster capacity with the Livy batches and the running Yarn applications.
+     *
+     * @return Observable of the capacity probed
+     */
+    public Observable<Capacity> probe() {
+        final Observable<Pair<Float, Map<String, Float>>> yarnUsages = cluster instanceof YarnCluster
+                ? getYarnUsages((YarnCluster) cluster)
+                : Observable.just(Pair.of(0f, Collections.emptyMap()));
+
+        return Observable.zip(getActiveLivyBatches(), yarnUsages,
+                (activeBatches, usages) -> new Capacity(activeBatches, usages.getFirst(), usages.getSecond()));
+    }
+
+    private Observable<Integer> getActiveLivyBatches() {
+        final List<Header> headers = singletonList(new InvokedByMethodHeader("probeCapacity"));
+
+        // The total comes first, then look up the last batches, which the active ones should be in
+        return http.get(cluster.getLivyBatchUrl(),
+                        Arrays.asList(new GetBatches.FromParameter(0), new GetBatches.SizeParameter(0)),
+                        headers,
+                        GetBatchesResponse.class)
+                .map(Pair::getFirst)
+                .flatMap(totalResponse -> http.get(cluster.getLivyBatchUrl(),
+                        Arrays.asList(
+                                new GetBatches.FromParameter(
+                                        Math.max(0, totalResponse.getTotal() - LIVY_BATCHES_LOOKUP)),
+                                new GetBatches.SizeParameter(LIVY_BATCHES_LOOKUP)),
+                        headers,
+                        GetBatchesResponse.class))
+                .map(batchesResponse -> (int) batchesResponse.getFirst().getSessions().stream()
+                        .filter(batch -> isActiveLivyState(batch.getState()))
+                        .count());
+    }
+
+    private static boolean isActiveLivyState(final @Nullable String livyState) {
+        final SparkBatchJobState state = SparkBatchJobState.fromLivy(livyState);
+
+        return state != null && !state.isDone();
+    }
+
+    private Observable<Pair<Float, Map<String, Float>>> getYarnUsages(final YarnCluster yarnCluster) {
+        return http.get(yarnCluster.getYarnNMConnectionUrl(),
+                        singletonList(new GetApps.StatesParameter(YarnApplicationState.RUNNING)),
+                        singletonList(new InvokedByMethodHeader("probeCapacity")),
+                        AppsResponse.class)
+                .map(appsResponse -> {
+                    float clusterUsage = 0;
+                    final Map<String, Float> queueUsages = new HashMap<>();
+
+                    for (App app : appsResponse.getFirst().getApps()) {
+                        clusterUsage += app.getClusterUsagePercentage();
+                        queueUsages.merge(StringUtils.removeStart(StringUtils.defaultString(app.getQueue()), "root."),
+                                app.getQueueUsagePercentage(), Float::sum);
+                    }
+
+                    return Pair.of(clusterUsage, queueUsages);
+                });
+    }
+}
@@ -0,0 +1,69 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+/**
+ * The adaptive paging policy for Livy batch log polling. The page size doubles while the pages come back full,
+ * which means there is more backlog to catch up with, and the polling delay doubles while the pages come back
+ * empty. Both of them reset to the minimum values once the logs are produced at the normal pace.
+ */
+public class LivyLogPaging {
+    private final int minPageSize;
+    private final int maxPageSize;
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+
+    private int pageSize;
+    private long delayMillis;
+
+    public LivyLogPaging(final int minPageSize,
+                         final int maxPageSize,
+                         final long minDelayMillis,
+                         final long maxDelayMillis) {
+        this.minPageSize = Math.max(1, minPageSize);
+        this.maxPageSize = Math.max(this.minPageSize, maxPageSize);
+        this.minDelayMillis = Math.max(0, minDelayMillis);
+        this.maxDelayMillis = Math.max(this.minDelayMillis, maxDelayMillis);
+        this.pageSize = this.minPageSize;
+        this.delayMillis = this.minDelayMillis;
+    }
+
+    /**
+     * Getter of the log lines to get in the next page.
+     *
+     * @return the page size
+     */
+    public synchronized int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Getter of the delay before getting the next page.
+     *
+     * @return the delay in milliseconds
+     */
+    public synchronized long getDelayMillis() {
+        return delayMillis;
+    }
+
+    /**
+     * Adapt the page size and delay to the page got.
+     *
+     * @param linesGot the new log lines got in the page
+     * @param pageSizeRequested the page size requested
+     */
+    public synchronized void onPageGot(final int linesGot, final int pageSizeRequested) {
+        if (linesGot == 0) {
+            // Idle, back off
+            pageSize = minPageSize;
+            delayMillis = Math.min(maxDelayMillis, Math.max(1, delayMillis) * 2);
+        } else if (linesGot >= pageSizeRequested) {
+            // The page is full, there could be more backlog
+            pageSize = (int) Math.min(maxPageSize, (long) pageSize * 2);
+            delayMillis = minDelayMillis;
+        } else {
+            delayMillis = minDelayMillis;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.microsoft.azure.spark.tools.job.LivySparkBatch.LivyLogType;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UnknownFormatConversionException;
+
+/**
+ * The streaming parser for Livy batch logs, which classifies each line into the {@link LivyLogType} section
+ * with one scan. A section starts at its title line, such as `stdout:`, `\nstderr:` and `\nYARN Diagnostics:`,
+ * and the lines before any title line belong to the default section.
+ *
+ * <p>The parser keeps the current section between lines, so it isn't thread safe.
+ */
+public class LivyLogParser {
+    private static final LivyLogType[] LOG_TYPES = LivyLogType.values();
+
+    /**
+     * The title prefixes in lower case, precomputed for the case insensitive matching.
+     */
+    private static final Map<LivyLogType, String> TITLE_PREFIXES = new EnumMap<>(LivyLogType.class);
+
+    /**
+     * The lower case leading characters of all title prefixes, to skip the prefix matching for most lines.
+     */
+    private static final String TITLE_LEADING_CHARS;
+
+    static {
+        final StringBuilder leadingChars = new StringBuilder();
+
+        for (LivyLogType logType : LOG_TYPES) {
+            final String prefix = logType.getTitlePrefix().toLowerCase();
+            TITLE_PREFIXES.put(logType, prefix);
+
+            if (leadingChars.indexOf(prefix.substring(0, 1)) < 0) {
+                leadingChars.append(prefix.charAt(0));
+            }
+        }
+
+        TITLE_LEADING_CHARS = leadingChars.toString();
+    }
+
+    private LivyLogType currentType;
+
+    /**
+     * The bit set by {@link LivyLogType} ordinal of the sections which have lines parsed.
+     */
+    private int typesParsed = 0;
+
+    private boolean isTitleParsed = false;
+
+    public LivyLogParser(final LivyLogType defaultType) {
+        this.currentType = defaultType;
+    }
+
+    /**
+     * Reset the parser to parse a new log page.
+     *
+     * @param defaultType the section type for the lines before any title line
+     * @return the current instance for chain calling
+     */
+    public LivyLogParser reset(final LivyLogType defaultType) {
+        this.currentType = defaultType;
+        this.typesParsed = 0;
+        this.isTitleParsed = false;
+
+        return this;
+    }
+
+    /**
+     * Classify a log line.
+     *
+     * @param line the log line to parse
+     * @return the section type of the line
+     * @throws UnknownFormatConversionException the section title found again after the section has lines
+     */
+    public LivyLogType parse(final String line) {
+        final LivyLogType titleType = matchTitle(line);
+        this.isTitleParsed = titleType != null;
+
+        if (titleType != null) {
+            if ((typesParsed & (1 << titleType.ordinal())) != 0) {
+                throw new UnknownFormatConversionException("Duplicated log type " + titleType + " found.");
+            }
+
+            this.currentType = titleType;
+        }
+
+        typesParsed |= 1 << currentType.ordinal();
+
+        return currentType;
+    }
+
+    /**
+     * Parse the lines until the current section ends.
+     *
+     * @param lines the log lines to parse
+     * @return the count of leading lines in the current section
+     */
+    public int parseSection(final List<String> lines) {
+        final LivyLogType sectionType = currentType;
+        int count = 0;
+
+        for (String line : lines) {
+            if (parse(line) != sectionType) {
+                break;
+            }
+
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Check whether the last line parsed is a section title line.
+     *
+     * @return true for a section title line
+     */
+    public boolean isTitleParsed() {
+        return isTitleParsed;
+    }
+
+    public LivyLogType getCurrentType() {
+        return currentType;
+    }
+
+    private static @Nullable LivyLogType matchTitle(final String line) {
+        if (line.isEmpty() || TITLE_LEADING_CHARS.indexOf(Character.toLowerCase(line.charAt(0))) < 0) {
+            return null;
+        }
+
+        // Go through the values array rather than the map entries to avoid iterator allocations
+        for (LivyLogType logType : LOG_TYPES) {
+            final String prefix = TITLE_PREFIXES.get(logType);
+
+            if (line.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                return logType;
+            }
+        }
+
+        return null;
+    }
+}
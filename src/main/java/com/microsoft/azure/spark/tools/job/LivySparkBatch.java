@@ -3,12 +3,10 @@
 
 package com.microsoft.azure.spark.tools.job;
 
-import com.google.common.collect.Streams;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
 import org.apache.http.NameValuePair;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.message.BasicHeader;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import rx.Observable;
 import rx.Observer;
@@ -16,36 +14,80 @@ import rx.Observer;
 import com.microsoft.azure.spark.tools.clusters.LivyCluster;
 import com.microsoft.azure.spark.tools.errors.SparkJobException;
 import com.microsoft.azure.spark.tools.events.MessageInfoType;
+import com.microsoft.azure.spark.tools.events.SparkBatchJobStateTransitionEvent;
 import com.microsoft.azure.spark.tools.http.HttpObservable;
 import com.microsoft.azure.spark.tools.http.HttpResponse;
+import com.microsoft.azure.spark.tools.http.InvokedByMethodHeader;
+import com.microsoft.azure.spark.tools.http.status.ClientError;
+import com.microsoft.azure.spark.tools.http.status.HttpErrorStatus;
 import com.microsoft.azure.spark.tools.log.Logger;
 import com.microsoft.azure.spark.tools.restapi.livy.batches.Batch;
-import com.microsoft.azure.spark.tools.restapi.livy.batches.BatchState;
+import com.microsoft.azure.spark.tools.restapi.livy.batches.api.GetBatches;
+import com.microsoft.azure.spark.tools.restapi.livy.batches.api.GetBatchesResponse;
 import com.microsoft.azure.spark.tools.restapi.livy.batches.api.PostBatches;
 import com.microsoft.azure.spark.tools.restapi.livy.batches.api.batchid.GetLog;
 import com.microsoft.azure.spark.tools.restapi.livy.batches.api.batchid.GetLogResponse;
+import com.microsoft.azure.spark.tools.restapi.livy.batches.api.batchid.GetStateResponse;
 import com.microsoft.azure.spark.tools.utils.JsonConverter;
 import com.microsoft.azure.spark.tools.utils.LaterInit;
 import com.microsoft.azure.spark.tools.utils.Pair;
 
+import java.io.IOException;
 import java.net.URI;
+import java.net.UnknownServiceException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UnknownFormatConversionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
 
 import static com.microsoft.azure.spark.tools.events.MessageInfoType.Debug;
 import static com.microsoft.azure.spark.tools.events.MessageInfoType.Info;
 import static com.microsoft.azure.spark.tools.events.MessageInfoType.Log;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
 import static rx.Observable.from;
 
 public class LivySparkBatch implements SparkBatchJob, Logger {
+    /**
+     * The default operation name to tag the full batch getting request.
+     */
+    public static final String GET_OPERATION = "get";
+
+    /**
+     * The initial Livy log lines to get per page.
+     */
+    public static final int DEFAULT_LOG_LINES_PER_GET = 128;
+
+    /**
+     * The initial delay between Livy log pages.
+     */
+    public static final long DEFAULT_LOG_POLL_DELAY_MILLIS = 200;
+
+    /**
+     * The log type to record the Livy submission log offset in journal.
+     */
+    public static final String LIVY_LOG_TYPE = "livy";
+
+    /**
+     * The latest batches in Livy listing to look up the one created by a timed out submission.
+     */
+    public static final int SUBMISSION_LOOKUP_BATCHES = 100;
+
+    /**
+     * The batch created by a timed out submission can't be looked up, since the Livy batches listing has no batch
+     * names before Livy 0.6. The submission isn't retried then, or the batch could be created twice.
+     */
+    public static class SubmissionLookupUnsupportedException extends SparkJobException {
+        public SubmissionLookupUnsupportedException(String message) {
+            super(message);
+        }
+    }
+
     private final Observer<Pair<MessageInfoType, String>> ctrlSubject;
 
     /**
@@ -70,12 +112,46 @@ public class LivySparkBatch implements SparkBatchJob, Logger {
      */
     private int delaySeconds = 10;
 
+    /**
+     * The setting of maximum Livy log lines per page, which the page size grows to while pages are full.
+     */
+    private int maxLogLinesPerGet = 1024;
+
+    /**
+     * The setting of maximum delay between Livy log pages, which the delay backs off to while pages are empty.
+     */
+    private long maxLogPollDelayMillis = 1600;
+
+    /**
+     * The setting of Livy log catch-up mode, to get only the last N lines and skip the lines lagged behind.
+     * 0 for getting the full history.
+     */
+    private int logTailLines = 0;
+
+    /**
+     * The journal to record the submission, state transitions and log offsets, for resuming after restart.
+     */
+    private @Nullable SparkBatchJobJournal journal = null;
+
+    private @Nullable SparkBatchSubmissionQueue submissionQueue = null;
+    private int submissionPriority = 0;
+    private @Nullable String submissionTenant = null;
+
     private final LivyCluster cluster;
 
     private @Nullable String destinationRootPath;
     private String state = "__new_instance";
 
     private List<String> submissionLogs = emptyList();
+    private Map<String, String> appInfo = emptyMap();
+
+    /**
+     * Is the Livy `GET /batches/{batchId}/state` API unsupported, which is remembered at the first
+     * unsupported response to fall back to the full batch polling.
+     */
+    private volatile boolean isStateApiUnsupported = false;
+
+    private @Nullable SparkBatchJobStateMachine stateMachine = null;
 
     public LivySparkBatch(
             final LivyCluster cluster,
@@ -182,6 +258,124 @@ public class LivySparkBatch implements SparkBatchJob, Logger {
         this.delaySeconds = delaySeconds;
     }
 
+    /**
+     * Getter of the maximum Livy log lines per page.
+     *
+     * @return the maximum Livy log lines per page
+     */
+    public int getMaxLogLinesPerGet() {
+        return maxLogLinesPerGet;
+    }
+
+    /**
+     * Setter of the maximum Livy log lines per page, the page size grows up to it while the pages come back full.
+     *
+     * @param maxLogLinesPerGet the maximum Livy log lines per page
+     */
+    public void setMaxLogLinesPerGet(final int maxLogLinesPerGet) {
+        this.maxLogLinesPerGet = maxLogLinesPerGet;
+    }
+
+    /**
+     * Getter of the maximum delay between Livy log pages.
+     *
+     * @return the maximum delay in milliseconds
+     */
+    public long getMaxLogPollDelayMillis() {
+        return maxLogPollDelayMillis;
+    }
+
+    /**
+     * Setter of the maximum delay between Livy log pages, the delay backs off up to it while the pages come back
+     * empty.
+     *
+     * @param maxLogPollDelayMillis the maximum delay in milliseconds
+     */
+    public void setMaxLogPollDelayMillis(final long maxLogPollDelayMillis) {
+        this.maxLogPollDelayMillis = maxLogPollDelayMillis;
+    }
+
+    /**
+     * Getter of the Livy log catch-up mode lines.
+     *
+     * @return the last lines to get, or 0 for the full history
+     */
+    public int getLogTailLines() {
+        return logTailLines;
+    }
+
+    /**
+     * Setter of the Livy log catch-up mode, for the consumers which don't need the full history, such as
+     * dashboards. The log getting starts from the last N lines, and jumps to the last N lines again once it
+     * lags behind more than N lines.
+     *
+     * @param logTailLines the last lines to get, or 0 for the full history
+     */
+    public void setLogTailLines(final int logTailLines) {
+        this.logTailLines = logTailLines;
+    }
+
+    public @Nullable SparkBatchJobJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Setter of the journal to record the job submission, state transitions and log offsets, which can be used
+     * to reattach the job after the client restarts.
+     *
+     * @param journal the journal to record into, or null to disable recording
+     */
+    public void setJournal(final @Nullable SparkBatchJobJournal journal) {
+        this.journal = journal;
+    }
+
+    public @Nullable SparkBatchSubmissionQueue getSubmissionQueue() {
+        return submissionQueue;
+    }
+
+    /**
+     * Setter of the queue to submit the job through, which holds the job until the cluster has the capacity.
+     *
+     * @param queue the submission queue of the job cluster, or null to submit the job directly
+     * @param priority the job priority, the higher priority job is admitted first
+     * @param tenant the tenant name for fair sharing
+     */
+    public void setSubmissionQueue(final @Nullable SparkBatchSubmissionQueue queue,
+                                   final int priority,
+                                   final String tenant) {
+        this.submissionQueue = queue;
+        this.submissionPriority = priority;
+        this.submissionTenant = tenant;
+    }
+
+    /**
+     * Reattach to a submitted batch job, the application ID and Livy log offset recorded in journal are
+     * restored, then the batch is refreshed.
+     *
+     * @param batchIdToAttach the Livy batch ID to reattach
+     * @return Observable of the current instance for chain calling,
+     *         Observable Error: HttpErrorStatus exceptions for the batch not found or other HTTP errors
+     */
+    @Override
+    public Observable<? extends SparkBatchJob> reattach(final int batchIdToAttach) {
+        return Observable.fromCallable(() -> {
+            getLaterBatchId().set(batchIdToAttach);
+
+            final SparkBatchJobJournal currentJournal = getJournal();
+            final SparkBatchJobJournal.Entry entry = currentJournal != null
+                    ? currentJournal.getEntry(batchIdToAttach)
+                    : null;
+            final String appIdRecorded = entry != null ? entry.getAppId() : null;
+
+            if (appIdRecorded != null) {
+                getLaterAppId().setIfNull(appIdRecorded);
+            }
+
+            return this;
+        })
+                .flatMap(job -> get("reattach"));
+    }
+
     /**
      * Kill the batch job specified by ID.
      *
@@ -205,6 +399,59 @@ public class LivySparkBatch implements SparkBatchJob, Logger {
         return state;
     }
 
+    /**
+     * Get the state machine which takes the Livy batch states got.
+     *
+     * @return the job state machine
+     */
+    public synchronized SparkBatchJobStateMachine getStateMachine() {
+        SparkBatchJobStateMachine current = stateMachine;
+
+        if (current == null) {
+            current = new SparkBatchJobStateMachine();
+            stateMachine = current;
+        }
+
+        return current;
+    }
+
+    /**
+     * Get the typed job state of the last Livy batch state got.
+     *
+     * @return the job state
+     */
+    public SparkBatchJobState getJobState() {
+        return getStateMachine().getState();
+    }
+
+    /**
+     * Get the job state transition events, to react to the transitions rather than checking the states polled.
+     *
+     * @return Observable of the state transition events, which completes after the job is done
+     */
+    public Observable<SparkBatchJobStateTransitionEvent> getStateTransitions() {
+        return getStateMachine().getTransitions();
+    }
+
+    /**
+     * Get the Spark application info got from the last full batch response, such as `driverLogUrl` and
+     * `sparkUiUrl`, which are available after the application is started.
+     *
+     * @return the application info, the values could be null
+     */
+    public Map<String, String> getAppInfo() {
+        return appInfo != null ? appInfo : emptyMap();
+    }
+
+    /**
+     * Get the Spark driver log URL from the application info.
+     *
+     * @return the driver log URL, or null if not available yet
+     */
+    public @Nullable String getDriverLogUrl() {
+        return StringUtils.trimToNull(getAppInfo().get("driverLogUrl"));
+    }
+
     /**
      * Get current job application Id.
      *
@@ -220,40 +467,133 @@ public class LivySparkBatch implements SparkBatchJob, Logger {
 
     @Override
     public Observable<Pair<MessageInfoType, String>> getSubmissionLog() {
-        final int maxLinesPerGet = 128;
-        final AtomicInteger start = new AtomicInteger(0);
+        final int tailLines = Math.max(0, getLogTailLines());
+        // The negative start is to get the tail lines without `from` parameter
+        final AtomicInteger start = new AtomicInteger(
+                tailLines > 0 ? -1 : (int) getJournalLogOffset(LIVY_LOG_TYPE));
         final LivyLogType defaultLogType = LivyLogType.STDOUT;
+        final LivyLogParser pageParser = new LivyLogParser(defaultLogType);
+        final LivyLogPaging paging = new LivyLogPaging(
+                DEFAULT_LOG_LINES_PER_GET, getMaxLogLinesPerGet(),
+                DEFAULT_LOG_POLL_DELAY_MILLIS, getMaxLogPollDelayMillis());
+
+        return get("getSubmissionLog")
+                .flatMap(batch -> {
+                    final int size = start.get() < 0 ? tailLines : paging.getPageSize();
 
-        return get()
-                .flatMap(batch -> getSparkBatchLogRequest(start.get(), maxLinesPerGet)
-                        .map(logResponse -> parseLivyLogs(defaultLogType, logResponse.getLog())))
-                .doOnNext(typedLogs -> start.getAndAdd(typedLogs.get(defaultLogType).size()))
-                .repeatWhen(repeat -> repeat.delay(200, TimeUnit.MILLISECONDS))
-                .takeUntil(typedLogs -> isNoMoreLivyLogs(defaultLogType, typedLogs))
-                .flatMap(typedLogs -> from(typedLogs.get(defaultLogType)) // handle other type logs later
-                                                .map(line -> new Pair<>(Log, line)))
+                    return getSparkBatchLogRequest(start.get(), size)
+                            .map(logResponse -> {
+                                // The default type logs are always leading in a page, take them without copying
+                                final List<String> pageLogs = logResponse.getLog();
+                                final List<String> defaultTypeLogs = pageLogs.subList(
+                                        0, pageParser.reset(defaultLogType).parseSection(pageLogs));
+
+                                updateLogStart(start, logResponse, defaultTypeLogs.size(), tailLines);
+                                recordLogOffset(LIVY_LOG_TYPE, start.get());
+                                paging.onPageGot(defaultTypeLogs.size(), size);
+
+                                return defaultTypeLogs;
+                            });
+                })
+                .repeatWhen(repeat -> repeat.concatMap(ignored ->
+                        Observable.timer(paging.getDelayMillis(), TimeUnit.MILLISECONDS)))
+                .takeUntil(this::isNoMoreLivyLogs)
+                .flatMap(defaultTypeLogs -> from(defaultTypeLogs).map(line -> new Pair<>(Log, line)))
                 .concatWith(Observable.fromCallable(start::get)
                         // spacial fetch for other type logs
-                        .flatMap(end -> getSparkBatchLogRequest(end, maxLinesPerGet))
-                        .map(logResponse -> parseLivyLogs(defaultLogType, logResponse.getLog()))
-                        .flatMap(typedLogs -> from(typedLogs.entrySet()).flatMap(entry -> {
-                            switch (entry.getKey()) {
-                                case STDERR:
-                                case YARN_DIAGNOSTICS:
-                                    return entry.getValue().size() > 1
-                                            ? from(entry.getValue()).map(line -> Pair.of(MessageInfoType.Error, line))
-                                            : Observable.empty();
-                                default:
-                                    return from(entry.getValue()).map(line -> Pair.of(MessageInfoType.Warning, line));
-                            }
-                        })))
+                        .flatMap(end -> getSparkBatchLogRequest(end, paging.getPageSize()))
+                        .flatMap(logResponse -> from(parseTypedLogs(defaultLogType, logResponse.getLog()))))
                 .onErrorReturn(err -> new Pair<>(MessageInfoType.Error, err.getMessage()));
     }
 
-    boolean isNoMoreLivyLogs(final LivyLogType defaultLogType, final Map<LivyLogType, List<String>> typedLogs) {
-        return typedLogs.get(defaultLogType).isEmpty()
-                && ((!StringUtils.equalsIgnoreCase(getState(), "starting") && this.appId.isInitialized())
-                        || StringUtils.equalsIgnoreCase(getState(), "dead"));
+    /**
+     * Get the log offset recorded in journal.
+     *
+     * @param logType the log type
+     * @return the log offset recorded, or 0 for no journal or record
+     */
+    public long getJournalLogOffset(final String logType) {
+        final SparkBatchJobJournal currentJournal = getJournal();
+        final SparkBatchJobJournal.Entry entry = currentJournal != null && getLaterBatchId().isInitialized()
+                ? currentJournal.getEntry(getBatchId())
+                : null;
+
+        return entry != null ? entry.getLogOffset(logType) : 0;
+    }
+
+    /**
+     * Record the log offset into journal if set.
+     *
+     * @param logType the log type
+     * @param offset the log offset to record
+     */
+    public void recordLogOffset(final String logType, final long offset) {
+        final SparkBatchJobJournal currentJournal = getJournal();
+
+        if (currentJournal != null && offset > 0) {
+            currentJournal.recordLogOffset(getBatchId(), logType, offset);
+        }
+    }
+
+    private static void updateLogStart(final AtomicInteger start,
+                                       final GetLogResponse logResponse,
+                                       final int linesGot,
+                                       final int tailLines) {
+        // The tail lines request starts from where Livy responses
+        int nextStart = (start.get() < 0 ? logResponse.getFrom() : start.get()) + linesGot;
+
+        if (tailLines > 0 && logResponse.getTotal() - nextStart > tailLines) {
+            // Lagged behind too much in the catch-up mode, skip ahead to the last lines
+            nextStart = logResponse.getTotal() - tailLines;
+        }
+
+        start.set(nextStart);
+    }
+
+    boolean isNoMoreLivyLogs(final List<String> defaultTypeLogs) {
+        return defaultTypeLogs.isEmpty()
+                && ((!StringUtils.equalsIgnoreCase(getState(), "starting") && getLaterAppId().isInitialized())
+                        || getJobState().isDone());
+    }
+
+    /**
+     * Convert the logs left after the default type logs to messages in order. The `stderr` and
+     * `YARN Diagnostics` sections are errors, and they are dropped if there is only a title line.
+     *
+     * @param defaultLogType the section type for the lines before any title line
+     * @param mixLogs the Livy logs to convert
+     * @return the typed log messages
+     */
+    List<Pair<MessageInfoType, String>> parseTypedLogs(final LivyLogType defaultLogType,
+                                                       final List<String> mixLogs) {
+        final LivyLogParser parser = new LivyLogParser(defaultLogType);
+        final List<Pair<MessageInfoType, String>> typedLogs = new ArrayList<>(mixLogs.size());
+        @Nullable String pendingTitle = null;
+
+        for (String log : mixLogs) {
+            switch (parser.parse(log)) {
+                case STDERR:
+                case YARN_DIAGNOSTICS:
+                    if (parser.isTitleParsed()) {
+                        // Hold the title line until the section has any content
+                        pendingTitle = log;
+                        break;
+                    }
+
+                    if (pendingTitle != null) {
+                        typedLogs.add(Pair.of(MessageInfoType.Error, pendingTitle));
+                        pendingTitle = null;
+                    }
+
+                    typedLogs.add(Pair.of(MessageInfoType.Error, log));
+                    break;
+                default:
+                    pendingTitle = null;
+                    typedLogs.add(Pair.of(MessageInfoType.Warning, log));
+            }
+        }
+
+        return typedLogs;
     }
 
     public enum LivyLogType {
@@ -279,24 +619,14 @@ public class LivySparkBatch implements SparkBatchJob, Logger {
         //     "\nstderr:"
         //     "\nyarn diagnostics:"
 
-        LivyLogType logTypeFound = defaultLogType;
-        final Map<LivyLogType, List<String>> logsParsed = Arrays.stream(LivyLogType.values())
-                .map(logType -> Pair.of(logType, (List<String>) new ArrayList<String>()))
-                .collect(Collectors.toMap(Pair::getFirst, Pair::getSecond));
+        final LivyLogParser parser = new LivyLogParser(defaultLogType);
+        final Map<LivyLogType, List<String>> logsParsed = new EnumMap<>(LivyLogType.class);
+        for (LivyLogType logType : LivyLogType.values()) {
+            logsParsed.put(logType, new ArrayList<>());
+        }
 
         for (String log : mixLogs) {
-            for (LivyLogType logTypeToTest : LivyLogType.values()) {
-                if (StringUtils.startsWithIgnoreCase(log, logTypeToTest.getTitlePrefix())) {
-                    if (!logsParsed.getOrDefault(logTypeToTest, emptyList()).isEmpty()) {
-                        throw new UnknownFormatConversionException("Duplicated log type " + logTypeToTest + " found.");
-                    }
-
-                    logTypeFound = logTypeToTest;
-                    break;
-                }
-            }
-
-            logsParsed.get(logTypeFound).add(log);
+            logsParsed.get(parser.parse(log)).add(log);
         }
 
         return logsParsed;
@@ -308,49 +638,68 @@ public class LivySparkBatch implements SparkBatchJob, Logger {
     }
 
     /**
-     * Submit the job.
+     * Submit the job, through the submission queue if set.
      *
      * @return Spark Job observable
      */
     @Override
     public Observable<? extends SparkBatchJob> submit() {
-        return createSparkBatchRequest()
+        final SparkBatchSubmissionQueue queue = getSubmissionQueue();
+
+        return queue != null
+                ? queue.submit(this, submissionPriority,
+                        StringUtils.defaultString(submissionTenant, SparkBatchSubmissionQueue.DEFAULT_TENANT))
+                : submitNow();
+    }
+
+    /**
+     * Submit the job to Livy right now.
+     *
+     * @return Spark Job observable
+     */
+    Observable<? extends SparkBatchJob> submitNow() {
+        final String submissionKey = getSubmissionParameter().getSubmissionKey();
+        final Observable<Batch> submission = submissionKey == null
+                ? createSparkBatchRequest()
+                : createSparkBatchRequestIdempotently(submissionKey);
+
+        return submission
                 .map(this::updateWithBatchResponse)
+                .doOnNext(job -> {
+                    final SparkBatchJobJournal currentJournal = getJournal();
+
+                    if (currentJournal != null) {
+                        currentJournal.recordSubmitted(getBatchId(), getConnectUri(), getName());
+                    }
+                })
                 .defaultIfEmpty(this);
     }
 
     @Override
     public boolean isDone(final String toCheck) {
-        switch (BatchState.valueOf(toCheck.toUpperCase())) {
-            case SHUTTING_DOWN:
-            case ERROR:
-            case DEAD:
-            case SUCCESS:
-                return true;
-            case NOT_STARTED:
-            case STARTING:
-            case RUNNING:
-            case RECOVERING:
-            case BUSY:
-            case IDLE:
-            default:
-                return false;
-        }
+        final SparkBatchJobState jobState = SparkBatchJobState.fromLivy(toCheck);
+
+        // The shutting down state is counted as done, as it was before the typed state
+        return jobState != null && (jobState.isDone() || jobState == SparkBatchJobState.SHUTTING_DOWN);
     }
 
     @Override
     public boolean isRunning(final String toCheck) {
-        return BatchState.valueOf(toCheck.toUpperCase()) == BatchState.RUNNING;
+        final SparkBatchJobState jobState = SparkBatchJobState.fromLivy(toCheck);
+
+        return jobState != null && jobState.isRunning();
     }
 
     @Override
     public boolean isSuccess(final String toCheck) {
-        return BatchState.valueOf(toCheck.toUpperCase()) == BatchState.SUCCESS;
+        final SparkBatchJobState jobState = SparkBatchJobState.fromLivy(toCheck);
+
+        return jobState != null && jobState.isSuccess();
     }
 
     @Override
     public Observable<String> awaitStarted() {
-        return get()
+        return pollState("awaitStarted")
                 .retry(getRetriesMax())
                 .repeatWhen(ob -> ob
                         .doOnNext(ignored -> {
@@ -358,10 +707,10 @@ public class LivySparkBatch implements SparkBatchJob, Logger {
                         })
                         .delay(getDelaySeconds(), TimeUnit.SECONDS)
                 )
-                .takeUntil(batch -> isDone(batch.state) || isRunning(batch.state))
-                .filter(batch -> isDone(batch.state) || isRunning(batch.state))
+                .takeUntil(batch -> batch.getJobState().isDone() || batch.getJobState().isRunning())
+                .filter(batch -> batch.getJobState().isDone() || batch.getJobState().isRunning())
                 .flatMap(batch -> {
-                    if (isDone(batch.state) && !isSuccess(batch.state)) {
+                    if (batch.getJobState().isDone() && !batch.getJobState().isSuccess()) {
                         return Observable.error(new SparkJobException("The Spark job failed to start due to "
                                 + String.join("\n", batch.submissionLogs)));
                     }
@@ -372,15 +721,15 @@ public class LivySparkBatch implements SparkBatchJob, Logger {
 
     @Override
     public Observable<Pair<String, String>> awaitDone() {
-        return get()
+        return pollState("awaitDone")
                 .repeatWhen(ob -> ob
                         .doOnNext(v -> log().debug("Delay " + 1 //getDelaySeconds()
                                         + " seconds for next job status probe"))
                         .delay(
                                 1, //getDelaySeconds(),
                                 TimeUnit.SECONDS))
-                .takeUntil(batch -> isDone(batch.state))
-                .filter(batch -> isDone(batch.state))
+                .takeUntil(batch -> batch.getJobState().isDone())
+                .filter(batch -> batch.getJobState().isDone())
                 .map(batch -> new Pair<>(batch.state, String.join("\n", batch.submissionLogs)));
     }
 
@@ -389,6 +738,30 @@ public class LivySparkBatch implements SparkBatchJob, Logger {
         return Observable.empty();
     }
 
+    /**
+     * Interpret the batch got with the response, for the Livy compatible services which carry extra job states
+     * in the response headers.
+     *
+     * @param batch the batch got
+     * @param response the HTTP response of the batch
+     * @return the batch to update the job with
+     */
+    protected Batch interpretBatchResponse(final Batch batch, final HttpResponse response) {
+        return batch;
+    }
+
+    /**
+     * Interpret the state of the Livy `GET /batches/{batchId}/state` API response, the same way as
+     * {@link #interpretBatchResponse(Batch, HttpResponse)} for the full batch response.
+     *
+     * @param batchState the batch state in response
+     * @param response the HTTP response
+     * @return the batch state interpreted
+     */
+    protected String interpretStateResponse(final String batchState, final HttpResponse response) {
+        return batchState;
+    }
+
     protected List<Header> getHeadersToAddOrReplace() {
         return emptyList();
     }
@@ -403,16 +776,66 @@ public class LivySparkBatch implements SparkBatchJob, Logger {
     }
 
     public Observable<LivySparkBatch> get() {
-        final String caller = Streams.findLast(Arrays.stream(Thread.currentThread().getStackTrace()).limit(3))
-                // skip `getStackTrace` and the current frame
-                .map(StackTraceElement::getMethodName)
-                .orElse("Unknown");
+        return get(GET_OPERATION);
+    }
 
-        return getSparkBatchRequest(caller)
+    /**
+     * Get the full batch with the operation name tagged, which is sent with {@link InvokedByMethodHeader}
+     * and reported in the HTTP request metrics.
+     *
+     * @param operation the operation name to tag the request
+     * @return the current instance with the batch response updated
+     */
+    public Observable<LivySparkBatch> get(final String operation) {
+        return getSparkBatchRequest(operation)
                 .map(this::updateWithBatchResponse)
                 .defaultIfEmpty(this);
     }
 
+    /**
+     * Poll the Spark batch job state with the lightweight Livy `GET /batches/{batchId}/state` API.
+     * The full batch with the application info and submission logs is only fetched at the state transition,
+     * or at every poll if the state API isn't supported by the Livy server.
+     *
+     * @param operation the operation name to tag the requests
+     * @return the current instance with the state refreshed
+     */
+    public Observable<LivySparkBatch> pollState(final String operation) {
+        if (isStateApiUnsupported()) {
+            return get(operation);
+        }
+
+        return getSparkBatchStateRequest(operation)
+                .onErrorResumeNext(err -> {
+                    if (!isStateApiUnsupportedError(err)) {
+                        return Observable.error(err);
+                    }
+
+                    log().info("The Livy batch state API is unavailable, fall back to get the full batch: " + err);
+                    this.isStateApiUnsupported = true;
+
+                    return Observable.empty();
+                })
+                .flatMap(latestState -> StringUtils.equals(latestState, getState())
+                        ? Observable.just(this)
+                        : get(operation))   // Refresh the application ID and submission logs at the state transition
+                .switchIfEmpty(Observable.defer(() -> get(operation)));
+    }
+
+    boolean isStateApiUnsupported() {
+        return isStateApiUnsupported;
+    }
+
+    private static boolean isStateApiUnsupportedError(final Throwable err) {
+        // The JSON conversion failure is propagated with a runtime exception wrapped
+        final Throwable cause = err.getCause();
+        final Throwable unwrapped = err instanceof RuntimeException && cause != null ? cause : err;
+
+        return unwrapped instanceof ClientError.NotFoundHttpErrorStatus
+                || unwrapped instanceof ClientError.MethodNotAllowedHttpErrorStatus
+                || unwrapped instanceof UnknownServiceException;    // Not a batch state response
+    }
+
     private Observable<Batch> createSparkBatchRequest() {
         URI uri = getConnectUri();
 
@@ -426,32 +849,133 @@ public class LivySparkBatch implements SparkBatchJob, Logger {
                 Debug, String.format("Spark Batch request to %s, body: %s", uri, body.convertToJson())));
 
         return getHttp()
-                .post(uri.toString(), entity, emptyList(), getHeadersToAddOrReplace(), Batch.class)
+                .post(uri.toString(), entity, emptyList(), getHeadersWithOperation("submit"), Batch.class)
                 .map(Pair::getFirst);
     }
 
+    /**
+     * Submit the job with the submission key, the failed submission is retried up to {@link #getRetriesMax()}
+     * times. Since Livy could have accepted a timed out submission, the batches listing is looked up before
+     * each resubmit, and the batch tagged with the same key is attached instead of being created again.
+     *
+     * @param submissionKey the submission key tagged in the submission parameter
+     * @return Observable of the batch created or found
+     */
+    private Observable<Batch> createSparkBatchRequestIdempotently(final String submissionKey) {
+        final AtomicInteger attempts = new AtomicInteger(0);
+
+        return Observable.defer(() -> attempts.getAndIncrement() == 0
+                        ? createSparkBatchRequest()
+                        : findSubmittedBatch(submissionKey)
+                                .doOnNext(batch -> getCtrlSubject().onNext(Pair.of(Info, String.format(
+                                        "Found the Spark batch %d submitted with key %s, attach it rather than "
+                                                + "submitting again", batch.getId(), submissionKey))))
+                                .switchIfEmpty(Observable.defer(this::createSparkBatchRequest)))
+                .retryWhen(errors -> errors.flatMap(err -> {
+                    if (!isSubmissionRetriable(err) || attempts.get() > getRetriesMax()) {
+                        return Observable.error(err);
+                    }
+
+                    log().warn("Retry the Spark batch submission with key " + submissionKey + " after " + err);
+
+                    return Observable.timer(getDelaySeconds(), TimeUnit.SECONDS);
+                }));
+    }
+
+    /**
+     * Find the batch created with the submission key in the latest {@value #SUBMISSION_LOOKUP_BATCHES} batches
+     * of Livy listing.
+     *
+     * @param submissionKey the submission key to find
+     * @return Observable of the batch found, or empty if not found,
+     *         Observable Error: SubmissionLookupUnsupportedException for the listing without batch names
+     */
+    Observable<Batch> findSubmittedBatch(final String submissionKey) {
+        // Get the total only at first, the listing is small with zero size
+        return getSparkBatchesRequest(0, 0)
+                .flatMap(listing -> getSparkBatchesRequest(
+                        Math.max(0, listing.getTotal() - SUBMISSION_LOOKUP_BATCHES), SUBMISSION_LOOKUP_BATCHES))
+                .flatMap(listing -> {
+                    final List<Batch> batches = listing.getSessions();
+
+                    if (!batches.isEmpty() && batches.stream().allMatch(batch -> batch.getName() == null)) {
+                        return Observable.error(new SubmissionLookupUnsupportedException(
+                                "Can't look up the Spark batch submitted with key " + submissionKey + " since the "
+                                        + "Livy batches listing has no batch names, which needs Livy 0.6 or later. "
+                                        + "Check the Livy batches before submitting again to avoid a duplicate."));
+                    }
+
+                    return from(batches);
+                })
+                .filter(batch -> PostBatches.isTaggedWith(batch.getName(), submissionKey))
+                .take(1);
+    }
+
+    private static boolean isSubmissionRetriable(final Throwable err) {
+        if (err instanceof SubmissionLookupUnsupportedException) {
+            return false;
+        }
+
+        if (err instanceof HttpErrorStatus) {
+            final int statusCode = ((HttpErrorStatus) err).getStatusCode();
+
+            // Gateway errors, throttling and request timeout
+            return statusCode >= 500 || statusCode == 429 || statusCode == 408;
+        }
+
+        // Connection failures and socket timeouts
+        return err instanceof IOException;
+    }
+
     private Observable<HttpResponse> deleteSparkBatchRequest() {
         return Observable.fromCallable(this::getUri)
                 .flatMap(uri -> getHttp()
-                        .delete(uri.toString(), emptyList(), getHeadersToAddOrReplace()));
+                        .delete(uri.toString(), emptyList(), getHeadersWithOperation("killBatchJob")));
     }
 
-    private Observable<Batch> getSparkBatchRequest(final String caller) {
+    private List<Header> getHeadersWithOperation(final String operation) {
         final List<Header> headers = new ArrayList<>(getHeadersToAddOrReplace());
-        headers.add(new BasicHeader("X-Invoked-By-Method", caller));
+        headers.add(new InvokedByMethodHeader(operation));
+
+        return headers;
+    }
+
+    private Observable<Batch> getSparkBatchRequest(final String operation) {
+        final List<Header> headers = getHeadersWithOperation(operation);
 
         return Observable.fromCallable(this::getUri)
                 .flatMap(uri -> getHttp()
                 .get(uri.toString(), emptyList(), headers, Batch.class)
+                .map(batchResponse -> interpretBatchResponse(batchResponse.getFirst(), batchResponse.getSecond())));
+    }
+
+    private Observable<GetBatchesResponse> getSparkBatchesRequest(final int from, final int size) {
+        final List<NameValuePair> params = Arrays.asList(
+                new GetBatches.FromParameter(from), new GetBatches.SizeParameter(size));
+
+        return Observable.fromCallable(this::getConnectUri)
+                .flatMap(uri -> getHttp()
+                .get(uri.toString(), params, getHeadersWithOperation("findSubmittedBatch"), GetBatchesResponse.class)
                 .map(Pair::getFirst));
     }
 
+    private Observable<String> getSparkBatchStateRequest(final String operation) {
+        return Observable.fromCallable(() -> URI.create(getUri() + "/state"))
+                .flatMap(uri -> getHttp()
+                .get(uri.toString(), emptyList(), getHeadersWithOperation(operation), GetStateResponse.class)
+                .map(stateResponse -> interpretStateResponse(
+                        stateResponse.getFirst().getState(), stateResponse.getSecond())));
+    }
+
     private Observable<GetLogResponse> getSparkBatchLogRequest(final int from, final int size) {
-        List<NameValuePair> params = Arrays.asList(new GetLog.FromParameter(from), new GetLog.SizeParameter(size));
+        // Livy responses the last lines without `from` parameter
+        List<NameValuePair> params = from < 0
+                ? singletonList(new GetLog.SizeParameter(size))
+                : Arrays.asList(new GetLog.FromParameter(from), new GetLog.SizeParameter(size));
 
         return Observable.fromCallable(() -> URI.create(getUri() + "/log"))
                 .flatMap(uri -> getHttp()
-                .get(uri.toString(), params, getHeadersToAddOrReplace(), GetLogResponse.class)
+                .get(uri.toString(), params, getHeadersWithOperation("getSubmissionLog"), GetLogResponse.class)
                 .map(Pair::getFirst));
     }
 
@@ -462,6 +986,17 @@ public class LivySparkBatch implements SparkBatchJob, Logger {
         }
         this.state = batch.getState();
         this.submissionLogs = batch.getLog();
+        this.appInfo = batch.getAppInfo();
+        getStateMachine().onLivyState(batch.getState());
+
+        final SparkBatchJobJournal currentJournal = getJournal();
+        if (currentJournal != null) {
+            currentJournal.recordState(getBatchId(), getState());
+
+            if (getLaterAppId().isInitialized()) {
+                currentJournal.recordAppId(getBatchId(), getSparkJobApplicationId());
+            }
+        }
 
         return this;
     }
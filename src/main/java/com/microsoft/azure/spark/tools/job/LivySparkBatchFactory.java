@@ -31,6 +31,21 @@ public class LivySparkBatchFactory implements SparkBatchJobFactory {
         return this;
     }
 
+    public LivyCluster getCluster() {
+        return cluster;
+    }
+
+    /**
+     * Getter of the HTTP client for the batches created, which is the default one if not set.
+     *
+     * @return the HTTP client
+     */
+    public HttpObservable getHttp() {
+        this.http.setIfNull(this::createDefaultHttpObservable);
+
+        return this.http.get();
+    }
+
     public LivySparkBatchFactory controlSubject(final Observer<Pair<MessageInfoType, String>> subject) {
         this.ctrlSubject.set(subject);
 
@@ -89,8 +104,7 @@ public class LivySparkBatchFactory implements SparkBatchJobFactory {
     @Override
     public SparkBatchJob factory() {
         this.ctrlSubject.setIfNull(() -> createLogAsControlSubject(getLoggerForControlSubject()));
-        this.http.setIfNull(this::createDefaultHttpObservable);
 
-        return createBatch(cluster, submissionParameter, this.http.get(), this.ctrlSubject.get());
+        return createBatch(cluster, submissionParameter, getHttp(), this.ctrlSubject.get());
     }
 }
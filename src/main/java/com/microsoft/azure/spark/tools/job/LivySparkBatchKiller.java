@@ -0,0 +1,195 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.apache.http.entity.StringEntity;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+import com.microsoft.azure.spark.tools.clusters.LivyCluster;
+import com.microsoft.azure.spark.tools.clusters.YarnCluster;
+import com.microsoft.azure.spark.tools.http.InvokedByMethodHeader;
+import com.microsoft.azure.spark.tools.log.Logger;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.AppState;
+import com.microsoft.azure.spark.tools.utils.Pair;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+/**
+ * The bulk killer of Livy Spark batch jobs, which sends the `DELETE /batches/{batchId}` requests in parallel with
+ * the concurrency bounded per Livy service. A job on a Yarn cluster, such as HDInsight, which isn't killed by Livy
+ * in time is killed with the Yarn ResourceManager application state API instead, if its application ID is known.
+ *
+ * <p>The effective concurrency is also bounded by the connection pool of the job HTTP client, which allows
+ * `http.maxConnections` (5 by default) connections per route.
+ */
+public class LivySparkBatchKiller implements Logger {
+    public static final int DEFAULT_MAX_CONCURRENCY_PER_CLUSTER = 5;
+    public static final long DEFAULT_LIVY_KILL_TIMEOUT_MILLIS = 10_000;
+
+    public enum Outcome {
+        KILLED_BY_LIVY,
+        KILLED_BY_YARN,     // The Yarn application killing is accepted
+        FAILED
+    }
+
+    /**
+     * The killing result of a Spark batch job.
+     */
+    public static class Result {
+        private final LivySparkBatch job;
+        private final Outcome outcome;
+        private final long latencyNanos;
+        private final @Nullable Throwable error;
+
+        Result(final LivySparkBatch job,
+                final Outcome outcome,
+                final long latencyNanos,
+                final @Nullable Throwable error) {
+            this.job = job;
+            this.outcome = outcome;
+            this.latencyNanos = latencyNanos;
+            this.error = error;
+        }
+
+        public LivySparkBatch getJob() {
+            return job;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        public long getLatencyMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+        }
+
+        /**
+         * Getter of the error for the failed killing.
+         *
+         * @return the Livy killing error, with the Yarn killing error suppressed if fell back, or null if killed
+         */
+        public @Nullable Throwable getError() {
+            return error;
+        }
+    }
+
+    private final Scheduler scheduler;
+    private int maxConcurrencyPerCluster = DEFAULT_MAX_CONCURRENCY_PER_CLUSTER;
+    private long livyKillTimeoutMillis = DEFAULT_LIVY_KILL_TIMEOUT_MILLIS;
+
+    public LivySparkBatchKiller() {
+        this(Schedulers.io());
+    }
+
+    /**
+     * Constructor with the scheduler to send the blocking killing requests.
+     *
+     * @param scheduler the scheduler to run the killing of each job on
+     */
+    public LivySparkBatchKiller(final Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public int getMaxConcurrencyPerCluster() {
+        return maxConcurrencyPerCluster;
+    }
+
+    /**
+     * Setter of the maximum jobs killing at the same time for each Livy service.
+     *
+     * @param maxConcurrencyPerCluster the maximum concurrency, at least 1
+     */
+    public void setMaxConcurrencyPerCluster(final int maxConcurrencyPerCluster) {
+        this.maxConcurrencyPerCluster = Math.max(1, maxConcurrencyPerCluster);
+    }
+
+    public long getLivyKillTimeoutMillis() {
+        return livyKillTimeoutMillis;
+    }
+
+    /**
+     * Setter of the timeout to wait for Livy killing a job, before falling back to the Yarn application killing.
+     *
+     * @param livyKillTimeoutMillis the timeout in milliseconds
+     */
+    public void setLivyKillTimeoutMillis(final long livyKillTimeoutMillis) {
+        this.livyKillTimeoutMillis = livyKillTimeoutMillis;
+    }
+
+    /**
+     * Kill the jobs in parallel, the jobs are grouped by the Livy service URI to bound the concurrency.
+     *
+     * @param jobs the Livy Spark batch jobs to kill
+     * @return Observable of each job killing result, in the order of completion
+     */
+    public Observable<Result> kill(final Collection<? extends LivySparkBatch> jobs) {
+        return Observable.from(jobs)
+                .groupBy(job -> job.getConnectUri().toString())
+                .flatMap(clusterJobs -> clusterJobs.flatMap(this::kill, getMaxConcurrencyPerCluster()));
+    }
+
+    /**
+     * Kill a job with Livy, or with Yarn if Livy failed or timed out.
+     *
+     * @param job the Livy Spark batch job to kill
+     * @return Observable of the job killing result, which never emits error
+     */
+    public Observable<Result> kill(final LivySparkBatch job) {
+        return Observable.defer(() -> {
+            final long startNanos = System.nanoTime();
+
+            return job.killBatchJob()
+                    .timeout(getLivyKillTimeoutMillis(), TimeUnit.MILLISECONDS)
+                    .last()
+                    .map(killed -> new Result(job, Outcome.KILLED_BY_LIVY, System.nanoTime() - startNanos, null))
+                    .onErrorResumeNext(livyErr -> killYarnApplication(job, livyErr)
+                            .map(state -> new Result(
+                                    job, Outcome.KILLED_BY_YARN, System.nanoTime() - startNanos, null))
+                            .onErrorReturn(err -> {
+                                if (err != livyErr) {
+                                    livyErr.addSuppressed(err);
+                                }
+
+                                log().warn("Failed to kill Spark batch job " + job.getBatchId(), livyErr);
+
+                                return new Result(job, Outcome.FAILED, System.nanoTime() - startNanos, livyErr);
+                            }));
+        })
+                .subscribeOn(scheduler);
+    }
+
+    private Observable<AppState> killYarnApplication(final LivySparkBatch job, final Throwable livyErr) {
+        final LivyCluster cluster = job.getCluster();
+
+        if (!(cluster instanceof YarnCluster) || !job.getLaterAppId().isInitialized()) {
+            return Observable.error(livyErr);
+        }
+
+        final String appId = job.getSparkJobApplicationId();
+        log().info("Kill Yarn application " + appId + " of Spark batch job " + job.getBatchId()
+                + " since Livy didn't kill it: " + livyErr);
+
+        final String uri = ((YarnCluster) cluster).getYarnNMConnectionUrl() + appId + "/state";
+        final StringEntity entity = new StringEntity(
+                new AppState(AppState.KILLED).convertToJson(), StandardCharsets.UTF_8);
+        entity.setContentType("application/json");
+
+        return job.getHttp()
+                .put(uri, entity, emptyList(), singletonList(new InvokedByMethodHeader("killYarnApplication")),
+                        AppState.class)
+                .map(Pair::getFirst);
+    }
+}
@@ -0,0 +1,119 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.functions.Func1;
+
+import com.microsoft.azure.spark.tools.log.Logger;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The periodic sampling loop in background, shared by the samplers polling the Yarn ResourceManager. The sampling is
+ * subscribed again after the interval since the last one terminated, a failed sampling is counted and skipped
+ * without stopping the loop.
+ *
+ * @param <T> the sample type
+ */
+final class PeriodicSampling<T> implements Closeable, Logger {
+    private final String name;
+    private final Observable<T> sampler;
+    private final Scheduler scheduler;
+    private final AtomicLong failures = new AtomicLong();
+
+    private volatile long intervalMillis;
+    private @Nullable Subscription subscription = null;
+
+    /**
+     * Constructor.
+     *
+     * @param name the name of what's sampled, for logging
+     * @param sampler the cold Observable to sample once per subscription
+     * @param intervalMillis the interval between the samplings, in milliseconds
+     * @param scheduler the scheduler to sample on
+     */
+    PeriodicSampling(final String name,
+                     final Observable<T> sampler,
+                     final long intervalMillis,
+                     final Scheduler scheduler) {
+        this.name = name;
+        this.sampler = sampler;
+        this.intervalMillis = Math.max(0, intervalMillis);
+        this.scheduler = scheduler;
+    }
+
+    long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * Setter of the interval, which takes effect from the next sampling.
+     *
+     * @param intervalMillis the interval between the samplings, in milliseconds
+     */
+    void setIntervalMillis(final long intervalMillis) {
+        this.intervalMillis = Math.max(0, intervalMillis);
+    }
+
+    long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Start sampling till closed, it's ignored if started already.
+     */
+    void start() {
+        start(sample -> false, () -> { });
+    }
+
+    /**
+     * Start sampling till the last sample or closed, it's ignored if started already.
+     *
+     * @param isLast the predicate of the last sample to stop after
+     * @param onStopped the action called once the sampling stops by itself, not by closing
+     */
+    synchronized void start(final Func1<? super T, Boolean> isLast, final Action0 onStopped) {
+        if (subscription != null) {
+            return;
+        }
+
+        subscription = Observable.defer(() -> sampler
+                        .onErrorResumeNext(err -> {
+                            failures.incrementAndGet();
+                            log().warn("Failed to sample the " + name, err);
+
+                            return Observable.empty();
+                        }))
+                .repeatWhen(ob -> ob.delay(getIntervalMillis(), TimeUnit.MILLISECONDS, scheduler))
+                .takeUntil(isLast)
+                .subscribeOn(scheduler)
+                .subscribe(
+                        sample -> { },
+                        err -> {
+                            log().warn("The sampling of the " + name + " stopped", err);
+                            onStopped.call();
+                        },
+                        onStopped);
+    }
+
+    /**
+     * Stop sampling, which could be started again.
+     */
+    @Override
+    public synchronized void close() {
+        final Subscription current = subscription;
+
+        if (current != null) {
+            current.unsubscribe();
+            subscription = null;
+        }
+    }
+}
@@ -0,0 +1,414 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.schedulers.Schedulers;
+import rx.subjects.PublishSubject;
+import rx.subjects.Subject;
+
+import com.microsoft.azure.spark.tools.job.LivyClusterCapacityProbe.Capacity;
+import com.microsoft.azure.spark.tools.log.Logger;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Spark batch job factory routing each job to the least loaded one of several equivalent Livy clusters.
+ * The targets are probed in the background for the health, probe latency, Livy active batches and Yarn usage.
+ *
+ * <p>The routing is sticky: the jobs keep going to the current target while it's healthy and its load is within
+ * the stickiness margin of the best target, so that the jobs of a session land on the same cluster mostly.
+ * The current target is failed over once it's unhealthy, which is after the consecutive probe failures.
+ */
+public class RoutingSparkBatchJobFactory implements SparkBatchJobFactory, Closeable, Logger {
+    public static final long DEFAULT_PROBE_INTERVAL_MILLIS = 30_000;
+    public static final int DEFAULT_UNHEALTHY_FAILURES = 2;
+    public static final float DEFAULT_STICKINESS_MARGIN = 10;
+    public static final float DEFAULT_BATCH_LOAD_PERCENTAGE = 5;
+
+    public enum RoutingReason {
+        INITIAL,
+        STICKY,
+        BETTER_TARGET,
+        FAILOVER
+    }
+
+    /**
+     * The routing decision of a job.
+     */
+    public static class RoutingDecision {
+        private final String livyConnectionUrl;
+        private final RoutingReason reason;
+        private final float load;
+        private final long timestampMillis;
+
+        RoutingDecision(final String livyConnectionUrl,
+                        final RoutingReason reason,
+                        final float load,
+                        final long timestampMillis) {
+            this.livyConnectionUrl = livyConnectionUrl;
+            this.reason = reason;
+            this.load = load;
+            this.timestampMillis = timestampMillis;
+        }
+
+        public String getLivyConnectionUrl() {
+            return livyConnectionUrl;
+        }
+
+        public RoutingReason getReason() {
+            return reason;
+        }
+
+        public float getLoad() {
+            return load;
+        }
+
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Route to " + livyConnectionUrl + " (" + reason + ", load " + load + ")";
+        }
+    }
+
+    /**
+     * The snapshot of a routing target load and health.
+     */
+    public static class TargetStats {
+        private final String livyConnectionUrl;
+        private final boolean isHealthy;
+        private final int consecutiveFailures;
+        private final long latencyMillis;
+        private final int activeBatches;
+        private final float clusterUsagePercentage;
+        private final float load;
+        private final long routedJobs;
+
+        TargetStats(final Target target, final float load) {
+            this.livyConnectionUrl = target.factory.getCluster().getLivyConnectionUrl();
+            this.isHealthy = target.isHealthy;
+            this.consecutiveFailures = target.consecutiveFailures;
+            this.latencyMillis = TimeUnit.NANOSECONDS.toMillis(target.latencyNanos);
+            final Capacity capacity = target.capacity;
+            this.activeBatches = capacity != null ? capacity.getActiveBatches() : 0;
+            this.clusterUsagePercentage = capacity != null ? capacity.getClusterUsagePercentage() : 0;
+            this.load = load;
+            this.routedJobs = target.routedJobs;
+        }
+
+        public String getLivyConnectionUrl() {
+            return livyConnectionUrl;
+        }
+
+        public boolean isHealthy() {
+            return isHealthy;
+        }
+
+        public int getConsecutiveFailures() {
+            return consecutiveFailures;
+        }
+
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        public int getActiveBatches() {
+            return activeBatches;
+        }
+
+        public float getClusterUsagePercentage() {
+            return clusterUsagePercentage;
+        }
+
+        public float getLoad() {
+            return load;
+        }
+
+        public long getRoutedJobs() {
+            return routedJobs;
+        }
+    }
+
+    private static final class Target {
+        private final LivySparkBatchFactory factory;
+        private final LivyClusterCapacityProbe probe;
+
+        // Unprobed targets are taken as healthy and idle
+        private boolean isHealthy = true;
+        private int consecutiveFailures = 0;
+        private long latencyNanos = 0;
+        private @Nullable Capacity capacity = null;
+        private int routedSinceProbe = 0;
+        private long routedJobs = 0;
+
+        private Target(final LivySparkBatchFactory factory) {
+            this.factory = factory;
+            this.probe = new LivyClusterCapacityProbe(factory.getCluster(), factory.getHttp());
+        }
+    }
+
+    private final List<Target> targets = new ArrayList<>();
+    private final Scheduler scheduler;
+    private final Subject<RoutingDecision, RoutingDecision> decisionSubject =
+            PublishSubject.<RoutingDecision>create().toSerialized();
+
+    private long probeIntervalMillis = DEFAULT_PROBE_INTERVAL_MILLIS;
+    private int unhealthyFailures = DEFAULT_UNHEALTHY_FAILURES;
+    private float stickinessMargin = DEFAULT_STICKINESS_MARGIN;
+    private float batchLoadPercentage = DEFAULT_BATCH_LOAD_PERCENTAGE;
+
+    private @Nullable Target currentTarget = null;
+    private long failovers = 0;
+    private @Nullable Subscription probing = null;
+
+    public RoutingSparkBatchJobFactory(final Collection<? extends LivySparkBatchFactory> factories) {
+        this(factories, Schedulers.io());
+    }
+
+    /**
+     * Constructor with the equivalent cluster job factories to route to.
+     *
+     * @param factories the job factories of the target clusters, in the order of preference for the same load
+     * @param scheduler the scheduler to probe the targets on
+     */
+    public RoutingSparkBatchJobFactory(final Collection<? extends LivySparkBatchFactory> factories,
+                                       final Scheduler scheduler) {
+        if (factories.isEmpty()) {
+            throw new IllegalArgumentException("At least one Livy cluster job factory to route to is required");
+        }
+
+        for (LivySparkBatchFactory factory : factories) {
+            this.targets.add(new Target(factory));
+        }
+
+        this.scheduler = scheduler;
+    }
+
+    public long getProbeIntervalMillis() {
+        return probeIntervalMillis;
+    }
+
+    public void setProbeIntervalMillis(final long probeIntervalMillis) {
+        this.probeIntervalMillis = Math.max(0, probeIntervalMillis);
+    }
+
+    public int getUnhealthyFailures() {
+        return unhealthyFailures;
+    }
+
+    /**
+     * Setter of the consecutive probe failures to take a target as unhealthy.
+     *
+     * @param unhealthyFailures the consecutive failures, at least 1
+     */
+    public void setUnhealthyFailures(final int unhealthyFailures) {
+        this.unhealthyFailures = Math.max(1, unhealthyFailures);
+    }
+
+    public float getStickinessMargin() {
+        return stickinessMargin;
+    }
+
+    /**
+     * Setter of the load margin to keep routing to the current target rather than the best target.
+     *
+     * @param stickinessMargin the load margin, in the Yarn cluster usage percentage
+     */
+    public void setStickinessMargin(final float stickinessMargin) {
+        this.stickinessMargin = stickinessMargin;
+    }
+
+    public float getBatchLoadPercentage() {
+        return batchLoadPercentage;
+    }
+
+    /**
+     * Setter of the load counted for each active Livy batch, in addition to the Yarn cluster usage, since
+     * the batches starting don't take the Yarn resources yet.
+     *
+     * @param batchLoadPercentage the load of each batch, in the Yarn cluster usage percentage
+     */
+    public void setBatchLoadPercentage(final float batchLoadPercentage) {
+        this.batchLoadPercentage = batchLoadPercentage;
+    }
+
+    /**
+     * Start probing the targets in the background periodically.
+     *
+     * @return the current instance for chain calling
+     */
+    public synchronized RoutingSparkBatchJobFactory start() {
+        if (probing == null) {
+            probing = Observable.defer(() -> probeTargets().toList())
+                    .repeatWhen(ob -> ob.delay(getProbeIntervalMillis(), TimeUnit.MILLISECONDS, scheduler))
+                    .subscribeOn(scheduler)
+                    .subscribe(stats -> { }, err -> log().warn("The Livy cluster routing probing stopped", err));
+        }
+
+        return this;
+    }
+
+    @Override
+    public synchronized void close() {
+        final Subscription currentProbing = probing;
+
+        if (currentProbing != null) {
+            currentProbing.unsubscribe();
+            probing = null;
+        }
+
+        decisionSubject.onCompleted();
+    }
+
+    /**
+     * Probe all targets once in parallel.
+     *
+     * @return Observable of each target stats probed, in the order of completion
+     */
+    public Observable<TargetStats> probeTargets() {
+        return Observable.from(new ArrayList<>(targets))
+                .flatMap(target -> Observable.defer(() -> {
+                    final long startNanos = System.nanoTime();
+
+                    return target.probe.probe()
+                            .map(capacity -> onProbed(target, capacity, System.nanoTime() - startNanos))
+                            .onErrorReturn(err -> onProbeFailed(target, err));
+                }).subscribeOn(scheduler));
+    }
+
+    private synchronized TargetStats onProbed(final Target target, final Capacity capacity, final long latencyNanos) {
+        target.isHealthy = true;
+        target.consecutiveFailures = 0;
+        target.latencyNanos = latencyNanos;
+        target.capacity = capacity;
+        target.routedSinceProbe = 0;
+
+        return new TargetStats(target, getLoad(target));
+    }
+
+    private synchronized TargetStats onProbeFailed(final Target target, final Throwable err) {
+        target.consecutiveFailures++;
+
+        if (target.consecutiveFailures >= getUnhealthyFailures()) {
+            if (target.isHealthy) {
+                log().warn("Livy cluster " + target.factory.getCluster().getLivyConnectionUrl()
+                        + " is unhealthy after " + target.consecutiveFailures + " probe failures", err);
+            }
+
+            target.isHealthy = false;
+        }
+
+        return new TargetStats(target, getLoad(target));
+    }
+
+    /**
+     * Get the routing targets load and health.
+     *
+     * @return the stats snapshot of each target, in the order of the factories
+     */
+    public synchronized List<TargetStats> getTargetStats() {
+        final List<TargetStats> stats = new ArrayList<>(targets.size());
+
+        for (Target target : targets) {
+            stats.add(new TargetStats(target, getLoad(target)));
+        }
+
+        return stats;
+    }
+
+    public synchronized long getFailovers() {
+        return failovers;
+    }
+
+    /**
+     * Getter of the routing decisions, only the decisions after subscribing are emitted.
+     *
+     * @return Observable of the routing decisions
+     */
+    public Observable<RoutingDecision> getRoutingDecisions() {
+        return decisionSubject.asObservable();
+    }
+
+    /**
+     * Create the job with the factory of the target routed to.
+     *
+     * @return the job to submit to the target cluster
+     */
+    @Override
+    public SparkBatchJob factory() {
+        final RoutingDecision decision;
+        final Target routed;
+
+        synchronized (this) {
+            final Target current = currentTarget;
+            final Target best = pickBestTarget();
+            final RoutingReason reason;
+
+            if (current == null) {
+                reason = RoutingReason.INITIAL;
+                routed = best;
+            } else if (!current.isHealthy && best != current) {
+                reason = RoutingReason.FAILOVER;
+                routed = best;
+                failovers++;
+            } else if (current.isHealthy && best != current
+                    && getLoad(current) > getLoad(best) + getStickinessMargin()) {
+                reason = RoutingReason.BETTER_TARGET;
+                routed = best;
+            } else {
+                reason = RoutingReason.STICKY;
+                routed = current;
+            }
+
+            currentTarget = routed;
+            routed.routedSinceProbe++;
+            routed.routedJobs++;
+            decision = new RoutingDecision(routed.factory.getCluster().getLivyConnectionUrl(),
+                    reason, getLoad(routed), System.currentTimeMillis());
+        }
+
+        log().info(decision.toString());
+        decisionSubject.onNext(decision);
+
+        return routed.factory.factory();
+    }
+
+    private Target pickBestTarget() {
+        Target best = targets.get(0);
+
+        for (Target target : targets) {
+            if ((target.isHealthy && !best.isHealthy)
+                    || (target.isHealthy == best.isHealthy && isLessLoaded(target, best))) {
+                best = target;
+            }
+        }
+
+        return best;
+    }
+
+    private boolean isLessLoaded(final Target target, final Target than) {
+        final float load = getLoad(target);
+        final float thanLoad = getLoad(than);
+
+        return load < thanLoad || (load == thanLoad && target.latencyNanos < than.latencyNanos);
+    }
+
+    private float getLoad(final Target target) {
+        final Capacity capacity = target.capacity;
+        final int activeBatches = (capacity != null ? capacity.getActiveBatches() : 0) + target.routedSinceProbe;
+        final float clusterUsage = capacity != null ? capacity.getClusterUsagePercentage() : 0;
+
+        return clusterUsage + activeBatches * getBatchLoadPercentage();
+    }
+}
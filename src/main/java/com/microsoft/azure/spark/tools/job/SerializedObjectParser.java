@@ -0,0 +1,435 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.io.ObjectStreamConstants.SC_BLOCK_DATA;
+import static java.io.ObjectStreamConstants.SC_EXTERNALIZABLE;
+import static java.io.ObjectStreamConstants.SC_SERIALIZABLE;
+import static java.io.ObjectStreamConstants.SC_WRITE_METHOD;
+import static java.io.ObjectStreamConstants.STREAM_MAGIC;
+import static java.io.ObjectStreamConstants.STREAM_VERSION;
+import static java.io.ObjectStreamConstants.TC_ARRAY;
+import static java.io.ObjectStreamConstants.TC_BLOCKDATA;
+import static java.io.ObjectStreamConstants.TC_BLOCKDATALONG;
+import static java.io.ObjectStreamConstants.TC_CLASS;
+import static java.io.ObjectStreamConstants.TC_CLASSDESC;
+import static java.io.ObjectStreamConstants.TC_ENDBLOCKDATA;
+import static java.io.ObjectStreamConstants.TC_ENUM;
+import static java.io.ObjectStreamConstants.TC_LONGSTRING;
+import static java.io.ObjectStreamConstants.TC_NULL;
+import static java.io.ObjectStreamConstants.TC_OBJECT;
+import static java.io.ObjectStreamConstants.TC_PROXYCLASSDESC;
+import static java.io.ObjectStreamConstants.TC_REFERENCE;
+import static java.io.ObjectStreamConstants.TC_RESET;
+import static java.io.ObjectStreamConstants.TC_STRING;
+import static java.io.ObjectStreamConstants.baseWireHandle;
+
+/**
+ * The parser of the Java serialization stream into the field values by name, without loading or instantiating any
+ * class, so that the Hadoop objects, such as the Yarn IndexedFormat aggregated logs meta, are read without the Hadoop
+ * classes and the deserialization risks of the untrusted storage content.
+ *
+ * <p>The objects are parsed as {@link SerializedObject}, the strings and enum constant names as {@link String}, the
+ * primitive values as the boxed ones, and the arrays as {@link List}. The data written by the custom `writeObject()`,
+ * such as the elements of `ArrayList` and `HashMap`, are kept as the object annotations without the primitive data.
+ */
+final class SerializedObjectParser {
+    /**
+     * An object parsed from the Java serialization stream.
+     */
+    static final class SerializedObject {
+        private final String className;
+        private final Map<String, @Nullable Object> fields = new HashMap<>();
+        private final List<@Nullable Object> annotations = new ArrayList<>();
+
+        SerializedObject(final String className) {
+            this.className = className;
+        }
+
+        String getClassName() {
+            return className;
+        }
+
+        @Nullable Object get(final String fieldName) {
+            return fields.get(fieldName);
+        }
+
+        /**
+         * Getter of the objects written by the custom `writeObject()` of the class hierarchy, in order.
+         *
+         * @return the annotation objects
+         */
+        List<@Nullable Object> getAnnotations() {
+            return annotations;
+        }
+
+        /**
+         * Get the elements of a serialized collection, such as `ArrayList` and `HashSet`.
+         *
+         * @return the elements in the serialized order
+         */
+        List<@Nullable Object> asList() {
+            return Collections.unmodifiableList(annotations);
+        }
+
+        /**
+         * Get the entries of a serialized map, such as `HashMap` and `TreeMap`, whose keys and values are written
+         * in turn.
+         *
+         * @return the entries in the serialized order
+         */
+        Map<@Nullable Object, @Nullable Object> asMap() {
+            final Map<@Nullable Object, @Nullable Object> entries = new HashMap<>();
+
+            for (int i = 0; i + 1 < annotations.size(); i += 2) {
+                entries.put(annotations.get(i), annotations.get(i + 1));
+            }
+
+            return entries;
+        }
+
+        @Override
+        public String toString() {
+            return className + fields;
+        }
+    }
+
+    private static final class ClassDesc {
+        private final String name;
+        private final byte flags;
+        private final List<String> fieldNames;
+        private final List<Character> fieldTypes;
+        private final @Nullable ClassDesc superDesc;
+
+        private ClassDesc(final String name,
+                          final byte flags,
+                          final List<String> fieldNames,
+                          final List<Character> fieldTypes,
+                          final @Nullable ClassDesc superDesc) {
+            this.name = name;
+            this.flags = flags;
+            this.fieldNames = fieldNames;
+            this.fieldTypes = fieldTypes;
+            this.superDesc = superDesc;
+        }
+    }
+
+    /**
+     * The marker of the end of the object annotations.
+     */
+    private static final Object END_BLOCK_DATA = new Object();
+
+    private final DataInputStream in;
+    private final List<Object> handles = new ArrayList<>();
+
+    SerializedObjectParser(final byte[] serialized) {
+        this.in = new DataInputStream(new ByteArrayInputStream(serialized));
+    }
+
+    /**
+     * Parse the first object of the stream.
+     *
+     * @return the object parsed
+     * @throws IOException for the broken or unsupported stream
+     */
+    @Nullable Object parse() throws IOException {
+        if (in.readShort() != STREAM_MAGIC || in.readShort() != STREAM_VERSION) {
+            throw new StreamCorruptedException("Not a Java serialization stream");
+        }
+
+        final Object parsed = readContent();
+        if (parsed == END_BLOCK_DATA) {
+            throw new StreamCorruptedException("Unexpected end of block data");
+        }
+
+        return parsed;
+    }
+
+    private int newHandle(final Object value) {
+        handles.add(value);
+
+        return handles.size() - 1;
+    }
+
+    /**
+     * Read an object, skipping the primitive block data.
+     */
+    private @Nullable Object readContent() throws IOException {
+        while (true) {
+            final byte tc = in.readByte();
+
+            switch (tc) {
+                case TC_NULL:
+                    return null;
+                case TC_REFERENCE:
+                    return readReference();
+                case TC_CLASSDESC:
+                case TC_PROXYCLASSDESC:
+                    return readClassDescAfter(tc);
+                case TC_OBJECT:
+                    return readObjectAfterTc();
+                case TC_STRING:
+                    return readString(in.readUnsignedShort());
+                case TC_LONGSTRING:
+                    return readString(in.readLong());
+                case TC_ARRAY:
+                    return readArrayAfterTc();
+                case TC_ENUM:
+                    return readEnumAfterTc();
+                case TC_CLASS:
+                    final ClassDesc classDesc = readClassDesc();
+
+                    if (classDesc == null) {
+                        throw new StreamCorruptedException("No class descriptor of the class");
+                    }
+
+                    newHandle(classDesc);
+
+                    return classDesc;
+                case TC_BLOCKDATA:
+                    skipFully(in.readUnsignedByte());
+                    break;
+                case TC_BLOCKDATALONG:
+                    skipFully(in.readInt());
+                    break;
+                case TC_RESET:
+                    handles.clear();
+                    break;
+                case TC_ENDBLOCKDATA:
+                    return END_BLOCK_DATA;
+                default:
+                    throw new StreamCorruptedException(String.format("Unsupported type code 0x%02X", tc));
+            }
+        }
+    }
+
+    private Object readReference() throws IOException {
+        final int handle = in.readInt() - baseWireHandle;
+
+        if (handle < 0 || handle >= handles.size()) {
+            throw new StreamCorruptedException("Invalid handle " + handle);
+        }
+
+        return handles.get(handle);
+    }
+
+    private String readString(final long length) throws IOException {
+        if (length > Integer.MAX_VALUE - 2) {
+            throw new StreamCorruptedException("Too long string " + length);
+        }
+
+        final byte[] modifiedUtf8 = new byte[(int) length];
+        in.readFully(modifiedUtf8);
+
+        final String value = decodeModifiedUtf8(modifiedUtf8);
+        newHandle(value);
+
+        return value;
+    }
+
+    private static String decodeModifiedUtf8(final byte[] bytes) throws IOException {
+        final StringBuilder builder = new StringBuilder(bytes.length);
+        int i = 0;
+
+        while (i < bytes.length) {
+            final int b = bytes[i] & 0xFF;
+
+            if (b < 0x80) {
+                builder.append((char) b);
+                i += 1;
+            } else if ((b & 0xE0) == 0xC0 && i + 1 < bytes.length) {
+                builder.append((char) (((b & 0x1F) << 6) | (bytes[i + 1] & 0x3F)));
+                i += 2;
+            } else if ((b & 0xF0) == 0xE0 && i + 2 < bytes.length) {
+                builder.append((char) (((b & 0x0F) << 12) | ((bytes[i + 1] & 0x3F) << 6) | (bytes[i + 2] & 0x3F)));
+                i += 3;
+            } else {
+                throw new StreamCorruptedException("Malformed modified UTF-8 string");
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private @Nullable ClassDesc readClassDesc() throws IOException {
+        final Object desc = readContent();
+
+        if (desc == null || desc instanceof ClassDesc) {
+            return (ClassDesc) desc;
+        }
+
+        throw new StreamCorruptedException("Expect a class descriptor rather than " + desc);
+    }
+
+    private ClassDesc readClassDescAfter(final byte tc) throws IOException {
+        if (tc == TC_PROXYCLASSDESC) {
+            throw new StreamCorruptedException("Unsupported proxy class descriptor");
+        }
+
+        final String name = in.readUTF();
+        in.readLong();      // serialVersionUID
+
+        // The handle is assigned before the fields, but the descriptor is immutable, so keep a placeholder
+        final int handle = newHandle(name);
+        final byte flags = in.readByte();
+        final int fieldCount = in.readShort();
+        final List<String> fieldNames = new ArrayList<>(fieldCount);
+        final List<Character> fieldTypes = new ArrayList<>(fieldCount);
+
+        for (int i = 0; i < fieldCount; i++) {
+            final char type = (char) in.readByte();
+            fieldTypes.add(type);
+            fieldNames.add(in.readUTF());
+
+            if (type == 'L' || type == '[') {
+                readContent();  // The field class name
+            }
+        }
+
+        skipAnnotations();
+
+        final ClassDesc desc = new ClassDesc(name, flags, fieldNames, fieldTypes, readClassDesc());
+        handles.set(handle, desc);
+
+        return desc;
+    }
+
+    private void skipAnnotations() throws IOException {
+        while (readContent() != END_BLOCK_DATA) {
+            // Skip the annotation contents
+        }
+    }
+
+    private SerializedObject readObjectAfterTc() throws IOException {
+        final ClassDesc desc = readClassDesc();
+
+        if (desc == null) {
+            throw new StreamCorruptedException("No class descriptor of the object");
+        }
+
+        final SerializedObject object = new SerializedObject(desc.name);
+        newHandle(object);
+
+        // The class data is from the top super class to the object class
+        final List<ClassDesc> hierarchy = new ArrayList<>();
+        for (ClassDesc current = desc; current != null; current = current.superDesc) {
+            hierarchy.add(0, current);
+        }
+
+        for (ClassDesc classDesc : hierarchy) {
+            if ((classDesc.flags & SC_EXTERNALIZABLE) != 0) {
+                if ((classDesc.flags & SC_BLOCK_DATA) == 0) {
+                    throw new StreamCorruptedException("Unsupported externalizable class " + classDesc.name);
+                }
+
+                readAnnotations(object);
+            } else if ((classDesc.flags & SC_SERIALIZABLE) != 0) {
+                for (int i = 0; i < classDesc.fieldNames.size(); i++) {
+                    object.fields.put(classDesc.fieldNames.get(i), readValue(classDesc.fieldTypes.get(i)));
+                }
+
+                if ((classDesc.flags & SC_WRITE_METHOD) != 0) {
+                    readAnnotations(object);
+                }
+            }
+        }
+
+        return object;
+    }
+
+    private void readAnnotations(final SerializedObject object) throws IOException {
+        while (true) {
+            final Object annotation = readContent();
+
+            if (annotation == END_BLOCK_DATA) {
+                return;
+            }
+
+            object.annotations.add(annotation);
+        }
+    }
+
+    private @Nullable Object readValue(final char type) throws IOException {
+        switch (type) {
+            case 'B':
+                return in.readByte();
+            case 'C':
+                return in.readChar();
+            case 'D':
+                return in.readDouble();
+            case 'F':
+                return in.readFloat();
+            case 'I':
+                return in.readInt();
+            case 'J':
+                return in.readLong();
+            case 'S':
+                return in.readShort();
+            case 'Z':
+                return in.readBoolean();
+            case 'L':
+            case '[':
+                final Object value = readContent();
+
+                if (value == END_BLOCK_DATA) {
+                    throw new StreamCorruptedException("Unexpected end of block data in the field value");
+                }
+
+                return value;
+            default:
+                throw new StreamCorruptedException("Unsupported field type " + type);
+        }
+    }
+
+    private List<@Nullable Object> readArrayAfterTc() throws IOException {
+        final ClassDesc desc = readClassDesc();
+
+        if (desc == null || desc.name.length() < 2) {
+            throw new StreamCorruptedException("No class descriptor of the array");
+        }
+
+        final int length = in.readInt();
+        final List<@Nullable Object> elements = new ArrayList<>(Math.min(Math.max(length, 0), 1024));
+        newHandle(elements);
+
+        for (int i = 0; i < length; i++) {
+            elements.add(readValue(desc.name.charAt(1)));
+        }
+
+        return elements;
+    }
+
+    private String readEnumAfterTc() throws IOException {
+        readClassDesc();
+
+        final int handle = newHandle("");
+        final Object constantName = readContent();
+
+        if (!(constantName instanceof String)) {
+            throw new StreamCorruptedException("Expect the enum constant name rather than " + constantName);
+        }
+
+        handles.set(handle, constantName);
+
+        return (String) constantName;
+    }
+
+    private void skipFully(final int length) throws IOException {
+        if (in.skipBytes(length) != length) {
+            throw new StreamCorruptedException("Unexpected end of block data");
+        }
+    }
+}
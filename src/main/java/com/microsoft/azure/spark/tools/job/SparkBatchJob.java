@@ -113,6 +113,15 @@ public interface SparkBatchJob {
      */
     Observable<? extends SparkBatchJob> submit();
 
+    /**
+     * Reattach to a submitted batch Spark job, to resume the monitoring, such as after the client restarts.
+     *
+     * @param batchId the batch ID to reattach
+     * @return Observable of the current instance for chain calling,
+     *         Observable Error: HttpErrorStatus exceptions for the batch not found or other HTTP errors
+     */
+    Observable<? extends SparkBatchJob> reattach(int batchId);
+
     /**
      * Is the job done, success or failure.
      *
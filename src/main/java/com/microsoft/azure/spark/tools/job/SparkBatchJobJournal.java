@@ -0,0 +1,555 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.microsoft.azure.spark.tools.log.Logger;
+import com.microsoft.azure.spark.tools.utils.CacheFiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * The append-only local journal of Spark batch jobs submitted to one Livy service, which records the job
+ * submissions, state transitions, application IDs and log offsets in a compact binary log. The journal is replayed
+ * at opening, so that the job monitoring and log tailing can be resumed after the client restarts.
+ *
+ * <p>Each record is framed as `[length: int][type: byte][batch ID: int][timestamp: long][payload][CRC32: int]`.
+ * A torn record at the tail, written partially by a crash, is truncated at the next opening. The submission and
+ * state records are forced to the storage device, while the frequent log offset records are only written to
+ * the OS, which survive a client crash, but could get lost at a power failure.
+ *
+ * <p>Once the records superseded by the later ones pass a threshold at opening, the journal is compacted by writing
+ * the latest snapshots into a new file which replaces the old one atomically. The jobs finished long ago are dropped
+ * at compaction.
+ */
+public final class SparkBatchJobJournal implements Closeable, Logger {
+    private static final byte SUBMITTED = 1;
+    private static final byte STATE = 2;
+    private static final byte APP_ID = 3;
+    private static final byte LOG_OFFSET = 4;
+
+    // The frame length, type, batch ID, timestamp and CRC32
+    private static final int MIN_FRAME_LENGTH = 4 + 1 + 4 + 8 + 4;
+    private static final int MAX_FRAME_LENGTH = 64 * 1024;
+
+    private static final int COMPACTION_THRESHOLD = 4096;
+    private static final long FINISHED_JOB_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    /**
+     * The immutable snapshot of a Spark batch job replayed from journal, which is replaced by a new one
+     * for each record.
+     */
+    public static final class Entry {
+        private final int batchId;
+        private final @Nullable URI connectUri;
+        private final @Nullable String name;
+        private final @Nullable String state;
+        private final @Nullable String appId;
+        private final Map<String, Long> logOffsets;
+        private final long lastUpdatedMillis;
+
+        Entry(final int batchId) {
+            this(batchId, null, null, null, null, Collections.emptyMap(), 0);
+        }
+
+        private Entry(final int batchId,
+                      final @Nullable URI connectUri,
+                      final @Nullable String name,
+                      final @Nullable String state,
+                      final @Nullable String appId,
+                      final Map<String, Long> logOffsets,
+                      final long lastUpdatedMillis) {
+            this.batchId = batchId;
+            this.connectUri = connectUri;
+            this.name = name;
+            this.state = state;
+            this.appId = appId;
+            this.logOffsets = logOffsets;
+            this.lastUpdatedMillis = lastUpdatedMillis;
+        }
+
+        public int getBatchId() {
+            return batchId;
+        }
+
+        public @Nullable URI getConnectUri() {
+            return connectUri;
+        }
+
+        public @Nullable String getName() {
+            return name;
+        }
+
+        public @Nullable String getState() {
+            return state;
+        }
+
+        public @Nullable String getAppId() {
+            return appId;
+        }
+
+        /**
+         * Get the last log offset recorded.
+         *
+         * @param logType the log type, such as `stdout`, `stderr` and `livy`
+         * @return the log offset, or 0 if not recorded
+         */
+        public long getLogOffset(final String logType) {
+            return logOffsets.getOrDefault(logType, 0L);
+        }
+
+        public long getLastUpdatedMillis() {
+            return lastUpdatedMillis;
+        }
+
+        private int getRecordCount() {
+            return (connectUri != null && name != null ? 1 : 0)
+                    + (state != null ? 1 : 0)
+                    + (appId != null ? 1 : 0)
+                    + logOffsets.size();
+        }
+
+        private boolean isFinishedBy(final long millis) {
+            final SparkBatchJobState jobState = SparkBatchJobState.fromLivy(state);
+
+            return jobState != null && jobState.isDone() && lastUpdatedMillis <= millis;
+        }
+    }
+
+    private final File file;
+    private final FileChannel channel;
+    private final Map<Integer, Entry> entries = new LinkedHashMap<>();
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(256);
+    private final CRC32 crc = new CRC32();
+    private boolean isClosed = false;
+    private int replayedRecords = 0;
+
+    private SparkBatchJobJournal(final File file, final FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * Open the journal file, or create it if not existing, and replay the records.
+     *
+     * @param file the journal file
+     * @return the journal opened
+     * @throws IOException for the file can't be opened
+     */
+    public static SparkBatchJobJournal open(final File file) throws IOException {
+        return open(file, COMPACTION_THRESHOLD, FINISHED_JOB_RETENTION_MILLIS);
+    }
+
+    /**
+     * Open the journal file, or create it if not existing, replay the records, and compact the journal if the
+     * records superseded pass the threshold.
+     *
+     * @param file the journal file
+     * @param compactionThreshold the count of the superseded records to compact the journal
+     * @param finishedJobRetentionMillis the milliseconds to keep the finished jobs since last updated at compaction
+     * @return the journal opened
+     * @throws IOException for the file can't be opened
+     */
+    static SparkBatchJobJournal open(final File file,
+                                     final int compactionThreshold,
+                                     final long finishedJobRetentionMillis) throws IOException {
+        final SparkBatchJobJournal journal = openAndReplay(file);
+        final long finishedByMillis = System.currentTimeMillis() - finishedJobRetentionMillis;
+        final int liveRecords = journal.entries.values().stream()
+                .filter(entry -> !entry.isFinishedBy(finishedByMillis))
+                .mapToInt(Entry::getRecordCount)
+                .sum();
+
+        if (journal.replayedRecords - liveRecords < compactionThreshold) {
+            return journal;
+        }
+
+        try {
+            journal.compact(finishedByMillis);
+        } catch (IOException ex) {
+            journal.log().warn("Failed to compact Spark batch job journal " + file, ex);
+
+            if (!journal.isClosed) {
+                return journal;
+            }
+        }
+
+        return openAndReplay(file);
+    }
+
+    private static SparkBatchJobJournal openAndReplay(final File file) throws IOException {
+        final FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final SparkBatchJobJournal journal = new SparkBatchJobJournal(file, channel);
+
+        try {
+            journal.replay();
+        } catch (IOException ex) {
+            channel.close();
+
+            throw ex;
+        }
+
+        return journal;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Get the job snapshot replayed and recorded.
+     *
+     * @param batchId the Livy batch ID
+     * @return the job snapshot, or null if not recorded
+     */
+    public synchronized @Nullable Entry getEntry(final int batchId) {
+        return entries.get(batchId);
+    }
+
+    /**
+     * Get all job snapshots replayed and recorded, in the order of first recorded.
+     *
+     * @return the job snapshots by batch ID
+     */
+    public synchronized Map<Integer, Entry> getEntries() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(entries));
+    }
+
+    /**
+     * Record the job submitted.
+     *
+     * @param batchId the Livy batch ID
+     * @param connectUri the Livy batches URI the job is submitted to
+     * @param name the job name
+     */
+    public synchronized void recordSubmitted(final int batchId, final URI connectUri, final String name) {
+        final Entry entry = getEntryOrEmpty(batchId);
+
+        if (connectUri.equals(entry.connectUri) && name.equals(entry.name)) {
+            return;
+        }
+
+        append(SUBMITTED, batchId, System.currentTimeMillis(), true, out -> {
+            out.writeUTF(connectUri.toString());
+            out.writeUTF(name);
+        });
+    }
+
+    /**
+     * Record the job state, only the transition is written.
+     *
+     * @param batchId the Livy batch ID
+     * @param state the job state
+     */
+    public synchronized void recordState(final int batchId, final String state) {
+        if (state.equals(getEntryOrEmpty(batchId).state)) {
+            return;
+        }
+
+        append(STATE, batchId, System.currentTimeMillis(), true, out -> out.writeUTF(state));
+    }
+
+    /**
+     * Record the job application ID.
+     *
+     * @param batchId the Livy batch ID
+     * @param appId the Yarn application ID
+     */
+    public synchronized void recordAppId(final int batchId, final String appId) {
+        if (appId.equals(getEntryOrEmpty(batchId).appId)) {
+            return;
+        }
+
+        append(APP_ID, batchId, System.currentTimeMillis(), true, out -> out.writeUTF(appId));
+    }
+
+    /**
+     * Record the log offset read, only the advanced offset is written.
+     *
+     * @param batchId the Livy batch ID
+     * @param logType the log type, such as `stdout`, `stderr` and `livy`
+     * @param offset the log offset read
+     */
+    public synchronized void recordLogOffset(final int batchId, final String logType, final long offset) {
+        if (offset <= getEntryOrEmpty(batchId).getLogOffset(logType)) {
+            return;
+        }
+
+        append(LOG_OFFSET, batchId, System.currentTimeMillis(), false, out -> {
+            out.writeUTF(logType);
+            out.writeLong(offset);
+        });
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        isClosed = true;
+        channel.close();
+    }
+
+    private Entry getEntryOrEmpty(final int batchId) {
+        final Entry entry = entries.get(batchId);
+
+        return entry != null ? entry : new Entry(batchId);
+    }
+
+    @FunctionalInterface
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private void append(final byte type,
+                        final int batchId,
+                        final long timestamp,
+                        final boolean isForced,
+                        final PayloadWriter payloadWriter) {
+        if (isClosed) {
+            log().warn("Skip recording into the closed Spark batch job journal " + file);
+            return;
+        }
+
+        try {
+            final ByteBuffer buffer = frame(type, batchId, timestamp, payloadWriter);
+
+            if (buffer.limit() > MAX_FRAME_LENGTH) {
+                // The replaying takes an oversized frame as torn, which would drop all records after it
+                log().warn("Skip recording Spark batch job " + batchId + " into journal " + file
+                        + " since the record is more than " + MAX_FRAME_LENGTH + " bytes");
+                return;
+            }
+
+            channel.position(channel.size());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            if (isForced) {
+                channel.force(false);
+            }
+
+            // Parse the payload back to update the snapshot the same way as replaying
+            apply(type, batchId, timestamp, new DataInputStream(new ByteArrayInputStream(
+                    buffer.array(), MIN_FRAME_LENGTH - 4, buffer.limit() - MIN_FRAME_LENGTH)));
+        } catch (IOException ex) {
+            // The journal is for resuming, the job monitoring shouldn't be broken by the journal failure
+            log().warn("Failed to record Spark batch job " + batchId + " into journal " + file, ex);
+        }
+    }
+
+    private ByteBuffer frame(final byte type,
+                             final int batchId,
+                             final long timestamp,
+                             final PayloadWriter payloadWriter) throws IOException {
+        recordBuffer.reset();
+        final DataOutputStream out = new DataOutputStream(recordBuffer);
+        out.writeInt(0);    // The frame length placeholder
+        out.writeByte(type);
+        out.writeInt(batchId);
+        out.writeLong(timestamp);
+        payloadWriter.write(out);
+
+        final byte[] frame = recordBuffer.toByteArray();
+        final ByteBuffer buffer = ByteBuffer.allocate(frame.length + 4)
+                .put(frame)
+                .putInt(0, frame.length + 4);
+        crc.reset();
+        crc.update(buffer.array(), 0, frame.length);
+        buffer.putInt(frame.length, (int) crc.getValue());
+        buffer.rewind();
+
+        return buffer;
+    }
+
+    /**
+     * Write the latest snapshots of the jobs not finished by the time into a temporary file, then close
+     * the journal and move the temporary file to replace the journal file.
+     *
+     * @param finishedByMillis the time by which the finished jobs are dropped
+     * @throws IOException for the journal not compacted, which is closed if the journal file is being replaced
+     */
+    private void compact(final long finishedByMillis) throws IOException {
+        final Path target = file.getAbsoluteFile().toPath();
+        final Path dir = target.getParent();
+
+        if (dir == null) {
+            throw new IOException("No parent directory of the Spark batch job journal " + file);
+        }
+
+        final Path temp = Files.createTempFile(dir, file.getName(), ".tmp");
+
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                for (final ByteBuffer record : snapshotRecords(finishedByMillis)) {
+                    while (record.hasRemaining()) {
+                        out.write(record);
+                    }
+                }
+
+                out.force(false);
+            }
+
+            close();
+            CacheFiles.moveAtomically(temp, target);
+        } catch (IOException ex) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Best effort to clean up
+            }
+
+            throw ex;
+        }
+    }
+
+    private List<ByteBuffer> snapshotRecords(final long finishedByMillis) throws IOException {
+        final List<ByteBuffer> records = new ArrayList<>();
+
+        for (final Entry entry : entries.values()) {
+            if (entry.isFinishedBy(finishedByMillis)) {
+                continue;
+            }
+
+            final int batchId = entry.batchId;
+            final long timestamp = entry.lastUpdatedMillis;
+            final URI connectUri = entry.connectUri;
+            final String name = entry.name;
+            final String state = entry.state;
+            final String appId = entry.appId;
+
+            if (connectUri != null && name != null) {
+                records.add(frame(SUBMITTED, batchId, timestamp, out -> {
+                    out.writeUTF(connectUri.toString());
+                    out.writeUTF(name);
+                }));
+            }
+
+            if (state != null) {
+                records.add(frame(STATE, batchId, timestamp, out -> out.writeUTF(state)));
+            }
+
+            if (appId != null) {
+                records.add(frame(APP_ID, batchId, timestamp, out -> out.writeUTF(appId)));
+            }
+
+            for (final Map.Entry<String, Long> logOffset : entry.logOffsets.entrySet()) {
+                records.add(frame(LOG_OFFSET, batchId, timestamp, out -> {
+                    out.writeUTF(logOffset.getKey());
+                    out.writeLong(logOffset.getValue());
+                }));
+            }
+        }
+
+        return records;
+    }
+
+    private void replay() throws IOException {
+        final long size = channel.size();
+        long position = 0;
+
+        while (position + MIN_FRAME_LENGTH <= size) {
+            final ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+            readFully(lengthBuffer, position);
+            final int length = lengthBuffer.getInt(0);
+
+            if (length < MIN_FRAME_LENGTH || length > MAX_FRAME_LENGTH || position + length > size) {
+                break;
+            }
+
+            final ByteBuffer frame = ByteBuffer.allocate(length);
+            readFully(frame, position);
+
+            crc.reset();
+            crc.update(frame.array(), 0, length - 4);
+            if ((int) crc.getValue() != frame.getInt(length - 4)) {
+                break;
+            }
+
+            final byte type = frame.get(4);
+            final int batchId = frame.getInt(5);
+            final long timestamp = frame.getLong(9);
+
+            try {
+                apply(type, batchId, timestamp, new DataInputStream(new ByteArrayInputStream(
+                        frame.array(), MIN_FRAME_LENGTH - 4, length - MIN_FRAME_LENGTH)));
+            } catch (EOFException ex) {
+                break;
+            }
+
+            replayedRecords++;
+            position += length;
+        }
+
+        if (position < size) {
+            log().warn("Truncate the torn records of Spark batch job journal " + file + " from " + position);
+            channel.truncate(position);
+        }
+    }
+
+    private void readFully(final ByteBuffer buffer, final long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of Spark batch job journal " + file);
+            }
+        }
+    }
+
+    private void apply(final byte type,
+                       final int batchId,
+                       final long timestamp,
+                       final DataInputStream payload) throws IOException {
+        final Entry entry = getEntryOrEmpty(batchId);
+        final Entry updated;
+
+        switch (type) {
+            case SUBMITTED:
+                final URI connectUri = URI.create(payload.readUTF());
+                final String name = payload.readUTF();
+                updated = new Entry(batchId, connectUri, name, entry.state, entry.appId, entry.logOffsets, timestamp);
+                break;
+            case STATE:
+                updated = new Entry(batchId, entry.connectUri, entry.name, payload.readUTF(), entry.appId,
+                        entry.logOffsets, timestamp);
+                break;
+            case APP_ID:
+                updated = new Entry(batchId, entry.connectUri, entry.name, entry.state, payload.readUTF(),
+                        entry.logOffsets, timestamp);
+                break;
+            case LOG_OFFSET:
+                final Map<String, Long> logOffsets = new HashMap<>(entry.logOffsets);
+                logOffsets.put(payload.readUTF(), payload.readLong());
+                updated = new Entry(batchId, entry.connectUri, entry.name, entry.state, entry.appId,
+                        Collections.unmodifiableMap(logOffsets), timestamp);
+                break;
+            default:
+                log().warn("Skip the unknown record type " + type + " in Spark batch job journal " + file);
+                updated = new Entry(batchId, entry.connectUri, entry.name, entry.state, entry.appId,
+                        entry.logOffsets, timestamp);
+        }
+
+        entries.put(batchId, updated);
+    }
+}
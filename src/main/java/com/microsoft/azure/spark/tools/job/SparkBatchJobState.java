@@ -0,0 +1,142 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.microsoft.azure.spark.tools.restapi.livy.batches.BatchState;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.YarnApplicationState;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The typed Spark batch job state, which the Livy batch states and Yarn application states are mapped to.
+ */
+public enum SparkBatchJobState {
+    NEW,            // The job isn't submitted, or its state isn't got yet
+    NOT_STARTED,
+    STARTING,
+    RECOVERING,
+    RUNNING,
+    SHUTTING_DOWN,
+    SUCCESS,
+    ERROR,
+    DEAD,
+    KILLED;
+
+    /**
+     * The legal next states of each state, the done states are final.
+     */
+    private static final Map<SparkBatchJobState, Set<SparkBatchJobState>> NEXT_STATES =
+            new EnumMap<>(SparkBatchJobState.class);
+
+    static {
+        NEXT_STATES.put(NEW, EnumSet.range(NOT_STARTED, KILLED));
+        NEXT_STATES.put(NOT_STARTED, EnumSet.range(STARTING, KILLED));
+        NEXT_STATES.put(STARTING, EnumSet.range(RECOVERING, KILLED));
+        NEXT_STATES.put(RECOVERING, EnumSet.complementOf(EnumSet.of(NEW, NOT_STARTED, RECOVERING)));
+        NEXT_STATES.put(RUNNING, EnumSet.complementOf(EnumSet.of(NEW, NOT_STARTED, STARTING, RUNNING)));
+        NEXT_STATES.put(SHUTTING_DOWN, EnumSet.range(SUCCESS, KILLED));
+    }
+
+    /**
+     * Map the Livy batch state.
+     *
+     * @param livyState the Livy batch state string, such as `running`
+     * @return the job state, or null for the unknown state
+     */
+    public static @Nullable SparkBatchJobState fromLivy(final @Nullable String livyState) {
+        final BatchState batchState = BatchState.parse(livyState);
+
+        if (batchState == null) {
+            return null;
+        }
+
+        switch (batchState) {
+            case NOT_STARTED:
+                return NOT_STARTED;
+            case STARTING:
+                return STARTING;
+            case RECOVERING:
+                return RECOVERING;
+            case IDLE:
+            case RUNNING:
+            case BUSY:
+                return RUNNING;
+            case SHUTTING_DOWN:
+                return SHUTTING_DOWN;
+            case ERROR:
+                return ERROR;
+            case DEAD:
+                return DEAD;
+            case SUCCESS:
+                return SUCCESS;
+            case KILLED:
+                return KILLED;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Map the Yarn application state, the `FINISHED` state is mapped to {@link #SUCCESS}, since the application
+     * final status isn't counted.
+     *
+     * @param yarnState the Yarn application state string, such as `ACCEPTED`
+     * @return the job state, or null for the unknown state
+     */
+    public static @Nullable SparkBatchJobState fromYarn(final @Nullable String yarnState) {
+        final YarnApplicationState appState = YarnApplicationState.parse(yarnState);
+
+        if (appState == null) {
+            return null;
+        }
+
+        switch (appState) {
+            case NEW:
+            case NEW_SAVING:
+            case SUBMITTED:
+                return NOT_STARTED;
+            case ACCEPTED:
+                return STARTING;
+            case RUNNING:
+                return RUNNING;
+            case FINISHED:
+                return SUCCESS;
+            case FAILED:
+                return DEAD;
+            case KILLED:
+                return KILLED;
+            default:
+                return null;
+        }
+    }
+
+    public boolean isDone() {
+        return this == SUCCESS || this == ERROR || this == DEAD || this == KILLED;
+    }
+
+    public boolean isRunning() {
+        return this == RUNNING;
+    }
+
+    public boolean isSuccess() {
+        return this == SUCCESS;
+    }
+
+    /**
+     * Checks whether the transition to the state is legal, the done states are final.
+     *
+     * @param next the state to transit to
+     * @return true for the legal transition
+     */
+    public boolean canTransitTo(final SparkBatchJobState next) {
+        final Set<SparkBatchJobState> nextStates = NEXT_STATES.get(this);
+
+        return nextStates != null && nextStates.contains(next);
+    }
+}
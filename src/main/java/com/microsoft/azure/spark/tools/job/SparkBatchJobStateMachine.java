@@ -0,0 +1,86 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import rx.Observable;
+import rx.subjects.PublishSubject;
+import rx.subjects.Subject;
+
+import com.microsoft.azure.spark.tools.events.SparkBatchJobStateTransitionEvent;
+import com.microsoft.azure.spark.tools.log.Logger;
+
+/**
+ * The Spark batch job state machine, which takes the Livy batch states or Yarn application states polled,
+ * validates the transitions and emits the transition events. A polled state which is the same as the current one,
+ * unknown or illegal to transit to is ignored without allocations. The transition events stream completes after
+ * transiting to a done state.
+ */
+public class SparkBatchJobStateMachine implements Logger {
+    private volatile SparkBatchJobState state = SparkBatchJobState.NEW;
+    private final Subject<SparkBatchJobStateTransitionEvent, SparkBatchJobStateTransitionEvent> transitionSubject =
+            PublishSubject.<SparkBatchJobStateTransitionEvent>create().toSerialized();
+
+    public SparkBatchJobState getState() {
+        return state;
+    }
+
+    /**
+     * Getter of the state transition events, only the transitions after subscribing are emitted.
+     *
+     * @return Observable of the transition events
+     */
+    public Observable<SparkBatchJobStateTransitionEvent> getTransitions() {
+        return transitionSubject.asObservable();
+    }
+
+    /**
+     * Take the Livy batch state polled.
+     *
+     * @param livyState the Livy batch state string, such as `running`
+     * @return true for transited
+     */
+    public boolean onLivyState(final @Nullable String livyState) {
+        return transitTo(SparkBatchJobState.fromLivy(livyState));
+    }
+
+    /**
+     * Take the Yarn application state polled.
+     *
+     * @param yarnState the Yarn application state string, such as `RUNNING`
+     * @return true for transited
+     */
+    public boolean onYarnState(final @Nullable String yarnState) {
+        return transitTo(SparkBatchJobState.fromYarn(yarnState));
+    }
+
+    /**
+     * Transit to the next state if legal.
+     *
+     * @param next the state to transit to, null for the unknown state
+     * @return true for transited
+     */
+    public synchronized boolean transitTo(final @Nullable SparkBatchJobState next) {
+        final SparkBatchJobState current = state;
+
+        if (next == null || next == current) {
+            return false;
+        }
+
+        if (!current.canTransitTo(next)) {
+            log().warn("Ignore the illegal Spark batch job state transition from " + current + " to " + next);
+
+            return false;
+        }
+
+        state = next;
+        transitionSubject.onNext(new SparkBatchJobStateTransitionEvent(current, next, System.currentTimeMillis()));
+
+        if (next.isDone()) {
+            transitionSubject.onCompleted();
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,391 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.apache.commons.lang3.StringUtils;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.schedulers.Schedulers;
+import rx.subjects.AsyncSubject;
+
+import com.microsoft.azure.spark.tools.clusters.LivyCluster;
+import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.job.LivyClusterCapacityProbe.Capacity;
+import com.microsoft.azure.spark.tools.log.Logger;
+import com.microsoft.azure.spark.tools.utils.Pair;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.microsoft.azure.spark.tools.events.MessageInfoType.Info;
+
+/**
+ * The client side submission queue of Spark batch jobs for one Livy cluster, which holds the jobs until the
+ * cluster has the capacity for them, rather than letting Livy reject or stall the batches.
+ *
+ * <p>The capacity is probed periodically while there are jobs waiting, with the count of Livy batches not done
+ * yet, and the resources usage summed from the running Yarn applications if the cluster is a Yarn cluster.
+ * The job with the highest priority is admitted first. The jobs with the same priority are shared fairly among
+ * tenants by the weighted admissions, and the jobs of one tenant are admitted in the order of enqueueing.
+ */
+public class SparkBatchSubmissionQueue implements Logger {
+    public static final String DEFAULT_TENANT = "default";
+    public static final String DEFAULT_YARN_QUEUE = "default";
+    public static final int DEFAULT_MAX_RUNNING_BATCHES = 20;
+    public static final float DEFAULT_MAX_USAGE_PERCENTAGE = 90;
+    public static final long DEFAULT_CAPACITY_POLL_MILLIS = 10_000;
+
+    /**
+     * The snapshot of the queue waiting metrics.
+     */
+    public static class Metrics {
+        private final int waiting;
+        private final long admitted;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+
+        Metrics(final int waiting, final long admitted, final long totalWaitNanos, final long maxWaitNanos) {
+            this.waiting = waiting;
+            this.admitted = admitted;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        public int getWaiting() {
+            return waiting;
+        }
+
+        public long getAdmitted() {
+            return admitted;
+        }
+
+        public long getMeanWaitMillis() {
+            return admitted == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos / admitted);
+        }
+
+        public long getMaxWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+        }
+    }
+
+    private static final class Entry {
+        private final LivySparkBatch job;
+        private final int priority;
+        private final long sequence;
+        private final long enqueuedNanos;
+        private final String yarnQueue;
+        private final AsyncSubject<Long> admission = AsyncSubject.create();
+
+        private Entry(final LivySparkBatch job, final int priority, final long sequence) {
+            this.job = job;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.enqueuedNanos = System.nanoTime();
+            this.yarnQueue = StringUtils.defaultIfBlank(
+                    job.getSubmissionParameter().getYarnQueue(), DEFAULT_YARN_QUEUE);
+        }
+    }
+
+    private static final class Tenant {
+        private final PriorityQueue<Entry> entries = new PriorityQueue<>((left, right) ->
+                left.priority != right.priority
+                        ? Integer.compare(right.priority, left.priority)
+                        : Long.compare(left.sequence, right.sequence));
+        private double weight = 1;
+
+        // The virtual finish time of the admissions, which advances slower for the heavier tenant
+        private double virtualTime = 0;
+    }
+
+    private final LivyCluster cluster;
+    private final LivyClusterCapacityProbe capacityProbe;
+    private final Scheduler scheduler;
+    private final Map<String, Tenant> tenants = new LinkedHashMap<>();
+
+    private int maxRunningBatches = DEFAULT_MAX_RUNNING_BATCHES;
+    private float maxClusterUsagePercentage = DEFAULT_MAX_USAGE_PERCENTAGE;
+    private float maxQueueUsagePercentage = DEFAULT_MAX_USAGE_PERCENTAGE;
+    private long capacityPollMillis = DEFAULT_CAPACITY_POLL_MILLIS;
+
+    private long sequence = 0;
+    private double virtualClock = 0;
+    private int waiting = 0;
+    private long admitted = 0;
+    private long totalWaitNanos = 0;
+    private long maxWaitNanos = 0;
+    private @Nullable Subscription capacityPolling = null;
+
+    public SparkBatchSubmissionQueue(final LivyCluster cluster, final HttpObservable http) {
+        this(cluster, http, Schedulers.io());
+    }
+
+    /**
+     * Constructor with the scheduler to probe the cluster capacity on.
+     *
+     * @param cluster the Livy cluster to submit jobs to
+     * @param http the HTTP client to probe the cluster capacity
+     * @param scheduler the scheduler to probe the capacity periodically on
+     */
+    public SparkBatchSubmissionQueue(final LivyCluster cluster, final HttpObservable http, final Scheduler scheduler) {
+        this.cluster = cluster;
+        this.capacityProbe = new LivyClusterCapacityProbe(cluster, http);
+        this.scheduler = scheduler;
+    }
+
+    public LivyCluster getCluster() {
+        return cluster;
+    }
+
+    public int getMaxRunningBatches() {
+        return maxRunningBatches;
+    }
+
+    /**
+     * Setter of the maximum Livy batches not done yet, such as the Livy `livy.server.session.max-creation`
+     * setting, to hold the jobs when reached.
+     *
+     * @param maxRunningBatches the maximum active batches, at least 1
+     */
+    public void setMaxRunningBatches(final int maxRunningBatches) {
+        this.maxRunningBatches = Math.max(1, maxRunningBatches);
+    }
+
+    public float getMaxClusterUsagePercentage() {
+        return maxClusterUsagePercentage;
+    }
+
+    public void setMaxClusterUsagePercentage(final float maxClusterUsagePercentage) {
+        this.maxClusterUsagePercentage = maxClusterUsagePercentage;
+    }
+
+    public float getMaxQueueUsagePercentage() {
+        return maxQueueUsagePercentage;
+    }
+
+    public void setMaxQueueUsagePercentage(final float maxQueueUsagePercentage) {
+        this.maxQueueUsagePercentage = maxQueueUsagePercentage;
+    }
+
+    public long getCapacityPollMillis() {
+        return capacityPollMillis;
+    }
+
+    public void setCapacityPollMillis(final long capacityPollMillis) {
+        this.capacityPollMillis = Math.max(0, capacityPollMillis);
+    }
+
+    /**
+     * Set the fair share weight of a tenant, a tenant with weight 2 gets twice admissions of a tenant with weight 1
+     * when both of them have jobs waiting with the same priority.
+     *
+     * @param tenant the tenant name
+     * @param weight the positive weight, 1 by default
+     */
+    public synchronized void setTenantWeight(final String tenant, final double weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("The tenant weight should be positive, but got " + weight);
+        }
+
+        getOrCreateTenant(tenant).weight = weight;
+    }
+
+    /**
+     * Get the snapshot of the queue waiting metrics.
+     *
+     * @return the metrics snapshot
+     */
+    public synchronized Metrics getMetrics() {
+        return new Metrics(waiting, admitted, totalWaitNanos, maxWaitNanos);
+    }
+
+    /**
+     * Submit the job with the default priority and tenant, after the cluster has the capacity for it.
+     *
+     * @param job the Livy Spark batch job to submit
+     * @return Observable of the submitted job
+     */
+    public Observable<? extends SparkBatchJob> submit(final LivySparkBatch job) {
+        return submit(job, 0, DEFAULT_TENANT);
+    }
+
+    /**
+     * Enqueue the job at subscribing, and submit it after admitted. The job is removed from the queue if the
+     * subscription is unsubscribed before admitted.
+     *
+     * @param job the Livy Spark batch job to submit
+     * @param priority the job priority, the higher priority job is admitted first
+     * @param tenant the tenant name for fair sharing
+     * @return Observable of the submitted job
+     */
+    public Observable<? extends SparkBatchJob> submit(final LivySparkBatch job,
+                                                      final int priority,
+                                                      final String tenant) {
+        return Observable.defer(() -> {
+            final Entry entry = enqueue(job, priority, tenant);
+            startCapacityPolling();
+
+            return entry.admission
+                    .doOnUnsubscribe(() -> remove(entry, tenant))
+                    .flatMap(waitNanos -> {
+                        job.getCtrlSubject().onNext(new Pair<>(Info, String.format(
+                                "The Spark job is admitted after waiting %d ms in the submission queue",
+                                TimeUnit.NANOSECONDS.toMillis(waitNanos))));
+
+                        return job.submitNow();
+                    });
+        });
+    }
+
+    private synchronized Entry enqueue(final LivySparkBatch job, final int priority, final String tenantName) {
+        final Tenant tenant = getOrCreateTenant(tenantName);
+
+        if (tenant.entries.isEmpty()) {
+            // A tenant coming back shouldn't catch up the admissions it didn't ask for
+            tenant.virtualTime = Math.max(tenant.virtualTime, virtualClock);
+        }
+
+        final Entry entry = new Entry(job, priority, sequence++);
+        tenant.entries.add(entry);
+        waiting++;
+
+        return entry;
+    }
+
+    private synchronized void startCapacityPolling() {
+        if (capacityPolling != null || waiting == 0) {
+            return;
+        }
+
+        capacityPolling = Observable.defer(() -> probeCapacity()
+                .onErrorResumeNext(err -> {
+                    log().warn("Failed to probe the capacity of Livy cluster " + cluster.getLivyConnectionUrl(), err);
+
+                    return Observable.empty();
+                }))
+                .repeatWhen(ob -> ob.delay(getCapacityPollMillis(), TimeUnit.MILLISECONDS, scheduler))
+                .subscribeOn(scheduler)
+                .subscribe(this::admit, err -> log().warn("The submission queue capacity polling stopped", err));
+
+        // All jobs could be admitted at subscribing with an immediate scheduler
+        stopPollingIfEmpty();
+    }
+
+    private synchronized void remove(final Entry entry, final String tenantName) {
+        final Tenant tenant = tenants.get(tenantName);
+
+        if (tenant != null && tenant.entries.remove(entry)) {
+            waiting--;
+            stopPollingIfEmpty();
+        }
+    }
+
+    /**
+     * Admit the waiting jobs within the capacity.
+     *
+     * @param capacity the cluster capacity probed
+     */
+    void admit(final Capacity capacity) {
+        final List<Pair<Entry, Long>> admittedEntries = new ArrayList<>();
+
+        synchronized (this) {
+            if (capacity.getClusterUsagePercentage() >= getMaxClusterUsagePercentage()) {
+                return;
+            }
+
+            final Set<Tenant> blockedTenants = new HashSet<>();
+            int slots = getMaxRunningBatches() - capacity.getActiveBatches();
+
+            while (slots > 0) {
+                final Tenant tenant = pickTenant(blockedTenants);
+
+                if (tenant == null) {
+                    break;
+                }
+
+                final Entry entry = tenant.entries.peek();
+                if (entry == null) {
+                    break;
+                }
+
+                if (capacity.getQueueUsagePercentage(entry.yarnQueue) >= getMaxQueueUsagePercentage()) {
+                    // The Yarn queue is full, keep the tenant jobs in order
+                    blockedTenants.add(tenant);
+                    continue;
+                }
+
+                tenant.entries.poll();
+                virtualClock = tenant.virtualTime;
+                tenant.virtualTime += 1 / tenant.weight;
+                slots--;
+
+                final long waitNanos = System.nanoTime() - entry.enqueuedNanos;
+                waiting--;
+                admitted++;
+                totalWaitNanos += waitNanos;
+                maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+                admittedEntries.add(Pair.of(entry, waitNanos));
+            }
+
+            stopPollingIfEmpty();
+        }
+
+        // Submit out of the lock
+        for (Pair<Entry, Long> admittedEntry : admittedEntries) {
+            admittedEntry.getFirst().admission.onNext(admittedEntry.getSecond());
+            admittedEntry.getFirst().admission.onCompleted();
+        }
+    }
+
+    private @Nullable Tenant pickTenant(final Set<Tenant> blockedTenants) {
+        Tenant picked = null;
+        Entry pickedHead = null;
+
+        for (Tenant tenant : tenants.values()) {
+            final Entry head = tenant.entries.peek();
+
+            if (head == null || blockedTenants.contains(tenant)) {
+                continue;
+            }
+
+            if (picked == null || pickedHead == null
+                    || head.priority > pickedHead.priority
+                    || (head.priority == pickedHead.priority && tenant.virtualTime < picked.virtualTime)) {
+                picked = tenant;
+                pickedHead = head;
+            }
+        }
+
+        return picked;
+    }
+
+    private Tenant getOrCreateTenant(final String tenant) {
+        return tenants.computeIfAbsent(tenant, name -> new Tenant());
+    }
+
+    private void stopPollingIfEmpty() {
+        final Subscription polling = capacityPolling;
+
+        if (waiting == 0 && polling != null) {
+            polling.unsubscribe();
+            capacityPolling = null;
+        }
+    }
+
+    /**
+     * Probe the cluster capacity.
+     *
+     * @return Observable of the capacity probed
+     */
+    Observable<Capacity> probeCapacity() {
+        return capacityProbe.probe();
+    }
+}
@@ -0,0 +1,114 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A chunk of Spark job logs with the byte range in the log file, so that the next fetching starts from the chunk end
+ * exactly, no matter the logs have multi-byte characters or HTML escaped characters in transferring.
+ */
+public final class SparkLogChunk {
+    private static final byte[] NO_BYTES = new byte[0];
+
+    private final long start;
+    private final byte[] bytes;
+    private final boolean isEof;
+
+    /**
+     * Constructor of a log chunk.
+     *
+     * @param start the byte offset of the chunk in the log file
+     * @param bytes the chunk bytes, which are kept without copying
+     * @param isEof whether the chunk reaches the end of the log file at the fetching time
+     */
+    public SparkLogChunk(final long start, final byte[] bytes, final boolean isEof) {
+        this.start = start;
+        this.bytes = bytes;
+        this.isEof = isEof;
+    }
+
+    /**
+     * Create an empty chunk, such as no more logs after the offset.
+     *
+     * @param start the byte offset in the log file
+     * @param isEof whether the offset is the end of the log file at the fetching time
+     * @return the empty chunk
+     */
+    public static SparkLogChunk empty(final long start, final boolean isEof) {
+        return new SparkLogChunk(start, NO_BYTES, isEof);
+    }
+
+    /**
+     * Getter of the chunk start.
+     *
+     * @return the byte offset of the chunk first byte, inclusive
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * Getter of the chunk end, where the next chunk starts.
+     *
+     * @return the byte offset after the chunk last byte, exclusive
+     */
+    public long getEnd() {
+        return start + bytes.length;
+    }
+
+    public int getLength() {
+        return bytes.length;
+    }
+
+    public boolean isEmpty() {
+        return bytes.length == 0;
+    }
+
+    /**
+     * Getter of the EOF flag. A running job log file could still grow after the EOF chunk.
+     *
+     * @return whether the chunk reaches the end of the log file at the fetching time
+     */
+    public boolean isEof() {
+        return isEof;
+    }
+
+    /**
+     * Getter of the chunk bytes, which are shared rather than copied, and shouldn't be modified.
+     *
+     * @return the chunk bytes
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Get the part of the chunk from an index, such as to drop the partial first line of a tail chunk.
+     *
+     * @param fromIndex the index in the chunk bytes, inclusive
+     * @return the chunk of the bytes from the index to the chunk end, with the same EOF flag
+     */
+    public SparkLogChunk sliceFrom(final int fromIndex) {
+        final int from = Math.max(0, Math.min(fromIndex, bytes.length));
+
+        return from == 0 ? this : new SparkLogChunk(start + from, Arrays.copyOfRange(bytes, from, bytes.length), isEof);
+    }
+
+    /**
+     * Decode the chunk bytes as UTF-8 text. A multi-byte character split by the chunk boundary is decoded as the
+     * replacement character, use {@link #getBytes()} for the exact content.
+     *
+     * @return the chunk text
+     */
+    public String getText() {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return "SparkLogChunk[" + start + ", " + getEnd() + (isEof ? ", EOF]" : ")");
+    }
+}
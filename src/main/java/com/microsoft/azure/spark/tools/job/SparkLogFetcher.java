@@ -5,6 +5,41 @@ package com.microsoft.azure.spark.tools.job;
 
 import rx.Observable;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 public interface SparkLogFetcher {
     Observable<String> fetch(String type, long logOffset, int size);
-}
\ No newline at end of file
+
+    /**
+     * Fetch the next logs chunk with the byte range, the next fetching should start from the chunk end, so that every
+     * byte is fetched exactly once.
+     *
+     * <p>The default implementation counts the bytes of the {@link #fetch(String, long, int)} logs in UTF-8, which is
+     * only byte accurate if the fetcher offset is in bytes too.
+     *
+     * <p>A negative byte offset fetches the last `-byteOffset` bytes (the tail) of the log file, as the Yarn log
+     * servlet `start` parameter, with the maximum bytes ignored. The tail chunk starts at the exact byte offset if the
+     * fetcher knows the log file length, otherwise at the negative offset, which can't be followed by offset.
+     *
+     * @param type the log type, such as `stdout` and `stderr`
+     * @param byteOffset the byte offset in the log file to fetch from, or negative to fetch the tail
+     * @param maxBytes the maximum bytes to fetch, or non-positive for all
+     * @return Observable of the non-empty chunk fetched, or empty if the logs are all fetched
+     */
+    default Observable<SparkLogChunk> fetchChunk(String type, long byteOffset, int maxBytes) {
+        return fetch(type, byteOffset, maxBytes)
+                .map(logs -> new SparkLogChunk(byteOffset, logs.getBytes(UTF_8), false));
+    }
+
+    /**
+     * Can the fetcher tell the exact byte offset of the tail chunk of {@link #fetchChunk(String, long, int)}, so that
+     * the logs after the tail could be followed.
+     *
+     * <p>The default implementation can't, since the tail chunk starts at the negative offset.
+     *
+     * @return true if the tail chunk starts at the exact byte offset
+     */
+    default boolean isTailOffsetKnown() {
+        return false;
+    }
+}
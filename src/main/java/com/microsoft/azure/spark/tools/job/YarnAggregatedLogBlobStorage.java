@@ -0,0 +1,114 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import com.microsoft.azure.spark.tools.utils.WasbUri;
+import com.microsoft.azure.storage.CloudStorageAccount;
+import com.microsoft.azure.storage.StorageException;
+import com.microsoft.azure.storage.blob.CloudBlob;
+import com.microsoft.azure.storage.blob.CloudBlobContainer;
+import com.microsoft.azure.storage.blob.ListBlobItem;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The Yarn aggregated log storage on the cluster default Azure Blob storage, with the same storage account and WASB
+ * root as {@link AzureBlobStorageDeploy}. The files are read with the blob range downloading.
+ */
+public class YarnAggregatedLogBlobStorage implements YarnAggregatedLogStorage {
+    private final CloudStorageAccount storageAccount;
+    private final WasbUri fsRoot;
+
+    public YarnAggregatedLogBlobStorage(final CloudStorageAccount storageAccount, final WasbUri fsRoot) {
+        this.storageAccount = storageAccount;
+        this.fsRoot = fsRoot;
+    }
+
+    /**
+     * Constructor of YarnAggregatedLogBlobStorage.
+     *
+     * @param storageAccessKey the Azure Blob storage access key
+     * @param fsRoot the WASB URI for Blob root with container, such as the cluster default file system
+     */
+    public YarnAggregatedLogBlobStorage(final String storageAccessKey, final WasbUri fsRoot) {
+        this(AzureBlobStorageDeploy.createStorageAccount(storageAccessKey, fsRoot), fsRoot);
+    }
+
+    /**
+     * Constructor with the same storage as the artifacts deployment.
+     *
+     * @param deploy the Azure Blob storage deployment of the cluster
+     */
+    public YarnAggregatedLogBlobStorage(final AzureBlobStorageDeploy deploy) {
+        this(deploy.getStorageAccount(), deploy.getFsRoot());
+    }
+
+    public CloudStorageAccount getStorageAccount() {
+        return storageAccount;
+    }
+
+    public WasbUri getFsRoot() {
+        return fsRoot;
+    }
+
+    private CloudBlobContainer getBlobContainer() throws URISyntaxException, StorageException {
+        return getStorageAccount().createCloudBlobClient().getContainerReference(getFsRoot().getContainer());
+    }
+
+    /**
+     * Get the blob name of a path, which is relative to the container without the leading slash.
+     */
+    private String getBlobName(final String path) {
+        final String rootPath = getFsRoot().getAbsolutePath();
+
+        return ((rootPath.endsWith("/") ? rootPath : rootPath + "/") + path.replaceFirst("^/+", ""))
+                .replaceFirst("^/+", "");
+    }
+
+    @Override
+    public List<FileEntry> list(final String dirPath) throws IOException {
+        final String prefix = getBlobName(dirPath.endsWith("/") ? dirPath : dirPath + "/");
+        final String dirPathWithSlashEnding = dirPath.endsWith("/") ? dirPath : dirPath + "/";
+        final List<FileEntry> entries = new ArrayList<>();
+
+        try {
+            // The flat listing has the blob properties, so the lengths aren't requested again
+            for (ListBlobItem item : getBlobContainer().listBlobs(prefix, true)) {
+                if (!(item instanceof CloudBlob)) {
+                    continue;
+                }
+
+                final CloudBlob blob = (CloudBlob) item;
+                final String name = blob.getName().substring(prefix.length());
+
+                if (!name.isEmpty() && name.indexOf('/') < 0) {
+                    entries.add(new FileEntry(dirPathWithSlashEnding + name, blob.getProperties().getLength()));
+                }
+            }
+        } catch (URISyntaxException | StorageException | RuntimeException ex) {
+            // The listing iterator wraps the storage exceptions as the runtime ones
+            throw new IOException("Failed to list the blobs under " + prefix, ex);
+        }
+
+        entries.sort(Comparator.comparing(FileEntry::getName));
+
+        return entries;
+    }
+
+    @Override
+    public int read(final String path, final long position, final byte[] buffer, final int offset, final int length)
+            throws IOException {
+        try {
+            final CloudBlob blob = getBlobContainer().getBlockBlobReference(getBlobName(path));
+
+            return blob.downloadRangeToByteArray(position, (long) length, buffer, offset);
+        } catch (URISyntaxException | StorageException ex) {
+            throw new IOException("Failed to read " + length + " bytes at " + position + " of " + path, ex);
+        }
+    }
+}
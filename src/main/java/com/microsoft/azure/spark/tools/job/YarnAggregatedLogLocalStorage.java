@@ -0,0 +1,73 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The Yarn aggregated log storage on the local file system, such as the aggregated logs downloaded or the test files.
+ */
+public class YarnAggregatedLogLocalStorage implements YarnAggregatedLogStorage {
+    private final File root;
+
+    /**
+     * Constructor with the storage root directory.
+     *
+     * @param root the local directory as the storage root, which has the `app-logs` directory for example
+     */
+    public YarnAggregatedLogLocalStorage(final File root) {
+        this.root = root;
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    private File getFile(final String path) {
+        return new File(root, path.replaceFirst("^/+", ""));
+    }
+
+    @Override
+    public List<FileEntry> list(final String dirPath) {
+        final File[] files = getFile(dirPath).listFiles(File::isFile);
+        final List<FileEntry> entries = new ArrayList<>();
+
+        if (files == null) {
+            return entries;
+        }
+
+        Arrays.sort(files, Comparator.comparing(File::getName));
+
+        final String dirPathWithSlashEnding = dirPath.endsWith("/") ? dirPath : dirPath + "/";
+        for (File file : files) {
+            entries.add(new FileEntry(dirPathWithSlashEnding + file.getName(), file.length()));
+        }
+
+        return entries;
+    }
+
+    @Override
+    public int read(final String path, final long position, final byte[] buffer, final int offset, final int length)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(getFile(path).toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer target = ByteBuffer.wrap(buffer, offset, length);
+
+            while (target.hasRemaining()) {
+                if (channel.read(target, position + target.position() - offset) < 0) {
+                    break;
+                }
+            }
+
+            return target.position() - offset;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The input stream of a byte range of a Yarn aggregated log file, which reads the storage in windows, so that a large
+ * range is neither downloaded at once nor read with many small requests.
+ */
+class YarnAggregatedLogRangeInputStream extends InputStream {
+    private final YarnAggregatedLogStorage storage;
+    private final String path;
+    private final long end;
+    private final byte[] window;
+
+    private long windowStart;
+    private int windowLength = 0;
+    private int windowPos = 0;
+
+    /**
+     * Constructor of the range input stream.
+     *
+     * @param storage the storage to read from
+     * @param path the file path
+     * @param start the range start offset in the file
+     * @param length the range length
+     * @param windowSize the bytes to read from the storage each time
+     */
+    YarnAggregatedLogRangeInputStream(final YarnAggregatedLogStorage storage,
+                                      final String path,
+                                      final long start,
+                                      final long length,
+                                      final int windowSize) {
+        this.storage = storage;
+        this.path = path;
+        this.end = start + length;
+        this.windowStart = start;
+        this.window = new byte[(int) Math.max(1, Math.min(windowSize, length))];
+    }
+
+    private boolean fill() throws IOException {
+        if (windowPos < windowLength) {
+            return true;
+        }
+
+        windowStart += windowLength;
+        windowPos = 0;
+        windowLength = 0;
+
+        if (windowStart >= end) {
+            return false;
+        }
+
+        final int toRead = (int) Math.min(window.length, end - windowStart);
+        windowLength = storage.read(path, windowStart, window, 0, toRead);
+
+        if (windowLength < toRead) {
+            throw new EOFException("The file " + path + " ends at " + (windowStart + windowLength)
+                    + " before the range end " + end);
+        }
+
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? window[windowPos++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        if (!fill()) {
+            return -1;
+        }
+
+        final int copied = Math.min(len, windowLength - windowPos);
+        System.arraycopy(window, windowPos, b, off, copied);
+        windowPos += copied;
+
+        return copied;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final long inWindow = Math.min(Math.max(n, 0), windowLength - windowPos);
+        windowPos += inWindow;
+
+        // Skip the bytes after the window without reading
+        final long afterWindow = Math.min(n - inWindow, end - windowStart - windowLength);
+        if (afterWindow > 0) {
+            windowStart += windowLength + afterWindow;
+            windowLength = 0;
+            windowPos = 0;
+        }
+
+        return inWindow + Math.max(afterWindow, 0);
+    }
+
+    @Override
+    public int available() {
+        return windowLength - windowPos;
+    }
+}
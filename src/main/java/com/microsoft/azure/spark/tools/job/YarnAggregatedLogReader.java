@@ -0,0 +1,401 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import rx.Observable;
+import rx.exceptions.Exceptions;
+import rx.schedulers.Schedulers;
+
+import com.microsoft.azure.spark.tools.job.YarnAggregatedLogStorage.FileEntry;
+import com.microsoft.azure.spark.tools.job.YarnAppContainerLogHarvester.ContainerLogChunk;
+import com.microsoft.azure.spark.tools.log.Logger;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The reader of the Yarn aggregated logs of an application from the cluster storage, such as
+ * `/app-logs/{user}/logs/{applicationId}` on the default Azure Blob storage, after the application finished and the
+ * NodeManagers uploaded the container logs. Both the TFile and the IndexedFormat log aggregation files are supported.
+ *
+ * <p>A file is read with the byte ranges of its blocks or log entries rather than downloaded as a whole, the ranges
+ * are read in parallel while the logs are emitted in the file order, and the chunks of a container log are in order
+ * without gaps.
+ */
+public class YarnAggregatedLogReader implements Logger {
+    public static final String DEFAULT_REMOTE_ROOT_DIR = "/app-logs";
+    public static final List<String> DEFAULT_REMOTE_DIR_SUFFIXES =
+            Collections.unmodifiableList(Arrays.asList("logs", "logs-tfile", "logs-ifile"));
+    public static final int DEFAULT_CHUNK_BYTES = 1024 * 1024;
+    public static final int DEFAULT_RANGE_READ_BYTES = 4 * 1024 * 1024;
+    public static final int DEFAULT_MAX_CONCURRENT_READS = 4;
+
+    /**
+     * A range of an aggregated log file to read independently, such as a TFile data block.
+     */
+    interface Segment {
+        Cursor open() throws IOException;
+    }
+
+    /**
+     * The cursor of the container log chunks read from a segment, which is iterated once only.
+     */
+    abstract static class Cursor implements Iterable<ContainerLogChunk>, Iterator<ContainerLogChunk>, Closeable {
+        private final int chunkBytes;
+        private @Nullable ContainerLogChunk next = null;
+        private boolean isEnd = false;
+
+        private @Nullable InputStream logInput = null;
+        private String logContainerId = "";
+        private String logNodeId = "";
+        private String logType = "";
+        private long logLength = 0;
+        private long logPosition = 0;
+
+        Cursor(final int chunkBytes) {
+            this.chunkBytes = chunkBytes;
+        }
+
+        /**
+         * Start to read a container log file from the input stream, by the following {@link #readLogChunk()}.
+         *
+         * @param containerId the container ID
+         * @param nodeId the node ID
+         * @param type the log type
+         * @param input the input stream starting at the log file first byte, which isn't closed
+         * @param length the log file length
+         */
+        void startLog(final String containerId,
+                      final String nodeId,
+                      final String type,
+                      final InputStream input,
+                      final long length) {
+            this.logInput = input;
+            this.logContainerId = containerId;
+            this.logNodeId = nodeId;
+            this.logType = type;
+            this.logLength = length;
+            this.logPosition = 0;
+        }
+
+        /**
+         * Read the next chunk of the container log file started.
+         *
+         * @return the next chunk, or null if the log file is read to the end
+         * @throws IOException for the storage exceptions, or if the input stream ends before the log file end
+         */
+        @Nullable ContainerLogChunk readLogChunk() throws IOException {
+            final InputStream input = this.logInput;
+
+            if (input == null || logPosition >= logLength) {
+                this.logInput = null;
+
+                return null;
+            }
+
+            final byte[] bytes = new byte[(int) Math.min(chunkBytes, logLength - logPosition)];
+            int read = 0;
+
+            while (read < bytes.length) {
+                final int count = input.read(bytes, read, bytes.length - read);
+
+                if (count < 0) {
+                    throw new EOFException("The " + logType + " logs of " + logContainerId + " end at "
+                            + (logPosition + read) + " before the length " + logLength);
+                }
+
+                read += count;
+            }
+
+            final SparkLogChunk chunk = new SparkLogChunk(logPosition, bytes, logPosition + read == logLength);
+            logPosition += read;
+
+            return new ContainerLogChunk(logContainerId, logNodeId, logType, chunk);
+        }
+
+        /**
+         * Read the next chunk.
+         *
+         * @return the next chunk, or null at the end of the segment
+         * @throws IOException for the storage exceptions and broken files
+         */
+        abstract @Nullable ContainerLogChunk readNext() throws IOException;
+
+        @Override
+        public Iterator<ContainerLogChunk> iterator() {
+            return this;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !isEnd) {
+                try {
+                    next = readNext();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+
+                isEnd = next == null;
+            }
+
+            return next != null;
+        }
+
+        @Override
+        public ContainerLogChunk next() {
+            final ContainerLogChunk current = hasNext() ? this.next : null;
+
+            if (current == null) {
+                throw new NoSuchElementException();
+            }
+
+            this.next = null;
+
+            return current;
+        }
+    }
+
+    private final YarnAggregatedLogStorage storage;
+
+    private String remoteRootDir = DEFAULT_REMOTE_ROOT_DIR;
+    private List<String> remoteDirSuffixes = DEFAULT_REMOTE_DIR_SUFFIXES;
+    private List<String> logTypes = Collections.emptyList();
+    private int chunkBytes = DEFAULT_CHUNK_BYTES;
+    private int rangeReadBytes = DEFAULT_RANGE_READ_BYTES;
+    private int maxConcurrentReads = DEFAULT_MAX_CONCURRENT_READS;
+
+    public YarnAggregatedLogReader(final YarnAggregatedLogStorage storage) {
+        this.storage = storage;
+    }
+
+    public YarnAggregatedLogStorage getStorage() {
+        return storage;
+    }
+
+    public String getRemoteRootDir() {
+        return remoteRootDir;
+    }
+
+    /**
+     * Setter of the remote root directory of the aggregated logs, as the Yarn setting
+     * `yarn.nodemanager.remote-app-log-dir`.
+     *
+     * @param remoteRootDir the remote root directory, `/app-logs` by default
+     */
+    public void setRemoteRootDir(final String remoteRootDir) {
+        this.remoteRootDir = remoteRootDir.endsWith("/")
+                ? remoteRootDir.substring(0, remoteRootDir.length() - 1)
+                : remoteRootDir;
+    }
+
+    public List<String> getRemoteDirSuffixes() {
+        return remoteDirSuffixes;
+    }
+
+    /**
+     * Setter of the remote directory suffixes to look up the application logs in, as the Yarn setting
+     * `yarn.nodemanager.remote-app-log-dir-suffix` of the log aggregation file controllers.
+     *
+     * @param remoteDirSuffixes the suffixes, `logs`, `logs-tfile` and `logs-ifile` by default
+     */
+    public void setRemoteDirSuffixes(final List<String> remoteDirSuffixes) {
+        this.remoteDirSuffixes = Collections.unmodifiableList(new ArrayList<>(remoteDirSuffixes));
+    }
+
+    public List<String> getLogTypes() {
+        return logTypes;
+    }
+
+    /**
+     * Setter of the log types to read from each container.
+     *
+     * @param logTypes the log types, such as `stdout` and `stderr`, or empty for all types by default
+     */
+    public void setLogTypes(final List<String> logTypes) {
+        this.logTypes = Collections.unmodifiableList(new ArrayList<>(logTypes));
+    }
+
+    boolean isLogTypeIncluded(final String type) {
+        return logTypes.isEmpty() || logTypes.contains(type);
+    }
+
+    public int getChunkBytes() {
+        return chunkBytes;
+    }
+
+    public void setChunkBytes(final int chunkBytes) {
+        this.chunkBytes = Math.max(1, chunkBytes);
+    }
+
+    public int getRangeReadBytes() {
+        return rangeReadBytes;
+    }
+
+    /**
+     * Setter of the bytes to read from the storage each time.
+     *
+     * @param rangeReadBytes the range read bytes, 4 MiB by default
+     */
+    public void setRangeReadBytes(final int rangeReadBytes) {
+        this.rangeReadBytes = Math.max(1, rangeReadBytes);
+    }
+
+    public int getMaxConcurrentReads() {
+        return maxConcurrentReads;
+    }
+
+    /**
+     * Setter of the maximum segments, such as the TFile data blocks, to read at the same time.
+     *
+     * @param maxConcurrentReads the maximum concurrent reads, at least 1
+     */
+    public void setMaxConcurrentReads(final int maxConcurrentReads) {
+        this.maxConcurrentReads = Math.max(1, maxConcurrentReads);
+    }
+
+    /**
+     * Read the aggregated logs of all containers of an application.
+     *
+     * @param user the application user, such as `livy`
+     * @param applicationId the application ID
+     * @return Observable of the container log chunks, empty if the logs aren't aggregated
+     */
+    public Observable<ContainerLogChunk> read(final String user, final String applicationId) {
+        return read(user, applicationId, null);
+    }
+
+    /**
+     * Read the aggregated logs of an application container.
+     *
+     * @param user the application user, such as `livy`
+     * @param applicationId the application ID
+     * @param containerId the container ID to read logs of, or null for all containers
+     * @return Observable of the container log chunks, empty if the logs aren't aggregated
+     */
+    public Observable<ContainerLogChunk> read(final String user,
+                                              final String applicationId,
+                                              final @Nullable String containerId) {
+        return Observable.defer(() -> {
+            final List<Segment> segments = new ArrayList<>();
+
+            try {
+                for (String suffix : getRemoteDirSuffixes()) {
+                    final String dirPath = String.join("/", getRemoteRootDir(), user, suffix, applicationId);
+
+                    for (FileEntry file : storage.list(dirPath)) {
+                        segments.addAll(listSegments(file, applicationId, containerId));
+                    }
+                }
+            } catch (IOException ex) {
+                return Observable.error(ex);
+            }
+
+            return Observable.from(segments)
+                    .concatMapEager(this::readSegment, segments.size() + 1, getMaxConcurrentReads());
+        });
+    }
+
+    private List<Segment> listSegments(final FileEntry file,
+                                       final String applicationId,
+                                       final @Nullable String containerId) throws IOException {
+        final String name = file.getName();
+
+        // The files being uploaded and the IndexedFormat checksum files
+        if (name.endsWith(".tmp") || name.endsWith("-checksum") || file.getLength() == 0) {
+            return Collections.emptyList();
+        }
+
+        final byte[] tail = readRange(file.getPath(),
+                Math.max(0, file.getLength() - YarnIndexedLogFormat.TAIL_LENGTH),
+                (int) Math.min(file.getLength(), YarnIndexedLogFormat.TAIL_LENGTH));
+        final String nodeId = getNodeId(name);
+
+        if (YarnTFileLogFormat.matches(tail)) {
+            return YarnTFileLogFormat.listSegments(this, file, nodeId, containerId);
+        }
+
+        if (YarnIndexedLogFormat.matches(tail, applicationId)) {
+            return YarnIndexedLogFormat.listSegments(this, file, applicationId, nodeId, containerId);
+        }
+
+        log().warn("Skip the unknown format aggregated log file " + file);
+
+        return Collections.emptyList();
+    }
+
+    /**
+     * Get the node ID from the aggregated log file name, such as `10.0.0.7_30050` for the node `10.0.0.7:30050`.
+     */
+    static String getNodeId(final String fileName) {
+        final int portSeparator = fileName.lastIndexOf('_');
+
+        return portSeparator < 0
+                ? fileName
+                : fileName.substring(0, portSeparator) + ":" + fileName.substring(portSeparator + 1);
+    }
+
+    private Observable<ContainerLogChunk> readSegment(final Segment segment) {
+        return Observable.using(
+                () -> {
+                    try {
+                        return segment.open();
+                    } catch (IOException ex) {
+                        throw Exceptions.propagate(ex);
+                    }
+                },
+                cursor -> Observable.from(cursor).onErrorResumeNext(err -> Observable.error(
+                        err instanceof UncheckedIOException ? err.getCause() : err)),
+                cursor -> {
+                    try {
+                        cursor.close();
+                    } catch (IOException ignored) {
+                        // The segment has been read
+                    }
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Read a byte range of a file fully.
+     *
+     * @param path the file path
+     * @param position the byte offset of the range
+     * @param length the range length
+     * @return the bytes of the range
+     * @throws IOException for the storage exceptions, or if the file ends before the range end
+     */
+    byte[] readRange(final String path, final long position, final int length) throws IOException {
+        final byte[] bytes = new byte[length];
+        final int read = storage.read(path, position, bytes, 0, length);
+
+        if (read < length) {
+            throw new EOFException("The file " + path + " ends at " + (position + read) + " before the range end "
+                    + (position + length));
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Open a byte range of a file as an input stream.
+     *
+     * @param path the file path
+     * @param position the byte offset of the range
+     * @param length the range length
+     * @return the input stream reading the range in windows of the range read bytes
+     */
+    YarnAggregatedLogRangeInputStream openRange(final String path, final long position, final long length) {
+        return new YarnAggregatedLogRangeInputStream(storage, path, position, length, getRangeReadBytes());
+    }
+}
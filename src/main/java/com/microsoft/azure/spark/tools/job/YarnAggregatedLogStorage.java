@@ -0,0 +1,70 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The storage of the Yarn aggregated logs, such as the cluster default Azure Blob storage, read with the ranges rather
+ * than downloaded as whole files.
+ */
+public interface YarnAggregatedLogStorage {
+    /**
+     * A file in the storage.
+     */
+    class FileEntry {
+        private final String path;
+        private final long length;
+
+        public FileEntry(final String path, final long length) {
+            this.path = path;
+            this.length = length;
+        }
+
+        /**
+         * Getter of the file path.
+         *
+         * @return the file path from the storage root, starting with slash `/`
+         */
+        public String getPath() {
+            return path;
+        }
+
+        public String getName() {
+            return path.substring(path.lastIndexOf('/') + 1);
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        @Override
+        public String toString() {
+            return path + " (" + length + " bytes)";
+        }
+    }
+
+    /**
+     * List the files directly under a directory.
+     *
+     * @param dirPath the directory path from the storage root, such as `/app-logs/livy/logs/application_1_0001`
+     * @return the files sorted by name, or empty if the directory doesn't exist
+     * @throws IOException the storage exceptions
+     */
+    List<FileEntry> list(String dirPath) throws IOException;
+
+    /**
+     * Read a byte range of a file, which could be called concurrently.
+     *
+     * @param path the file path from the storage root
+     * @param position the byte offset in the file to read from
+     * @param buffer the buffer to read into
+     * @param offset the offset in the buffer
+     * @param length the bytes to read, which are all read unless reaching the end of file
+     * @return the bytes read, less than the length only at the end of file
+     * @throws IOException the storage exceptions
+     */
+    int read(String path, long position, byte[] buffer, int offset, int length) throws IOException;
+}
@@ -0,0 +1,388 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.apache.commons.lang3.StringUtils;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import rx.Observable;
+import rx.schedulers.Schedulers;
+
+import com.microsoft.azure.spark.tools.clusters.YarnCluster;
+import com.microsoft.azure.spark.tools.errors.SparkJobException;
+import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.http.InvokedByMethodHeader;
+import com.microsoft.azure.spark.tools.log.Logger;
+import com.microsoft.azure.spark.tools.restapi.yarn.nm.apps.appid.NodeAppResponse;
+import com.microsoft.azure.spark.tools.restapi.yarn.nm.apps.appid.NodeAppResponse.NodeApp;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.nodes.NodesResponse;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.nodes.NodesResponse.Node;
+import com.microsoft.azure.spark.tools.utils.Pair;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+/**
+ * The harvester of the logs from all Yarn containers of an application, such as the executors `stderr` of a failed
+ * Spark job, while {@link YarnContainerLogFetcher} only follows the driver container. The containers are listed from
+ * the NodeManager of each ResourceManager node, and their logs are fetched in parallel with the bounded concurrency per
+ * node, then streamed out tagged by the container ID.
+ *
+ * <p>The logs of a container type are streamed in order, while the logs of different containers are interleaved.
+ * The containers already cleaned up by the NodeManager, such as after the log aggregation of a finished application,
+ * aren't listed.
+ */
+public class YarnAppContainerLogHarvester implements Logger {
+    public static final List<String> DEFAULT_LOG_TYPES =
+            Collections.unmodifiableList(Arrays.asList("stdout", "stderr"));
+    public static final int DEFAULT_TAIL_BYTES = 4096;
+    public static final int DEFAULT_CHUNK_BYTES = 1024 * 1024;
+    public static final int DEFAULT_MAX_CONCURRENCY_PER_NODE = 2;
+    public static final int DEFAULT_MAX_NODE_CONCURRENCY = 8;
+
+    // The nodes without the NodeManager serving
+    private static final Set<String> INACTIVE_NODE_STATES = new HashSet<>(Arrays.asList(
+            "DECOMMISSIONED", "LOST", "REBOOTED", "SHUTDOWN"));
+
+    /**
+     * The harvesting modes.
+     */
+    public enum Mode {
+        /**
+         * Only the last {@link #getTailBytes()} bytes of each log, such as for the error messages of a failed job.
+         */
+        TAIL,
+
+        /**
+         * The whole logs at the harvesting time, fetched in chunks of {@link #getChunkBytes()} bytes. From the
+         * NodeManager ignoring the HTTP `Range` header, the log file is fetched once and split into the chunks.
+         */
+        FULL
+    }
+
+    /**
+     * The logs chunk of a container.
+     */
+    public static class ContainerLogChunk {
+        private final String containerId;
+        private final String nodeId;
+        private final String type;
+        private final SparkLogChunk chunk;
+
+        ContainerLogChunk(final String containerId, final String nodeId, final String type, final SparkLogChunk chunk) {
+            this.containerId = containerId;
+            this.nodeId = nodeId;
+            this.type = type;
+            this.chunk = chunk;
+        }
+
+        public String getContainerId() {
+            return containerId;
+        }
+
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        /**
+         * Getter of the log type.
+         *
+         * @return the log type, such as `stdout` and `stderr`
+         */
+        public String getType() {
+            return type;
+        }
+
+        public SparkLogChunk getChunk() {
+            return chunk;
+        }
+
+        @Override
+        public String toString() {
+            return containerId + "/" + type + " " + chunk;
+        }
+    }
+
+    private final String applicationId;
+    private final YarnCluster cluster;
+    private final HttpObservable http;
+    private final YarnContainerLogFetcher driverLogFetcher;
+    private final YarnNodeManagerRestLogSource restLogSource;
+    private final YarnLogPageLogSource pageLogSource;
+    private volatile YarnContainerLogSource logSource;
+
+    private List<String> logTypes = DEFAULT_LOG_TYPES;
+    private int tailBytes = DEFAULT_TAIL_BYTES;
+    private int chunkBytes = DEFAULT_CHUNK_BYTES;
+    private int maxConcurrencyPerNode = DEFAULT_MAX_CONCURRENCY_PER_NODE;
+    private int maxNodeConcurrency = DEFAULT_MAX_NODE_CONCURRENCY;
+
+    public YarnAppContainerLogHarvester(final String applicationId,
+                                        final YarnCluster cluster,
+                                        final HttpObservable http) {
+        this.applicationId = applicationId;
+        this.cluster = cluster;
+        this.http = http;
+        // Only to look up the application attempt and the log URL conversion mode
+        this.driverLogFetcher = new YarnContainerLogFetcher(applicationId, cluster, http);
+        this.restLogSource = new YarnNodeManagerRestLogSource(http);
+        this.pageLogSource = new YarnLogPageLogSource(http);
+        this.logSource = this.restLogSource;
+    }
+
+    public String getApplicationId() {
+        return applicationId;
+    }
+
+    public YarnCluster getCluster() {
+        return cluster;
+    }
+
+    public YarnLogConversionModeCache getLogConversionModeCache() {
+        return driverLogFetcher.getLogConversionModeCache();
+    }
+
+    /**
+     * Setter of the Yarn log URL conversion mode cache, which is the process shared cache by default.
+     *
+     * @param logConversionModeCache the conversion mode cache
+     */
+    public void setLogConversionModeCache(final YarnLogConversionModeCache logConversionModeCache) {
+        driverLogFetcher.setLogConversionModeCache(logConversionModeCache);
+    }
+
+    public List<String> getLogTypes() {
+        return logTypes;
+    }
+
+    /**
+     * Setter of the log types to harvest from each container, in the harvesting order.
+     *
+     * @param logTypes the log types, such as `stdout` and `stderr` by default
+     */
+    public void setLogTypes(final List<String> logTypes) {
+        this.logTypes = Collections.unmodifiableList(new ArrayList<>(logTypes));
+    }
+
+    public int getTailBytes() {
+        return tailBytes;
+    }
+
+    public void setTailBytes(final int tailBytes) {
+        this.tailBytes = Math.max(1, tailBytes);
+    }
+
+    public int getChunkBytes() {
+        return chunkBytes;
+    }
+
+    public void setChunkBytes(final int chunkBytes) {
+        this.chunkBytes = Math.max(1, chunkBytes);
+    }
+
+    public int getMaxConcurrencyPerNode() {
+        return maxConcurrencyPerNode;
+    }
+
+    /**
+     * Setter of the maximum containers to fetch logs from at the same time on a node, so that a NodeManager with many
+     * containers isn't flooded.
+     *
+     * @param maxConcurrencyPerNode the maximum concurrency per node, at least 1
+     */
+    public void setMaxConcurrencyPerNode(final int maxConcurrencyPerNode) {
+        this.maxConcurrencyPerNode = Math.max(1, maxConcurrencyPerNode);
+    }
+
+    public int getMaxNodeConcurrency() {
+        return maxNodeConcurrency;
+    }
+
+    /**
+     * Setter of the maximum nodes to harvest at the same time, since all requests go through the same Yarn UI gateway.
+     *
+     * @param maxNodeConcurrency the maximum nodes concurrency, at least 1
+     */
+    public void setMaxNodeConcurrency(final int maxNodeConcurrency) {
+        this.maxNodeConcurrency = Math.max(1, maxNodeConcurrency);
+    }
+
+    /**
+     * Harvest the logs of all containers of the application. A container failed to harvest is skipped with a warning,
+     * rather than failing the others.
+     *
+     * @param mode the harvesting mode
+     * @return Observable of the non-empty container log chunks, which completes after all containers are harvested
+     */
+    public Observable<ContainerLogChunk> harvest(final Mode mode) {
+        final List<String> types = getLogTypes();
+        final int perNode = getMaxConcurrencyPerNode();
+        final int nodes = getMaxNodeConcurrency();
+
+        return getLogConversionMode()
+                .flatMap(conversionMode -> listNodes()
+                        .flatMap(node -> listContainerLogUrls(node, conversionMode)
+                                        .flatMap(containerLogUrl -> harvestContainer(
+                                                containerLogUrl.getFirst(), node, containerLogUrl.getSecond(), types,
+                                                mode), perNode),
+                                nodes));
+    }
+
+    private Observable<YarnLogConversionMode> getLogConversionMode() {
+        return Observable.defer(() -> {
+            final YarnLogConversionMode cached = getLogConversionModeCache().getIfPresent(getCluster());
+
+            if (cached != null) {
+                return Observable.just(cached);
+            }
+
+            // Probe with the driver container log URL
+            return driverLogFetcher.getSparkJobYarnCurrentAppAttemptLogsLink()
+                    .filter(uri -> StringUtils.isNotBlank(uri.getHost()))
+                    .first()
+                    .onErrorResumeNext(err -> Observable.error(new SparkJobException(
+                            "Can't find the application attempt of " + getApplicationId() + " to harvest logs", err)))
+                    .flatMap(driverLogFetcher::getLogConversionMode);
+        });
+    }
+
+    private Observable<Node> listNodes() {
+        final URI rmAppsUri = URI.create(getCluster().getYarnNMConnectionUrl());
+
+        return http
+                .get(rmAppsUri.resolve("../nodes").toString(),
+                        emptyList(),
+                        singletonList(new InvokedByMethodHeader("harvestContainerLogs")),
+                        NodesResponse.class)
+                .flatMapIterable(nodesResponse -> nodesResponse.getFirst().getNodes())
+                .filter(node -> StringUtils.isNotBlank(node.getNodeHttpAddress())
+                        && !INACTIVE_NODE_STATES.contains(node.getState()));
+    }
+
+    /**
+     * List the containers of the application on a node, with their public container log URLs.
+     */
+    private Observable<Pair<String, URI>> listContainerLogUrls(final Node node,
+                                                               final YarnLogConversionMode conversionMode) {
+        final String nodeBaseUrl = "http://" + node.getNodeHttpAddress();
+        final String yarnUIBaseUrl = getCluster().getYarnUIBaseUrl();
+        final URI nodeAppUri = conversionMode.toPublic(
+                URI.create(nodeBaseUrl + "/ws/v1/node/apps/" + getApplicationId()), yarnUIBaseUrl);
+
+        return http
+                .get(nodeAppUri.toString(),
+                        emptyList(),
+                        singletonList(new InvokedByMethodHeader("harvestContainerLogs")),
+                        NodeAppResponse.class)
+                .map(nodeAppResponse -> nodeAppResponse.getFirst().getApp())
+                .flatMapIterable(nodeApp -> toContainerLogUrls(nodeApp, nodeBaseUrl, conversionMode))
+                .onErrorResumeNext(err -> {
+                    // Such as the application never ran on the node
+                    log().debug("No containers of " + getApplicationId() + " listed on node " + node.getId()
+                            + ": " + err);
+
+                    return Observable.empty();
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    private List<Pair<String, URI>> toContainerLogUrls(final NodeApp nodeApp,
+                                                       final String nodeBaseUrl,
+                                                       final YarnLogConversionMode conversionMode) {
+        final String yarnUIBaseUrl = getCluster().getYarnUIBaseUrl();
+        final @Nullable String user = nodeApp.getUser();
+
+        return nodeApp.getContainerIds().stream()
+                .sorted()
+                .map(containerId -> Pair.of(containerId, conversionMode.toPublic(
+                        URI.create(nodeBaseUrl + "/node/containerlogs/" + containerId + "/"
+                                + StringUtils.defaultString(user)),
+                        yarnUIBaseUrl)))
+                .collect(Collectors.toList());
+    }
+
+    private Observable<ContainerLogChunk> harvestContainer(final String containerId,
+                                                           final Node node,
+                                                           final URI containerLogUrl,
+                                                           final List<String> types,
+                                                           final Mode mode) {
+        return Observable.from(types)
+                .concatMap(type -> (mode == Mode.TAIL
+                                ? fetchLogs(containerLogUrl, type, -getTailBytes(), 0)
+                                : fetchAllLogs(containerLogUrl, type, 0, getChunkBytes()))
+                        .filter(chunk -> !chunk.isEmpty())
+                        .map(chunk -> new ContainerLogChunk(containerId, node.getId(), type, chunk))
+                        .onErrorResumeNext(err -> {
+                            log().warn("Failed to harvest " + type + " logs of container " + containerId, err);
+
+                            return Observable.empty();
+                        }))
+                .subscribeOn(Schedulers.io());
+    }
+
+    private Observable<SparkLogChunk> fetchAllLogs(final URI containerLogUrl,
+                                                   final String type,
+                                                   final long start,
+                                                   final int size) {
+        if (this.logSource == this.restLogSource && this.restLogSource.isRangeIgnored(containerLogUrl)) {
+            // Each chunk would download the whole file from the NodeManager, so get the file once and split it
+            return fetchLogs(containerLogUrl, type, 0, 0)
+                    .concatMapIterable(file -> splitLogs(file, start, size));
+        }
+
+        return fetchLogs(containerLogUrl, type, start, size)
+                .concatMap(chunk -> chunk.isEof() || chunk.isEmpty()
+                        ? Observable.just(chunk)
+                        : Observable.just(chunk).concatWith(Observable.defer(() ->
+                                fetchAllLogs(containerLogUrl, type, chunk.getEnd(), size))));
+    }
+
+    private static List<SparkLogChunk> splitLogs(final SparkLogChunk file, final long start, final int size) {
+        final byte[] bytes = file.getBytes();
+        final List<SparkLogChunk> chunks = new ArrayList<>();
+        int from = (int) Math.max(0, Math.min(start - file.getStart(), bytes.length));
+
+        do {
+            final int to = size > 0 ? Math.min(from + size, bytes.length) : bytes.length;
+
+            chunks.add(new SparkLogChunk(file.getStart() + from, Arrays.copyOfRange(bytes, from, to),
+                    file.isEof() && to == bytes.length));
+            from = to;
+        } while (from < bytes.length);
+
+        return chunks;
+    }
+
+    /**
+     * Fetch the logs from the NodeManager REST API, and fall back to the Yarn UI log page. Unlike
+     * {@link YarnContainerLogFetcher}, the page is used for all containers only after it works for the REST API
+     * failure, since the REST API could also fail for a container gone rather than the gateway.
+     */
+    private Observable<SparkLogChunk> fetchLogs(final URI containerLogUrl,
+                                                final String type,
+                                                final long start,
+                                                final int size) {
+        final YarnContainerLogSource currentLogSource = this.logSource;
+
+        if (currentLogSource == this.pageLogSource) {
+            return this.pageLogSource.fetch(containerLogUrl, type, start, size);
+        }
+
+        return currentLogSource.fetch(containerLogUrl, type, start, size)
+                .onErrorResumeNext(err -> {
+                    log().debug("Fall back to fetch Yarn container logs from " + this.pageLogSource.getName()
+                            + " since " + currentLogSource.getName() + " failed: " + err);
+                    return this.pageLogSource.fetch(containerLogUrl, type, start, size)
+                            .doOnNext(chunk -> this.logSource = this.pageLogSource);
+                });
+    }
+}
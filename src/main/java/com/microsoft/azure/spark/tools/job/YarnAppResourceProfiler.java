@@ -0,0 +1,463 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+import rx.subjects.AsyncSubject;
+
+import com.microsoft.azure.spark.tools.clusters.YarnCluster;
+import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.http.InvokedByMethodHeader;
+import com.microsoft.azure.spark.tools.log.Logger;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.App;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.AppResponse;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.YarnApplicationState;
+import com.microsoft.azure.spark.tools.utils.Pair;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+/**
+ * The profiler of a Yarn application resource usage, which polls the application in background over the job life
+ * and keeps the recent samples in a ring buffer of primitive arrays. The peak, time weighted average and cost of the
+ * resources are aggregated over all samples, not only the ones kept, and summarized once the application finishes,
+ * so that the executor settings of the next submissions can be sized by the usage.
+ */
+public class YarnAppResourceProfiler implements Closeable, Logger {
+    public static final long DEFAULT_SAMPLE_INTERVAL_MILLIS = 5_000;
+    public static final int DEFAULT_HISTORY_SIZE = 720;
+
+    /**
+     * The Yarn application resource usage sampled at a time.
+     */
+    public static class Sample {
+        private final long sequence;
+        private final long timestampMillis;
+        private final int allocatedMB;
+        private final int allocatedVCores;
+        private final int runningContainers;
+        private final float progress;
+
+        Sample(final long sequence,
+                final long timestampMillis,
+                final int allocatedMB,
+                final int allocatedVCores,
+                final int runningContainers,
+                final float progress) {
+            this.sequence = sequence;
+            this.timestampMillis = timestampMillis;
+            this.allocatedMB = allocatedMB;
+            this.allocatedVCores = allocatedVCores;
+            this.runningContainers = runningContainers;
+            this.progress = progress;
+        }
+
+        /**
+         * Getter of the sample sequence number, which is increased by one for each sample.
+         *
+         * @return the sequence number, from 0
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+
+        public int getAllocatedMB() {
+            return allocatedMB;
+        }
+
+        public int getAllocatedVCores() {
+            return allocatedVCores;
+        }
+
+        public int getRunningContainers() {
+            return runningContainers;
+        }
+
+        /**
+         * Getter of the application progress.
+         *
+         * @return the progress, in percentage from 0 to 100
+         */
+        public float getProgress() {
+            return progress;
+        }
+    }
+
+    /**
+     * The resource usage summary of a Yarn application over the samples.
+     */
+    public static class Summary {
+        private final long samples;
+        private final long durationMillis;
+        private final @Nullable String state;
+        private final int peakAllocatedMB;
+        private final int peakAllocatedVCores;
+        private final int peakRunningContainers;
+        private final double averageAllocatedMB;
+        private final double averageAllocatedVCores;
+        private final double averageRunningContainers;
+        private final long memorySeconds;
+        private final long vcoreSeconds;
+
+        Summary(final long samples,
+                final long durationMillis,
+                final @Nullable String state,
+                final int peakAllocatedMB,
+                final int peakAllocatedVCores,
+                final int peakRunningContainers,
+                final double averageAllocatedMB,
+                final double averageAllocatedVCores,
+                final double averageRunningContainers,
+                final long memorySeconds,
+                final long vcoreSeconds) {
+            this.samples = samples;
+            this.durationMillis = durationMillis;
+            this.state = state;
+            this.peakAllocatedMB = peakAllocatedMB;
+            this.peakAllocatedVCores = peakAllocatedVCores;
+            this.peakRunningContainers = peakRunningContainers;
+            this.averageAllocatedMB = averageAllocatedMB;
+            this.averageAllocatedVCores = averageAllocatedVCores;
+            this.averageRunningContainers = averageRunningContainers;
+            this.memorySeconds = memorySeconds;
+            this.vcoreSeconds = vcoreSeconds;
+        }
+
+        public long getSamples() {
+            return samples;
+        }
+
+        /**
+         * Getter of the time between the first and the last sample.
+         *
+         * @return the profiled duration, in milliseconds
+         */
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        /**
+         * Getter of the application state at the last sample.
+         *
+         * @return the Yarn application state, or null if not sampled yet
+         */
+        public @Nullable String getState() {
+            return state;
+        }
+
+        public boolean isAppFinished() {
+            return isFinalState(state);
+        }
+
+        public int getPeakAllocatedMB() {
+            return peakAllocatedMB;
+        }
+
+        public int getPeakAllocatedVCores() {
+            return peakAllocatedVCores;
+        }
+
+        public int getPeakRunningContainers() {
+            return peakRunningContainers;
+        }
+
+        /**
+         * Getter of the most executors running at the same time, which are the running containers except the
+         * application master one, where the Spark driver runs in the cluster mode.
+         *
+         * @return the peak executors
+         */
+        public int getPeakExecutors() {
+            return Math.max(0, peakRunningContainers - 1);
+        }
+
+        public double getAverageAllocatedMB() {
+            return averageAllocatedMB;
+        }
+
+        public double getAverageAllocatedVCores() {
+            return averageAllocatedVCores;
+        }
+
+        public double getAverageRunningContainers() {
+            return averageRunningContainers;
+        }
+
+        /**
+         * Getter of the memory cost, reported by Yarn, or estimated by the samples if Yarn doesn't report it.
+         *
+         * @return the memory allocated multiplied by the seconds, in MB-seconds
+         */
+        public long getMemorySeconds() {
+            return memorySeconds;
+        }
+
+        /**
+         * Getter of the CPU cost, reported by Yarn, or estimated by the samples if Yarn doesn't report it.
+         *
+         * @return the vcores allocated multiplied by the seconds, in vcore-seconds
+         */
+        public long getVcoreSeconds() {
+            return vcoreSeconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("state: %s, duration: %dms in %d samples, peak: %d MB / %d vcores / %d containers, "
+                            + "average: %.1f MB / %.1f vcores / %.1f containers, "
+                            + "cost: %d MB-seconds / %d vcore-seconds",
+                    state, durationMillis, samples, peakAllocatedMB, peakAllocatedVCores, peakRunningContainers,
+                    averageAllocatedMB, averageAllocatedVCores, averageRunningContainers, memorySeconds, vcoreSeconds);
+        }
+    }
+
+    private final Observable<App> appRequest;
+    private final Scheduler scheduler;
+    private final PeriodicSampling<Sample> sampling;
+    private final AsyncSubject<Summary> summary = AsyncSubject.create();
+
+    // The ring buffer of samples, a slot of each array per sample
+    private final long[] timestamps;
+    private final int[] allocatedMBs;
+    private final int[] allocatedVCores;
+    private final int[] runningContainers;
+    private final float[] progresses;
+    private long sampled = 0;
+
+    // The aggregations over all samples
+    private long firstTimestamp = 0;
+    private int peakAllocatedMB = 0;
+    private int peakAllocatedVCores = 0;
+    private int peakRunningContainers = 0;
+    private long allocatedMBMillis = 0;
+    private long allocatedVCoreMillis = 0;
+    private long runningContainerMillis = 0;
+    private long reportedMemorySeconds = 0;
+    private long reportedVcoreSeconds = 0;
+    private @Nullable String state = null;
+
+    public YarnAppResourceProfiler(final String applicationId, final YarnCluster cluster, final HttpObservable http) {
+        this(Observable.defer(() -> http
+                        .get(URI.create(cluster.getYarnNMConnectionUrl() + applicationId).toString(),
+                                emptyList(),
+                                singletonList(new InvokedByMethodHeader("profileYarnAppResource")),
+                                AppResponse.class)
+                        .map(Pair::getFirst)
+                        .map(AppResponse::getApp)),
+                DEFAULT_HISTORY_SIZE,
+                Schedulers.io());
+    }
+
+    /**
+     * Constructor with the application request and the ring buffer size.
+     *
+     * @param appRequest the cold Observable to request the Yarn application once per subscription
+     * @param historySize the samples to keep, at least 1
+     * @param scheduler the scheduler to sample on, whose clock is also used for the sample timestamp
+     */
+    public YarnAppResourceProfiler(final Observable<App> appRequest, final int historySize, final Scheduler scheduler) {
+        final int size = Math.max(1, historySize);
+
+        this.appRequest = appRequest;
+        this.scheduler = scheduler;
+        this.timestamps = new long[size];
+        this.allocatedMBs = new int[size];
+        this.allocatedVCores = new int[size];
+        this.runningContainers = new int[size];
+        this.progresses = new float[size];
+        this.sampling = new PeriodicSampling<>("Yarn application resource usage",
+                Observable.defer(this::sampleOnce), DEFAULT_SAMPLE_INTERVAL_MILLIS, scheduler);
+    }
+
+    public int getHistorySize() {
+        return timestamps.length;
+    }
+
+    public long getSampleIntervalMillis() {
+        return sampling.getIntervalMillis();
+    }
+
+    public void setSampleIntervalMillis(final long sampleIntervalMillis) {
+        sampling.setIntervalMillis(sampleIntervalMillis);
+    }
+
+    /**
+     * Getter of the failed Yarn application requests, the usage is taken as unchanged since the last sample for them.
+     *
+     * @return the count of sampling failures
+     */
+    public long getFailures() {
+        return sampling.getFailures();
+    }
+
+    /**
+     * Start sampling in background periodically, until the application finishes or the profiler is closed.
+     *
+     * @return the current instance for chain calling
+     */
+    public synchronized YarnAppResourceProfiler start() {
+        if (!summary.hasCompleted()) {
+            sampling.start(sample -> isAppFinished(), this::completeSummary);
+        }
+
+        return this;
+    }
+
+    /**
+     * Stop sampling, the summary is emitted with the samples so far if the application hasn't finished.
+     */
+    @Override
+    public synchronized void close() {
+        sampling.close();
+        completeSummary();
+    }
+
+    private synchronized void completeSummary() {
+        if (!summary.hasCompleted()) {
+            final Summary finalSummary = summarize();
+
+            log().info("Yarn application resource usage summary: " + finalSummary);
+            summary.onNext(finalSummary);
+            summary.onCompleted();
+        }
+    }
+
+    /**
+     * Get the summary emitted once the application finishes, or the profiler is closed.
+     *
+     * @return Observable of the final summary, which replays to the late subscribers
+     */
+    public Observable<Summary> getSummary() {
+        return summary.asObservable();
+    }
+
+    /**
+     * Sample the application resource usage once, and record the sample into the ring buffer.
+     *
+     * @return Observable of the sample recorded
+     */
+    public Observable<Sample> sampleOnce() {
+        return appRequest.last().map(this::record);
+    }
+
+    synchronized Sample record(final App app) {
+        final long now = scheduler.now();
+        final int length = timestamps.length;
+        // Yarn reports -1 for the resources of the finished application
+        final int allocatedMB = Math.max(0, app.getAllocatedMB());
+        final int allocatedVCore = Math.max(0, app.getAllocatedVCores());
+        final int runningContainer = Math.max(0, app.getRunningContainers());
+
+        if (sampled == 0) {
+            firstTimestamp = now;
+        } else {
+            // The usage is taken as unchanged till the next sample
+            final int last = (int) ((sampled - 1) % length);
+            final long elapsedMillis = Math.max(0, now - timestamps[last]);
+
+            allocatedMBMillis += allocatedMBs[last] * elapsedMillis;
+            allocatedVCoreMillis += allocatedVCores[last] * elapsedMillis;
+            runningContainerMillis += runningContainers[last] * elapsedMillis;
+        }
+
+        final int slot = (int) (sampled % length);
+        timestamps[slot] = now;
+        allocatedMBs[slot] = allocatedMB;
+        allocatedVCores[slot] = allocatedVCore;
+        runningContainers[slot] = runningContainer;
+        progresses[slot] = app.getProgress();
+
+        peakAllocatedMB = Math.max(peakAllocatedMB, allocatedMB);
+        peakAllocatedVCores = Math.max(peakAllocatedVCores, allocatedVCore);
+        peakRunningContainers = Math.max(peakRunningContainers, runningContainer);
+        // The aggregated costs are kept by Yarn after the application finishes
+        reportedMemorySeconds = Math.max(reportedMemorySeconds, app.getMemorySeconds());
+        reportedVcoreSeconds = Math.max(reportedVcoreSeconds, app.getVcoreSeconds());
+        state = app.getState();
+
+        return getSample(sampled++);
+    }
+
+    private Sample getSample(final long sequence) {
+        final int slot = (int) (sequence % timestamps.length);
+
+        return new Sample(sequence, timestamps[slot], allocatedMBs[slot], allocatedVCores[slot],
+                runningContainers[slot], progresses[slot]);
+    }
+
+    private synchronized boolean isAppFinished() {
+        return isFinalState(state);
+    }
+
+    private static boolean isFinalState(final @Nullable String state) {
+        final YarnApplicationState appState = YarnApplicationState.parse(state);
+
+        return appState != null && appState.isFinal();
+    }
+
+    /**
+     * Get the latest sample.
+     *
+     * @return the latest sample, or null if not sampled yet
+     */
+    public synchronized @Nullable Sample getLatest() {
+        return sampled == 0 ? null : getSample(sampled - 1);
+    }
+
+    /**
+     * Get the samples kept in the ring buffer.
+     *
+     * @return the samples in the order of sampling
+     */
+    public synchronized List<Sample> getSamples() {
+        final List<Sample> samples = new ArrayList<>(timestamps.length);
+
+        for (long sequence = Math.max(0, sampled - timestamps.length); sequence < sampled; sequence++) {
+            samples.add(getSample(sequence));
+        }
+
+        return samples;
+    }
+
+    /**
+     * Summarize the resource usage over all samples so far.
+     *
+     * @return the resource usage summary
+     */
+    public synchronized Summary summarize() {
+        final @Nullable Sample latest = getLatest();
+        final long durationMillis = latest == null ? 0 : latest.getTimestampMillis() - firstTimestamp;
+        final long memorySeconds = reportedMemorySeconds > 0 ? reportedMemorySeconds : allocatedMBMillis / 1000;
+        final long vcoreSeconds = reportedVcoreSeconds > 0 ? reportedVcoreSeconds : allocatedVCoreMillis / 1000;
+
+        if (durationMillis <= 0) {
+            // Not enough samples to weight by time, take the latest usage as the average
+            return new Summary(sampled, durationMillis, state,
+                    peakAllocatedMB, peakAllocatedVCores, peakRunningContainers,
+                    latest == null ? 0 : latest.getAllocatedMB(),
+                    latest == null ? 0 : latest.getAllocatedVCores(),
+                    latest == null ? 0 : latest.getRunningContainers(),
+                    memorySeconds, vcoreSeconds);
+        }
+
+        return new Summary(sampled, durationMillis, state,
+                peakAllocatedMB, peakAllocatedVCores, peakRunningContainers,
+                (double) allocatedMBMillis / durationMillis,
+                (double) allocatedVCoreMillis / durationMillis,
+                (double) runningContainerMillis / durationMillis,
+                memorySeconds, vcoreSeconds);
+    }
+}
@@ -0,0 +1,204 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Func1;
+
+import com.microsoft.azure.spark.tools.log.Logger;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.App;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.YarnApplicationState;
+
+import java.net.URI;
+
+/**
+ * The tracker of a Yarn application state and its driver log URL, shared by all log fetchings of the application
+ * for every log type. The first getting waits for the refreshing, after that the latest snapshot known is got without
+ * waiting, and a stale snapshot is refreshed in background at most once per refresh interval, so that a log fetching
+ * only requests the logs content. The refreshing stops after the application reaches a final state, since neither
+ * the state nor the log URL changes any more.
+ */
+public class YarnAppStateTracker implements Logger {
+    public static final long DEFAULT_REFRESH_INTERVAL_MILLIS = 2000;
+
+    /**
+     * The application state and driver log URL refreshed at a time.
+     */
+    public static class Snapshot {
+        private final @Nullable App app;
+        private final @Nullable URI driverLogUrl;
+        private final long refreshedAtMillis;
+
+        Snapshot(final @Nullable App app, final @Nullable URI driverLogUrl, final long refreshedAtMillis) {
+            this.app = app;
+            this.driverLogUrl = driverLogUrl;
+            this.refreshedAtMillis = refreshedAtMillis;
+        }
+
+        public @Nullable App getApp() {
+            return app;
+        }
+
+        /**
+         * Getter of the driver log URL.
+         *
+         * @return the public driver container log URL, or null if the driver container isn't allocated yet
+         */
+        public @Nullable URI getDriverLogUrl() {
+            return driverLogUrl;
+        }
+
+        public long getRefreshedAtMillis() {
+            return refreshedAtMillis;
+        }
+
+        public @Nullable YarnApplicationState getState() {
+            final App yarnApp = this.app;
+
+            return yarnApp != null ? YarnApplicationState.parse(yarnApp.getState()) : null;
+        }
+
+        /**
+         * Is the application stopped, whose logs won't grow any more. The unknown state is treated as stopped.
+         *
+         * @return true if the application isn't running, submitted or accepted
+         */
+        public boolean isAppStopped() {
+            final YarnApplicationState state = getState();
+
+            if (state == null) {
+                return true;
+            }
+
+            switch (state) {
+                case RUNNING:
+                case SUBMITTED:
+                case ACCEPTED:
+                    return false;
+                default:
+                    return true;
+            }
+        }
+
+        boolean isFinal() {
+            final YarnApplicationState state = getState();
+
+            return state != null && state.isFinal();
+        }
+    }
+
+    private final Observable<App> appRequest;
+    private final Func1<App, Observable<URI>> driverLogUrlResolver;
+    private final Scheduler scheduler;
+    private final long refreshIntervalMillis;
+
+    private volatile @Nullable Snapshot latest = null;
+    private @Nullable Observable<Snapshot> refreshing = null;
+
+    /**
+     * Constructor of the tracker.
+     *
+     * @param appRequest the Observable to request the Yarn application from the ResourceManager
+     * @param driverLogUrlResolver the function to resolve the public driver log URL of the application, which could
+     *                             be empty if the driver container isn't allocated yet
+     * @param refreshIntervalMillis the minimum interval between the refreshing
+     * @param scheduler the scheduler to refresh in background on, whose clock is also used for the staleness
+     */
+    public YarnAppStateTracker(final Observable<App> appRequest,
+                               final Func1<App, Observable<URI>> driverLogUrlResolver,
+                               final long refreshIntervalMillis,
+                               final Scheduler scheduler) {
+        this.appRequest = appRequest;
+        this.driverLogUrlResolver = driverLogUrlResolver;
+        this.refreshIntervalMillis = Math.max(0, refreshIntervalMillis);
+        this.scheduler = scheduler;
+    }
+
+    public long getRefreshIntervalMillis() {
+        return refreshIntervalMillis;
+    }
+
+    /**
+     * Get the latest snapshot known without refreshing.
+     *
+     * @return the latest snapshot, or null if never refreshed
+     */
+    public @Nullable Snapshot getLatest() {
+        return latest;
+    }
+
+    /**
+     * Get the application snapshot, which is refreshed at the first getting only, and could be stale for at most a
+     * refresh interval plus the refreshing time.
+     *
+     * @return Observable of the snapshot
+     */
+    public Observable<Snapshot> get() {
+        return Observable.defer(() -> {
+            final Snapshot known = this.latest;
+
+            if (known == null) {
+                return refresh();
+            }
+
+            if (!known.isFinal() && scheduler.now() - known.getRefreshedAtMillis() >= refreshIntervalMillis) {
+                refresh()
+                        .subscribeOn(scheduler)
+                        .subscribe(
+                                snapshot -> { },
+                                // The stale snapshot is kept to refresh again next time
+                                err -> log().debug("Failed to refresh the Yarn application state: " + err));
+            }
+
+            return Observable.just(known);
+        });
+    }
+
+    /**
+     * Replace the driver log URL of the latest snapshot, such as after the log URL conversion mode is probed again,
+     * rather than waiting for the next refreshing, which never comes for a finished application.
+     *
+     * @param driverLogUrl the public driver log URL resolved again
+     */
+    void updateDriverLogUrl(final URI driverLogUrl) {
+        final Snapshot known = this.latest;
+
+        if (known != null) {
+            this.latest = new Snapshot(known.getApp(), driverLogUrl, known.getRefreshedAtMillis());
+        }
+    }
+
+    /**
+     * Refresh the snapshot, the concurrent refreshing is merged into one.
+     *
+     * @return Observable of the snapshot refreshed
+     */
+    public synchronized Observable<Snapshot> refresh() {
+        final Observable<Snapshot> inFlight = this.refreshing;
+
+        if (inFlight != null) {
+            return inFlight;
+        }
+
+        final Observable<Snapshot> started = appRequest
+                .take(1)
+                .flatMap(app -> driverLogUrlResolver.call(app)
+                        .take(1)
+                        .map(driverLogUrl -> new Snapshot(app, driverLogUrl, scheduler.now()))
+                        .defaultIfEmpty(new Snapshot(app, null, scheduler.now())))
+                .doOnNext(snapshot -> this.latest = snapshot)
+                .doOnTerminate(this::clearRefreshing)
+                .cache();
+
+        this.refreshing = started;
+
+        return started;
+    }
+
+    private synchronized void clearRefreshing() {
+        this.refreshing = null;
+    }
+}
@@ -0,0 +1,313 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.apache.commons.lang3.StringUtils;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+import com.microsoft.azure.spark.tools.clusters.YarnCluster;
+import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.http.InvokedByMethodHeader;
+import com.microsoft.azure.spark.tools.log.Logger;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.metrics.ClusterMetricsResponse;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.metrics.ClusterMetricsResponse.ClusterMetrics;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.scheduler.SchedulerResponse;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+/**
+ * The sampler of Yarn ResourceManager cluster metrics and Capacity Scheduler queues usage, which polls in background
+ * and keeps the recent samples in a ring buffer. The samples can be read by many job submitters without locking,
+ * so that they share one poller to look up the cluster headroom.
+ */
+public class YarnClusterMetricsSampler implements Closeable, Logger {
+    public static final long DEFAULT_SAMPLE_INTERVAL_MILLIS = 10_000;
+    public static final int DEFAULT_HISTORY_SIZE = 60;
+
+    /**
+     * The usage of a Yarn leaf queue, in the percentage of the entire cluster.
+     */
+    public static class QueueUsage {
+        private final float usedPercentage;
+        private final float maxPercentage;
+        private final int applications;
+
+        public QueueUsage(final float usedPercentage, final float maxPercentage, final int applications) {
+            this.usedPercentage = usedPercentage;
+            this.maxPercentage = maxPercentage;
+            this.applications = applications;
+        }
+
+        public float getUsedPercentage() {
+            return usedPercentage;
+        }
+
+        public float getMaxPercentage() {
+            return maxPercentage;
+        }
+
+        /**
+         * Getter of the cluster resources the queue can still grow to use.
+         *
+         * @return the headroom, in the percentage of the entire cluster
+         */
+        public float getHeadroomPercentage() {
+            return Math.max(0, maxPercentage - usedPercentage);
+        }
+
+        public int getApplications() {
+            return applications;
+        }
+    }
+
+    /**
+     * The cluster metrics sampled at a time.
+     */
+    public static class Sample {
+        private final long sequence;
+        private final long timestampMillis;
+        private final long availableMB;
+        private final long totalMB;
+        private final long availableVirtualCores;
+        private final long totalVirtualCores;
+        private final int appsPending;
+        private final Map<String, QueueUsage> queueUsages;
+
+        Sample(final long sequence,
+                final long timestampMillis,
+                final ClusterMetrics metrics,
+                final Map<String, QueueUsage> queueUsages) {
+            this.sequence = sequence;
+            this.timestampMillis = timestampMillis;
+            this.availableMB = metrics.getAvailableMB();
+            this.totalMB = metrics.getTotalMB();
+            this.availableVirtualCores = metrics.getAvailableVirtualCores();
+            this.totalVirtualCores = metrics.getTotalVirtualCores();
+            this.appsPending = metrics.getAppsPending();
+            this.queueUsages = Collections.unmodifiableMap(queueUsages);
+        }
+
+        /**
+         * Getter of the sample sequence number, which is increased by one for each sample.
+         *
+         * @return the sequence number, from 0
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+
+        public long getAvailableMB() {
+            return availableMB;
+        }
+
+        public long getTotalMB() {
+            return totalMB;
+        }
+
+        public long getAvailableVirtualCores() {
+            return availableVirtualCores;
+        }
+
+        public long getTotalVirtualCores() {
+            return totalVirtualCores;
+        }
+
+        public int getAppsPending() {
+            return appsPending;
+        }
+
+        public Map<String, QueueUsage> getQueueUsages() {
+            return queueUsages;
+        }
+
+        /**
+         * Get the usage of a Yarn leaf queue, the queue name is matched with or without the `root.` prefix.
+         *
+         * @param queue the Yarn queue name
+         * @return the queue usage, or null if the queue isn't found
+         */
+        public @Nullable QueueUsage getQueueUsage(final String queue) {
+            return queueUsages.get(StringUtils.removeStart(queue, "root."));
+        }
+    }
+
+    private final YarnCluster cluster;
+    private final HttpObservable http;
+    private final Scheduler scheduler;
+    private final AtomicReferenceArray<@Nullable Sample> ring;
+    private final AtomicLong sampled = new AtomicLong();
+    private final PeriodicSampling<Sample> sampling;
+
+    public YarnClusterMetricsSampler(final YarnCluster cluster, final HttpObservable http) {
+        this(cluster, http, DEFAULT_HISTORY_SIZE, Schedulers.io());
+    }
+
+    /**
+     * Constructor with the ring buffer size.
+     *
+     * @param cluster the Yarn cluster to sample
+     * @param http the HTTP client to get the Yarn ResourceManager REST API
+     * @param historySize the samples to keep, at least 1
+     * @param scheduler the scheduler to sample on, whose clock is also used for the sample timestamp
+     */
+    public YarnClusterMetricsSampler(final YarnCluster cluster,
+                                     final HttpObservable http,
+                                     final int historySize,
+                                     final Scheduler scheduler) {
+        this.cluster = cluster;
+        this.http = http;
+        this.ring = new AtomicReferenceArray<>(Math.max(1, historySize));
+        this.scheduler = scheduler;
+        this.sampling = new PeriodicSampling<>("Yarn cluster metrics from " + cluster.getYarnUIBaseUrl(),
+                Observable.defer(this::sampleOnce), DEFAULT_SAMPLE_INTERVAL_MILLIS, scheduler);
+    }
+
+    public YarnCluster getCluster() {
+        return cluster;
+    }
+
+    public int getHistorySize() {
+        return ring.length();
+    }
+
+    public long getSampleIntervalMillis() {
+        return sampling.getIntervalMillis();
+    }
+
+    public void setSampleIntervalMillis(final long sampleIntervalMillis) {
+        sampling.setIntervalMillis(sampleIntervalMillis);
+    }
+
+    /**
+     * Getter of the sampling failures, the failed sampling is skipped without a sample recorded.
+     *
+     * @return the count of sampling failures
+     */
+    public long getFailures() {
+        return sampling.getFailures();
+    }
+
+    /**
+     * Start sampling in background periodically.
+     *
+     * @return the current instance for chain calling
+     */
+    public YarnClusterMetricsSampler start() {
+        sampling.start();
+
+        return this;
+    }
+
+    @Override
+    public void close() {
+        sampling.close();
+    }
+
+    /**
+     * Sample the cluster metrics and the scheduler queues once, and record the sample into the ring buffer.
+     *
+     * @return Observable of the sample recorded
+     */
+    public Observable<Sample> sampleOnce() {
+        final URI nmUri = URI.create(cluster.getYarnNMConnectionUrl());
+
+        final Observable<ClusterMetrics> metrics = http
+                .get(nmUri.resolve("../metrics").toString(),
+                        emptyList(),
+                        singletonList(new InvokedByMethodHeader("sampleClusterMetrics")),
+                        ClusterMetricsResponse.class)
+                .map(metricsResponse -> metricsResponse.getFirst().getClusterMetrics());
+
+        final Observable<Map<String, QueueUsage>> queueUsages = http
+                .get(nmUri.resolve("../scheduler").toString(),
+                        emptyList(),
+                        singletonList(new InvokedByMethodHeader("sampleClusterMetrics")),
+                        SchedulerResponse.class)
+                .map(schedulerResponse -> {
+                    final Map<String, QueueUsage> usages = new HashMap<>();
+
+                    for (SchedulerResponse.Queue queue : schedulerResponse.getFirst().getLeafQueues()) {
+                        usages.put(StringUtils.removeStart(queue.getQueueName(), "root."), new QueueUsage(
+                                queue.getAbsoluteUsedCapacity(),
+                                queue.getAbsoluteMaxCapacity(),
+                                queue.getNumApplications()));
+                    }
+
+                    return usages;
+                });
+
+        return Observable.zip(metrics, queueUsages, this::record);
+    }
+
+    private synchronized Sample record(final ClusterMetrics metrics, final Map<String, QueueUsage> queueUsages) {
+        // Only one writer with the lock, the slot is published before the sequence for the lock-free readers
+        final long sequence = sampled.get();
+        final Sample sample = new Sample(sequence, scheduler.now(), metrics, queueUsages);
+
+        ring.set((int) (sequence % ring.length()), sample);
+        sampled.set(sequence + 1);
+
+        return sample;
+    }
+
+    /**
+     * Get the latest sample.
+     *
+     * @return the latest sample, or null if not sampled yet
+     */
+    public @Nullable Sample getLatest() {
+        final long count = sampled.get();
+
+        return count == 0 ? null : ring.get((int) ((count - 1) % ring.length()));
+    }
+
+    /**
+     * Get the samples kept in the ring buffer.
+     *
+     * @return the samples in the order of sampling
+     */
+    public List<Sample> getSamples() {
+        return getSamples(Long.MIN_VALUE);
+    }
+
+    /**
+     * Get the samples kept in the ring buffer since a time.
+     *
+     * @param sinceMillis the earliest sample timestamp, in milliseconds
+     * @return the samples in the order of sampling
+     */
+    public List<Sample> getSamples(final long sinceMillis) {
+        final long count = sampled.get();
+        final List<Sample> samples = new ArrayList<>(ring.length());
+
+        for (long sequence = Math.max(0, count - ring.length()); sequence < count; sequence++) {
+            final Sample sample = ring.get((int) (sequence % ring.length()));
+
+            // The slot could be overwritten by a newer sample while reading, skip it to keep the order
+            if (sample != null && sample.getSequence() == sequence && sample.getTimestampMillis() >= sinceMillis) {
+                samples.add(sample);
+            }
+        }
+
+        return samples;
+    }
+}
@@ -3,22 +3,16 @@
 
 package com.microsoft.azure.spark.tools.job;
 
-import com.google.common.collect.ImmutableMap;
-import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.text.StrSubstitutor;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.message.BasicNameValuePair;
 import org.checkerframework.checker.nullness.qual.Nullable;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.nodes.Node;
 import rx.Observable;
+import rx.schedulers.Schedulers;
 
 import com.microsoft.azure.spark.tools.clusters.YarnCluster;
 import com.microsoft.azure.spark.tools.errors.SparkJobException;
+import com.microsoft.azure.spark.tools.events.SparkBatchJobStateTransitionEvent;
 import com.microsoft.azure.spark.tools.http.HttpObservable;
 import com.microsoft.azure.spark.tools.http.HttpResponse;
 import com.microsoft.azure.spark.tools.log.Logger;
@@ -26,90 +20,78 @@ import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.App;
 import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.appattempts.AppAttempt;
 import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.appattempts.AppAttemptsResponse;
 import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.AppResponse;
-import com.microsoft.azure.spark.tools.utils.LaterInit;
 import com.microsoft.azure.spark.tools.utils.Pair;
 import com.microsoft.azure.spark.tools.utils.UriUtils;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.UnknownServiceException;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static java.util.Collections.emptyList;
-import static java.util.Collections.emptyMap;
 import static rx.exceptions.Exceptions.propagate;
 
 /**
  * The class is to support fetching Spark Driver log from Yarn application UI.
+ *
+ * <p>A fetcher could serve the log fetching of all types concurrently on the multi-threaded schedulers, the fetching
+ * states are kept in the concurrent map and the atomic references rather than guarded by locks.
  */
 public class YarnContainerLogFetcher implements SparkLogFetcher, Logger {
-    private @Nullable App lastAppRawResponse = null;
-    private final Map<String, Long> unfetchedOffsetByType = new HashMap<>();
+    /**
+     * The Yarn application got by a request, with the request sequence number to tell the latest one.
+     */
+    private static final class PublishedApp {
+        private final long requestSeq;
+        private final @Nullable App app;
 
-    public static class NoContainerPublicUriConversionException extends SparkJobException {
-        public NoContainerPublicUriConversionException(String message) {
-            super(message);
+        private PublishedApp(final long requestSeq, final @Nullable App app) {
+            this.requestSeq = requestSeq;
+            this.app = app;
         }
     }
-    private static final Pattern LOG_TYPE_PATTERN = Pattern.compile("Log Type:\\s+(?<type>\\S+)");
 
-    private final HttpObservable http;
+    private final AtomicLong appRequestSeq = new AtomicLong();
+    private final AtomicReference<PublishedApp> lastApp = new AtomicReference<>(new PublishedApp(0, null));
+    private final SparkBatchJobStateMachine yarnAppStateMachine = new SparkBatchJobStateMachine();
 
     /**
-     * A {LogConversionMode} is an internal class to present Yarn log UI URI combining ways.
+     * The end byte offsets of the logs, which are known after the EOF chunk fetched from the stopped application.
+     * The log fetching of all types could set and check the offsets concurrently.
      */
-    private class LogConversionMode {
-        static final String HOST = "HOST";
-        static final String PORT = "PORT";
-        static final String PATH = "PATH";          // Internal URI path, starting with slash `/`
-        static final String BASE = "BASE";          // Yarn UI Base URI, ending with slash `/`
-        static final String ORIGINAL = "ORIGINAL";  // Original internal URI
-
-        private final String name;
-        private final String publicPathTemplate;
-
-        LogConversionMode(final String name, final String publicPathTemplate) {
-            this.name = name;
-            this.publicPathTemplate = publicPathTemplate;
-        }
+    private final ConcurrentMap<String, Long> completedOffsetByType = new ConcurrentHashMap<>();
 
-        URI toPublic(final URI internalLogUrl) {
-            final Map<String, String> values = ImmutableMap.of(
-                    HOST, internalLogUrl.getHost(),
-                    PORT, String.valueOf(internalLogUrl.getPort()),
-                    PATH, Optional.of(internalLogUrl.getPath()).filter(StringUtils::isNoneBlank).orElse("/"),
-                    BASE, UriUtils.normalizeWithSlashEnding(URI.create(getCluster().getYarnUIBaseUrl())).toString(),
-                    ORIGINAL, internalLogUrl.toString());
-            final StrSubstitutor sub = new StrSubstitutor(values);
-            final String publicPath = sub.replace(publicPathTemplate);
-
-            return URI.create(publicPath);
+    public static class NoContainerPublicUriConversionException extends SparkJobException {
+        public NoContainerPublicUriConversionException(String message) {
+            super(message);
         }
     }
 
-    private final LaterInit<LogConversionMode> logConversionMode = new LaterInit<>();
-    private final Iterator<LogConversionMode> logConversionProbingModes = Arrays.asList(
-            new LogConversionMode("WITHOUT_PORT", "${BASE}${HOST}${PATH}"),
-            new LogConversionMode("WITH_PORT", "${BASE}${HOST}/port/${PORT}${PATH}"),
-            new LogConversionMode("ORIGINAL", "${ORIGINAL}")
-    ).iterator();
+    private final HttpObservable http;
+    private final YarnAppStateTracker appStateTracker;
+    private final YarnNodeManagerRestLogSource restLogSource;
+    private final YarnLogPageLogSource pageLogSource;
+    private volatile YarnContainerLogSource logSource;
 
     private final URI yarnNMConnectUri;
     
-    private @Nullable String currentLogUrl;
+    private volatile @Nullable String currentLogUrl;
     private final String applicationId;
     private final YarnCluster cluster;
+    private volatile Supplier<@Nullable String> driverLogUrlHint = () -> null;
+    private volatile YarnLogConversionModeCache logConversionModeCache = YarnLogConversionModeCache.getShared();
+    private volatile @Nullable URI lastConvertedLogUrl;
 
     public YarnContainerLogFetcher(final String applicationId,
                                    final YarnCluster cluster,
@@ -117,6 +99,14 @@ public class YarnContainerLogFetcher implements SparkLogFetcher, Logger {
         this.applicationId = applicationId;
         this.cluster = cluster;
         this.http = http;
+        this.appStateTracker = new YarnAppStateTracker(
+                Observable.defer(this::getYarnApplicationRequest),
+                this::getSparkJobDriverLogUrl,
+                YarnAppStateTracker.DEFAULT_REFRESH_INTERVAL_MILLIS,
+                Schedulers.io());
+        this.pageLogSource = new YarnLogPageLogSource(http);
+        this.restLogSource = new YarnNodeManagerRestLogSource(http, this.pageLogSource);
+        this.logSource = this.restLogSource;
         this.yarnNMConnectUri = URI.create(this.cluster.getYarnNMConnectionUrl());
     }
 
@@ -124,6 +114,31 @@ public class YarnContainerLogFetcher implements SparkLogFetcher, Logger {
         return this.yarnNMConnectUri;
     }
 
+    /**
+     * Setter of the driver log URL hint, such as the `driverLogUrl` in Livy batch `appInfo`. The hint is used
+     * instead of looking up the current application attempt, which saves the Yarn requests before the first log
+     * fetching. The application attempts are only looked up when the hint is missing.
+     *
+     * @param driverLogUrlHint the supplier of driver log URL, which is got at each fetching and could be null
+     */
+    public void setDriverLogUrlHint(final Supplier<@Nullable String> driverLogUrlHint) {
+        this.driverLogUrlHint = driverLogUrlHint;
+    }
+
+    public YarnLogConversionModeCache getLogConversionModeCache() {
+        return logConversionModeCache;
+    }
+
+    /**
+     * Setter of the Yarn log URL conversion mode cache, such as the one opened with a file to keep the modes across
+     * the client runs. The process shared cache is used by default.
+     *
+     * @param logConversionModeCache the conversion mode cache
+     */
+    public void setLogConversionModeCache(final YarnLogConversionModeCache logConversionModeCache) {
+        this.logConversionModeCache = logConversionModeCache;
+    }
+
     private @Nullable String getCurrentLogUrl() {
         return this.currentLogUrl;
     }
@@ -151,7 +166,9 @@ public class YarnContainerLogFetcher implements SparkLogFetcher, Logger {
     }
 
     private String getLogAggregationStatus() {
-        return this.lastAppRawResponse != null ? this.lastAppRawResponse.getLogAggregationStatus() : "UNKNOWN";
+        final App yarnApp = getLastApp();
+
+        return yarnApp != null ? yarnApp.getLogAggregationStatus() : "UNKNOWN";
     }
 
     private boolean isYarnAppLogAggregationDone() {
@@ -173,11 +190,60 @@ public class YarnContainerLogFetcher implements SparkLogFetcher, Logger {
      * Get the Spark job log URI observable from the container.
      */
     Observable<URI> getSparkJobDriverLogUrl() {
+        return getSparkJobDriverLogUrl(null);
+    }
+
+    /**
+     * Get the Spark job log URI observable from the container, with the driver log URL hint, or the application
+     * master container logs link of the application got, or the current application attempt looked up.
+     *
+     * @param app the Yarn application got, or null to look up the application attempts
+     */
+    private Observable<URI> getSparkJobDriverLogUrl(final @Nullable App app) {
+        final URI hintUri = getDriverLogUrlHint();
+
+        if (hintUri != null) {
+            // The hint could be converted to the public URI already
+            return isPublicLogUri(hintUri) ? Observable.just(hintUri) : convertToPublicLogUri(hintUri);
+        }
+
+        final String amContainerLogs = app != null ? app.getAmContainerLogs() : null;
+        if (StringUtils.isNotBlank(amContainerLogs)) {
+            // The same as the current application attempt logs link, without the attempts looking up
+            final URI amLogsUri = URI.create(amContainerLogs);
+
+            return isPublicLogUri(amLogsUri) ? Observable.just(amLogsUri) : convertToPublicLogUri(amLogsUri);
+        }
+
         return this.getSparkJobYarnCurrentAppAttemptLogsLink()
                 .filter(uri -> StringUtils.isNotBlank(uri.getHost()))
                 .flatMap(this::convertToPublicLogUri);
     }
 
+    private @Nullable URI getDriverLogUrlHint() {
+        final String hint = driverLogUrlHint.get();
+
+        if (StringUtils.isBlank(hint)) {
+            return null;
+        }
+
+        try {
+            final URI hintUri = URI.create(hint);
+
+            return StringUtils.isNotBlank(hintUri.getHost()) ? hintUri : null;
+        } catch (IllegalArgumentException ex) {
+            log().debug("Ignore the malformed driver log URL hint " + hint, ex);
+
+            return null;
+        }
+    }
+
+    private boolean isPublicLogUri(final URI logUri) {
+        final String yarnUIBase = UriUtils.normalizeWithSlashEnding(getCluster().getYarnUIBaseUrl()).toString();
+
+        return logUri.toString().startsWith(yarnUIBase);
+    }
+
     private Observable<Boolean> isUriValid(final URI uriProbe) {
         return getRequest(uriProbe)
                 .map(any -> true)
@@ -185,71 +251,173 @@ public class YarnContainerLogFetcher implements SparkLogFetcher, Logger {
     }
 
     private Observable<URI> convertToPublicLogUri(final URI internalLogUri) {
-        if (logConversionMode.isInitialized()) {
-            return logConversionMode.observable()
-                    .first()
-                    .map(conversionMode -> conversionMode.toPublic(internalLogUri));
+        final String yarnUIBaseUrl = getCluster().getYarnUIBaseUrl();
+
+        return getLogConversionMode(internalLogUri)
+                .map(conversionMode -> conversionMode.toPublic(internalLogUri, yarnUIBaseUrl))
+                .doOnNext(publicLogUri -> this.lastConvertedLogUrl = publicLogUri);
+    }
+
+    /**
+     * Re-probe the Yarn log URL conversion mode after the log URL converted failed with all log sources, such as the
+     * Yarn UI gateway is changed since the mode was cached, and resolve the driver log URL again with the mode probed.
+     *
+     * @param failedLogUrl the public log URL failed
+     * @param err the error of the log fetching
+     * @return Observable of the driver log URL resolved again, or the error if the URL isn't converted by the cached
+     *         mode or the same URL is resolved
+     */
+    private Observable<URI> reconvertLogUrl(final URI failedLogUrl, final Throwable err) {
+        final YarnLogConversionModeCache cache = getLogConversionModeCache();
+        final YarnLogConversionMode cachedMode = cache.getIfPresent(getCluster());
+
+        if (cachedMode == null || !failedLogUrl.equals(this.lastConvertedLogUrl)) {
+            return Observable.error(err);
         }
 
-        while (this.logConversionProbingModes.hasNext()) {
-            // Try next mode
-            final LogConversionMode probeMode = this.logConversionProbingModes.next();
-            final URI uriProbe = probeMode.toPublic(internalLogUri);
+        log().info("Probe the Yarn log URL conversion mode again since the log URL " + failedLogUrl
+                + " converted in mode " + cachedMode + " failed: " + err);
+        cache.invalidate(getCluster());
+        this.lastConvertedLogUrl = null;
+        // The NodeManager REST API could fail for the stale log URL only
+        this.logSource = this.restLogSource;
 
-            if (isUriValid(uriProbe).toBlocking().firstOrDefault(false)) {
-                // Find usable one
-                log().debug("The Yarn log URL conversion mode is "
-                                + probeMode.name
-                                + " with pattern "
-                                + probeMode.publicPathTemplate);
+        final YarnAppStateTracker.Snapshot appSnapshot = this.appStateTracker.getLatest();
 
-                logConversionMode.set(probeMode);
+        return getSparkJobDriverLogUrl(appSnapshot != null ? appSnapshot.getApp() : null)
+                .take(1)
+                .flatMap(driverLogUrl -> driverLogUrl.equals(failedLogUrl)
+                        ? Observable.error(err)
+                        : Observable.just(driverLogUrl))
+                .switchIfEmpty(Observable.error(err))
+                .doOnNext(this.appStateTracker::updateDriverLogUrl);
+    }
 
-                return Observable.just(uriProbe);
-            }
-        }
+    /**
+     * Get the Yarn log URL conversion mode of the cluster, from cache or probed with an internal container log URL.
+     *
+     * @param internalLogUri the internal container log URL to probe with if not cached
+     * @return Observable of the conversion mode
+     */
+    Observable<YarnLogConversionMode> getLogConversionMode(final URI internalLogUri) {
+        return getLogConversionModeCache().get(getCluster(), probeLogConversionMode(internalLogUri));
+    }
 
-        // All modes were probed and all failed
-        log().warn("Can't find conversion mode of Yarn " + getYarnNMConnectUri());
-        return Observable.error(new NoContainerPublicUriConversionException(
-                "Can't find conversion mode of Yarn " + getYarnNMConnectUri()));
+    /**
+     * Probe all conversion modes in parallel, and take the first valid one in the priority order without waiting
+     * for the lower priority probes.
+     *
+     * @param internalLogUri the internal container log URL to probe with
+     * @return Observable of the conversion mode probed
+     */
+    private Observable<YarnLogConversionMode> probeLogConversionMode(final URI internalLogUri) {
+        final String yarnUIBaseUrl = getCluster().getYarnUIBaseUrl();
+        final List<Observable<Pair<YarnLogConversionMode, Boolean>>> probes = Arrays
+                .stream(YarnLogConversionMode.values())
+                .map(probeMode -> isUriValid(probeMode.toPublic(internalLogUri, yarnUIBaseUrl))
+                        .firstOrDefault(false)
+                        .map(isValid -> Pair.of(probeMode, isValid))
+                        .subscribeOn(Schedulers.io()))
+                .collect(Collectors.toList());
+
+        return Observable.concatEager(probes)
+                .filter(Pair::getSecond)
+                .map(Pair::getFirst)
+                .take(1)
+                .doOnNext(probeMode -> log().debug("The Yarn log URL conversion mode is " + probeMode
+                        + " with pattern " + probeMode.getPublicPathTemplate()))
+                .switchIfEmpty(Observable.defer(() -> {
+                    // All modes were probed and all failed
+                    log().warn("Can't find conversion mode of Yarn " + getYarnNMConnectUri());
+
+                    return Observable.error(new NoContainerPublicUriConversionException(
+                            "Can't find conversion mode of Yarn " + getYarnNMConnectUri()));
+                }));
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The log offset is in bytes, the same as {@link #fetchChunk(String, long, int)}.
+     */
     @Override
     public Observable<String> fetch(final String type, final long logOffset, final int size) {
-        if (!this.isFetchable(type, logOffset)) {
+        return fetchChunk(type, logOffset, size)
+                .map(SparkLogChunk::getText)
+                .first();
+    }
+
+    @Override
+    public Observable<SparkLogChunk> fetchChunk(final String type, final long byteOffset, final int maxBytes) {
+        if (!this.isFetchable(type, byteOffset)) {
             return Observable.empty();
         }
 
-        return this.getSparkJobDriverLogUrl()
-                .map(Object::toString)
-                .delay(logUrl -> getYarnApp())  // Get App state before fetching
-                .doOnNext(this::setCurrentLogUrl)
-                .flatMap(logUrl -> this.getContentFromYarnLogDom(logUrl, type, logOffset, size))
+        // The application state is got before fetching, so that the logs fetched from a stopped application are final
+        return this.appStateTracker.get()
+                .flatMap(appSnapshot -> {
+                    final URI driverLogUrl = appSnapshot.getDriverLogUrl();
+
+                    if (driverLogUrl == null) {
+                        return Observable.empty();
+                    }
+
+                    setCurrentLogUrl(driverLogUrl.toString());
+
+                    return this.getContentFromLogSource(
+                            driverLogUrl.toString(), type, byteOffset, maxBytes, appSnapshot.isAppStopped());
+                })
                 .repeatWhen(completed -> completed
                         .takeUntil(comp -> isYarnAppStop())
                         .delay(1, TimeUnit.SECONDS))
-                .first();
+                .take(1);
     }
 
-    private String getYarnAppState() {
-        return this.lastAppRawResponse != null ? this.lastAppRawResponse.getState() : "UNKNOWN";
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Only the NodeManager REST API tells the tail offset, by the `Content-Range` of the suffix range. The Yarn UI
+     * log page doesn't, so neither does a NodeManager ignoring the `Range` header, whose ranges fall back to the page.
+     */
+    @Override
+    public boolean isTailOffsetKnown() {
+        final String logUrl = getCurrentLogUrl();
+
+        return this.logSource == this.restLogSource
+                && (logUrl == null || !this.restLogSource.isRangeIgnored(URI.create(logUrl)));
     }
 
     private boolean isYarnAppStop() {
-        switch (getYarnAppState()) {
-            case "RUNNING":
-            case "SUBMITTED":
-            case "ACCEPTED":
-                return false;
-            default:
-                return true;
+        final YarnAppStateTracker.Snapshot appSnapshot = this.appStateTracker.getLatest();
+
+        if (appSnapshot == null) {
+            return true;
         }
+
+        return appSnapshot.isAppStopped();
+    }
+
+    /**
+     * Getter of the application state tracker, which is shared by the log fetching of all types.
+     *
+     * @return the application state tracker
+     */
+    YarnAppStateTracker getAppStateTracker() {
+        return this.appStateTracker;
+    }
+
+    /**
+     * Get the Yarn application state transition events observed by the application polling.
+     *
+     * @return Observable of the state transition events, which completes after the application is done
+     */
+    public Observable<SparkBatchJobStateTransitionEvent> getYarnAppStateTransitions() {
+        return yarnAppStateMachine.getTransitions();
     }
 
     public Observable<String> getDriverHost() {
         return this.getYarnApp().map(fetcher -> {
-            final App yarnApp = this.lastAppRawResponse;
+            final App yarnApp = getLastApp();
 
             if (yarnApp == null || yarnApp.isFinished()) {
                 throw propagate(new UnknownServiceException(
@@ -290,109 +458,84 @@ public class YarnContainerLogFetcher implements SparkLogFetcher, Logger {
         }
     }
 
-    private Observable<String> getContentFromYarnLogDom(final String baseUrl,
-                                                        final String type,
-                                                        final long start,
-                                                        final int size) {
-        final URI url = UriUtils.normalizeWithSlashEnding(baseUrl).resolve(type);
-
-        final List<NameValuePair> params = new ArrayList<>();
-        params.add(new BasicNameValuePair("start", Long.toString(start)));
-        if (size > 0) {
-            params.add(new BasicNameValuePair("size", Long.toString(size)));
-        }
-
-        return getRequest(url, params)
-                .map(response -> {
-                    try {
-                        return response.getMessage();
-                    } catch (IOException ignored) {
-                        // The upstream requestWithHttpResponse() has already get message buffered.
-                        throw propagate(new AssertionError("The upstream has got messages."));
+    private Observable<SparkLogChunk> getContentFromLogSource(final String logUrl,
+                                                             final String type,
+                                                             final long start,
+                                                             final int size,
+                                                             final boolean isAppStopped) {
+        final URI containerLogUrl = URI.create(logUrl);
+        final Observable<SparkLogChunk> logsFetched = fetchFromLogSource(containerLogUrl, type, start, size)
+                .onErrorResumeNext(err -> reconvertLogUrl(containerLogUrl, err)
+                        .flatMap(driverLogUrl -> {
+                            setCurrentLogUrl(driverLogUrl.toString());
+
+                            return fetchFromLogSource(driverLogUrl, type, start, size);
+                        }));
+
+        return logsFetched
+                .flatMap(chunk -> {
+                    if (chunk.isEof() && isAppStopped && chunk.getStart() >= 0) {
+                        // The stopped application logs won't grow any more, unless the tail offset is unknown
+                        setCompleted(type, chunk.getEnd());
                     }
-                })
-                .flatMap(html -> {
-                    final String logs = parseLogsFromHtml(type, html).getOrDefault(type, StringUtils.EMPTY);
-                    setFetched(type, start + logs.length());
 
-                    return StringUtils.isEmpty(logs) ? Observable.empty() : Observable.just(logs);
-                })
-                .doOnError(err -> log().warn("Can't parse information from YarnUI log page " + url, err));
+                    return chunk.isEmpty() ? Observable.empty() : Observable.just(chunk);
+                });
     }
 
-    private void setFetched(String logType, long logCharsGot) {
-        this.unfetchedOffsetByType.put(
-                logType,
-                Long.max(logCharsGot, this.unfetchedOffsetByType.getOrDefault(logType, 0L)));
+    /**
+     * Fetch the container logs from the current log source, and fall back to the Yarn UI log page once the NodeManager
+     * REST API fails.
+     */
+    private Observable<SparkLogChunk> fetchFromLogSource(final URI containerLogUrl,
+                                                         final String type,
+                                                         final long start,
+                                                         final int size) {
+        final YarnContainerLogSource currentLogSource = this.logSource;
+        return currentLogSource == this.pageLogSource
+                ? this.pageLogSource.fetch(containerLogUrl, type, start, size)
+                : currentLogSource.fetch(containerLogUrl, type, start, size)
+                        .onErrorResumeNext(err -> {
+                            // Such as the NodeManager REST API isn't exposed by the gateway, or the container is
+                            // finished and only the Job History Server has the logs
+                            log().debug("Fall back to fetch Yarn container logs from " + this.pageLogSource.getName()
+                                    + " since " + currentLogSource.getName() + " failed: " + err);
+                            this.logSource = this.pageLogSource;
+
+                            return this.pageLogSource.fetch(containerLogUrl, type, start, size);
+                        });
     }
 
-    private synchronized boolean isFetchable(String logType, long start) {
-        return !isYarnAppStop()
-                || !this.unfetchedOffsetByType.containsKey(logType)
-                || start < this.unfetchedOffsetByType.get(logType);
+    /**
+     * Set the log completed at the end offset, which only grows, so that a stale EOF chunk fetched concurrently
+     * doesn't stop the fetching of the logs after it.
+     */
+    void setCompleted(final String logType, final long logBytesEnd) {
+        this.completedOffsetByType.merge(logType, logBytesEnd, Math::max);
     }
 
-    Map<String, String> parseLogsFromHtml(final String defaultType, final String webPage) {
-        final Document doc = Jsoup.parse(webPage);
-        final ListIterator<Element> elementsIterator = Optional.ofNullable(doc.getElementById("navcell"))
-                .map(Element::nextElementSibling)
-                .map(Element::children)
-                .map(ArrayList::listIterator)
-                .orElse(null);
-
-        if (elementsIterator == null) {
-            return emptyMap();
-        }
+    @Nullable Long getCompletedOffset(final String logType) {
+        return this.completedOffsetByType.get(logType);
+    }
 
-        final HashMap<String, String> logTypeMap = new HashMap<>();
-        final AtomicReference<String> lastLogTypeFound = new AtomicReference<>(defaultType);
-
-        while (elementsIterator.hasNext()) {
-            final Element node = elementsIterator.next();
-            final List<Node> children = node.childNodes();
-
-            if (StringUtils.equalsIgnoreCase(node.tagName(), "p")) {
-                if (children.isEmpty()) {
-                    continue;
-                }
-
-                // In history server, need to read log type paragraph in page
-                final String logTypeFound = findLogTypeDomNode(children.get(0));
-
-                if (StringUtils.isNotEmpty(logTypeFound)) {
-                    // set the last log type found
-                    // clean up the saved log found
-                    logTypeMap.remove(logTypeFound);
-                    lastLogTypeFound.set(logTypeFound);
-                }
-            } else if (StringUtils.equalsIgnoreCase(node.tagName(), "pre") && lastLogTypeFound.get() != null) {
-                if (children.isEmpty()) {
-                    // found <pre></pre>, empty log
-                    // clean up the log type found
-                    lastLogTypeFound.set(null);
-
-                    continue;
-                }
-
-                // Only take the first `<pre>` element content as log
-                // And there are HTML escape codes, such as `2&gt;&lt;LOG_DIR&gt`, which has to be unescaped
-                final String logs = StringEscapeUtils.unescapeHtml4(String.valueOf(children.get(0)));
-
-                // Only take non-empty logs
-                if (StringUtils.isNotEmpty(logs)) {
-                    // Take log type as key, the log as value
-                    logTypeMap.put(lastLogTypeFound.getAndSet(null), logs);
-                }
-            }
-        }
+    boolean isFetchable(final String logType, final long start) {
+        final Long completedOffset = this.completedOffsetByType.get(logType);
 
-        return logTypeMap;
+        return completedOffset == null || start < completedOffset;
     }
 
-    private @Nullable String findLogTypeDomNode(Node node) {
-        final Matcher matcher = LOG_TYPE_PATTERN.matcher(node.toString().trim());
+    Map<String, String> parseLogsFromHtml(final String defaultType, final String webPage) {
+        return this.pageLogSource.parseLogsFromHtml(defaultType, webPage);
+    }
 
-        return matcher.matches() ? matcher.group("type") : null;
+    /**
+     * Getter of the log source to fetch the container logs from, which is the NodeManager REST API at first,
+     * and falls back to the Yarn UI log page once the REST API fails.
+     *
+     * @return the current log source
+     */
+    YarnContainerLogSource getLogSource() {
+        return this.logSource;
     }
 
     public final String getApplicationId() {
@@ -412,23 +555,55 @@ public class YarnContainerLogFetcher implements SparkLogFetcher, Logger {
     }
 
     private Observable<App> getYarnApplicationRequest() {
-        URI uri = getUri();
-
-        return getHttp()
-//                .withUuidUserAgent()
-                .get(uri.toString(), emptyList(), emptyList(), AppResponse.class)
-                .map(Pair::getFirst)
-                .map(AppResponse::getApp);
+        return Observable.defer(() -> {
+            final URI uri = getUri();
+            final long requestSeq = appRequestSeq.incrementAndGet();
+
+            return getHttp()
+//                    .withUuidUserAgent()
+                    .get(uri.toString(), emptyList(), emptyList(), AppResponse.class)
+                    .map(Pair::getFirst)
+                    .map(AppResponse::getApp)
+                    .doOnNext(app -> publishApp(requestSeq, app));
+        });
     }
 
     private Observable<YarnContainerLogFetcher> getYarnApp() {
         return getYarnApplicationRequest()
-                .doOnNext(this::updateWithAppResponse)
                 .map(app -> this);
     }
 
-    private void updateWithAppResponse(final @Nullable App appResp) {
-        this.lastAppRawResponse = appResp;
+    /**
+     * Publish the application got by a request, unless a later request has published, so that the concurrent
+     * requests of the log fetching and the log aggregation awaiting don't roll back the application got.
+     *
+     * @param requestSeq the sequence number of the request, assigned at the request start
+     * @param app the application got
+     * @return true if published
+     */
+    boolean publishApp(final long requestSeq, final @Nullable App app) {
+        final PublishedApp published = lastApp.accumulateAndGet(
+                new PublishedApp(requestSeq, app),
+                (last, got) -> got.requestSeq > last.requestSeq ? got : last);
+
+        if (published.requestSeq != requestSeq) {
+            return false;
+        }
+
+        if (app != null) {
+            yarnAppStateMachine.onYarnState(app.getState());
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the application got by the latest request.
+     *
+     * @return the application, or null if not got yet
+     */
+    @Nullable App getLastApp() {
+        return lastApp.get().app;
     }
 
     private Observable<List<AppAttempt>> getYarnApplicationAttemptsRequest() {
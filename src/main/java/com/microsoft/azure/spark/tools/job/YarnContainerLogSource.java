@@ -0,0 +1,35 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import rx.Observable;
+
+import java.net.URI;
+
+/**
+ * The source to fetch the logs of a Yarn container, such as the driver container of a Spark job.
+ */
+public interface YarnContainerLogSource {
+    /**
+     * Getter of the source name, for logging.
+     *
+     * @return the source name
+     */
+    String getName();
+
+    /**
+     * Fetch the logs of a type from a Yarn container, with the byte range of the logs in the container log file.
+     *
+     * @param containerLogUrl the public URL of the container logs page, such as
+     *                        https://hdicluster.azurehdinsight.net/yarnui/10.0.0.7/port/30060/node/containerlogs/
+     *                        container_1513565654634_0011_01_000002/livy
+     * @param type the log type, such as `stdout` and `stderr`
+     * @param start the byte offset in the log file to fetch from, or negative to fetch the last `-start` bytes
+     *              (the tail) of the log file, with the size ignored
+     * @param size the maximum bytes to fetch, or non-positive for all
+     * @return Observable of the logs chunk fetched, which is an empty chunk for no more logs. The tail chunk starts
+     *         at the exact offset if the source knows the log file length, otherwise at the negative `start`
+     */
+    Observable<SparkLogChunk> fetch(URI containerLogUrl, String type, long start, int size);
+}
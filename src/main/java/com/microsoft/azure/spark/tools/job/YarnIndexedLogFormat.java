@@ -0,0 +1,243 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.microsoft.azure.spark.tools.job.SerializedObjectParser.SerializedObject;
+import com.microsoft.azure.spark.tools.job.YarnAggregatedLogReader.Cursor;
+import com.microsoft.azure.spark.tools.job.YarnAggregatedLogReader.Segment;
+import com.microsoft.azure.spark.tools.job.YarnAggregatedLogStorage.FileEntry;
+import com.microsoft.azure.spark.tools.job.YarnAppContainerLogHarvester.ContainerLogChunk;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The Yarn IndexedFormat log aggregation format of the Hadoop LogAggregationIndexedFileController. The log files are
+ * compressed one by one, and followed by the Java serialized `IndexedLogsMeta` of all log files with their offsets,
+ * the meta length and the UUID of the application. So each log file is read as a separate segment.
+ */
+final class YarnIndexedLogFormat {
+    private static final int UUID_LENGTH = 32;
+
+    /**
+     * The file tail of the meta length and the UUID.
+     */
+    static final int TAIL_LENGTH = Integer.BYTES + UUID_LENGTH;
+
+    /**
+     * A log file in the aggregated log file.
+     */
+    static final class LogEntry {
+        private final String containerId;
+        private final String fileName;
+        private final long startIndex;
+        private final long fileCompressedSize;
+        private final long fileSize;
+
+        LogEntry(final String containerId,
+                 final String fileName,
+                 final long startIndex,
+                 final long fileCompressedSize,
+                 final long fileSize) {
+            this.containerId = containerId;
+            this.fileName = fileName;
+            this.startIndex = startIndex;
+            this.fileCompressedSize = fileCompressedSize;
+            this.fileSize = fileSize;
+        }
+
+        @Override
+        public String toString() {
+            return containerId + "/" + fileName + " [" + startIndex + ", " + (startIndex + fileCompressedSize) + ")";
+        }
+    }
+
+    private YarnIndexedLogFormat() {
+    }
+
+    /**
+     * Create the UUID of an application, which is written at the file tail.
+     *
+     * @param applicationId the application ID
+     * @return the SHA-256 digest of the application ID
+     */
+    static byte[] createUuid(final String applicationId) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(applicationId.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("No SHA-256 algorithm", ex);
+        }
+    }
+
+    /**
+     * Is a file in the format by the file tail.
+     *
+     * @param tail the last bytes of the file
+     * @param applicationId the application ID
+     * @return true if the tail ends with the application UUID
+     */
+    static boolean matches(final byte[] tail, final String applicationId) {
+        return tail.length >= TAIL_LENGTH
+                && Arrays.equals(createUuid(applicationId),
+                                 Arrays.copyOfRange(tail, tail.length - UUID_LENGTH, tail.length));
+    }
+
+    static List<Segment> listSegments(final YarnAggregatedLogReader reader,
+                                      final FileEntry file,
+                                      final String applicationId,
+                                      final String nodeId,
+                                      final @Nullable String containerId) throws IOException {
+        final SerializedObject meta = readMeta(reader, file, applicationId);
+        final Object compressName = meta.get("compressName");
+        final String compression = compressName instanceof String ? (String) compressName : "none";
+        final List<Segment> segments = new ArrayList<>();
+
+        for (LogEntry entry : getLogEntries(meta)) {
+            if ((containerId == null || containerId.equals(entry.containerId))
+                    && reader.isLogTypeIncluded(entry.fileName)) {
+                segments.add(() -> new LogEntryCursor(reader, file, entry, compression, nodeId));
+            }
+        }
+
+        return segments;
+    }
+
+    private static SerializedObject readMeta(final YarnAggregatedLogReader reader,
+                                             final FileEntry file,
+                                             final String applicationId) throws IOException {
+        final long tailOffset = file.getLength() - TAIL_LENGTH;
+        final byte[] tail = reader.readRange(file.getPath(), tailOffset, TAIL_LENGTH);
+        final int metaLength = new DataInputStream(new ByteArrayInputStream(tail)).readInt();
+
+        // The file starts with the UUID too
+        if (metaLength <= 0 || metaLength > tailOffset - UUID_LENGTH || !matches(tail, applicationId)) {
+            throw new IOException("Broken IndexedFormat logs meta of " + file);
+        }
+
+        final Object meta = new SerializedObjectParser(
+                reader.readRange(file.getPath(), tailOffset - metaLength, metaLength)).parse();
+
+        if (!(meta instanceof SerializedObject)) {
+            throw new IOException("Unexpected IndexedFormat logs meta " + meta + " of " + file);
+        }
+
+        return (SerializedObject) meta;
+    }
+
+    /**
+     * Get the log entries of all log aggregations in the meta, which are appended to the file in turn.
+     */
+    static List<LogEntry> getLogEntries(final SerializedObject meta) throws IOException {
+        final List<LogEntry> entries = new ArrayList<>();
+
+        for (Object aggregationMeta : getList(meta.get("logMetas"))) {
+            if (!(aggregationMeta instanceof SerializedObject)) {
+                continue;
+            }
+
+            final Object logMetasByContainer = ((SerializedObject) aggregationMeta).get("logMetas");
+            if (!(logMetasByContainer instanceof SerializedObject)) {
+                continue;
+            }
+
+            for (Map.Entry<@Nullable Object, @Nullable Object> containerMetas
+                    : ((SerializedObject) logMetasByContainer).asMap().entrySet()) {
+                for (Object fileMeta : getList(containerMetas.getValue())) {
+                    if (!(fileMeta instanceof SerializedObject)) {
+                        continue;
+                    }
+
+                    final SerializedObject logMeta = (SerializedObject) fileMeta;
+                    final Object containerId = logMeta.get("containerId");
+                    final Object fileName = logMeta.get("fileName");
+
+                    if (!(containerId instanceof String) || !(fileName instanceof String)) {
+                        throw new IOException("Broken IndexedFormat log meta " + logMeta);
+                    }
+
+                    entries.add(new LogEntry((String) containerId,
+                                             (String) fileName,
+                                             getLong(logMeta, "startIndex"),
+                                             getLong(logMeta, "fileCompressedSize"),
+                                             getLong(logMeta, "fileSize")));
+                }
+            }
+        }
+
+        return entries;
+    }
+
+    private static List<@Nullable Object> getList(final @Nullable Object list) {
+        return list instanceof SerializedObject ? ((SerializedObject) list).asList() : Collections.emptyList();
+    }
+
+    private static long getLong(final SerializedObject object, final String field) throws IOException {
+        final Object value = object.get(field);
+
+        if (!(value instanceof Long)) {
+            throw new IOException("Broken IndexedFormat log meta field " + field + " of " + object);
+        }
+
+        return (Long) value;
+    }
+
+    /**
+     * The cursor reading a log file.
+     */
+    private static final class LogEntryCursor extends Cursor {
+        private final InputStream input;
+
+        private LogEntryCursor(final YarnAggregatedLogReader reader,
+                               final FileEntry file,
+                               final LogEntry entry,
+                               final String compression,
+                               final String nodeId) throws IOException {
+            super(reader.getChunkBytes());
+
+            if (entry.startIndex < 0 || entry.fileCompressedSize < 0
+                    || entry.startIndex + entry.fileCompressedSize > file.getLength() - TAIL_LENGTH) {
+                throw new IOException("Broken " + entry + " of " + file);
+            }
+
+            final InputStream raw = reader.openRange(file.getPath(), entry.startIndex, entry.fileCompressedSize);
+
+            switch (compression) {
+                case "none":
+                    this.input = raw;
+                    break;
+                case "gz":
+                    // The Hadoop DefaultCodec, which is the zlib format rather than the GZIP one
+                    this.input = new InflaterInputStream(raw);
+                    break;
+                default:
+                    throw new IOException("Unsupported compression " + compression + " of " + file);
+            }
+
+            startLog(entry.containerId, nodeId, entry.fileName, input, entry.fileSize);
+        }
+
+        @Override
+        @Nullable ContainerLogChunk readNext() throws IOException {
+            return readLogChunk();
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.text.StrSubstitutor;
+
+import com.microsoft.azure.spark.tools.utils.UriUtils;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The ways to convert the Yarn container log internal URL, such as http://10.0.0.15:30060/node/containerlogs/...,
+ * to the public one through the Yarn UI gateway, in the probing priority order.
+ */
+public enum YarnLogConversionMode {
+    WITHOUT_PORT("${BASE}${HOST}${PATH}"),
+    WITH_PORT("${BASE}${HOST}/port/${PORT}${PATH}"),
+    ORIGINAL("${ORIGINAL}");
+
+    private static final String HOST = "HOST";
+    private static final String PORT = "PORT";
+    private static final String PATH = "PATH";          // Internal URI path, starting with slash `/`
+    private static final String BASE = "BASE";          // Yarn UI Base URI, ending with slash `/`
+    private static final String ORIGINAL_URI = "ORIGINAL";  // Original internal URI
+
+    private final String publicPathTemplate;
+
+    YarnLogConversionMode(final String publicPathTemplate) {
+        this.publicPathTemplate = publicPathTemplate;
+    }
+
+    public String getPublicPathTemplate() {
+        return publicPathTemplate;
+    }
+
+    /**
+     * Convert the internal container log URL to the public one.
+     *
+     * @param internalLogUrl the internal container log URL, such as the application attempt `logsLink`
+     * @param yarnUIBaseUrl the Yarn UI base URL of the cluster
+     * @return the public container log URL
+     */
+    public URI toPublic(final URI internalLogUrl, final String yarnUIBaseUrl) {
+        final Map<String, String> values = ImmutableMap.of(
+                HOST, internalLogUrl.getHost(),
+                PORT, String.valueOf(internalLogUrl.getPort()),
+                PATH, Optional.of(internalLogUrl.getPath()).filter(StringUtils::isNoneBlank).orElse("/"),
+                BASE, UriUtils.normalizeWithSlashEnding(URI.create(yarnUIBaseUrl)).toString(),
+                ORIGINAL_URI, internalLogUrl.toString());
+        final StrSubstitutor sub = new StrSubstitutor(values);
+        final String publicPath = sub.replace(publicPathTemplate);
+
+        return URI.create(publicPath);
+    }
+}
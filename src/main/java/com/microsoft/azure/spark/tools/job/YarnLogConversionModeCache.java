@@ -0,0 +1,180 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import rx.Observable;
+
+import com.microsoft.azure.spark.tools.clusters.YarnCluster;
+import com.microsoft.azure.spark.tools.log.Logger;
+import com.microsoft.azure.spark.tools.utils.CacheFiles;
+import com.microsoft.azure.spark.tools.utils.UriUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The cache of the Yarn container log URL conversion mode by cluster, since all containers of a cluster are behind
+ * the same Yarn UI gateway. The mode is probed once for a cluster and shared by all jobs, rather than probed by each
+ * job log fetcher. The concurrent probing of a cluster is merged into one.
+ *
+ * <p>The shared cache is in memory only, a cache opened with a file also keeps the modes across the client runs.
+ */
+public final class YarnLogConversionModeCache implements Logger {
+    private static final YarnLogConversionModeCache SHARED = new YarnLogConversionModeCache(null);
+
+    private static final TypeReference<Map<String, YarnLogConversionMode>> ENTRIES_TYPE =
+            new TypeReference<Map<String, YarnLogConversionMode>>() { };
+
+    private final @Nullable File file;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, YarnLogConversionMode> entries = new ConcurrentHashMap<>();
+    private final Map<String, Observable<YarnLogConversionMode>> probings = new ConcurrentHashMap<>();
+
+    private YarnLogConversionModeCache(final @Nullable File file) {
+        this.file = file;
+    }
+
+    /**
+     * Get the in-memory cache shared in the process.
+     *
+     * @return the shared cache
+     */
+    public static YarnLogConversionModeCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Create a new in-memory cache, such as for the clusters not to share the modes with others.
+     *
+     * @return the cache created
+     */
+    public static YarnLogConversionModeCache create() {
+        return new YarnLogConversionModeCache(null);
+    }
+
+    /**
+     * Open the cache file, or start with an empty cache if not existing or broken.
+     *
+     * @param file the cache file
+     * @return the cache opened
+     */
+    public static YarnLogConversionModeCache open(final File file) {
+        final YarnLogConversionModeCache cache = new YarnLogConversionModeCache(file);
+        cache.load(file);
+
+        return cache;
+    }
+
+    public @Nullable File getFile() {
+        return file;
+    }
+
+    /**
+     * Get the cache key of a cluster, which is the Yarn UI base URL, since the cluster instances of the same cluster
+     * could be created by each job.
+     *
+     * @param cluster the Yarn cluster
+     * @return the cache key
+     */
+    static String getKey(final YarnCluster cluster) {
+        return UriUtils.normalizeWithSlashEnding(cluster.getYarnUIBaseUrl()).toString();
+    }
+
+    /**
+     * Get the conversion mode cached of a cluster.
+     *
+     * @param cluster the Yarn cluster
+     * @return the conversion mode cached, or null if not probed yet
+     */
+    public @Nullable YarnLogConversionMode getIfPresent(final YarnCluster cluster) {
+        return entries.get(getKey(cluster));
+    }
+
+    /**
+     * Get the conversion mode of a cluster, from cache if cached, or from the prober. The prober is only subscribed
+     * once for the concurrent getting of the same cluster, and the failed probing isn't cached to try again next
+     * time.
+     *
+     * @param cluster the Yarn cluster
+     * @param prober the Observable to probe the conversion mode with the Yarn UI gateway
+     * @return Observable of the conversion mode
+     */
+    public Observable<YarnLogConversionMode> get(final YarnCluster cluster,
+                                                 final Observable<YarnLogConversionMode> prober) {
+        return Observable.defer(() -> {
+            final String key = getKey(cluster);
+            final YarnLogConversionMode cached = entries.get(key);
+
+            if (cached != null) {
+                return Observable.just(cached);
+            }
+
+            return probings.computeIfAbsent(key, k -> prober
+                    .first()
+                    .doOnNext(mode -> put(cluster, mode))
+                    .doOnTerminate(() -> probings.remove(k))
+                    .cache());
+        });
+    }
+
+    /**
+     * Put the conversion mode of a cluster into cache, and write the cache file if opened with a file.
+     *
+     * @param cluster the Yarn cluster
+     * @param mode the conversion mode probed
+     */
+    public void put(final YarnCluster cluster, final YarnLogConversionMode mode) {
+        if (entries.put(getKey(cluster), mode) != mode) {
+            save();
+        }
+    }
+
+    /**
+     * Remove the conversion mode of a cluster from cache, such as after the Yarn UI gateway is changed.
+     *
+     * @param cluster the Yarn cluster
+     */
+    public void invalidate(final YarnCluster cluster) {
+        if (entries.remove(getKey(cluster)) != null) {
+            save();
+        }
+    }
+
+    private void load(final File cacheFile) {
+        if (!cacheFile.isFile()) {
+            return;
+        }
+
+        try {
+            final Map<String, YarnLogConversionMode> loaded = objectMapper.readValue(cacheFile, ENTRIES_TYPE);
+
+            if (loaded != null) {
+                entries.putAll(loaded);
+            }
+        } catch (IOException ex) {
+            // The cache is an optimization, start from empty to probe again
+            log().warn("Ignore the broken Yarn log conversion mode cache file " + cacheFile, ex);
+        }
+    }
+
+    private synchronized void save() {
+        final File cacheFile = this.file;
+        if (cacheFile == null) {
+            return;
+        }
+
+        try {
+            CacheFiles.writeAtomically(cacheFile, objectMapper, new LinkedHashMap<>(entries));
+        } catch (IOException ex) {
+            // The mode is still cached in memory
+            log().warn("Failed to write the Yarn log conversion mode cache file " + cacheFile, ex);
+        }
+    }
+}
@@ -0,0 +1,613 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.text.translate.EntityArrays;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The streaming extractor of the logs in the Yarn UI container logs HTML page, which scans the page once without
+ * building the DOM. It looks for the element next to the `navcell` cell, where the `Log Type: xxx` paragraphs are
+ * followed by the `&lt;pre&gt;` sections of the logs. The HTML entities in the logs are unescaped on the fly into a
+ * fixed size buffer, which is handed to the {@link LogsHandler} chunk by chunk, so the memory used by the extractor
+ * doesn't grow with the page size.
+ *
+ * <p>The extractor keeps the scanning state and buffers, so it isn't thread safe, but can be reused for pages one by
+ * one.
+ */
+public class YarnLogPageExtractor {
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final Pattern LOG_TYPE_PATTERN = Pattern.compile("Log Type:\\s+(?<type>\\S+)");
+    private static final Pattern NAV_CELL_ID_PATTERN = Pattern.compile(
+            "\\sid\\s*=\\s*(['\"]?)navcell\\1(\\s|/|$)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * The tag text kept for the tag name and the `id` attribute matching, the rest of a long tag is skipped.
+     */
+    private static final int MAX_TAG_LENGTH = 256;
+
+    /**
+     * The paragraph text kept for the `Log Type: xxx` matching.
+     */
+    private static final int MAX_PARAGRAPH_LENGTH = 1024;
+
+    private static final int MAX_ENTITY_LENGTH = 32;
+
+    private static final int EOF = -1;
+
+    /**
+     * The named HTML 4 entities without `&amp;` and `;`, the same as {@link
+     * org.apache.commons.lang3.StringEscapeUtils#unescapeHtml4(String)} supports.
+     */
+    private static final Map<String, String> NAMED_ENTITIES = new HashMap<>();
+
+    static {
+        for (String[][] entities : new String[][][] {
+                EntityArrays.BASIC_UNESCAPE(),
+                EntityArrays.ISO8859_1_UNESCAPE(),
+                EntityArrays.HTML40_EXTENDED_UNESCAPE() }) {
+            for (String[] entity : entities) {
+                NAMED_ENTITIES.put(entity[0].substring(1, entity[0].length() - 1), entity[1]);
+            }
+        }
+    }
+
+    /**
+     * The handler of the logs extracted.
+     */
+    public interface LogsHandler {
+        /**
+         * Called when a `Log Type: xxx` paragraph is found, the logs of the type extracted before are outdated.
+         *
+         * @param type the log type found
+         */
+        void onLogType(String type);
+
+        /**
+         * Called with a chunk of the unescaped logs, the characters buffer is reused after the method returns.
+         *
+         * @param type the log type
+         * @param chars the characters buffer
+         * @param offset the chunk offset in the buffer
+         * @param length the chunk length, always positive
+         */
+        void onLogs(String type, char[] chars, int offset, int length);
+
+        /**
+         * Called when the non-empty logs of a `&lt;pre&gt;` section end.
+         *
+         * @param type the log type
+         */
+        void onLogsEnd(String type);
+    }
+
+    /**
+     * The collector of a type logs, with the logs of the latest `&lt;pre&gt;` section kept.
+     */
+    private static class TypeLogsCollector implements LogsHandler {
+        private final String type;
+        private StringBuilder collecting = new StringBuilder();
+        private StringBuilder collected = new StringBuilder();
+
+        TypeLogsCollector(final String type) {
+            this.type = type;
+        }
+
+        String getLogs() {
+            return collected.toString();
+        }
+
+        @Override
+        public void onLogType(final String typeFound) {
+            if (typeFound.equals(type)) {
+                collected.setLength(0);
+            }
+        }
+
+        @Override
+        public void onLogs(final String typeFound, final char[] chars, final int offset, final int length) {
+            if (typeFound.equals(type)) {
+                collecting.append(chars, offset, length);
+            }
+        }
+
+        @Override
+        public void onLogsEnd(final String typeFound) {
+            if (typeFound.equals(type)) {
+                // Swap the buffers rather than copy the logs
+                final StringBuilder ended = collecting;
+                collecting = collected;
+                collecting.setLength(0);
+                collected = ended;
+            }
+        }
+    }
+
+    private final char[] readBuffer;
+    private final char[] logsBuffer;
+    private final StringBuilder tagText = new StringBuilder(MAX_TAG_LENGTH);
+    private final StringBuilder paragraphText = new StringBuilder();
+    private final StringBuilder entityText = new StringBuilder(MAX_ENTITY_LENGTH);
+
+    private @Nullable Reader reader = null;
+    private int readPosition = 0;
+    private int readLimit = 0;
+    private int logsLength = 0;
+
+    /**
+     * The character read ahead to push back, or {@link #EOF} if none.
+     */
+    private int pushedBack = EOF;
+
+    public YarnLogPageExtractor() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor with the buffer size.
+     *
+     * @param bufferSize the characters to read from the page and to hand to the handler at a time, at least 16
+     */
+    public YarnLogPageExtractor(final int bufferSize) {
+        this.readBuffer = new char[Math.max(16, bufferSize)];
+        this.logsBuffer = new char[Math.max(16, bufferSize)];
+    }
+
+    /**
+     * Extract all logs from the page into a map.
+     *
+     * @param defaultType the log type of the logs before any `Log Type: xxx` paragraph
+     * @param webPage the container logs HTML page
+     * @return the map of the log type to the logs, the later logs of a type override the earlier
+     */
+    public Map<String, String> extractAll(final String defaultType, final String webPage) {
+        final Map<String, String> logTypeMap = new HashMap<>();
+        final StringBuilder logs = new StringBuilder();
+
+        try {
+            extract(new StringReader(webPage), defaultType, new LogsHandler() {
+                @Override
+                public void onLogType(final String type) {
+                    logTypeMap.remove(type);
+                }
+
+                @Override
+                public void onLogs(final String type, final char[] chars, final int offset, final int length) {
+                    logs.append(chars, offset, length);
+                }
+
+                @Override
+                public void onLogsEnd(final String type) {
+                    logTypeMap.put(type, logs.toString());
+                    logs.setLength(0);
+                }
+            });
+        } catch (IOException ex) {
+            // The string reader doesn't throw, or it's a bug
+            throw new AssertionError("Failed to read the page string", ex);
+        }
+
+        return logTypeMap;
+    }
+
+    /**
+     * Extract the logs of a type from the page stream, the logs of other types are skipped without being kept.
+     *
+     * @param page the container logs HTML page reader, which isn't closed
+     * @param defaultType the log type of the logs before any `Log Type: xxx` paragraph
+     * @param type the log type to extract
+     * @return the logs of the type, or empty if not found
+     * @throws IOException for the page reading failure
+     */
+    public String extractType(final Reader page, final String defaultType, final String type) throws IOException {
+        final TypeLogsCollector collector = new TypeLogsCollector(type);
+
+        extract(page, defaultType, collector);
+
+        return collector.getLogs();
+    }
+
+    /**
+     * Scan the page once and hand the logs found to the handler.
+     *
+     * @param page the container logs HTML page reader, which isn't closed
+     * @param defaultType the log type of the logs before any `Log Type: xxx` paragraph
+     * @param handler the logs handler
+     * @throws IOException for the page reading failure
+     */
+    public void extract(final Reader page, final String defaultType, final LogsHandler handler) throws IOException {
+        this.reader = page;
+        this.readPosition = 0;
+        this.readLimit = 0;
+        this.logsLength = 0;
+        this.pushedBack = EOF;
+
+        try {
+            final String navCellTag = skipToNavCell();
+            if (navCellTag == null || !skipToEndTag(navCellTag)) {
+                return;
+            }
+
+            final String contentTag = skipToNextSiblingStartTag();
+            if (contentTag != null) {
+                extractContent(contentTag, defaultType, handler);
+            }
+        } finally {
+            this.reader = null;
+        }
+    }
+
+    private void extractContent(final String contentTag,
+                                final String defaultType,
+                                final LogsHandler handler) throws IOException {
+        @Nullable String currentType = defaultType;
+        int depth = 1;
+        int ch = read();
+
+        while (ch != EOF) {
+            if (ch != '<') {
+                ch = read();
+                continue;
+            }
+
+            final boolean isStartTag = readTag();
+            final String tagName = getTagName();
+
+            if (tagName.equals(contentTag)) {
+                depth += isStartTag ? 1 : -1;
+
+                if (depth == 0) {
+                    return;
+                }
+            } else if (isStartTag && tagName.equals("p")) {
+                // In history server, need to read log type paragraph in page
+                final String logTypeFound = readLogTypeParagraph();
+
+                if (logTypeFound != null) {
+                    handler.onLogType(logTypeFound);
+                    currentType = logTypeFound;
+                }
+            } else if (isStartTag && tagName.equals("pre")) {
+                if (currentType != null) {
+                    // Only take the first text in `<pre>` as the log, and clean up the log type found
+                    extractPreText(currentType, handler);
+                    currentType = null;
+                }
+
+                skipToEndTag("pre");
+            } else if (isStartTag && isRawTextTag(tagName)) {
+                skipRawText(tagName);
+            }
+
+            ch = read();
+        }
+    }
+
+    private void extractPreText(final String type, final LogsHandler handler) throws IOException {
+        int ch = read();
+
+        // The leading line feed of `<pre>` is ignored by HTML parsers
+        if (ch == '\n') {
+            ch = read();
+        }
+
+        boolean isEmpty = true;
+
+        while (ch != EOF && ch != '<') {
+            if (ch == '&') {
+                ch = unescapeEntity(type, handler);
+            } else {
+                appendLogs(type, (char) ch, handler);
+                ch = read();
+            }
+
+            isEmpty = false;
+        }
+
+        if (ch == '<') {
+            pushBack(ch);
+        }
+
+        flushLogs(type, handler);
+
+        if (!isEmpty) {
+            handler.onLogsEnd(type);
+        }
+    }
+
+    /**
+     * Unescape an HTML entity after `&amp;`, which is kept as it is if unknown.
+     *
+     * @return the character after the entity
+     */
+    private int unescapeEntity(final String type, final LogsHandler handler) throws IOException {
+        entityText.setLength(0);
+
+        int ch = read();
+        while (ch != EOF && (Character.isLetterOrDigit(ch) || ch == '#') && entityText.length() < MAX_ENTITY_LENGTH) {
+            entityText.append((char) ch);
+            ch = read();
+        }
+
+        final String unescaped = ch == ';' ? lookUpEntity(entityText) : null;
+
+        if (unescaped != null) {
+            appendLogs(type, unescaped, handler);
+
+            return read();
+        }
+
+        appendLogs(type, '&', handler);
+        appendLogs(type, entityText, handler);
+
+        return ch;
+    }
+
+    private static @Nullable String lookUpEntity(final CharSequence name) {
+        if (name.length() > 1 && name.charAt(0) == '#') {
+            final boolean isHex = name.charAt(1) == 'x' || name.charAt(1) == 'X';
+
+            try {
+                final int codePoint = Integer.parseInt(
+                        name.subSequence(isHex ? 2 : 1, name.length()).toString(), isHex ? 16 : 10);
+
+                return new String(Character.toChars(codePoint));
+            } catch (IllegalArgumentException ignored) {
+                // Not a number or a valid code point
+                return null;
+            }
+        }
+
+        return NAMED_ENTITIES.get(name.toString());
+    }
+
+    private void appendLogs(final String type, final CharSequence chars, final LogsHandler handler) {
+        for (int i = 0; i < chars.length(); i++) {
+            appendLogs(type, chars.charAt(i), handler);
+        }
+    }
+
+    private void appendLogs(final String type, final char ch, final LogsHandler handler) {
+        if (logsLength == logsBuffer.length) {
+            flushLogs(type, handler);
+        }
+
+        logsBuffer[logsLength++] = ch;
+    }
+
+    private void flushLogs(final String type, final LogsHandler handler) {
+        if (logsLength > 0) {
+            handler.onLogs(type, logsBuffer, 0, logsLength);
+            logsLength = 0;
+        }
+    }
+
+    /**
+     * Read the paragraph text until the next tag, and match the `Log Type: xxx` pattern.
+     *
+     * @return the log type, or null if not matched
+     */
+    private @Nullable String readLogTypeParagraph() throws IOException {
+        paragraphText.setLength(0);
+
+        int ch = read();
+        while (ch != EOF && ch != '<') {
+            if (paragraphText.length() < MAX_PARAGRAPH_LENGTH) {
+                paragraphText.append((char) ch);
+            }
+
+            ch = read();
+        }
+
+        if (ch == '<') {
+            pushBack(ch);
+        }
+
+        final Matcher matcher = LOG_TYPE_PATTERN.matcher(StringUtils.normalizeSpace(paragraphText.toString()));
+
+        return matcher.matches() ? matcher.group("type") : null;
+    }
+
+    /**
+     * Skip to the start tag with the `navcell` id.
+     *
+     * @return the tag name, or null if not found
+     */
+    private @Nullable String skipToNavCell() throws IOException {
+        int ch = read();
+
+        while (ch != EOF) {
+            if (ch == '<') {
+                final boolean isStartTag = readTag();
+                final String tagName = getTagName();
+
+                if (isStartTag && NAV_CELL_ID_PATTERN.matcher(tagText).find()) {
+                    return tagName;
+                }
+
+                if (isStartTag && isRawTextTag(tagName)) {
+                    skipRawText(tagName);
+                }
+            }
+
+            ch = read();
+        }
+
+        return null;
+    }
+
+    /**
+     * Skip to the end tag of the current element, with the nested elements of the same name counted.
+     *
+     * @param name the tag name of the current element
+     * @return true if the end tag is found
+     */
+    private boolean skipToEndTag(final String name) throws IOException {
+        int depth = 1;
+        int ch = read();
+
+        while (ch != EOF) {
+            if (ch == '<') {
+                final boolean isStartTag = readTag();
+
+                if (getTagName().equals(name)) {
+                    depth += isStartTag ? 1 : -1;
+
+                    if (depth == 0) {
+                        return true;
+                    }
+                }
+            }
+
+            ch = read();
+        }
+
+        return false;
+    }
+
+    /**
+     * Skip to the next sibling element start tag.
+     *
+     * @return the tag name, or null if the parent element ends first
+     */
+    private @Nullable String skipToNextSiblingStartTag() throws IOException {
+        int ch = read();
+
+        while (ch != EOF) {
+            if (ch == '<') {
+                final boolean isStartTag = readTag();
+                final String tagName = getTagName();
+
+                if (!tagName.isEmpty()) {
+                    return isStartTag ? tagName : null;
+                }
+            }
+
+            ch = read();
+        }
+
+        return null;
+    }
+
+    private void skipRawText(final String name) throws IOException {
+        int ch = read();
+
+        while (ch != EOF) {
+            if (ch == '<') {
+                final boolean isStartTag = readTag();
+
+                if (!isStartTag && getTagName().equals(name)) {
+                    return;
+                }
+            }
+
+            ch = read();
+        }
+    }
+
+    private static boolean isRawTextTag(final String name) {
+        return name.equals("script") || name.equals("style");
+    }
+
+    /**
+     * Read a tag after `&lt;` into the tag text, the comment and the declaration are read as an empty name tag.
+     *
+     * @return true for the start tag, false for the end tag
+     */
+    private boolean readTag() throws IOException {
+        tagText.setLength(0);
+
+        int ch = read();
+        if (ch == '!') {
+            skipCommentOrDeclaration();
+
+            return false;
+        }
+
+        char quote = 0;
+        while (ch != EOF && (quote != 0 || ch != '>')) {
+            if (quote == 0 && (ch == '"' || ch == '\'')) {
+                quote = (char) ch;
+            } else if (ch == quote) {
+                quote = 0;
+            }
+
+            if (tagText.length() < MAX_TAG_LENGTH) {
+                tagText.append((char) ch);
+            }
+
+            ch = read();
+        }
+
+        return tagText.length() == 0 || tagText.charAt(0) != '/';
+    }
+
+    private void skipCommentOrDeclaration() throws IOException {
+        int ch = read();
+        final boolean isComment = ch == '-';
+        int dashes = 0;
+
+        while (ch != EOF) {
+            if (ch == '>' && (!isComment || dashes >= 2)) {
+                return;
+            }
+
+            dashes = ch == '-' ? dashes + 1 : 0;
+            ch = read();
+        }
+    }
+
+    /**
+     * Get the lower case name of the tag read.
+     *
+     * @return the tag name, or empty for the comment and the declaration
+     */
+    private String getTagName() {
+        final int start = tagText.length() > 0 && tagText.charAt(0) == '/' ? 1 : 0;
+        int end = start;
+
+        while (end < tagText.length() && Character.isLetterOrDigit(tagText.charAt(end))) {
+            end++;
+        }
+
+        return tagText.substring(start, end).toLowerCase();
+    }
+
+    private void pushBack(final int ch) {
+        pushedBack = ch;
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != EOF) {
+            final int ch = pushedBack;
+            pushedBack = EOF;
+
+            return ch;
+        }
+
+        if (readPosition == readLimit) {
+            final Reader currentReader = reader;
+            final int read = currentReader == null ? EOF : currentReader.read(readBuffer, 0, readBuffer.length);
+
+            if (read <= 0) {
+                return EOF;
+            }
+
+            readPosition = 0;
+            readLimit = read;
+        }
+
+        return readBuffer[readPosition++];
+    }
+}
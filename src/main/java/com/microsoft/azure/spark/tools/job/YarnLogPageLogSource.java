@@ -0,0 +1,120 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.protocol.HTTP;
+import rx.Observable;
+
+import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.http.status.HttpErrorStatus;
+import com.microsoft.azure.spark.tools.log.Logger;
+import com.microsoft.azure.spark.tools.utils.UriUtils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.microsoft.azure.spark.tools.http.status.HttpErrorStatus.classifyHttpError;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+
+/**
+ * The Yarn container log source scraping the logs from the Yarn UI container logs HTML page, which works with both
+ * the running containers and the Job History Server, but has to download the whole page. The page is scanned as a
+ * stream by {@link YarnLogPageExtractor} without the DOM built.
+ */
+public class YarnLogPageLogSource implements YarnContainerLogSource, Logger {
+    private final HttpObservable http;
+
+    public YarnLogPageLogSource(final HttpObservable http) {
+        this.http = http;
+    }
+
+    @Override
+    public String getName() {
+        return "Yarn UI log page";
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The Yarn UI log page reads the log file from the `start` byte offset, and decodes the bytes into the HTML
+     * escaped text, so the bytes of the unescaped text in UTF-8, rather than the characters, are counted for the chunk
+     * range. The page shows the tail with a negative `start` as well, but doesn't tell the log file length, so the
+     * tail chunk starts at the negative `start`.
+     */
+    @Override
+    public Observable<SparkLogChunk> fetch(final URI containerLogUrl,
+                                           final String type,
+                                           final long start,
+                                           final int size) {
+        final URI url = UriUtils.normalizeWithSlashEnding(containerLogUrl).resolve(type);
+
+        final List<NameValuePair> params = new ArrayList<>();
+        params.add(new BasicNameValuePair("start", Long.toString(start)));
+        if (start >= 0 && size > 0) {
+            params.add(new BasicNameValuePair("size", Long.toString(size)));
+        }
+
+        return http.request(new HttpGet(url), null, params, emptyList())
+                .flatMap(response -> Observable.using(
+                        () -> response,
+                        streamResp -> Observable.fromCallable(() -> extractLogs(streamResp, type)),
+                        streamResp -> {
+                            try {
+                                streamResp.close();
+                            } catch (IOException ignore) {
+                                // The connection will be closed automatically after timeout,
+                                // the exception in closing can be ignored.
+                            }
+                        }))
+                .map(logs -> {
+                    final byte[] bytes = logs.getBytes(UTF_8);
+
+                    // The page shows the logs till the end of file, unless the size is limited
+                    return new SparkLogChunk(start, bytes, start < 0 || size <= 0 || bytes.length < size);
+                })
+                .doOnError(err -> log().warn("Can't parse information from YarnUI log page " + url, err));
+    }
+
+    /**
+     * Extract the logs of a type by streaming the page response through the {@link YarnLogPageExtractor}, so that
+     * neither the whole page nor the logs of other types are kept in memory.
+     */
+    private String extractLogs(final CloseableHttpResponse response, final String type)
+            throws IOException, HttpErrorStatus {
+        if (response.getStatusLine().getStatusCode() >= 300) {
+            throw classifyHttpError(response);
+        }
+
+        final HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return StringUtils.EMPTY;
+        }
+
+        // The same default charset as EntityUtils.toString()
+        final Charset contentCharset = ContentType.getOrDefault(entity).getCharset();
+        final Charset charset = contentCharset != null ? contentCharset : HTTP.DEF_CONTENT_CHARSET;
+
+        try (Reader page = new InputStreamReader(entity.getContent(), charset)) {
+            return new YarnLogPageExtractor().extractType(page, type, type);
+        }
+    }
+
+    Map<String, String> parseLogsFromHtml(final String defaultType, final String webPage) {
+        return new YarnLogPageExtractor().extractAll(defaultType, webPage);
+    }
+}
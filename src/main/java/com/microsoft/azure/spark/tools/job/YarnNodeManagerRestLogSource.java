@@ -0,0 +1,243 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import rx.Observable;
+
+import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.http.status.HttpErrorStatus;
+import com.microsoft.azure.spark.tools.log.Logger;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.microsoft.azure.spark.tools.http.status.HttpErrorStatus.classifyHttpError;
+import static java.util.Collections.emptyList;
+
+/**
+ * The Yarn container log source with the NodeManager REST API
+ * `GET /ws/v1/node/containers/{containerId}/logs/{fileName}`, which returns the plain text log file, so that
+ * the log page HTML isn't downloaded and parsed. Only the byte range from the offset is requested with the HTTP
+ * `Range` header, or the suffix range for the tail. The logs are kept as bytes, so the offsets are exact for the
+ * multi-byte characters too.
+ *
+ * <p>Some NodeManagers ignore the `Range` header and return the whole file. The log before the offset is skipped
+ * from the file for that response, and the NodeManager is recorded, so that the later ranged fetching from it goes to
+ * the fallback source if there is, such as the Yarn UI log page which reads from the offset on the server, rather than
+ * downloading the whole file for each incremental polling.
+ */
+public class YarnNodeManagerRestLogSource implements YarnContainerLogSource, Logger {
+    private static final Pattern CONTAINER_LOGS_PATH_PATTERN = Pattern.compile(
+            "(?<prefix>.*/)node/containerlogs/(?<container>container_[^/]+)(/[^/]*)?/?");
+
+    private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile(
+            "bytes\\s+(?<first>\\d+)-(?<last>\\d+)/(?<total>\\d+|\\*)");
+
+    private static final int HTTP_PARTIAL_CONTENT = 206;
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+
+    private final HttpObservable http;
+    private final @Nullable YarnContainerLogSource rangeFallback;
+
+    // The NodeManagers found to ignore the `Range` header, by the URL prefix before `node/containerlogs/`
+    private final Set<String> rangeIgnoredNodeManagers = ConcurrentHashMap.newKeySet();
+
+    public YarnNodeManagerRestLogSource(final HttpObservable http) {
+        this(http, null);
+    }
+
+    /**
+     * Constructor with the fallback source for the NodeManagers ignoring the `Range` header.
+     *
+     * @param http the HTTP client to get the NodeManager REST API
+     * @param rangeFallback the source to fetch the byte ranges from the NodeManagers ignoring the `Range` header,
+     *                      or null to slice the ranges from the whole file
+     */
+    public YarnNodeManagerRestLogSource(final HttpObservable http,
+                                        final @Nullable YarnContainerLogSource rangeFallback) {
+        this.http = http;
+        this.rangeFallback = rangeFallback;
+    }
+
+    @Override
+    public String getName() {
+        return "NodeManager REST API";
+    }
+
+    /**
+     * Convert the container logs page URL to the NodeManager REST API log file URL.
+     *
+     * @param containerLogUrl the container logs page URL, such as
+     *                        https://hdicluster.azurehdinsight.net/yarnui/10.0.0.7/port/30060/node/containerlogs/
+     *                        container_1513565654634_0011_01_000002/livy
+     * @param type the log type, such as `stdout`
+     * @return the log file URL, such as https://hdicluster.azurehdinsight.net/yarnui/10.0.0.7/port/30060/ws/v1/node/
+     *         containers/container_1513565654634_0011_01_000002/logs/stdout, or null if the page URL isn't matched
+     */
+    static @Nullable URI toRestLogUrl(final URI containerLogUrl, final String type) {
+        final Matcher matcher = CONTAINER_LOGS_PATH_PATTERN.matcher(containerLogUrl.getPath());
+
+        if (!matcher.matches()) {
+            return null;
+        }
+
+        return containerLogUrl.resolve(matcher.group("prefix")
+                + "ws/v1/node/containers/" + matcher.group("container") + "/logs/" + type);
+    }
+
+    private static @Nullable String getNodeManagerKey(final URI containerLogUrl) {
+        final Matcher matcher = CONTAINER_LOGS_PATH_PATTERN.matcher(containerLogUrl.getPath());
+
+        return matcher.matches() ? containerLogUrl.resolve(matcher.group("prefix")).toString() : null;
+    }
+
+    /**
+     * Check if the NodeManager of a container is found to ignore the `Range` header, so that each ranged fetching
+     * from it downloads the whole file.
+     *
+     * @param containerLogUrl the container logs page URL
+     * @return true if the NodeManager ignores the `Range` header
+     */
+    public boolean isRangeIgnored(final URI containerLogUrl) {
+        final String nodeManagerKey = getNodeManagerKey(containerLogUrl);
+
+        return nodeManagerKey != null && rangeIgnoredNodeManagers.contains(nodeManagerKey);
+    }
+
+    @Override
+    public Observable<SparkLogChunk> fetch(final URI containerLogUrl,
+                                           final String type,
+                                           final long start,
+                                           final int size) {
+        final URI url = toRestLogUrl(containerLogUrl, type);
+
+        if (url == null) {
+            return Observable.error(new IllegalArgumentException(
+                    "Can't get the NodeManager REST log URL from the container logs page " + containerLogUrl));
+        }
+
+        // The whole file is requested without the offset and size, which doesn't need the `Range` header honoured
+        final boolean isRanged = start != 0 || size > 0;
+
+        final YarnContainerLogSource fallback = this.rangeFallback;
+
+        if (fallback != null && isRanged && isRangeIgnored(containerLogUrl)) {
+            return fallback.fetch(containerLogUrl, type, start, size);
+        }
+
+        final String range = start < 0
+                ? "bytes=" + start      // The suffix range, such as `bytes=-4096` for the last 4096 bytes
+                : "bytes=" + start + "-" + (size > 0 ? Long.toString(start + size - 1) : "");
+        final List<Header> headers = Arrays.asList(
+                new BasicHeader(HttpHeaders.RANGE, range),
+                new BasicHeader(HttpHeaders.ACCEPT, "text/plain"));
+
+        return http.request(new HttpGet(url), null, emptyList(), headers)
+                .flatMap(response -> Observable.using(
+                        () -> response,
+                        streamResp -> Observable.fromCallable(() -> {
+                            final SparkLogChunk chunk = sliceLogs(url, streamResp, start, size);
+
+                            if (isRanged && streamResp.getStatusLine().getStatusCode() != HTTP_PARTIAL_CONTENT) {
+                                markRangeIgnored(containerLogUrl);
+                            }
+
+                            return chunk;
+                        }),
+                        streamResp -> {
+                            try {
+                                streamResp.close();
+                            } catch (IOException ignore) {
+                                // The connection will be closed automatically after timeout,
+                                // the exception in closing can be ignored.
+                            }
+                        }))
+                .onErrorResumeNext(err -> err instanceof HttpErrorStatus
+                        && ((HttpErrorStatus) err).getStatusCode() == HTTP_RANGE_NOT_SATISFIABLE
+                        // No logs after the offset yet
+                        ? Observable.just(SparkLogChunk.empty(Math.max(start, 0), true))
+                        : Observable.error(err));
+    }
+
+    private void markRangeIgnored(final URI containerLogUrl) {
+        final String nodeManagerKey = getNodeManagerKey(containerLogUrl);
+
+        if (nodeManagerKey != null && rangeIgnoredNodeManagers.add(nodeManagerKey)) {
+            final YarnContainerLogSource fallback = this.rangeFallback;
+
+            log().info("The NodeManager " + nodeManagerKey + " ignores the HTTP Range header"
+                    + (fallback == null ? "" : ", fetch the log ranges from " + fallback.getName()
+                            + " rather than downloading the whole file each time"));
+        }
+    }
+
+    private SparkLogChunk sliceLogs(final URI url,
+                                    final CloseableHttpResponse response,
+                                    final long start,
+                                    final int size) throws IOException, HttpErrorStatus {
+        final int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode >= 300) {
+            throw classifyHttpError(response);
+        }
+
+        final Header contentType = response.getFirstHeader(HttpHeaders.CONTENT_TYPE);
+        if (contentType != null && StringUtils.containsIgnoreCase(contentType.getValue(), "html")) {
+            // Such as a gateway login or error page, the REST API isn't reachable
+            throw new IOException("Got HTML rather than plain text logs from " + url);
+        }
+
+        final HttpEntity entity = response.getEntity();
+        final byte[] logs = entity == null ? new byte[0] : EntityUtils.toByteArray(entity);
+
+        if (statusCode == HTTP_PARTIAL_CONTENT) {
+            final Header contentRange = response.getFirstHeader(HttpHeaders.CONTENT_RANGE);
+            final Matcher matcher = contentRange == null
+                    ? null
+                    : CONTENT_RANGE_PATTERN.matcher(contentRange.getValue());
+
+            if (matcher != null && matcher.matches()) {
+                final String total = matcher.group("total");
+
+                return new SparkLogChunk(
+                        Long.parseLong(matcher.group("first")),
+                        logs,
+                        !total.equals("*") && Long.parseLong(matcher.group("last")) + 1 >= Long.parseLong(total));
+            }
+
+            if (start < 0) {
+                // The tail start can't be known without the Content-Range
+                return new SparkLogChunk(start, logs, true);
+            }
+
+            return new SparkLogChunk(start, logs, size <= 0 || logs.length < size);
+        }
+
+        // The range is ignored and the whole log file is returned
+        if (start < 0) {
+            final int from = (int) Math.max(logs.length + start, 0);
+
+            return new SparkLogChunk(from, Arrays.copyOfRange(logs, from, logs.length), true);
+        }
+
+        final int from = (int) Math.min(start, logs.length);
+        final int to = size > 0 ? (int) Math.min((long) from + size, logs.length) : logs.length;
+
+        return new SparkLogChunk(from, Arrays.copyOfRange(logs, from, to), to == logs.length);
+    }
+}
@@ -0,0 +1,454 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.microsoft.azure.spark.tools.job.YarnAggregatedLogReader.Cursor;
+import com.microsoft.azure.spark.tools.job.YarnAggregatedLogReader.Segment;
+import com.microsoft.azure.spark.tools.job.YarnAggregatedLogStorage.FileEntry;
+import com.microsoft.azure.spark.tools.job.YarnAppContainerLogHarvester.ContainerLogChunk;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The Yarn TFile log aggregation format, the default of the Hadoop LogAggregationTFileController. A file is a Hadoop
+ * BCFile, whose data blocks are compressed independently, and each record of a data block is a container with the
+ * key of the container ID and the value of the log files. So the data blocks are listed from the BCFile data index
+ * and read as the separate segments.
+ *
+ * <p>Only the `none` and `gz` compressions are supported, which are the Yarn setting
+ * `yarn.nodemanager.log-aggregation.compression-type` values without the native libraries.
+ */
+final class YarnTFileLogFormat {
+    private static final byte[] BCFILE_MAGIC = {
+            (byte) 0xd1, (byte) 0x11, (byte) 0xd3, (byte) 0x68, (byte) 0x91, (byte) 0xb5, (byte) 0xd7, (byte) 0xb6,
+            (byte) 0x39, (byte) 0xdf, (byte) 0x41, (byte) 0x40, (byte) 0x92, (byte) 0xba, (byte) 0xe1, (byte) 0x50 };
+
+    /**
+     * The BCFile trailer of the meta index offset, the API version and the magic.
+     */
+    static final int TRAILER_LENGTH = Long.BYTES + Short.BYTES * 2 + BCFILE_MAGIC.length;
+
+    private static final short API_VERSION_MAJOR = 1;
+    private static final String DATA_INDEX_NAME = "data:BCFile.index";
+    private static final String CONTAINER_KEY_PREFIX = "container_";
+
+    /**
+     * A compressed block in the file.
+     */
+    static final class BlockRegion {
+        private final long offset;
+        private final long compressedSize;
+        private final String compression;
+
+        BlockRegion(final long offset, final long compressedSize, final String compression) {
+            this.offset = offset;
+            this.compressedSize = compressedSize;
+            this.compression = compression;
+        }
+
+        @Override
+        public String toString() {
+            return compression + " block [" + offset + ", " + (offset + compressedSize) + ")";
+        }
+    }
+
+    private YarnTFileLogFormat() {
+    }
+
+    /**
+     * Is a file in the format by the file tail.
+     *
+     * @param tail the last bytes of the file
+     * @return true if the tail ends with the BCFile magic
+     */
+    static boolean matches(final byte[] tail) {
+        return tail.length >= TRAILER_LENGTH
+                && Arrays.equals(
+                        BCFILE_MAGIC, Arrays.copyOfRange(tail, tail.length - BCFILE_MAGIC.length, tail.length));
+    }
+
+    static List<Segment> listSegments(final YarnAggregatedLogReader reader,
+                                      final FileEntry file,
+                                      final String nodeId,
+                                      final @Nullable String containerId) throws IOException {
+        final List<Segment> segments = new ArrayList<>();
+
+        for (BlockRegion block : readDataBlocks(reader, file)) {
+            segments.add(() -> new BlockCursor(reader, file, block, nodeId, containerId));
+        }
+
+        return segments;
+    }
+
+    static List<BlockRegion> readDataBlocks(final YarnAggregatedLogReader reader,
+                                            final FileEntry file) throws IOException {
+        final long trailerOffset = file.getLength() - TRAILER_LENGTH;
+        final DataInputStream trailer = new DataInputStream(new ByteArrayInputStream(
+                reader.readRange(file.getPath(), trailerOffset, TRAILER_LENGTH)));
+        final long metaIndexOffset = trailer.readLong();
+        final short major = trailer.readShort();
+        final short minor = trailer.readShort();
+
+        if (major != API_VERSION_MAJOR) {
+            throw new IOException("Unsupported BCFile version " + major + "." + minor + " of " + file);
+        }
+
+        if (metaIndexOffset < 0 || metaIndexOffset > trailerOffset) {
+            throw new IOException("Broken BCFile meta index offset " + metaIndexOffset + " of " + file);
+        }
+
+        final DataInputStream metaIndex = new DataInputStream(new ByteArrayInputStream(
+                reader.readRange(file.getPath(), metaIndexOffset, (int) (trailerOffset - metaIndexOffset))));
+        final int metaCount = readVInt(metaIndex);
+        BlockRegion dataIndexRegion = null;
+
+        for (int i = 0; i < metaCount; i++) {
+            final String name = readString(metaIndex);
+            final String compression = readString(metaIndex);
+            final BlockRegion region = readBlockRegion(metaIndex, compression);
+
+            if (DATA_INDEX_NAME.equals(name)) {
+                dataIndexRegion = region;
+            }
+        }
+
+        if (dataIndexRegion == null) {
+            throw new IOException("No BCFile data index in " + file);
+        }
+
+        try (DataInputStream dataIndex = new DataInputStream(openBlock(reader, file, dataIndexRegion))) {
+            final String defaultCompression = readString(dataIndex);
+            final int blockCount = readVInt(dataIndex);
+            final List<BlockRegion> blocks = new ArrayList<>(blockCount);
+
+            for (int i = 0; i < blockCount; i++) {
+                blocks.add(readBlockRegion(dataIndex, defaultCompression));
+            }
+
+            return blocks;
+        }
+    }
+
+    private static BlockRegion readBlockRegion(final DataInput in, final String compression) throws IOException {
+        final long offset = readVLong(in);
+        final long compressedSize = readVLong(in);
+        readVLong(in);      // The raw size
+
+        return new BlockRegion(offset, compressedSize, compression);
+    }
+
+    private static InputStream openBlock(final YarnAggregatedLogReader reader,
+                                         final FileEntry file,
+                                         final BlockRegion block) throws IOException {
+        if (block.offset < 0 || block.compressedSize < 0
+                || block.offset + block.compressedSize > file.getLength() - TRAILER_LENGTH) {
+            throw new IOException("Broken " + block + " of " + file);
+        }
+
+        final InputStream raw = reader.openRange(file.getPath(), block.offset, block.compressedSize);
+
+        switch (block.compression) {
+            case "none":
+                return raw;
+            case "gz":
+                // The Hadoop DefaultCodec, which is the zlib format rather than the GZIP one
+                return new InflaterInputStream(raw);
+            default:
+                throw new IOException("Unsupported compression " + block.compression + " of " + file);
+        }
+    }
+
+    /**
+     * Read a variable-length integer encoded by the Hadoop TFile utilities, which is different from the Hadoop
+     * Writable one.
+     */
+    static long readVLong(final DataInput in) throws IOException {
+        final int firstByte = in.readByte();
+
+        if (firstByte >= -32) {
+            return firstByte;
+        }
+
+        switch ((firstByte + 128) / 8) {
+            case 11:
+            case 10:
+            case 9:
+            case 8:
+            case 7:
+                return ((firstByte + 52) << 8) | in.readUnsignedByte();
+            case 6:
+            case 5:
+            case 4:
+            case 3:
+                return ((firstByte + 88) << 16) | in.readUnsignedShort();
+            case 2:
+            case 1:
+                return ((firstByte + 112) << 24) | (in.readUnsignedShort() << 8) | in.readUnsignedByte();
+            case 0:
+                final int length = firstByte + 129;
+
+                switch (length) {
+                    case 4:
+                        return in.readInt();
+                    case 5:
+                        return ((long) in.readInt()) << 8 | in.readUnsignedByte();
+                    case 6:
+                        return ((long) in.readInt()) << 16 | in.readUnsignedShort();
+                    case 7:
+                        return ((long) in.readInt()) << 24 | (in.readUnsignedShort() << 8) | in.readUnsignedByte();
+                    case 8:
+                        return in.readLong();
+                    default:
+                        throw new IOException("Broken VLong encoding of length " + length);
+                }
+            default:
+                throw new IOException("Broken VLong encoding of the first byte " + firstByte);
+        }
+    }
+
+    static int readVInt(final DataInput in) throws IOException {
+        final long value = readVLong(in);
+
+        if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+            throw new IOException("The VInt " + value + " is out of the integer range");
+        }
+
+        return (int) value;
+    }
+
+    private static String readString(final DataInput in) throws IOException {
+        final int length = readVInt(in);
+
+        if (length < 0) {
+            throw new IOException("Unexpected null string");
+        }
+
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void skipFully(final InputStream in, final long length) throws IOException {
+        long remaining = length;
+
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException();
+                }
+
+                skipped = 1;
+            }
+
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * The input stream of a TFile record value written in chunks, each chunk is led by its length, which is negative
+     * for a non-last chunk.
+     */
+    private static final class ChunkDecoder extends InputStream {
+        private final DataInputStream in;
+        private long remaining = 0;
+        private boolean isLastChunk = false;
+
+        private ChunkDecoder(final DataInputStream in) {
+            this.in = in;
+        }
+
+        private boolean hasMore() throws IOException {
+            while (remaining == 0) {
+                if (isLastChunk) {
+                    return false;
+                }
+
+                final int length = readVInt(in);
+                isLastChunk = length >= 0;
+                remaining = Math.abs((long) length);
+            }
+
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!hasMore()) {
+                return -1;
+            }
+
+            final int read = in.read();
+            if (read < 0) {
+                throw new EOFException("The TFile value ends before the chunk end");
+            }
+
+            remaining--;
+
+            return read;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            if (!hasMore()) {
+                return -1;
+            }
+
+            final int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read < 0) {
+                throw new EOFException("The TFile value ends before the chunk end");
+            }
+
+            remaining -= read;
+
+            return read;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            if (n <= 0 || !hasMore()) {
+                return 0;
+            }
+
+            final long skipped = Math.min(n, remaining);
+            skipFully(in, skipped);
+            remaining -= skipped;
+
+            return skipped;
+        }
+
+        /**
+         * Skip the rest of the value, so that the underlying stream is at the next record.
+         */
+        private void skipToEnd() throws IOException {
+            while (hasMore()) {
+                skipFully(in, remaining);
+                remaining = 0;
+            }
+        }
+    }
+
+    /**
+     * The cursor reading the container records of a data block in turn.
+     */
+    private static final class BlockCursor extends Cursor {
+        private final YarnAggregatedLogReader reader;
+        private final String nodeId;
+        private final @Nullable String containerIdToRead;
+        private final PushbackInputStream block;
+        private final DataInputStream blockInput;
+
+        private String containerId = "";
+        private @Nullable ChunkDecoder value = null;
+        private @Nullable DataInputStream valueInput = null;
+
+        private BlockCursor(final YarnAggregatedLogReader reader,
+                            final FileEntry file,
+                            final BlockRegion region,
+                            final String nodeId,
+                            final @Nullable String containerIdToRead) throws IOException {
+            super(reader.getChunkBytes());
+            this.reader = reader;
+            this.nodeId = nodeId;
+            this.containerIdToRead = containerIdToRead;
+            this.block = new PushbackInputStream(openBlock(reader, file, region));
+            this.blockInput = new DataInputStream(block);
+        }
+
+        @Override
+        @Nullable ContainerLogChunk readNext() throws IOException {
+            while (true) {
+                final ContainerLogChunk chunk = readLogChunk();
+                if (chunk != null) {
+                    return chunk;
+                }
+
+                final ChunkDecoder currentValue = this.value;
+                final DataInputStream currentValueInput = this.valueInput;
+
+                if (currentValue != null && currentValueInput != null) {
+                    if (currentValue.hasMore()) {
+                        // Each log file is written as the file name, the length string and the content
+                        final String type = currentValueInput.readUTF();
+                        final long length = Long.parseLong(currentValueInput.readUTF());
+
+                        if (reader.isLogTypeIncluded(type)) {
+                            startLog(containerId, nodeId, type, currentValueInput, length);
+                        } else {
+                            skipFully(currentValueInput, length);
+                        }
+
+                        continue;
+                    }
+
+                    this.value = null;
+                    this.valueInput = null;
+                }
+
+                if (isBlockEnd()) {
+                    return null;
+                }
+
+                final String key = readKey();
+                final ChunkDecoder nextValue = new ChunkDecoder(blockInput);
+
+                // Skip the VERSION, APPLICATION_ACL and APPLICATION_OWNER records and the containers not to read
+                if (!key.startsWith(CONTAINER_KEY_PREFIX)
+                        || (containerIdToRead != null && !containerIdToRead.equals(key))) {
+                    nextValue.skipToEnd();
+
+                    continue;
+                }
+
+                this.containerId = key;
+                this.value = nextValue;
+                this.valueInput = new DataInputStream(nextValue);
+            }
+        }
+
+        private boolean isBlockEnd() throws IOException {
+            final int next = block.read();
+
+            if (next < 0) {
+                return true;
+            }
+
+            block.unread(next);
+
+            return false;
+        }
+
+        private String readKey() throws IOException {
+            final byte[] key = new byte[readVInt(blockInput)];
+            blockInput.readFully(key);
+
+            // The key is written by `DataOutput.writeUTF()`
+            return new DataInputStream(new ByteArrayInputStream(key)).readUTF();
+        }
+
+        @Override
+        public void close() throws IOException {
+            block.close();
+        }
+    }
+}
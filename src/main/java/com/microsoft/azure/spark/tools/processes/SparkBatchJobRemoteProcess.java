@@ -10,6 +10,7 @@ import com.microsoft.azure.spark.tools.events.SparkBatchJobKilledEvent;
 import com.microsoft.azure.spark.tools.events.SparkBatchJobSubmissionEvent;
 import com.microsoft.azure.spark.tools.events.SparkBatchJobSubmittedEvent;
 import com.microsoft.azure.spark.tools.job.DeployableBatch;
+import com.microsoft.azure.spark.tools.job.LivySparkBatch;
 import com.microsoft.azure.spark.tools.job.SparkBatchJob;
 import com.microsoft.azure.spark.tools.job.SparkBatchJobFactory;
 import com.microsoft.azure.spark.tools.job.SparkLogFetcher;
@@ -141,8 +142,26 @@ public class SparkBatchJobRemoteProcess extends Process implements Logger {
 
     public void start() {
         // Build, deploy and wait for the job done.
-        jobSubscription.set(prepareArtifact()
-                .flatMap(this::submitJob)
+        subscribeJobDone(prepareArtifact()
+                .flatMap(this::submitJob));
+    }
+
+    /**
+     * Reattach to a submitted Spark batch job, such as after the client restarts, and wait for the job done.
+     * The log reading is resumed from the offsets recorded in the job journal, if there is.
+     *
+     * @param batchId the batch ID to reattach
+     */
+    public void reattach(final int batchId) {
+        subscribeJobDone(getSparkJob()
+                .reattach(batchId)
+                .subscribeOn(schedulers.processBarVisibleAsync("Reattach the Spark batch job " + batchId))
+                .flatMap(this::startJobSubmissionLogReceiver)
+                .doOnNext(job -> eventSubject.onNext(new SparkBatchJobSubmittedEvent(job))));
+    }
+
+    private void subscribeJobDone(final Observable<? extends SparkBatchJob> submittedJob) {
+        jobSubscription.set(submittedJob
                 .delay(SparkBatchJob::awaitStarted)
                 .flatMap(this::attachInputStreams)
                 .flatMap(this::awaitForJobDone)
@@ -183,6 +202,15 @@ public class SparkBatchJobRemoteProcess extends Process implements Logger {
                 .observeOn(schedulers.processBarVisibleAsync(
                         "Attach Spark batch job outputs " + inputStream.getLogType()))
                 .map(stream -> {
+                    if (job instanceof LivySparkBatch && ((LivySparkBatch) job).getJournal() != null) {
+                        final LivySparkBatch journaledJob = (LivySparkBatch) job;
+                        final String logType = stream.getLogType();
+
+                        stream.resumeFrom(
+                                journaledJob.getJournalLogOffset(logType),
+                                offset -> journaledJob.recordLogOffset(logType, offset));
+                    }
+
                     if (job instanceof SparkLogFetcher) {
                         stream.attachLogFetcher((SparkLogFetcher) job);
                     }
@@ -4,14 +4,29 @@
 package com.microsoft.azure.spark.tools.processes;
 
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.microsoft.azure.spark.tools.job.SparkLogChunk;
 import com.microsoft.azure.spark.tools.job.SparkLogFetcher;
+import com.microsoft.azure.spark.tools.log.Logger;
 import com.microsoft.azure.spark.tools.utils.LaterInit;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+
+/**
+ * The input stream of a Spark job log type, which reads the log chunks from the attached {@link SparkLogFetcher}.
+ * The offset is in bytes of the log file, advanced by the chunk byte range, so that no log is fetched twice.
+ *
+ * <p>The stream reads from the log file start by default. In the tail mode, it starts from the last bytes or lines
+ * of the log file and then follows, so that attaching to a job which has logged a lot doesn't download all logs. With
+ * the maximum lag set, the stream skips to the latest logs once it falls behind the log file end by more than that.
+ */
+public class SparkJobLogInputStream extends InputStream implements Logger {
+    public static final int DEFAULT_TAIL_BYTES = 64 * 1024;
 
-public class SparkJobLogInputStream extends InputStream {
     private String logType;
     private LaterInit<SparkLogFetcher> sparkLogFetcher = new LaterInit<>();
 
@@ -20,6 +35,15 @@ public class SparkJobLogInputStream extends InputStream {
     private long offset = 0;
     private byte[] buffer = new byte[0];
     private int bufferPos;
+    private @Nullable LongConsumer offsetRecorder = null;
+    private long recordedOffset = 0;
+
+    private boolean isTailPending = false;
+    private boolean isTailOffsetUnknown = false;
+    private int tailBytes = DEFAULT_TAIL_BYTES;
+    private int tailLines = 0;
+    private int maxLagBytes = 0;
+    private long skippedBytes = 0;
 
     public SparkJobLogInputStream(final String logType) {
         this.logType = logType;
@@ -31,29 +55,213 @@ public class SparkJobLogInputStream extends InputStream {
         return fetcher;
     }
 
+    /**
+     * Resume the log reading from the offset, such as the one recorded in journal.
+     *
+     * @param resumeOffset the log offset to resume from
+     * @param recorder the consumer to record the log offset after each log slice is consumed
+     */
+    public void resumeFrom(final long resumeOffset, final @Nullable LongConsumer recorder) {
+        this.offset = resumeOffset;
+        this.offsetRecorder = recorder;
+        this.recordedOffset = resumeOffset;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Getter of the log offset consumed by the reader, which is behind the fetched offset by the bytes buffered.
+     *
+     * @return the log offset consumed
+     */
+    public long getConsumedOffset() {
+        return offset - (buffer.length - bufferPos);
+    }
+
+    private void recordConsumedOffset() {
+        final LongConsumer recorder = offsetRecorder;
+        final long consumed = getConsumedOffset();
+
+        // Only the consumed logs are recorded, so that the buffered ones are read again after resuming
+        if (recorder != null && consumed > recordedOffset) {
+            recorder.accept(consumed);
+            recordedOffset = consumed;
+        }
+    }
+
+    /**
+     * Start the reading from the last bytes of the log file, rather than the file start. It's ignored if the offset,
+     * such as the one resumed from, is after the tail start, or the attached fetcher can't tell the tail offset.
+     *
+     * @param lastBytes the bytes from the log file end to start from
+     */
+    public void tail(final int lastBytes) {
+        this.tailBytes = Math.max(1, lastBytes);
+        this.tailLines = 0;
+        this.isTailPending = true;
+    }
+
+    /**
+     * Start the reading from the last lines of the log file, rather than the file start. The lines are looked up in
+     * the tail bytes only, so the reading starts from the first whole line in them if there are fewer lines.
+     *
+     * @param lastLines the lines from the log file end to start from
+     * @param maxTailBytes the maximum bytes from the log file end to look up the lines in
+     */
+    public void tailLines(final int lastLines, final int maxTailBytes) {
+        this.tailBytes = Math.max(1, maxTailBytes);
+        this.tailLines = Math.max(1, lastLines);
+        this.isTailPending = true;
+    }
+
+    public int getMaxLagBytes() {
+        return maxLagBytes;
+    }
+
+    /**
+     * Setter of the maximum bytes the reading could fall behind the log file end. Once the logs after the offset are
+     * more than that, the reading skips to the first whole line of the tail, whose size is the same as the tail mode,
+     * 64 KiB by default. The logs are fetched in the chunks of at most the maximum lag bytes as well.
+     *
+     * @param maxLagBytes the maximum lag bytes, or non-positive to never skip by default
+     */
+    public void setMaxLagBytes(final int maxLagBytes) {
+        this.maxLagBytes = Math.max(0, maxLagBytes);
+    }
+
+    /**
+     * Getter of the bytes skipped since the reading fell behind.
+     *
+     * @return the bytes skipped in total
+     */
+    public long getSkippedBytes() {
+        return skippedBytes;
+    }
+
     @Override
     public int read() throws IOException {
         if (isClosed) {
             return -1;
         }
 
-        if (bufferPos >= buffer.length) {
+        while (bufferPos >= buffer.length) {
+            recordConsumedOffset();
+
             try {
-                final String logSlice = sparkLogFetcher.observable()
-                        .first()
-                        .flatMap(fetcher -> fetcher.fetch(getLogType(), offset, -1))
-                        .toBlocking()
-                        .first();
+                final SparkLogChunk chunk = fetchNextChunk();
 
-                buffer = logSlice.getBytes();
+                buffer = chunk.getBytes();
                 bufferPos = 0;
-                offset += logSlice.length();
+                offset = chunk.getEnd();
             } catch (NoSuchElementException ignored) {
                 return -1;
             }
         }
 
-        return buffer[bufferPos++];
+        // Unsigned, or the bytes of multi-byte characters would be taken as the end of stream
+        return buffer[bufferPos++] & 0xFF;
+    }
+
+    private SparkLogChunk fetchChunk(final long start, final int maxBytes) {
+        return sparkLogFetcher.observable()
+                .first()
+                .flatMap(fetcher -> fetcher.fetchChunk(getLogType(), start, maxBytes))
+                .filter(fetched -> !fetched.isEmpty())
+                .toBlocking()
+                .first();
+    }
+
+    /**
+     * Fetch the tail chunk, unless the attached fetcher can't tell the tail offset, which is warned once and never
+     * asked again, since the logs after a tail starting at the negative offset can't be followed.
+     *
+     * @return the tail chunk, or null if the tail offset is unknown
+     */
+    private @Nullable SparkLogChunk fetchTailChunk() {
+        if (!isTailOffsetUnknown && !sparkLogFetcher.observable().toBlocking().first().isTailOffsetKnown()) {
+            markTailOffsetUnknown();
+        }
+
+        if (isTailOffsetUnknown) {
+            return null;
+        }
+
+        final SparkLogChunk tailChunk = fetchChunk(-tailBytes, -1);
+
+        if (tailChunk.getStart() < 0) {
+            markTailOffsetUnknown();
+
+            return null;
+        }
+
+        return tailChunk;
+    }
+
+    private void markTailOffsetUnknown() {
+        if (!isTailOffsetUnknown) {
+            isTailOffsetUnknown = true;
+            log().warn("Read the " + getLogType() + " logs from the offset " + offset + " without the tail and"
+                    + " the maximum lag, since the log fetcher can't tell the tail offset");
+        }
+    }
+
+    private SparkLogChunk fetchNextChunk() {
+        if (isTailPending) {
+            isTailPending = false;
+
+            final SparkLogChunk tailChunk = fetchTailChunk();
+
+            if (tailChunk != null && tailChunk.getStart() >= offset) {
+                // The byte tail starts at the exact byte as asked
+                return tailLines > 0 ? alignToLines(tailChunk, tailLines) : tailChunk;
+            }
+        }
+
+        final SparkLogChunk chunk = fetchChunk(offset, maxLagBytes);
+
+        if (maxLagBytes > 0 && !chunk.isEof() && chunk.getLength() >= maxLagBytes) {
+            // There are more logs than the maximum lag after the offset
+            final SparkLogChunk latest = fetchTailChunk();
+
+            if (latest != null && latest.getStart() > chunk.getEnd()) {
+                final SparkLogChunk aligned = alignToLines(latest, 0);
+
+                log().info("Skip " + (aligned.getStart() - offset) + " bytes of the " + getLogType()
+                        + " logs, which fall behind more than " + maxLagBytes + " bytes");
+                skippedBytes += aligned.getStart() - offset;
+
+                return aligned;
+            }
+        }
+
+        return chunk;
+    }
+
+    /**
+     * Align a tail chunk to the line start, by dropping the lines before the last lines, or the partial first line
+     * if there are fewer lines or no last lines are asked, such as for skipping to the latest logs.
+     */
+    private SparkLogChunk alignToLines(final SparkLogChunk tailChunk, final int lastLines) {
+        final byte[] bytes = tailChunk.getBytes();
+        // The line break at the end doesn't start a new line
+        final int end = bytes.length > 0 && bytes[bytes.length - 1] == '\n' ? bytes.length - 1 : bytes.length;
+        int lines = 0;
+        int firstLineBreak = -1;
+
+        for (int i = end - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') {
+                lines++;
+                firstLineBreak = i;
+
+                if (lastLines > 0 && lines == lastLines) {
+                    return tailChunk.sliceFrom(i + 1);
+                }
+            }
+        }
+
+        return tailChunk.getStart() > 0 && firstLineBreak >= 0 ? tailChunk.sliceFrom(firstLineBreak + 1) : tailChunk;
     }
 
     public String getLogType() {
@@ -63,6 +271,7 @@ public class SparkJobLogInputStream extends InputStream {
     @Override
     public void close() throws IOException {
         super.close();
+        recordConsumedOffset();
 
         this.isClosed = true;
     }
@@ -0,0 +1,60 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.restapi.ambari.clusters;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.microsoft.azure.spark.tools.restapi.Convertible;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The Ambari `GET /api/v1/clusters/{clusterName}` response, only the fields queried are set, such as
+ * `fields=Clusters/desired_configs` for the config tags in effect.
+ */
+@SuppressWarnings("nullness")
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ClusterResponse implements Convertible {
+    /**
+     * The config version in effect of a config type, such as `core-site`.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class DesiredConfig {
+        private String tag;
+        private long version;
+
+        public String getTag() {
+            return tag;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Clusters {
+        @JsonProperty("cluster_name")
+        private String clusterName;
+
+        @JsonProperty("desired_configs")
+        private Map<String, DesiredConfig> desiredConfigs;
+
+        public String getClusterName() {
+            return clusterName;
+        }
+
+        public Map<String, DesiredConfig> getDesiredConfigs() {
+            return desiredConfigs != null ? desiredConfigs : Collections.emptyMap();
+        }
+    }
+
+    @JsonProperty("Clusters")
+    private Clusters clusters;
+
+    public Map<String, DesiredConfig> getDesiredConfigs() {
+        return clusters != null ? clusters.getDesiredConfigs() : Collections.emptyMap();
+    }
+}
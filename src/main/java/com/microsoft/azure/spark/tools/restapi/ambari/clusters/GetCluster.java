@@ -0,0 +1,19 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.restapi.ambari.clusters;
+
+import org.apache.http.message.BasicNameValuePair;
+
+public final class GetCluster {
+    private GetCluster() {
+        // there is no body in GetCluster request
+        throw new AssertionError("shouldn't be instantiated");
+    }
+
+    public static class FieldsParameter extends BasicNameValuePair {
+        public FieldsParameter(final String... fields) {
+            super("fields", String.join(",", fields));
+        }
+    }
+}
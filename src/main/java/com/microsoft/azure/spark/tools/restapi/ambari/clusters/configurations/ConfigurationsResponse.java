@@ -0,0 +1,49 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.restapi.ambari.clusters.configurations;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.microsoft.azure.spark.tools.restapi.Convertible;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Ambari `GET /api/v1/clusters/{clusterName}/configurations?type={type}&tag={tag}` response, the items are
+ * the config versions matched.
+ */
+@SuppressWarnings("nullness")
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ConfigurationsResponse implements Convertible {
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Configuration {
+        private String type;
+        private String tag;
+        private long version;
+        private Map<String, String> properties;
+
+        public String getType() {
+            return type;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public Map<String, String> getProperties() {
+            return properties != null ? properties : Collections.emptyMap();
+        }
+    }
+
+    private List<Configuration> items;
+
+    public List<Configuration> getItems() {
+        return items != null ? items : Collections.emptyList();
+    }
+}
@@ -0,0 +1,25 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.restapi.ambari.clusters.configurations;
+
+import org.apache.http.message.BasicNameValuePair;
+
+public final class GetConfigurations {
+    private GetConfigurations() {
+        // there is no body in GetConfigurations request
+        throw new AssertionError("shouldn't be instantiated");
+    }
+
+    public static class TypeParameter extends BasicNameValuePair {
+        public TypeParameter(final String type) {
+            super("type", type);
+        }
+    }
+
+    public static class TagParameter extends BasicNameValuePair {
+        public TagParameter(final String tag) {
+            super("tag", tag);
+        }
+    }
+}
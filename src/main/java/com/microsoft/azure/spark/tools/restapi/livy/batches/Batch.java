@@ -3,6 +3,7 @@
 
 package com.microsoft.azure.spark.tools.restapi.livy.batches;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.microsoft.azure.spark.tools.restapi.Convertible;
 
 import java.util.Collections;
@@ -10,8 +11,10 @@ import java.util.List;
 import java.util.Map;
 
 @SuppressWarnings("nullness")
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class Batch implements Convertible {
     private int id;
+    private String name;                    // The batch name, only from Livy 0.6 or later
     private String state;
 
     private String appId;                   // The application ID
@@ -34,7 +37,29 @@ public class Batch implements Convertible {
         return id;
     }
 
+    public String getName() {
+        return name;
+    }
+
     public String getState() {
         return state;
     }
+
+    /**
+     * Copy the batch with another state, such as the state interpreted from the service specific response headers.
+     *
+     * @param newState the state of the copy
+     * @return the batch copied
+     */
+    public Batch withState(final String newState) {
+        final Batch copy = new Batch();
+        copy.id = id;
+        copy.name = name;
+        copy.state = newState;
+        copy.appId = appId;
+        copy.appInfo = appInfo;
+        copy.log = log;
+
+        return copy;
+    }
 }
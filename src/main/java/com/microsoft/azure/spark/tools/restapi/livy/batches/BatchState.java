@@ -3,6 +3,8 @@
 
 package com.microsoft.azure.spark.tools.restapi.livy.batches;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 public enum BatchState {
     NOT_STARTED("not_started"),
     STARTING("starting"),
@@ -13,7 +15,10 @@ public enum BatchState {
     SHUTTING_DOWN("shutting_down"),
     ERROR("error"),
     DEAD("dead"),
-    SUCCESS("success");
+    SUCCESS("success"),
+    KILLED("killed");
+
+    private static final BatchState[] VALUES = values();
 
     private final String state;
 
@@ -21,6 +26,26 @@ public enum BatchState {
         this.state = state;
     }
 
+    /**
+     * Parse the Livy state string case insensitively, without the upper case string allocation of
+     * {@link #valueOf(String)}.
+     *
+     * @param state the Livy state string, such as `running`
+     * @return the state parsed, or null for the unknown state
+     */
+    public static @Nullable BatchState parse(final @Nullable String state) {
+        if (state == null) {
+            return null;
+        }
+
+        for (BatchState value : VALUES) {
+            if (value.state.equalsIgnoreCase(state)) {
+                return value;
+            }
+        }
+
+        return null;
+    }
 
     @Override
     public String toString() {
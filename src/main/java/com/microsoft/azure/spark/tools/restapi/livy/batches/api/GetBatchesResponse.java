@@ -0,0 +1,33 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.restapi.livy.batches.api;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.microsoft.azure.spark.tools.restapi.livy.batches.Batch;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Livy `GET /batches` listing response, the sessions are in the order of creation.
+ */
+@SuppressWarnings("nullness")
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GetBatchesResponse {
+    private int from;
+    private int total;
+    private List<Batch> sessions;
+
+    public int getFrom() {
+        return from;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public List<Batch> getSessions() {
+        return sessions != null ? sessions : Collections.emptyList();
+    }
+}
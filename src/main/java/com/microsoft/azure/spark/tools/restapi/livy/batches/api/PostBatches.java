@@ -3,6 +3,7 @@
 
 package com.microsoft.azure.spark.tools.restapi.livy.batches.api;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.microsoft.azure.spark.tools.functions.StringAction1;
@@ -17,6 +18,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.regex.Pattern;
 
 /**
@@ -133,6 +135,8 @@ public class PostBatches implements Convertible {
 
         private @Nullable Integer yarnNumExecutors = null;
 
+        private @Nullable String submissionKey = null;
+
         /**
          * Set Spark application name.
          *
@@ -145,6 +149,20 @@ public class PostBatches implements Convertible {
             return this;
         }
 
+        /**
+         * Set the client generated submission key to make the submission idempotent. The key is tagged into
+         * the application name and configuration, so that the batch already created by a timed out submission
+         * can be found in the Livy batches listing before resubmitting.
+         *
+         * @param key the unique submission key, such as the one from {@link PostBatches#generateSubmissionKey()}
+         * @return current {@link Options} instance for fluent calling
+         */
+        public Options submissionKey(final String key) {
+            this.submissionKey = key;
+
+            return this;
+        }
+
         /**
          * Set Spark application proxy user.
          *
@@ -342,6 +360,17 @@ public class PostBatches implements Convertible {
             return this;
         }
 
+        /**
+         * Set Spark application Yarn queue to submit to.
+         * @param queue Yarn queue name to set into option, or null for the default queue
+         * @return current {@link Options} instance for fluent calling
+         */
+        public Options setYarnQueue(final @Nullable String queue) {
+            this.yarnQueue = queue;
+
+            return this;
+        }
+
 //        public Options withDefaultExecutorCountMemoryAndCoreSettings() {
 //            this.
 //            this.executorMemory = EXECUTOR_MEMORY_DEFAULT_VALUE;
@@ -383,6 +412,8 @@ public class PostBatches implements Convertible {
             this.jobConfig.clear();
             this.jobConfig.putAll(postBatches.jobConfig);
 
+            this.submissionKey = postBatches.getSubmissionKey();
+
             return this;
         }
 
@@ -413,8 +444,16 @@ public class PostBatches implements Convertible {
                 throw new IllegalArgumentException("Can't find Spark job main class name to submit");
             }
 
+            String appName = this.name;
+            final String key = this.submissionKey;
+
+            if (key != null) {
+                appName = tagName(appName != null ? appName : mainClassName, key);
+                jobConfig.put(SUBMISSION_KEY_CONF, key);
+            }
+
             return new PostBatches(
-                    this.name,
+                    appName,
                     this.proxyUser,
                     file,
                     mainClassName,
@@ -474,6 +513,11 @@ public class PostBatches implements Convertible {
     private static final String EXECUTOR_CORES = "executorCores";
     public static final int EXECUTOR_CORES_DEFAULT_VALUE = 1;
 
+    /**
+     * The Spark configuration key to carry the client generated submission key.
+     */
+    public static final String SUBMISSION_KEY_CONF = "spark.azure.submission.key";
+
     private PostBatches() {
         this.file = "<unset>";
         this.className = "<unset>";
@@ -609,6 +653,44 @@ public class PostBatches implements Convertible {
         return yarnQueue;
     }
 
+    /**
+     * Getter of the client generated submission key.
+     *
+     * @return the submission key, or null if the submission isn't idempotent
+     */
+    @JsonIgnore
+    public @Nullable String getSubmissionKey() {
+        return jobConfig.get(SUBMISSION_KEY_CONF);
+    }
+
+    /**
+     * Generate a random submission key, which is short enough to be tagged into the application name.
+     *
+     * @return the submission key generated
+     */
+    public static String generateSubmissionKey() {
+        return UUID.randomUUID().toString().replace("-", "").substring(0, 16);
+    }
+
+    /**
+     * Checks whether the batch name is tagged with the submission key or not.
+     *
+     * @param name the batch name from Livy, which could be null for the old Livy service
+     * @param key the submission key to check
+     * @return true if the name is tagged with the key; false otherwise
+     */
+    public static boolean isTaggedWith(final @Nullable String name, final String key) {
+        return name != null && name.endsWith(getNameTag(key));
+    }
+
+    private static String tagName(final String name, final String key) {
+        return isTaggedWith(name, key) ? name : name + getNameTag(key);
+    }
+
+    private static String getNameTag(final String key) {
+        return " [" + key + "]";
+    }
+
     /**
      * Checks whether the key is one of Spark Job submission parameters or not.
      *
@@ -0,0 +1,24 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.restapi.livy.batches.api.batchid;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * The response of Livy `GET /batches/{batchId}/state` API, which only carries the batch ID and state.
+ */
+@SuppressWarnings("nullness")
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GetStateResponse {
+    private int id;
+    private String state;
+
+    public int getId() {
+        return id;
+    }
+
+    public String getState() {
+        return state;
+    }
+}
@@ -0,0 +1,54 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.restapi.yarn.nm.apps.appid;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.microsoft.azure.spark.tools.restapi.Convertible;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Yarn NodeManager `GET /ws/v1/node/apps/{appid}` response, with the containers of the application on the node.
+ *
+ * <p>Based on Hadoop 3.0.0, refer to
+ * https://hadoop.apache.org/docs/current/hadoop-yarn/hadoop-yarn-site/NodeManagerRest.html#Application_API
+ */
+@SuppressWarnings("nullness")
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class NodeAppResponse implements Convertible {
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class NodeApp {
+        private String id;                  // The application id
+        private String state;               // The application state on the node, such as RUNNING and FINISHED
+        private String user;                // The user who started the application
+
+        @JsonProperty("containerids")
+        private List<String> containerIds;  // The container ids of the application on the node
+
+        public String getId() {
+            return id;
+        }
+
+        public String getState() {
+            return state;
+        }
+
+        public String getUser() {
+            return user;
+        }
+
+        public List<String> getContainerIds() {
+            // The `containerids` is absent after all containers on the node are cleaned up
+            return containerIds != null ? containerIds : Collections.emptyList();
+        }
+    }
+
+    private NodeApp app;
+
+    public NodeApp getApp() {
+        return app != null ? app : new NodeApp();
+    }
+}
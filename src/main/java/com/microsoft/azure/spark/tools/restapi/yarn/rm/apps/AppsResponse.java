@@ -0,0 +1,33 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.restapi.yarn.rm.apps;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.microsoft.azure.spark.tools.restapi.Convertible;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.App;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Yarn ResourceManager `GET /ws/v1/cluster/apps` listing response, the `apps` is null if no application matched.
+ */
+@SuppressWarnings("nullness")
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AppsResponse implements Convertible {
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Apps {
+        private List<App> app;
+
+        public List<App> getApp() {
+            return app != null ? app : Collections.emptyList();
+        }
+    }
+
+    private Apps apps;
+
+    public List<App> getApps() {
+        return apps != null ? apps.getApp() : Collections.emptyList();
+    }
+}
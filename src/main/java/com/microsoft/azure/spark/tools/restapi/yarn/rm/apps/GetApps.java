@@ -0,0 +1,24 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.restapi.yarn.rm.apps;
+
+import org.apache.http.message.BasicNameValuePair;
+
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.YarnApplicationState;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+public final class GetApps {
+    private GetApps() {
+        // there is no body in GetApps request
+        throw new AssertionError("shouldn't be instantiated");
+    }
+
+    public static class StatesParameter extends BasicNameValuePair {
+        public StatesParameter(final YarnApplicationState... states) {
+            super("states", Arrays.stream(states).map(Enum::name).collect(Collectors.joining(",")));
+        }
+    }
+}
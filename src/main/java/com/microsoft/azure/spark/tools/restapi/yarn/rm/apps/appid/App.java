@@ -215,9 +215,9 @@ public class App implements Convertible {
      * @return true for finished.
      */
     public boolean isFinished() {
-        String stateUpper = this.getState().toUpperCase();
+        YarnApplicationState appState = YarnApplicationState.parse(this.getState());
 
-        return stateUpper.equals("FINISHED") || stateUpper.equals("FAILED") || stateUpper.equals("KILLED");
+        return appState != null && appState.isFinal();
     }
 }
 
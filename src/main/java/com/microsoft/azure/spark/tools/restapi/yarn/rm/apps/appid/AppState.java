@@ -0,0 +1,48 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+package com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.microsoft.azure.spark.tools.restapi.Convertible;
+
+/**
+ * The application state resource, to get the state of an application, or to kill a running application by
+ * putting the `KILLED` state.
+ *
+ * Based on Hadoop 3.0.0, refer to
+ * https://hadoop.apache.org/docs/current/hadoop-yarn/hadoop-yarn-site/ResourceManagerRest.html#Cluster_Application_State_API
+ *
+ * Use the following URI to obtain or update an app state object, from a application identified by the appid value.
+ *   http://$rmHttpAddress:port/ws/v1/cluster/apps/$appid/state
+ *
+ * HTTP Operations Supported
+ *   GET
+ *   PUT
+ *
+ * Query Parameters Supported
+ *   None
+ *
+ * The PUT response is `200 OK` with the `KILLED` state if the application is killed, or `202 Accepted` with
+ * the current state if the killing is still in progress.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@SuppressWarnings("nullness")
+public class AppState implements Convertible {
+    public static final String KILLED = "KILLED";
+
+    private String state;               // The application state - valid values are members of the
+                                        // YarnApplicationState enum: NEW, NEW_SAVING, SUBMITTED, ACCEPTED,
+                                        // RUNNING, FINISHED, FAILED, KILLED
+
+    private AppState() {
+        // For JSON deserialization
+    }
+
+    public AppState(final String state) {
+        this.state = state;
+    }
+
+    public String getState() {
+        return state;
+    }
+}
@@ -0,0 +1,53 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+package com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The application state according to the ResourceManager, the values of {@link App#getState()}.
+ *
+ * Based on Hadoop 3.0.0, refer to
+ * https://hadoop.apache.org/docs/current/api/org/apache/hadoop/yarn/api/records/YarnApplicationState.html
+ */
+public enum YarnApplicationState {
+    NEW,
+    NEW_SAVING,
+    SUBMITTED,
+    ACCEPTED,
+    RUNNING,
+    FINISHED,
+    FAILED,
+    KILLED;
+
+    private static final YarnApplicationState[] VALUES = values();
+
+    /**
+     * Parse the Yarn application state string case insensitively, without the string allocation.
+     *
+     * @param state the Yarn application state string, such as `RUNNING`
+     * @return the state parsed, or null for the unknown state
+     */
+    public static @Nullable YarnApplicationState parse(final @Nullable String state) {
+        if (state == null) {
+            return null;
+        }
+
+        for (YarnApplicationState value : VALUES) {
+            if (value.name().equalsIgnoreCase(state)) {
+                return value;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Is the application finished, failed or killed.
+     *
+     * @return true for the final states
+     */
+    public boolean isFinal() {
+        return this == FINISHED || this == FAILED || this == KILLED;
+    }
+}
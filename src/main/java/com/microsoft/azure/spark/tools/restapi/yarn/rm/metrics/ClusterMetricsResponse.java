@@ -0,0 +1,77 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.restapi.yarn.rm.metrics;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.microsoft.azure.spark.tools.restapi.Convertible;
+
+/**
+ * The Yarn ResourceManager `GET /ws/v1/cluster/metrics` response.
+ *
+ * Based on Hadoop 3.0.0, refer to
+ * https://hadoop.apache.org/docs/current/hadoop-yarn/hadoop-yarn-site/ResourceManagerRest.html#Cluster_Metrics_API
+ */
+@SuppressWarnings("nullness")
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ClusterMetricsResponse implements Convertible {
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ClusterMetrics {
+        private int appsPending;                // The number of applications pending
+        private int appsRunning;                // The number of applications running
+        private long availableMB;               // The amount of memory available in MB
+        private long allocatedMB;               // The amount of memory allocated in MB
+        private long totalMB;                   // The amount of total memory in MB
+        private long availableVirtualCores;     // The number of available virtual cores
+        private long allocatedVirtualCores;     // The number of allocated virtual cores
+        private long totalVirtualCores;         // The total number of virtual cores
+        private int activeNodes;                // The number of active nodes
+        private int unhealthyNodes;             // The number of unhealthy nodes
+
+        public int getAppsPending() {
+            return appsPending;
+        }
+
+        public int getAppsRunning() {
+            return appsRunning;
+        }
+
+        public long getAvailableMB() {
+            return availableMB;
+        }
+
+        public long getAllocatedMB() {
+            return allocatedMB;
+        }
+
+        public long getTotalMB() {
+            return totalMB;
+        }
+
+        public long getAvailableVirtualCores() {
+            return availableVirtualCores;
+        }
+
+        public long getAllocatedVirtualCores() {
+            return allocatedVirtualCores;
+        }
+
+        public long getTotalVirtualCores() {
+            return totalVirtualCores;
+        }
+
+        public int getActiveNodes() {
+            return activeNodes;
+        }
+
+        public int getUnhealthyNodes() {
+            return unhealthyNodes;
+        }
+    }
+
+    private ClusterMetrics clusterMetrics;
+
+    public ClusterMetrics getClusterMetrics() {
+        return clusterMetrics != null ? clusterMetrics : new ClusterMetrics();
+    }
+}
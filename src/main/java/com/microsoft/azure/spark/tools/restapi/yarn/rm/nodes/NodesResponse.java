@@ -0,0 +1,59 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.restapi.yarn.rm.nodes;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.microsoft.azure.spark.tools.restapi.Convertible;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Yarn ResourceManager `GET /ws/v1/cluster/nodes` response.
+ *
+ * Based on Hadoop 3.0.0, refer to
+ * https://hadoop.apache.org/docs/current/hadoop-yarn/hadoop-yarn-site/ResourceManagerRest.html#Cluster_Nodes_API
+ */
+@SuppressWarnings("nullness")
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class NodesResponse implements Convertible {
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Node {
+        private String id;                  // The node id
+        private String state;               // The node state, such as RUNNING, UNHEALTHY and LOST
+        private String nodeHostName;        // The host name of the node
+
+        @JsonProperty("nodeHTTPAddress")
+        private String nodeHttpAddress;     // The NodeManager HTTP address, such as 10.0.0.7:30060
+
+        public String getId() {
+            return id;
+        }
+
+        public String getState() {
+            return state;
+        }
+
+        public String getNodeHostName() {
+            return nodeHostName;
+        }
+
+        public String getNodeHttpAddress() {
+            return nodeHttpAddress;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Nodes {
+        public List<Node> node = Collections.emptyList();
+    }
+
+    private Nodes nodes;
+
+    public List<Node> getNodes() {
+        // The `nodes` is null in the response without any node
+        return nodes != null && nodes.node != null ? nodes.node : Collections.emptyList();
+    }
+}
@@ -0,0 +1,142 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.restapi.yarn.rm.scheduler;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.microsoft.azure.spark.tools.restapi.Convertible;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Yarn ResourceManager `GET /ws/v1/cluster/scheduler` response, only the Capacity Scheduler, which HDInsight
+ * uses, is parsed. The queues are empty for the other schedulers.
+ *
+ * Based on Hadoop 3.0.0, refer to
+ * https://hadoop.apache.org/docs/current/hadoop-yarn/hadoop-yarn-site/ResourceManagerRest.html#Cluster_Scheduler_API
+ */
+@SuppressWarnings("nullness")
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SchedulerResponse implements Convertible {
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Queues {
+        private List<Queue> queue;
+
+        public List<Queue> getQueue() {
+            return queue != null ? queue : Collections.emptyList();
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Queue {
+        private String queueName;               // The name of the queue
+        private float capacity;                 // Configured queue capacity in percentage relative to its parent
+        private float usedCapacity;             // Used queue capacity in percentage
+        private float maxCapacity;              // Configured maximum queue capacity in percentage relative to
+                                                // its parent queue
+        private float absoluteCapacity;         // Absolute capacity percentage this queue can use of
+                                                // entire cluster
+        private float absoluteUsedCapacity;     // Absolute used capacity percentage this queue is using of
+                                                // the entire cluster
+        private float absoluteMaxCapacity;      // Absolute maximum capacity percentage this queue can use of
+                                                // the entire cluster
+        private int numApplications;            // The number of applications currently in the queue
+        private Queues queues;                  // The child queues, for a parent queue
+
+        public String getQueueName() {
+            return queueName;
+        }
+
+        public float getCapacity() {
+            return capacity;
+        }
+
+        public float getUsedCapacity() {
+            return usedCapacity;
+        }
+
+        public float getMaxCapacity() {
+            return maxCapacity;
+        }
+
+        public float getAbsoluteCapacity() {
+            return absoluteCapacity;
+        }
+
+        public float getAbsoluteUsedCapacity() {
+            return absoluteUsedCapacity;
+        }
+
+        public float getAbsoluteMaxCapacity() {
+            return absoluteMaxCapacity;
+        }
+
+        public int getNumApplications() {
+            return numApplications;
+        }
+
+        public List<Queue> getQueues() {
+            return queues != null ? queues.getQueue() : Collections.emptyList();
+        }
+
+        /**
+         * Get the leaf queues under this queue, which the applications are submitted to.
+         *
+         * @return the leaf queues, or this queue itself if it's a leaf queue
+         */
+        public List<Queue> getLeafQueues() {
+            if (getQueues().isEmpty()) {
+                return Collections.singletonList(this);
+            }
+
+            final List<Queue> leafQueues = new ArrayList<>();
+            for (Queue child : getQueues()) {
+                leafQueues.addAll(child.getLeafQueues());
+            }
+
+            return leafQueues;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class SchedulerInfo extends Queue {
+        private String type;                    // Scheduler type, such as `capacityScheduler`
+
+        public String getType() {
+            return type;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Scheduler {
+        private SchedulerInfo schedulerInfo;
+
+        public SchedulerInfo getSchedulerInfo() {
+            return schedulerInfo;
+        }
+    }
+
+    private Scheduler scheduler;
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Get the leaf queues of the Capacity Scheduler.
+     *
+     * @return the leaf queues, or empty for the other schedulers
+     */
+    public List<Queue> getLeafQueues() {
+        if (scheduler == null || scheduler.getSchedulerInfo() == null
+                || !"capacityScheduler".equals(scheduler.getSchedulerInfo().getType())) {
+            return Collections.emptyList();
+        }
+
+        return scheduler.getSchedulerInfo().getQueues().isEmpty()
+                ? Collections.emptyList()
+                : scheduler.getSchedulerInfo().getLeafQueues();
+    }
+}
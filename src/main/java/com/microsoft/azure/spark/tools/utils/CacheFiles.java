@@ -0,0 +1,70 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+public final class CacheFiles {
+    private CacheFiles() {
+    }
+
+    /**
+     * Write the value as JSON into the cache file through a temporary file in the same directory, which is moved
+     * atomically if the file system supports, so that the readers never see a partially written cache file. The
+     * temporary file is created only readable and writable by the owner on POSIX file systems, and removed if the
+     * writing fails.
+     *
+     * @param file the cache file
+     * @param objectMapper the JSON object mapper to write the value with
+     * @param value the value to write
+     * @throws IOException for the cache file not written
+     */
+    public static void writeAtomically(final File file, final ObjectMapper objectMapper, final Object value)
+            throws IOException {
+        final Path target = file.getAbsoluteFile().toPath();
+        final Path dir = target.getParent();
+
+        if (dir == null) {
+            throw new IOException("No parent directory of the cache file " + file);
+        }
+
+        Files.createDirectories(dir);
+        final Path temp = Files.createTempFile(dir, file.getName(), ".tmp");
+
+        try {
+            objectMapper.writeValue(temp.toFile(), value);
+            moveAtomically(temp, target);
+        } catch (IOException ex) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Best effort to clean up
+            }
+
+            throw ex;
+        }
+    }
+
+    /**
+     * Move the file written completely to replace the target one, atomically if the file system supports.
+     *
+     * @param source the file written completely, in the same directory as the target one
+     * @param target the file to replace
+     * @throws IOException for the file not moved
+     */
+    public static void moveAtomically(final Path source, final Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.clusters;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+
+import com.microsoft.azure.spark.tools.http.AmbariHttpObservable;
+import com.microsoft.azure.spark.tools.job.AzureBlobStorageDeploy;
+import com.microsoft.azure.spark.tools.utils.MockHttpService;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AmbariConfigurationClientScenario {
+    private MockHttpService httpServerMock;
+    private AmbariConfigurationClient client;
+    private Map<String, String> configGot;
+    private HdiClusterMetadata metadataFetched;
+    private Throwable configError;
+
+    @Before("@AmbariConfigurationClientScenario")
+    public void setUp() {
+        httpServerMock = MockHttpService.create();
+    }
+
+    @After("@AmbariConfigurationClientScenario")
+    public void cleanUp() {
+        httpServerMock.stop();
+    }
+
+    private AmbariConfigurationClient getClient(String clusterName, String user) {
+        if (client == null) {
+            client = new AmbariConfigurationClient(httpServerMock.completeUrl("/"), clusterName, user, "password",
+                    new AmbariHttpObservable(user, "password"));
+        }
+
+        return client;
+    }
+
+    @Given("mock Ambari cluster {string} desired config {string} with tag {string}")
+    public void mockAmbariClusterDesiredConfig(String clusterName, String type, String tag) {
+        WireMock.configureFor(httpServerMock.getPort());
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/api/v1/clusters/" + clusterName))
+                .withQueryParam("fields", WireMock.equalTo("Clusters/desired_configs"))
+                .willReturn(WireMock.aResponse().withStatus(200).withBody(
+                        "{\"Clusters\": {\"cluster_name\": \"" + clusterName + "\", \"desired_configs\": {\""
+                                + type + "\": {\"tag\": \"" + tag + "\", \"version\": 1}}}}")));
+    }
+
+    @Given("mock Ambari cluster {string} config {string} with tag {string} and properties")
+    public void mockAmbariClusterConfig(String clusterName, String type, String tag, Map<String, String> props) {
+        String propsJson = props.entrySet().stream()
+                .map(entry -> "\"" + entry.getKey() + "\": \"" + entry.getValue() + "\"")
+                .collect(Collectors.joining(", "));
+
+        WireMock.configureFor(httpServerMock.getPort());
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/api/v1/clusters/" + clusterName + "/configurations"))
+                .withQueryParam("type", WireMock.equalTo(type))
+                .withQueryParam("tag", WireMock.equalTo(tag))
+                .willReturn(WireMock.aResponse().withStatus(200).withBody(
+                        "{\"items\": [{\"type\": \"" + type + "\", \"tag\": \"" + tag + "\", \"version\": 1, "
+                                + "\"properties\": {" + propsJson + "}}]}")));
+    }
+
+    @When("get the core site config of Ambari cluster {string} {int} times")
+    public void getTheCoreSiteConfigOfAmbariCluster(String clusterName, int times) {
+        for (int i = 0; i < times; i++) {
+            configGot = getClient(clusterName, "admin").getCoreSiteConfig().toBlocking().single();
+        }
+    }
+
+    @When("get the config {string} of Ambari cluster {string}")
+    public void getTheConfigOfAmbariCluster(String type, String clusterName) {
+        configError = null;
+
+        try {
+            configGot = getClient(clusterName, "admin").getConfig(type).toBlocking().single();
+        } catch (Exception ex) {
+            configError = ex;
+        }
+    }
+
+    @When("fetch the HDInsight cluster metadata of Ambari cluster {string} with user {string}")
+    public void fetchTheHDInsightClusterMetadata(String clusterName, String user) {
+        metadataFetched = getClient(clusterName, user).fetchMetadata().toBlocking().single();
+    }
+
+    @Then("check the core site config got should have {string} = {string}")
+    public void checkTheCoreSiteConfigGotShouldHave(String key, String expectValue) {
+        assertEquals(expectValue, configGot.get(key));
+    }
+
+    @Then("check the Ambari configs fetched should be {int}")
+    public void checkTheAmbariConfigsFetchedShouldBe(int expectFetches) {
+        assertEquals(expectFetches, client.getConfigFetches());
+    }
+
+    @Then("check the HDInsight cluster metadata should have HTTP user {string} and default storage account {string}")
+    public void checkTheHDInsightClusterMetadata(String expectUser, String expectStorageAccount) {
+        assertEquals(expectUser, metadataFetched.getHttpUserName());
+        assertEquals(httpServerMock.completeUrl("/livy/"), metadataFetched.getLivyConnectionUrl());
+
+        AzureBlobStorageDeploy deploy = (AzureBlobStorageDeploy) metadataFetched.createDefaultDeployable();
+        assertEquals(expectStorageAccount, deploy.getFsRoot().getStorageAccount());
+    }
+
+    @Then("check the Ambari config getting error should be {string}")
+    public void checkTheAmbariConfigGettingErrorShouldBe(String expectMessage) {
+        assertTrue(configError instanceof IllegalArgumentException);
+        assertEquals(expectMessage, configError.getMessage());
+    }
+}
@@ -0,0 +1,114 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.clusters;
+
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import rx.Observable;
+import rx.schedulers.TestScheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class HdiClusterMetadataCacheScenario {
+    private File cacheFile;
+    private long ttlMillis;
+    private TestScheduler scheduler;
+    private HdiClusterMetadataCache cache;
+    private AtomicInteger loaderCalls;
+    private Observable<HdiClusterMetadata> loader;
+    private HdiClusterMetadata metadataGot;
+
+    @Before("@HdiClusterMetadataCacheScenario")
+    public void setUp() throws IOException {
+        cacheFile = Files.createTempFile("hdi-cluster-metadata", ".json").toFile();
+        Files.delete(cacheFile.toPath());
+        scheduler = new TestScheduler();
+        loaderCalls = new AtomicInteger();
+    }
+
+    @After("@HdiClusterMetadataCacheScenario")
+    public void cleanUp() throws IOException {
+        Files.deleteIfExists(cacheFile.toPath());
+    }
+
+    @Given("open the HDInsight cluster metadata cache with TTL {int} milliseconds")
+    public void openTheHDInsightClusterMetadataCache(int ttl) {
+        ttlMillis = ttl;
+        cache = HdiClusterMetadataCache.open(cacheFile, ttlMillis, scheduler);
+    }
+
+    @And("the cluster metadata loader returns {string} with default FS {string}")
+    public void theClusterMetadataLoaderReturns(String connectionUrl, String defaultFS) {
+        Map<String, String> coreSite = new HashMap<>();
+        coreSite.put("fs.defaultFS", defaultFS);
+
+        Map<String, String> gatewayConf = new HashMap<>();
+        gatewayConf.put("restAuthCredential.isEnabled", "true");
+        gatewayConf.put("restAuthCredential.username", "admin");
+        gatewayConf.put("restAuthCredential.password", "password");
+
+        loader = Observable.fromCallable(() -> {
+            loaderCalls.incrementAndGet();
+
+            return new HdiClusterMetadata("hdicluster", connectionUrl, coreSite, gatewayConf, 0);
+        });
+    }
+
+    @When("get the cluster metadata of {string} from cache")
+    public void getTheClusterMetadataFromCache(String key) {
+        metadataGot = cache.get(key, loader).toBlocking().single();
+    }
+
+    @When("reopen the HDInsight cluster metadata cache")
+    public void reopenTheHDInsightClusterMetadataCache() {
+        cache = HdiClusterMetadataCache.open(cacheFile, ttlMillis, scheduler);
+    }
+
+    @When("advance {int} milliseconds and get the cluster metadata of {string} from cache twice")
+    public void advanceAndGetTheClusterMetadataTwice(int millis, String key) {
+        scheduler.advanceTimeBy(millis, TimeUnit.MILLISECONDS);
+
+        getTheClusterMetadataFromCache(key);
+        getTheClusterMetadataFromCache(key);
+    }
+
+    @When("run the background cluster metadata refreshing")
+    public void runTheBackgroundClusterMetadataRefreshing() {
+        scheduler.triggerActions();
+    }
+
+    @Given("write {string} into the HDInsight cluster metadata cache file")
+    public void writeIntoTheHDInsightClusterMetadataCacheFile(String content) throws IOException {
+        Files.write(cacheFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Then("check the cluster metadata loader should be called {int} times")
+    public void checkTheClusterMetadataLoaderShouldBeCalled(int expectCalls) {
+        assertEquals(expectCalls, loaderCalls.get());
+    }
+
+    @Then("check the cluster metadata got should have Livy URL {string} and Yarn NM URL {string}")
+    public void checkTheClusterMetadataGotShouldHaveURLs(String expectLivyUrl, String expectYarnNMUrl) {
+        assertEquals(expectLivyUrl, metadataGot.getLivyConnectionUrl());
+        assertEquals(expectYarnNMUrl, metadataGot.getYarnNMConnectionUrl());
+    }
+
+    @Then("check the cluster metadata got should have HTTP user {string}")
+    public void checkTheClusterMetadataGotShouldHaveHTTPUser(String expectUser) {
+        assertEquals(expectUser, metadataGot.getHttpUserName());
+    }
+}
@@ -3,6 +3,7 @@
 
 package com.microsoft.azure.spark.tools.job;
 
+import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.extension.Parameters;
 import com.nimbusds.jose.util.Base64;
 import cucumber.api.Scenario;
@@ -11,11 +12,13 @@ import cucumber.api.java.Before;
 import cucumber.api.java.en.And;
 import cucumber.api.java.en.Given;
 import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpHeaders;
 import org.mockito.Mockito;
 import picocli.CommandLine;
+import rx.subjects.PublishSubject;
 import uk.org.lidalia.slf4jext.Level;
 import uk.org.lidalia.slf4jtest.LoggingEvent;
 import wiremock.com.google.common.collect.ImmutableMap;
@@ -24,6 +27,7 @@ import com.microsoft.azure.spark.tools.clusters.ArcadiaCompute;
 import com.microsoft.azure.spark.tools.http.AuthorizationHeaderTransformer;
 import com.microsoft.azure.spark.tools.http.AzureHttpObservable;
 import com.microsoft.azure.spark.tools.http.AzureOAuthTokenFetcher;
+import com.microsoft.azure.spark.tools.http.HttpObservable;
 import com.microsoft.azure.spark.tools.http.OAuthTokenHttpObservable;
 import com.microsoft.azure.spark.tools.http.SparkConfBodyTransformer;
 import com.microsoft.azure.spark.tools.log.Slf4jTestLogApacheAdapter;
@@ -42,7 +46,9 @@ import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.recordSpec;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.microsoft.azure.spark.tools.utils.LogMonitor.cleanUpAllLogs;
 import static com.microsoft.azure.spark.tools.utils.LogMonitor.cleanUpSparkToolsLogs;
 import static com.microsoft.azure.spark.tools.utils.LogMonitor.getPackageLogsStream;
@@ -61,6 +67,7 @@ public class ArcadiaSparkBatchScenario implements Callable<Void> {
     private SparkBatchJobRemoteProcess sparkJobRemoteProcess;
     private Options sparkParameterOptions = new Options();
     private OAuthTokenHttpObservable oauthHttp;
+    private ArcadiaSparkBatch arcadiaBatch;
 
     @Before
     public void setUpGlobal() {
@@ -118,12 +125,12 @@ public class ArcadiaSparkBatchScenario implements Callable<Void> {
     }
 
     @And("submit Arcadia Spark job")
-    public void submitArcadiaSparkJob() {
+    public void submitArcadiaSparkJob() throws InterruptedException {
         cleanUpSparkToolsLogs();
 
         sparkJobRemoteProcess = createSparkJobRemoteProcess(arcadiaServiceMock, sparkParameterOptions);
         sparkJobRemoteProcess.start();
-        assertEquals(0, sparkJobRemoteProcess.exitValue());
+        assertEquals(0, sparkJobRemoteProcess.waitFor());
     }
 
     @Then("no any error after submitting Arcadia Spark job")
@@ -137,6 +144,49 @@ public class ArcadiaSparkBatchScenario implements Callable<Void> {
         }
     }
 
+    @And("check the Arcadia Spark job state should be {string} with scheduler state {string}")
+    public void checkTheArcadiaSparkJobState(String expectedState, String expectedSchedulerState) {
+        ArcadiaSparkBatch job = (ArcadiaSparkBatch) sparkJobRemoteProcess.getSparkJob();
+
+        assertEquals(expectedState, job.getState());
+        assertEquals(expectedSchedulerState, job.getSchedulerState());
+    }
+
+    @Given("stub the Arcadia GET request {string} to return {string} with scheduler state {string} and job result "
+            + "{string}")
+    public void stubTheArcadiaGetRequest(String uri, String response, String schedulerState, String jobResult) {
+        arcadiaServiceMock.stubWithHeader("GET", uri, 200, response, ImmutableMap.of(
+                ArcadiaSparkBatch.SCHEDULER_STATE_HEADER, schedulerState,
+                ArcadiaSparkBatch.JOB_RESULT_HEADER, jobResult));
+    }
+
+    @When("poll the state of Arcadia Spark batch {int}")
+    public void pollTheStateOfArcadiaSparkBatch(int batchId) {
+        arcadiaBatch = new ArcadiaSparkBatch(
+                createArcadiaCompute(arcadiaServiceMock),
+                new Options()
+                        .name("poll")
+                        .className("sample.SparkPi")
+                        .artifactUri("wasbs://container@account.blob.core.windows.net/sample.jar")
+                        .build(),
+                new HttpObservable(),
+                PublishSubject.create(),
+                Mockito.mock(Deployable.class));
+        arcadiaBatch.getLaterBatchId().set(batchId);
+        arcadiaBatch.pollState("poll").toBlocking().single();
+    }
+
+    @Then("check the Arcadia Spark batch polled should be {string} with scheduler state {string}")
+    public void checkTheArcadiaSparkBatchPolled(String expectedState, String expectedSchedulerState) {
+        assertEquals(expectedState, arcadiaBatch.getState());
+        assertEquals(expectedSchedulerState, arcadiaBatch.getSchedulerState());
+    }
+
+    @Then("check the Arcadia GET request {string} should be sent {int} times")
+    public void checkTheArcadiaGetRequestShouldBeSent(String uri, int count) {
+        WireMock.verify(count, getRequestedFor(urlEqualTo(uri)));
+    }
+
     @CommandLine.Mixin
     private MockHttpRecordingArgs recordingArgs = new MockHttpRecordingArgs();
 
@@ -164,8 +214,8 @@ public class ArcadiaSparkBatchScenario implements Callable<Void> {
     @CommandLine.Option(names = "--dry-run", description = "Dry run without saving response")
     private boolean isDryRun;
 
-    private SparkBatchJobRemoteProcess createSparkJobRemoteProcess(MockHttpService recordingProxyService, Options options) {
-        ArcadiaCompute cluster = new ArcadiaCompute() {
+    private ArcadiaCompute createArcadiaCompute(MockHttpService recordingProxyService) {
+        return new ArcadiaCompute() {
             @Override
             public String getWorkspace() {
                 return workspace;
@@ -176,6 +226,10 @@ public class ArcadiaSparkBatchScenario implements Callable<Void> {
                 return "http://localhost:" + recordingProxyService.getPort() + "/";
             }
         };
+    }
+
+    private SparkBatchJobRemoteProcess createSparkJobRemoteProcess(MockHttpService recordingProxyService, Options options) {
+        ArcadiaCompute cluster = createArcadiaCompute(recordingProxyService);
 
         OAuthTokenHttpObservable http = this.oauthHttp != null
                 ? this.oauthHttp
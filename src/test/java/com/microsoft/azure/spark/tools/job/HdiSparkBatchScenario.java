@@ -3,5 +3,127 @@
 
 package com.microsoft.azure.spark.tools.job;
 
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import org.apache.commons.io.IOUtils;
+import rx.Observable;
+import rx.subjects.PublishSubject;
+
+import com.microsoft.azure.spark.tools.clusters.HdiCluster;
+import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.processes.SparkJobLogInputStream;
+import com.microsoft.azure.spark.tools.restapi.livy.batches.api.PostBatches;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
 public class HdiSparkBatchScenario {
+    /**
+     * The driver log fetcher of a growing log file in memory, which tells the exact tail offset.
+     */
+    private static class InMemoryDriverLogFetcher implements SparkLogFetcher {
+        private final ByteArrayOutputStream logs = new ByteArrayOutputStream();
+
+        @Override
+        public Observable<String> fetch(String type, long logOffset, int size) {
+            return fetchChunk(type, logOffset, size).map(SparkLogChunk::getText);
+        }
+
+        @Override
+        public Observable<SparkLogChunk> fetchChunk(String type, long byteOffset, int maxBytes) {
+            byte[] content = logs.toByteArray();
+            int from = (int) (byteOffset < 0
+                    ? Math.max(content.length + byteOffset, 0)
+                    : Math.min(byteOffset, content.length));
+            int to = byteOffset >= 0 && maxBytes > 0 ? Math.min(from + maxBytes, content.length) : content.length;
+
+            return from == to
+                    ? Observable.empty()
+                    : Observable.just(new SparkLogChunk(from, Arrays.copyOfRange(content, from, to),
+                                                        to == content.length));
+        }
+
+        @Override
+        public boolean isTailOffsetKnown() {
+            return true;
+        }
+    }
+
+    private HdiSparkBatch batch;
+    private InMemoryDriverLogFetcher driverLogFetcher;
+    private SparkJobLogInputStream inputStream;
+    private StringBuilder logsRead = new StringBuilder();
+
+    private static String unescape(String logs) {
+        return logs.replace("\\n", "\n");
+    }
+
+    @Given("create a HDInsight Spark batch job")
+    public void createAHDInsightSparkBatchJob() {
+        batch = new HdiSparkBatch(
+                mock(HdiCluster.class),
+                new PostBatches.Options()
+                        .name("hdi")
+                        .className("sample.SparkPi")
+                        .artifactUri("wasbs://container@account.blob.core.windows.net/sample.jar")
+                        .build(),
+                new HttpObservable(),
+                PublishSubject.create(),
+                mock(Deployable.class));
+    }
+
+    @When("locate the driver log fetcher of the HDInsight Spark batch job with the logs {string}")
+    public void locateTheDriverLogFetcherWithTheLogs(String logs) throws IOException {
+        driverLogFetcher = new InMemoryDriverLogFetcher();
+        driverLogFetcher.logs.write(unescape(logs).getBytes(UTF_8));
+        batch.getDriverLogFetcherDelegate().setIfNull(driverLogFetcher);
+    }
+
+    @Then("check the HDInsight Spark batch job should know the driver log tail offset: {string}")
+    public void checkTheHDInsightSparkBatchJobShouldKnowTheDriverLogTailOffset(String isKnown) {
+        assertEquals(Boolean.parseBoolean(isKnown), batch.isTailOffsetKnown());
+    }
+
+    @And("create a log input stream of the HDInsight Spark batch job {string} logs with the last {int} lines in "
+            + "{int} bytes and the max lag {int} bytes")
+    public void createALogInputStreamOfTheHDInsightSparkBatchJob(String type,
+                                                                 int lastLines,
+                                                                 int maxTailBytes,
+                                                                 int maxLagBytes) {
+        inputStream = new SparkJobLogInputStream(type);
+        inputStream.attachLogFetcher(batch);
+        inputStream.tailLines(lastLines, maxTailBytes);
+        inputStream.setMaxLagBytes(maxLagBytes);
+    }
+
+    @And("append the HDInsight Spark batch job driver logs {string}")
+    public void appendTheHDInsightSparkBatchJobDriverLogs(String logs) throws IOException {
+        driverLogFetcher.logs.write(unescape(logs).getBytes(UTF_8));
+    }
+
+    @When("read {int} bytes from the HDInsight Spark batch job log input stream")
+    public void readBytesFromTheHDInsightSparkBatchJobLogInputStream(int size) throws IOException {
+        byte[] bytes = new byte[size];
+
+        IOUtils.readFully(inputStream, bytes);
+        logsRead.append(new String(bytes, UTF_8));
+    }
+
+    @When("read the HDInsight Spark batch job log input stream to the end")
+    public void readTheHDInsightSparkBatchJobLogInputStreamToTheEnd() throws IOException {
+        logsRead.append(IOUtils.toString(inputStream, UTF_8));
+    }
+
+    @Then("check the HDInsight Spark batch job logs read should be {string} with {int} bytes skipped")
+    public void checkTheHDInsightSparkBatchJobLogsRead(String expectLogs, int expectSkippedBytes) {
+        assertEquals(unescape(expectLogs), logsRead.toString());
+        assertEquals(expectSkippedBytes, inputStream.getSkippedBytes());
+    }
 }
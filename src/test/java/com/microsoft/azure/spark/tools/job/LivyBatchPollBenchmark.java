@@ -0,0 +1,107 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.microsoft.azure.spark.tools.restapi.livy.batches.Batch;
+import com.microsoft.azure.spark.tools.restapi.livy.batches.api.batchid.GetStateResponse;
+import com.microsoft.azure.spark.tools.utils.JsonConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the response handling cost of one job status poll between the full batch `GET /batches/{batchId}`
+ * and the `GET /batches/{batchId}/state` API. Run with the main method, the GC profiler reports the allocated
+ * bytes per poll as `gc.alloc.rate.norm`, and the response payload received is reported as the `bytes` rate
+ * next to the poll rate, the ratio of which is the payload bytes per poll.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LivyBatchPollBenchmark {
+    private String fullBatchResponse = "";
+    private String stateResponse = "";
+    private int fullBatchResponseBytes = 0;
+    private int stateResponseBytes = 0;
+
+    /**
+     * The response payload received by the polls, counted as operations to be reported in the same rate unit as
+     * the polls.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ResponsePayload {
+        public long bytes = 0;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        // Livy carries the last 100 submission log lines in the full batch response
+        String logs = IntStream.range(0, 100)
+                .mapToObj(i -> String.format("\"19/06/12 08:%02d:%02d INFO Client: Application report for "
+                        + "application_1560324880016_0001 (state: RUNNING)\"", i / 60, i % 60))
+                .collect(Collectors.joining(","));
+
+        fullBatchResponse = "{\"id\":261,\"state\":\"running\",\"appId\":\"application_1560324880016_0001\","
+                + "\"appInfo\":{\"driverLogUrl\":\"https://spark.azurehdinsight.net/yarnui/10.0.0.15/node/"
+                + "containerlogs/container_e02_1560324880016_0001_01_000001/livy\","
+                + "\"sparkUiUrl\":\"https://spark.azurehdinsight.net/yarnui/hn/proxy/"
+                + "application_1560324880016_0001/\"},"
+                + "\"log\":[" + logs + "]}";
+        stateResponse = "{\"id\":261,\"state\":\"running\"}";
+        fullBatchResponseBytes = fullBatchResponse.getBytes(StandardCharsets.UTF_8).length;
+        stateResponseBytes = stateResponse.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Benchmark
+    public Object pollFullBatch(final ResponsePayload payload) {
+        payload.bytes += fullBatchResponseBytes;
+
+        return JsonConverter.of(Batch.class).parseFrom(fullBatchResponse);
+    }
+
+    @Benchmark
+    public Object pollState(final ResponsePayload payload) {
+        payload.bytes += stateResponseBytes;
+
+        return JsonConverter.of(GetStateResponse.class).parseFrom(stateResponse);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(LivyBatchPollBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,126 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.microsoft.azure.spark.tools.job.LivySparkBatch.LivyLogType;
+import com.microsoft.azure.spark.tools.utils.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UnknownFormatConversionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Compares the Livy log page parsing between the legacy per page map collecting and {@link LivyLogParser}.
+ * The `running` page is 128 driver output lines, and the `finished` page has the driver output tail followed by
+ * the `stderr` and `YARN Diagnostics` sections. Run with the main method to get the allocations by GC profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LivyLogParserBenchmark {
+    @Param({ "running", "finished" })
+    public String page = "running";
+
+    private List<String> pageLogs = emptyList();
+    private final LivyLogParser parser = new LivyLogParser(LivyLogType.STDOUT);
+
+    @Setup
+    public void setUp() {
+        Stream<String> driverLogs = IntStream.range(0, 128)
+                .mapToObj(i -> String.format("19/06/12 08:%02d:%02d INFO Client: Application report for "
+                        + "application_1560324880016_0001 (state: RUNNING)", i / 60, i % 60));
+
+        pageLogs = page.equals("running")
+                ? driverLogs.collect(Collectors.toList())
+                : Stream.concat(driverLogs.limit(100), Stream.of(
+                        "\nstderr: ",
+                        "19/06/12 08:02:00 WARN NativeCodeLoader: Unable to load native-hadoop library",
+                        "\nYARN Diagnostics: ",
+                        "Application application_1560324880016_0001 finished with failed status"))
+                        .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Object legacyParseLivyLogs() {
+        // The per page map collecting implementation before LivyLogParser
+        LivyLogType logTypeFound = LivyLogType.STDOUT;
+        final Map<LivyLogType, List<String>> logsParsed = Arrays.stream(LivyLogType.values())
+                .map(logType -> Pair.of(logType, (List<String>) new ArrayList<String>()))
+                .collect(Collectors.toMap(Pair::getFirst, Pair::getSecond));
+
+        for (String log : pageLogs) {
+            for (LivyLogType logTypeToTest : LivyLogType.values()) {
+                if (StringUtils.startsWithIgnoreCase(log, logTypeToTest.getTitlePrefix())) {
+                    if (!logsParsed.getOrDefault(logTypeToTest, emptyList()).isEmpty()) {
+                        throw new UnknownFormatConversionException("Duplicated log type " + logTypeToTest + " found.");
+                    }
+
+                    logTypeFound = logTypeToTest;
+                    break;
+                }
+            }
+
+            logsParsed.get(logTypeFound).add(log);
+        }
+
+        return logsParsed.get(LivyLogType.STDOUT).size();
+    }
+
+    @Benchmark
+    public Object streamingParseAll() {
+        int stdoutCount = 0;
+        parser.reset(LivyLogType.STDOUT);
+
+        for (String log : pageLogs) {
+            if (parser.parse(log) == LivyLogType.STDOUT) {
+                stdoutCount++;
+            }
+        }
+
+        return stdoutCount;
+    }
+
+    @Benchmark
+    public Object streamingParseSection() {
+        return pageLogs.subList(0, parser.reset(LivyLogType.STDOUT).parseSection(pageLogs)).size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(LivyLogParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,133 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import org.apache.commons.lang3.StringUtils;
+import rx.subjects.PublishSubject;
+
+import com.microsoft.azure.spark.tools.clusters.HdiCluster;
+import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.restapi.livy.batches.api.PostBatches;
+import com.microsoft.azure.spark.tools.utils.MockHttpService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.delete;
+import static com.github.tomakehurst.wiremock.client.WireMock.put;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LivySparkBatchKillerScenario {
+    private MockHttpService httpServerMock;
+    private HttpObservable http;
+    private List<LivySparkBatch> jobs = new ArrayList<>();
+    private List<LivySparkBatchKiller.Result> results = new ArrayList<>();
+    private long elapsedMillis = 0;
+
+    @Before("@LivySparkBatchKillerScenario")
+    public void setUp() {
+        httpServerMock = MockHttpService.create();
+        http = new HttpObservable();
+        jobs.clear();
+        results.clear();
+    }
+
+    @After("@LivySparkBatchKillerScenario")
+    public void cleanUp() {
+        httpServerMock.stop();
+    }
+
+    @Given("Livy Spark batch jobs to kill")
+    public void livySparkBatchJobsToKill(List<Map<String, String>> jobTable) {
+        for (Map<String, String> row : jobTable) {
+            String clusterName = row.get("CLUSTER");
+            HdiCluster cluster = mock(HdiCluster.class);
+            when(cluster.getLivyBatchUrl()).thenReturn(httpServerMock.completeUrl("/" + clusterName + "/batches"));
+            when(cluster.getYarnNMConnectionUrl()).thenReturn(httpServerMock.completeUrl("/yarnui/ws/v1/clusters/apps/"));
+
+            LivySparkBatch job = new LivySparkBatch(
+                    cluster, new PostBatches.Options()
+                            .className("sample.SparkPi")
+                            .artifactUri("wasbs://container@account.blob.core.windows.net/sample.jar")
+                            .build(), http,
+                    PublishSubject.create());
+            job.getLaterBatchId().set(Integer.parseInt(row.get("BATCH_ID")));
+
+            if (StringUtils.isNotEmpty(row.get("APP_ID"))) {
+                job.getLaterAppId().set(row.get("APP_ID"));
+            }
+
+            jobs.add(job);
+        }
+    }
+
+    @And("mock Livy {string} killing batch {int} to return status {int} after {int} ms")
+    public void mockLivyKillingBatch(String clusterName, int batchId, int statusCode, int delayMillis) {
+        WireMock.configureFor(httpServerMock.getPort());
+        WireMock.stubFor(delete(urlEqualTo("/" + clusterName + "/batches/" + batchId))
+                .willReturn(aResponse()
+                        .withStatus(statusCode)
+                        .withBody("{\"msg\": \"deleted\"}")
+                        .withFixedDelay(delayMillis)));
+    }
+
+    @And("mock Yarn killing application {string} to return status {int} with state {string}")
+    public void mockYarnKillingApplication(String appId, int statusCode, String state) {
+        WireMock.configureFor(httpServerMock.getPort());
+        WireMock.stubFor(put(urlEqualTo("/yarnui/ws/v1/clusters/apps/" + appId + "/state"))
+                .withRequestBody(WireMock.equalToJson("{\"state\": \"KILLED\"}"))
+                .willReturn(aResponse()
+                        .withStatus(statusCode)
+                        .withBody("{\"state\": \"" + state + "\"}")));
+    }
+
+    @When("bulk kill the Spark batch jobs with max concurrency {int} per cluster and Livy timeout {int} ms")
+    public void bulkKillTheSparkBatchJobs(int maxConcurrency, int livyTimeoutMillis) {
+        LivySparkBatchKiller killer = new LivySparkBatchKiller();
+        killer.setMaxConcurrencyPerCluster(maxConcurrency);
+        killer.setLivyKillTimeoutMillis(livyTimeoutMillis);
+
+        long startMillis = System.currentTimeMillis();
+        results.addAll(killer.kill(jobs).toList().toBlocking().single());
+        elapsedMillis = System.currentTimeMillis() - startMillis;
+    }
+
+    @Then("check the bulk killing results should be")
+    public void checkTheBulkKillingResultsShouldBe(List<Map<String, String>> expectResults) {
+        Map<Integer, String> outcomes = results.stream()
+                .collect(Collectors.toMap(result -> result.getJob().getBatchId(),
+                                          result -> result.getOutcome().toString()));
+
+        assertEquals(expectResults.size(), outcomes.size());
+
+        for (Map<String, String> expect : expectResults) {
+            assertEquals(expect.get("OUTCOME"), outcomes.get(Integer.parseInt(expect.get("BATCH_ID"))));
+        }
+    }
+
+    @Then("check the bulk killing should take at least {int} ms")
+    public void checkTheBulkKillingShouldTakeAtLeast(int expectMinMillis) {
+        assertThat(elapsedMillis).isGreaterThanOrEqualTo(expectMinMillis);
+    }
+
+    @Then("check the bulk killing latency of each job should be at least {int} ms")
+    public void checkTheBulkKillingLatencyOfEachJob(int expectMinMillis) {
+        assertThat(results).allSatisfy(result ->
+                assertThat(result.getLatencyMillis()).isGreaterThanOrEqualTo(expectMinMillis));
+    }
+}
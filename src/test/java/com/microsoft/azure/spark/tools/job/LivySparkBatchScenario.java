@@ -18,11 +18,14 @@ import uk.org.lidalia.slf4jtest.TestLoggerFactory;
 import com.microsoft.azure.spark.tools.events.MessageInfoType;
 import com.microsoft.azure.spark.tools.http.AmbariHttpObservable;
 import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.http.HttpRequestMetric;
+import com.microsoft.azure.spark.tools.restapi.livy.batches.api.PostBatches;
 import com.microsoft.azure.spark.tools.utils.LaterInit;
 import com.microsoft.azure.spark.tools.utils.MockHttpService;
 import com.microsoft.azure.spark.tools.utils.Pair;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -34,7 +37,10 @@ import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.CALLS_REAL_METHODS;
 import static org.mockito.Mockito.doReturn;
@@ -50,10 +56,13 @@ public class LivySparkBatchScenario {
     private TestLogger logger = TestLoggerFactory.getTestLogger(LivySparkBatchScenario.class);
     private Map<LivySparkBatch.LivyLogType, List<String>> parsedLivyLogs = Collections.emptyMap();
     private PublishSubject<Pair<MessageInfoType, String>> mockCtrlSubject = PublishSubject.create();
+    private List<HttpRequestMetric> requestMetrics = new ArrayList<>();
 
     @Before("@LivySparkBatchScenario")
     public void setUp() throws Throwable {
         httpMock = new AmbariHttpObservable();
+        requestMetrics.clear();
+        httpMock.getRequestMetrics().subscribe(requestMetrics::add);
         batchIdMock = new LaterInit<>();
 
         jobMock = mock(LivySparkBatch.class, CALLS_REAL_METHODS);
@@ -90,6 +99,13 @@ public class LivySparkBatchScenario {
         assertEquals(expectedMessage, caught.getMessage());
     }
 
+    @Then("^throw exception caused by '(.+)'$")
+    public void checkExceptionCause(String exceptedName) throws Throwable {
+        assertNotNull(caught);
+        assertNotNull(caught.getCause());
+        assertEquals(exceptedName, caught.getCause().getClass().getName());
+    }
+
     @Then("^getting spark job application id should be '(.+)'$")
     public void checkGetSparkJobApplicationId(
             String expectedApplicationId) throws Throwable {
@@ -106,6 +122,14 @@ public class LivySparkBatchScenario {
         }
     }
 
+    @Then("getting spark job driver log URL should be {string}")
+    public void checkGettingSparkJobDriverLogUrl(String expectDriverLogUrl) {
+        when(jobMock.getLaterAppId()).thenReturn(new LaterInit<>());
+
+        assertNull(jobMock.getDriverLogUrl());
+        assertEquals(expectDriverLogUrl, jobMock.get().toBlocking().single().getDriverLogUrl());
+    }
+
     @Then("^getting spark job application id, '(.+)' should be got with (\\d+) times retried$")
     public void checkGetSparkJobApplicationIdRetryCount(
             String getUrl,
@@ -172,9 +196,30 @@ public class LivySparkBatchScenario {
 
     @Given("parse Livy Logs from the following")
     public void parseLivyLogsFromTheFollowing(List<String> mockLivyLogs) {
-        this.parsedLivyLogs = this.jobMock.parseLivyLogs(LivySparkBatch.LivyLogType.STDOUT,
+        caught = null;
+
+        try {
+            this.parsedLivyLogs = this.jobMock.parseLivyLogs(LivySparkBatch.LivyLogType.STDOUT,
+                    mockLivyLogs.stream()
+                            .map(StringEscapeUtils::unescapeJava)
+                            .collect(Collectors.toList()));
+        } catch (Exception e) {
+            caught = e;
+        }
+    }
+
+    @Then("parse Livy typed logs from the following should be")
+    public void parseLivyTypedLogsFromTheFollowingShouldBe(List<Map<String, String>> mockLivyLogs) {
+        List<Pair<MessageInfoType, String>> typedLogs = this.jobMock.parseTypedLogs(
+                LivySparkBatch.LivyLogType.STDOUT,
                 mockLivyLogs.stream()
-                        .map(StringEscapeUtils::unescapeJava)
+                        .map(row -> StringEscapeUtils.unescapeJava(row.get("LOG")))
+                        .collect(Collectors.toList()));
+
+        assertThat(typedLogs.stream().map(typedLog -> typedLog.getFirst() + ": " + typedLog.getSecond()))
+                .containsExactlyElementsOf(mockLivyLogs.stream()
+                        .filter(row -> !row.get("TYPE").equals("-"))
+                        .map(row -> row.get("TYPE") + ": " + StringEscapeUtils.unescapeJava(row.get("LOG")))
                         .collect(Collectors.toList()));
     }
 
@@ -237,4 +282,86 @@ public class LivySparkBatchScenario {
             assertEquals(StringEscapeUtils.unescapeJava(expectExpMessage), cause.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @Then("check the spark job request {string} to {string} should be sent {int} times")
+    public void checkTheSparkJobRequestShouldBeSentTimes(String method, String targetUrl, int expectCount) {
+        verify(expectCount, new RequestPatternBuilder(
+                RequestMethod.fromString(method.toUpperCase()), urlEqualTo(targetUrl)));
+    }
+
+    @Then("check Livy batch state API should be unsupported")
+    public void checkLivyBatchStateAPIShouldBeUnsupported() {
+        assertTrue(jobMock.isStateApiUnsupported());
+    }
+
+    @Then("check Livy batch state API should be supported")
+    public void checkLivyBatchStateAPIShouldBeSupported() {
+        assertFalse(jobMock.isStateApiUnsupported());
+    }
+
+    @Then("check the HTTP request metrics should include operation {string} for {string} to {string} with status {int}")
+    public void checkTheHTTPRequestMetricsShouldIncludeOperation(
+            String operation, String method, String targetUrl, int statusCode) {
+        assertThat(requestMetrics)
+                .anySatisfy(metric -> {
+                    assertEquals(operation, metric.getOperation());
+                    assertEquals(method.toUpperCase(), metric.getMethod());
+                    assertEquals(targetUrl, metric.getUri().getPath());
+                    assertEquals(statusCode, metric.getStatusCode());
+                });
+    }
+
+    @And("mock Spark job submission key {string} with {int} retries")
+    public void mockSparkJobSubmissionKeyWithRetries(String submissionKey, int retriesMax) {
+        PostBatches submissionParameter = new PostBatches.Options()
+                .name("job")
+                .className("sample.LogQuery")
+                .artifactUri("wasbs://container@account.blob.core.windows.net/sample.jar")
+                .submissionKey(submissionKey)
+                .build();
+
+        doReturn(submissionParameter).when(jobMock).getSubmissionParameter();
+        doReturn(retriesMax).when(jobMock).getRetriesMax();
+        doReturn(0).when(jobMock).getDelaySeconds();
+    }
+
+    @Then("check Spark job batch id should be {int}")
+    public void checkSparkJobBatchIdShouldBe(int expectBatchId) {
+        assertNull(caught);
+        assertEquals(expectBatchId, jobMock.getBatchId());
+    }
+
+    @And("mock Spark job Livy log tail lines to {int}")
+    public void mockSparkJobLivyLogTailLinesTo(int tailLines) {
+        doReturn(tailLines).when(jobMock).getLogTailLines();
+    }
+
+    @Then("getting spark job submission logs should be")
+    public void gettingSparkJobSubmissionLogsShouldBe(List<String> expectLogs) {
+        when(jobMock.getLaterAppId()).thenReturn(new LaterInit<>());
+
+        List<String> logs = jobMock.getSubmissionLog()
+                .map(typedLog -> typedLog.getFirst() + ": " + typedLog.getSecond())
+                .toList()
+                .toBlocking()
+                .single();
+
+        assertThat(logs).containsExactlyElementsOf(expectLogs);
+    }
+
+    @Then("Livy log paging with page size from {int} to {int} and delay from {int} to {int} should be")
+    public void livyLogPagingShouldBe(int minPageSize,
+                                      int maxPageSize,
+                                      int minDelayMillis,
+                                      int maxDelayMillis,
+                                      List<Map<String, String>> expectPaging) {
+        LivyLogPaging paging = new LivyLogPaging(minPageSize, maxPageSize, minDelayMillis, maxDelayMillis);
+
+        for (Map<String, String> expect : expectPaging) {
+            paging.onPageGot(Integer.parseInt(expect.get("LINES_GOT")), paging.getPageSize());
+
+            assertEquals("Page size after " + expect, Integer.parseInt(expect.get("PAGE_SIZE")), paging.getPageSize());
+            assertEquals("Delay after " + expect, Long.parseLong(expect.get("DELAY")), paging.getDelayMillis());
+        }
+    }
+}
@@ -46,6 +46,13 @@ public class PostBatchesScenario {
         JSONAssert.assertEquals(expect, actualJson, JSONCompareMode.STRICT);
     }
 
+    @Then("^the serialized JSON rebuilt from the PostBatches should be '(.+)'$")
+    public void verifyRebuiltSerializedJSON(String expect) throws Throwable {
+        String actualJson = converter.toJson(new PostBatches.Options().apply(sparkParameterOptions.build()).build());
+
+        JSONAssert.assertEquals(expect, actualJson, JSONCompareMode.STRICT);
+    }
+
     @Then("^the convertToJson result should be '(.+)'$")
     public void verifyConvertToJSON(String expect) throws Throwable {
         String actualJson = sparkParameterOptions.build().convertToJson();
@@ -83,6 +90,11 @@ public class PostBatchesScenario {
         sparkParameterOptions.name(appName);
     }
 
+    @And("^mock submission key to (.+)$")
+    public void mockSubmissionKey(String submissionKey) {
+        sparkParameterOptions.submissionKey(submissionKey);
+    }
+
     @And("mock executor memory size to {float} Gigabytes")
     public void mockExecutorMemorySizeToGigabytes(float size) {
         sparkParameterOptions.setExecutorMemory(new PostBatches.MemorySize(size, PostBatches.MemorySize.Unit.GIGABYTES));
@@ -0,0 +1,138 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import rx.schedulers.Schedulers;
+
+import com.microsoft.azure.spark.tools.clusters.HdiCluster;
+import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.job.RoutingSparkBatchJobFactory.RoutingDecision;
+import com.microsoft.azure.spark.tools.job.RoutingSparkBatchJobFactory.TargetStats;
+import com.microsoft.azure.spark.tools.restapi.livy.batches.api.PostBatches;
+import com.microsoft.azure.spark.tools.utils.MockHttpService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RoutingSparkBatchJobFactoryScenario {
+    private MockHttpService httpServerMock;
+    private RoutingSparkBatchJobFactory router;
+    private final List<RoutingDecision> decisions = new ArrayList<>();
+
+    @Before("@RoutingSparkBatchJobFactoryScenario")
+    public void setUp() {
+        httpServerMock = MockHttpService.create();
+        WireMock.configureFor(httpServerMock.getPort());
+        decisions.clear();
+    }
+
+    @After("@RoutingSparkBatchJobFactoryScenario")
+    public void cleanUp() {
+        router.close();
+        httpServerMock.stop();
+    }
+
+    @Given("create the routing Spark batch job factory to clusters {string}")
+    public void createTheRoutingSparkBatchJobFactory(String clusterNames) {
+        List<LivySparkBatchFactory> factories = Arrays.stream(clusterNames.split(","))
+                .map(clusterName -> {
+                    HdiCluster cluster = mock(HdiCluster.class);
+                    when(cluster.getLivyConnectionUrl()).thenReturn(httpServerMock.completeUrl("/" + clusterName + "/"));
+                    when(cluster.getLivyBatchUrl()).thenReturn(httpServerMock.completeUrl("/" + clusterName + "/batches"));
+                    when(cluster.getYarnNMConnectionUrl())
+                            .thenReturn(httpServerMock.completeUrl("/" + clusterName + "/yarnui/ws/v1/cluster/apps/"));
+
+                    return new LivySparkBatchFactory(cluster, new PostBatches.Options()
+                            .className("sample.SparkPi")
+                            .artifactUri("wasbs://container@account.blob.core.windows.net/sample.jar")
+                            .build())
+                            .http(new HttpObservable());
+                })
+                .collect(Collectors.toList());
+
+        router = new RoutingSparkBatchJobFactory(factories, Schedulers.immediate());
+        router.getRoutingDecisions().subscribe(decisions::add);
+    }
+
+    @And("mock the routing target {string} with {int} active batches and {float} Yarn cluster usage")
+    public void mockTheRoutingTarget(String clusterName, int activeBatches, float clusterUsage) {
+        String sessions = IntStream.range(0, activeBatches)
+                .mapToObj(i -> String.format("{\"id\": %d, \"state\": \"running\"}", i))
+                .collect(Collectors.joining(","));
+
+        WireMock.stubFor(get(urlPathEqualTo("/" + clusterName + "/batches"))
+                .willReturn(aResponse().withStatus(200).withBody(String.format(
+                        "{\"from\": 0, \"total\": %d, \"sessions\": [%s]}", activeBatches, sessions))));
+        WireMock.stubFor(get(urlEqualTo("/" + clusterName + "/yarnui/ws/v1/cluster/apps/?states=RUNNING"))
+                .willReturn(aResponse().withStatus(200).withBody(String.format(
+                        "{\"apps\": {\"app\": [{\"queue\": \"default\", \"state\": \"RUNNING\", "
+                                + "\"clusterUsagePercentage\": %s, \"queueUsagePercentage\": 50.0}]}}",
+                        clusterUsage))));
+    }
+
+    @When("mock the routing target {string} Livy to return status {int}")
+    public void mockTheRoutingTargetLivyToReturnStatus(String clusterName, int statusCode) {
+        WireMock.stubFor(get(urlPathEqualTo("/" + clusterName + "/batches"))
+                .willReturn(aResponse().withStatus(statusCode).withBody("Service Unavailable")));
+    }
+
+    @When("probe the routing targets")
+    public void probeTheRoutingTargets() {
+        router.probeTargets().toList().toBlocking().single();
+    }
+
+    @Then("check the routing target stats should be")
+    public void checkTheRoutingTargetStatsShouldBe(List<Map<String, String>> expectStats) {
+        List<TargetStats> stats = router.getTargetStats();
+        assertEquals(expectStats.size(), stats.size());
+
+        for (int i = 0; i < stats.size(); i++) {
+            Map<String, String> expect = expectStats.get(i);
+            TargetStats actual = stats.get(i);
+
+            assertEquals(httpServerMock.completeUrl("/" + expect.get("CLUSTER") + "/"), actual.getLivyConnectionUrl());
+            assertEquals(Boolean.parseBoolean(expect.get("HEALTHY")), actual.isHealthy());
+            assertEquals(Integer.parseInt(expect.get("ACTIVE_BATCHES")), actual.getActiveBatches());
+            assertEquals(Float.parseFloat(expect.get("CLUSTER_USAGE")), actual.getClusterUsagePercentage(), 0.001);
+            assertEquals(Float.parseFloat(expect.get("LOAD")), actual.getLoad(), 0.001);
+        }
+    }
+
+    @And("check the Spark batch jobs created by the routing factory should go to")
+    public void checkTheSparkBatchJobsCreatedByTheRoutingFactoryShouldGoTo(List<Map<String, String>> expectRoutes) {
+        for (Map<String, String> expect : expectRoutes) {
+            LivySparkBatch job = (LivySparkBatch) router.factory();
+            RoutingDecision decision = decisions.get(decisions.size() - 1);
+            String expectUrl = httpServerMock.completeUrl("/" + expect.get("CLUSTER") + "/");
+
+            assertEquals(expectUrl, job.getCluster().getLivyConnectionUrl());
+            assertEquals(expectUrl, decision.getLivyConnectionUrl());
+            assertEquals(expect.get("REASON"), decision.getReason().toString());
+        }
+    }
+
+    @And("check the routing failovers should be {int}")
+    public void checkTheRoutingFailoversShouldBe(int expectFailovers) {
+        assertEquals(expectFailovers, router.getFailovers());
+    }
+}
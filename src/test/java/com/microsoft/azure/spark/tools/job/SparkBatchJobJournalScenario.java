@@ -0,0 +1,203 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import org.apache.commons.lang3.StringUtils;
+import rx.subjects.PublishSubject;
+
+import com.microsoft.azure.spark.tools.clusters.LivyCluster;
+import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.restapi.livy.batches.api.PostBatches;
+import com.microsoft.azure.spark.tools.utils.MockHttpService;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SparkBatchJobJournalScenario {
+    private File journalFile;
+    private SparkBatchJobJournal journal;
+    private MockHttpService httpServerMock;
+    private LivySparkBatch batch;
+    private SparkBatchJobJournal.Entry entryGot;
+    private long sizeBeforeReopening;
+
+    @Before("@SparkBatchJobJournalScenario")
+    public void setUp() throws IOException {
+        journalFile = Files.createTempFile("spark-batch-job", ".journal").toFile();
+        journal = SparkBatchJobJournal.open(journalFile);
+        httpServerMock = MockHttpService.create();
+    }
+
+    @After("@SparkBatchJobJournalScenario")
+    public void cleanUp() throws IOException {
+        journal.close();
+        httpServerMock.stop();
+        Files.deleteIfExists(journalFile.toPath());
+    }
+
+    @Given("record Spark batch jobs into journal")
+    public void recordSparkBatchJobsIntoJournal(List<Map<String, String>> records) {
+        for (Map<String, String> record : records) {
+            int batchId = Integer.parseInt(record.get("BATCH_ID"));
+            String value = record.get("VALUE");
+
+            switch (record.get("RECORD")) {
+                case "submitted":
+                    journal.recordSubmitted(batchId, URI.create(httpServerMock.completeUrl("/batch/")), value);
+                    break;
+                case "state":
+                    journal.recordState(batchId, value);
+                    break;
+                case "appId":
+                    journal.recordAppId(batchId, value);
+                    break;
+                default:
+                    journal.recordLogOffset(batchId, record.get("RECORD"), Long.parseLong(value));
+            }
+        }
+    }
+
+    @Given("record Spark batch job {int} submitted with a name of {int} characters into journal")
+    public void recordSparkBatchJobSubmittedWithLongName(int batchId, int nameLength) {
+        journal.recordSubmitted(
+                batchId, URI.create(httpServerMock.completeUrl("/batch/")), StringUtils.repeat('n', nameLength));
+    }
+
+    @When("reopen the Spark batch job journal")
+    public void reopenTheSparkBatchJobJournal() throws IOException {
+        journal.close();
+        journal = SparkBatchJobJournal.open(journalFile);
+    }
+
+    @When("reopen the Spark batch job journal compacting over {int} superseded records and keeping finished jobs "
+            + "for {int} days")
+    public void reopenTheSparkBatchJobJournalCompacting(int compactionThreshold, int retentionDays)
+            throws IOException {
+        journal.close();
+        sizeBeforeReopening = journalFile.length();
+        journal = SparkBatchJobJournal.open(journalFile, compactionThreshold, TimeUnit.DAYS.toMillis(retentionDays));
+    }
+
+    @Then("check the Spark batch job journal file should be compacted: {string}")
+    public void checkTheSparkBatchJobJournalFileShouldBeCompacted(String isCompacted) {
+        assertEquals(Boolean.parseBoolean(isCompacted), journalFile.length() < sizeBeforeReopening);
+    }
+
+    @Then("check the Spark batch job {int} in journal should have state {string}, app ID {string} and stdout "
+            + "offset {int}")
+    public void checkTheSparkBatchJobInJournalShouldHave(int batchId,
+                                                         String expectState,
+                                                         String expectAppId,
+                                                         int expectOffset) {
+        SparkBatchJobJournal.Entry entry = journal.getEntry(batchId);
+
+        assertNotNull(entry);
+        assertEquals(expectState, entry.getState());
+        assertEquals(expectAppId, entry.getAppId());
+        assertEquals(expectOffset, entry.getLogOffset("stdout"));
+    }
+
+    @Then("check the Spark batch job {int} in journal should be kept: {string}")
+    public void checkTheSparkBatchJobInJournalShouldBeKept(int batchId, String isKept) {
+        assertEquals(Boolean.parseBoolean(isKept), journal.getEntry(batchId) != null);
+    }
+
+    @And("append {int} torn bytes to the Spark batch job journal")
+    public void appendTornBytesToTheSparkBatchJobJournal(int tornBytes) throws IOException {
+        journal.close();
+
+        try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+            out.write(new byte[] { 0, 0, 0, 64 });
+            out.write(new byte[tornBytes - 4]);
+        }
+    }
+
+    @Then("check the Spark batch job journal entries should be")
+    public void checkTheSparkBatchJobJournalEntriesShouldBe(List<Map<String, String>> expectEntries) {
+        assertEquals(expectEntries.size(), journal.getEntries().size());
+
+        for (Map<String, String> expect : expectEntries) {
+            SparkBatchJobJournal.Entry entry = journal.getEntry(Integer.parseInt(expect.get("BATCH_ID")));
+
+            assertNotNull(entry);
+            assertEquals(StringUtils.defaultIfEmpty(expect.get("NAME"), null), entry.getName());
+            assertEquals(StringUtils.defaultIfEmpty(expect.get("STATE"), null), entry.getState());
+            assertEquals(StringUtils.defaultIfEmpty(expect.get("APP_ID"), null), entry.getAppId());
+            assertEquals(Long.parseLong(expect.get("STDOUT_OFFSET")), entry.getLogOffset("stdout"));
+            assertEquals(Long.parseLong(expect.get("LIVY_OFFSET")), entry.getLogOffset(LivySparkBatch.LIVY_LOG_TYPE));
+        }
+    }
+
+    @When("get the Spark batch job {int} snapshot from journal")
+    public void getTheSparkBatchJobSnapshotFromJournal(int batchId) {
+        entryGot = journal.getEntry(batchId);
+
+        assertNotNull(entryGot);
+    }
+
+    @Then("check the Spark batch job snapshot got should keep state {string} and stdout offset {int}")
+    public void checkTheSparkBatchJobSnapshotGotShouldKeep(String expectState, int expectOffset) {
+        assertEquals(expectState, entryGot.getState());
+        assertEquals(expectOffset, entryGot.getLogOffset("stdout"));
+    }
+
+    @Then("check the Spark batch job journal file size should be the same as the one before tearing")
+    public void checkTheSparkBatchJobJournalFileSizeShouldBeTheSame() throws IOException {
+        long sizeReplayed = journalFile.length();
+
+        // The records appended after truncating should be replayed
+        journal.recordState(9, "dead");
+        reopenTheSparkBatchJobJournal();
+
+        assertEquals("dead", journal.getEntry(9).getState());
+        assertEquals(true, journalFile.length() > sizeReplayed);
+    }
+
+    @When("reattach Livy Spark batch job {int} with journal")
+    public void reattachLivySparkBatchJobWithJournal(int batchId) {
+        LivyCluster cluster = mock(LivyCluster.class);
+        when(cluster.getLivyBatchUrl()).thenReturn(httpServerMock.completeUrl("/batch/"));
+
+        batch = new LivySparkBatch(
+                cluster, new PostBatches.Options()
+                        .name("journal")
+                        .className("sample.SparkPi")
+                        .artifactUri("wasbs://container@account.blob.core.windows.net/sample.jar")
+                        .build(), new HttpObservable(),
+                PublishSubject.create());
+        batch.setJournal(journal);
+        batch.reattach(batchId).toBlocking().single();
+    }
+
+    @Given("setup a mock Livy service for GET request {string} to return {string}")
+    public void setupAMockLivyServiceForGETRequestToReturn(String serviceUrl, String response) {
+        httpServerMock.stub("GET", serviceUrl, 200, response);
+    }
+
+    @Then("check the reattached Livy Spark batch job state should be {string}, app ID should be {string} and "
+            + "Livy log offset should be {int}")
+    public void checkTheReattachedLivySparkBatchJob(String expectState, String expectAppId, int expectOffset) {
+        assertEquals(expectState, batch.getState());
+        assertEquals(expectAppId, batch.getSparkJobApplicationId());
+        assertEquals(expectOffset, batch.getJournalLogOffset(LivySparkBatch.LIVY_LOG_TYPE));
+        assertEquals(expectState, journal.getEntry(batch.getBatchId()).getState());
+    }
+}
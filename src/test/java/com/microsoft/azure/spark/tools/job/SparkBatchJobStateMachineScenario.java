@@ -0,0 +1,87 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import cucumber.api.java.Before;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import rx.observers.TestSubscriber;
+
+import com.microsoft.azure.spark.tools.events.SparkBatchJobStateTransitionEvent;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mock;
+
+public class SparkBatchJobStateMachineScenario {
+    private SparkBatchJobStateMachine stateMachine;
+    private TestSubscriber<SparkBatchJobStateTransitionEvent> transitionSubscriber;
+
+    @Before("@SparkBatchJobStateMachineScenario")
+    public void setUp() {
+        stateMachine = new SparkBatchJobStateMachine();
+        transitionSubscriber = TestSubscriber.create();
+    }
+
+    @Given("subscribe the Spark batch job state transitions")
+    public void subscribeTheSparkBatchJobStateTransitions() {
+        stateMachine.getTransitions().subscribe(transitionSubscriber);
+    }
+
+    @Then("check the Spark batch job state transitions by the states polled should be")
+    public void checkTheSparkBatchJobStateTransitionsByTheStatesPolledShouldBe(
+            List<Map<String, String>> expectedTransitions) {
+        for (Map<String, String> expected : expectedTransitions) {
+            String polled = expected.get("POLLED");
+            boolean isTransited = expected.get("SOURCE").equals("yarn")
+                    ? stateMachine.onYarnState(polled)
+                    : stateMachine.onLivyState(polled);
+
+            assertEquals("Transited by " + polled, Boolean.parseBoolean(expected.get("TRANSITED")), isTransited);
+            assertEquals("State after " + polled,
+                    SparkBatchJobState.valueOf(expected.get("STATE")), stateMachine.getState());
+        }
+    }
+
+    @And("check the Spark batch job state transition events should be")
+    public void checkTheSparkBatchJobStateTransitionEventsShouldBe(List<Map<String, String>> expectedEvents) {
+        List<SparkBatchJobStateTransitionEvent> events = transitionSubscriber.getOnNextEvents();
+        assertEquals(expectedEvents.size(), events.size());
+
+        long lastTimestamp = 0;
+        for (int i = 0; i < events.size(); i++) {
+            SparkBatchJobStateTransitionEvent event = events.get(i);
+
+            assertEquals(SparkBatchJobState.valueOf(expectedEvents.get(i).get("FROM")), event.getFrom());
+            assertEquals(SparkBatchJobState.valueOf(expectedEvents.get(i).get("TO")), event.getTo());
+            assertTrue("The transition timestamps should be in order", event.getTimestampMillis() >= lastTimestamp);
+
+            lastTimestamp = event.getTimestampMillis();
+        }
+    }
+
+    @And("check the Spark batch job state transitions should be completed")
+    public void checkTheSparkBatchJobStateTransitionsShouldBeCompleted() {
+        transitionSubscriber.assertCompleted();
+        transitionSubscriber.assertNoErrors();
+    }
+
+    @Then("check the Livy batch state predicates should be")
+    public void checkTheLivyBatchStatePredicatesShouldBe(List<Map<String, String>> expectedPredicates) {
+        LivySparkBatch batch = mock(LivySparkBatch.class, CALLS_REAL_METHODS);
+
+        for (Map<String, String> expected : expectedPredicates) {
+            String state = expected.get("STATE");
+
+            assertEquals("isDone " + state, Boolean.parseBoolean(expected.get("DONE")), batch.isDone(state));
+            assertEquals("isRunning " + state, Boolean.parseBoolean(expected.get("RUNNING")), batch.isRunning(state));
+            assertEquals("isSuccess " + state, Boolean.parseBoolean(expected.get("SUCCESS")), batch.isSuccess(state));
+        }
+    }
+}
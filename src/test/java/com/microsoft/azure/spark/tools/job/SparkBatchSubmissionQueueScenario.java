@@ -0,0 +1,199 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import org.apache.commons.lang3.StringUtils;
+import rx.Observable;
+import rx.Subscription;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import com.microsoft.azure.spark.tools.clusters.HdiCluster;
+import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.job.LivyClusterCapacityProbe.Capacity;
+import com.microsoft.azure.spark.tools.restapi.livy.batches.api.PostBatches;
+import com.microsoft.azure.spark.tools.utils.MockHttpService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SparkBatchSubmissionQueueScenario {
+    private MockHttpService httpServerMock;
+    private HdiCluster cluster;
+    private TestScheduler scheduler;
+    private SparkBatchSubmissionQueue queue;
+    private Capacity capacity;
+    private Capacity capacityProbed;
+    private final Map<String, Subscription> submissions = new HashMap<>();
+    private final List<String> admittedJobs = Collections.synchronizedList(new ArrayList<>());
+
+    @Before("@SparkBatchSubmissionQueueScenario")
+    public void setUp() {
+        httpServerMock = MockHttpService.create();
+        cluster = mock(HdiCluster.class);
+        when(cluster.getLivyBatchUrl()).thenReturn(httpServerMock.completeUrl("/batches"));
+        when(cluster.getLivyConnectionUrl()).thenReturn(httpServerMock.completeUrl("/"));
+        when(cluster.getYarnNMConnectionUrl()).thenReturn(httpServerMock.completeUrl("/yarnui/ws/v1/cluster/apps/"));
+        scheduler = new TestScheduler();
+        submissions.clear();
+        admittedJobs.clear();
+    }
+
+    @After("@SparkBatchSubmissionQueueScenario")
+    public void cleanUp() {
+        submissions.values().forEach(Subscription::unsubscribe);
+        httpServerMock.stop();
+    }
+
+    @Given("mock Livy batches with states {string}")
+    public void mockLivyBatchesWithStates(String states) {
+        List<String> sessions = new ArrayList<>();
+        String[] stateArray = states.split(",");
+        for (int i = 0; i < stateArray.length; i++) {
+            sessions.add(String.format("{\"id\": %d, \"state\": \"%s\"}", i, stateArray[i]));
+        }
+
+        WireMock.configureFor(httpServerMock.getPort());
+        WireMock.stubFor(get(urlEqualTo("/batches?from=0&size=0"))
+                .willReturn(aResponse().withStatus(200).withBody(String.format(
+                        "{\"from\": 0, \"total\": %d, \"sessions\": []}", sessions.size()))));
+        WireMock.stubFor(get(urlEqualTo("/batches?from=0&size=" + LivyClusterCapacityProbe.LIVY_BATCHES_LOOKUP))
+                .willReturn(aResponse().withStatus(200).withBody(String.format(
+                        "{\"from\": 0, \"total\": %d, \"sessions\": [%s]}",
+                        sessions.size(), String.join(",", sessions)))));
+    }
+
+    @And("mock Yarn running applications")
+    public void mockYarnRunningApplications(List<Map<String, String>> apps) {
+        String appsJson = apps.stream()
+                .map(app -> String.format(
+                        "{\"queue\": \"%s\", \"state\": \"RUNNING\", \"clusterUsagePercentage\": %s, "
+                                + "\"queueUsagePercentage\": %s}",
+                        app.get("QUEUE"), app.get("CLUSTER_USAGE"), app.get("QUEUE_USAGE")))
+                .collect(Collectors.joining(","));
+
+        WireMock.configureFor(httpServerMock.getPort());
+        WireMock.stubFor(get(urlEqualTo("/yarnui/ws/v1/cluster/apps/?states=RUNNING"))
+                .willReturn(aResponse().withStatus(200).withBody("{\"apps\": {\"app\": [" + appsJson + "]}}")));
+    }
+
+    @Then("check the probed submission queue capacity should be {int} active batches with {float} cluster usage")
+    public void checkTheProbedSubmissionQueueCapacity(int expectActiveBatches, float expectClusterUsage) {
+        capacityProbed = new SparkBatchSubmissionQueue(cluster, new HttpObservable())
+                .probeCapacity()
+                .toBlocking()
+                .single();
+
+        assertEquals(expectActiveBatches, capacityProbed.getActiveBatches());
+        assertEquals(expectClusterUsage, capacityProbed.getClusterUsagePercentage(), 0.001);
+    }
+
+    @And("check the probed submission queue capacity usage of Yarn queue {string} should be {float}")
+    public void checkTheProbedSubmissionQueueCapacityUsageOfYarnQueue(String yarnQueue, float expectUsage) {
+        assertEquals(expectUsage, capacityProbed.getQueueUsagePercentage(yarnQueue), 0.001);
+    }
+
+    @Given("create the submission queue with max {int} running batches")
+    public void createTheSubmissionQueue(int maxRunningBatches) {
+        queue = new SparkBatchSubmissionQueue(cluster, new HttpObservable(), scheduler) {
+            @Override
+            Observable<Capacity> probeCapacity() {
+                return Observable.just(capacity);
+            }
+        };
+
+        queue.setMaxRunningBatches(maxRunningBatches);
+    }
+
+    @And("set the submission queue tenant {string} weight to {int}")
+    public void setTheSubmissionQueueTenantWeight(String tenant, int weight) {
+        queue.setTenantWeight(tenant, weight);
+    }
+
+    @And("set the submission queue capacity to {int} active batches with {int} cluster usage")
+    public void setTheSubmissionQueueCapacity(int activeBatches, int clusterUsage) {
+        capacity = new Capacity(activeBatches, clusterUsage, Collections.emptyMap());
+    }
+
+    @When("set the submission queue capacity to {int} active batches with {int} cluster usage "
+            + "and Yarn queue {string} usage {int}")
+    public void setTheSubmissionQueueCapacityWithYarnQueueUsage(int activeBatches,
+                                                                int clusterUsage,
+                                                                String yarnQueue,
+                                                                int queueUsage) {
+        capacity = new Capacity(activeBatches, clusterUsage, Collections.singletonMap(yarnQueue, (float) queueUsage));
+    }
+
+    @And("enqueue Spark batch jobs into the submission queue")
+    public void enqueueSparkBatchJobsIntoTheSubmissionQueue(List<Map<String, String>> jobs) {
+        for (Map<String, String> jobRow : jobs) {
+            String name = jobRow.get("NAME");
+            LivySparkBatch job = mock(LivySparkBatch.class, CALLS_REAL_METHODS);
+            when(job.getSubmissionParameter()).thenReturn(new PostBatches.Options()
+                    .name(name)
+                    .className("sample.SparkPi")
+                    .artifactUri("wasbs://container@account.blob.core.windows.net/sample.jar")
+                    .setYarnQueue(StringUtils.defaultIfEmpty(jobRow.get("QUEUE"), null))
+                    .build());
+            when(job.getCtrlSubject()).thenReturn(PublishSubject.create());
+            doReturn(Observable.fromCallable(() -> {
+                admittedJobs.add(name);
+
+                return job;
+            })).when(job).submitNow();
+
+            job.setSubmissionQueue(queue, Integer.parseInt(jobRow.get("PRIORITY")), jobRow.get("TENANT"));
+            submissions.put(name, job.submit().subscribe());
+        }
+
+        scheduler.triggerActions();
+    }
+
+    @When("cancel the Spark batch job {string} in the submission queue")
+    public void cancelTheSparkBatchJobInTheSubmissionQueue(String name) {
+        submissions.get(name).unsubscribe();
+    }
+
+    @And("wait for the next submission queue capacity polling")
+    public void waitForTheNextSubmissionQueueCapacityPolling() {
+        scheduler.advanceTimeBy(queue.getCapacityPollMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Then("check the admitted Spark batch jobs should be {string}")
+    public void checkTheAdmittedSparkBatchJobsShouldBe(String expectJobs) {
+        List<String> expect = expectJobs.isEmpty() ? Collections.emptyList() : Arrays.asList(expectJobs.split(","));
+
+        assertEquals(expect, admittedJobs);
+    }
+
+    @And("check the submission queue metrics should be {int} waiting and {int} admitted")
+    public void checkTheSubmissionQueueMetrics(int expectWaiting, int expectAdmitted) {
+        SparkBatchSubmissionQueue.Metrics metrics = queue.getMetrics();
+
+        assertEquals(expectWaiting, metrics.getWaiting());
+        assertEquals(expectAdmitted, metrics.getAdmitted());
+    }
+}
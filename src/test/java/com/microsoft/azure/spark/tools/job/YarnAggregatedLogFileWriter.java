@@ -0,0 +1,268 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * The writer of the Yarn aggregated log files in the Hadoop TFile and IndexedFormat layouts, for the tests without
+ * the Hadoop libraries.
+ */
+class YarnAggregatedLogFileWriter {
+    private static final byte[] BCFILE_MAGIC = {
+            (byte) 0xd1, (byte) 0x11, (byte) 0xd3, (byte) 0x68, (byte) 0x91, (byte) 0xb5, (byte) 0xd7, (byte) 0xb6,
+            (byte) 0x39, (byte) 0xdf, (byte) 0x41, (byte) 0x40, (byte) 0x92, (byte) 0xba, (byte) 0xe1, (byte) 0x50 };
+
+    // The mirrors of the Hadoop LogAggregationIndexedFileController meta classes with the same fields
+    static class IndexedLogsMeta implements Serializable {
+        private String nodeId;
+        private String compressName;
+        private List<IndexedPerAggregationLogMeta> logMetas = new ArrayList<>();
+        private long uploadTimeStamp;
+        private String user;
+    }
+
+    static class IndexedPerAggregationLogMeta implements Serializable {
+        private String remoteNodeLogFileName;
+        private Map<String, List<IndexedFileLogMeta>> logMetas = new HashMap<>();
+        private long uploadTimeStamp;
+    }
+
+    static class IndexedFileLogMeta implements Serializable {
+        private String containerId;
+        private String fileName;
+        private long fileSize;
+        private long fileCompressedSize;
+        private long lastModifiedTime;
+        private long startIndex;
+    }
+
+    // Container ID -> log type -> logs
+    private final Map<String, Map<String, String>> containerLogs = new LinkedHashMap<>();
+
+    void addLogs(final String containerId, final String type, final String logs) {
+        containerLogs.computeIfAbsent(containerId, id -> new LinkedHashMap<>()).put(type, logs);
+    }
+
+    /**
+     * Write the variable-length integer as the Hadoop TFile utilities.
+     */
+    static void writeVLong(final DataOutput out, final long n) throws IOException {
+        if (n >= -32 && n < 128) {
+            out.writeByte((int) n);
+        } else if (n >= -20L << 8 && n < 20L << 8) {
+            out.writeByte((int) (n >> 8) - 52);
+            out.writeByte((int) n);
+        } else if (n >= -16L << 16 && n < 16L << 16) {
+            out.writeByte((int) (n >> 16) - 88);
+            out.writeShort((int) n);
+        } else if (n >= -8L << 24 && n < 8L << 24) {
+            out.writeByte((int) (n >> 24) - 112);
+            out.writeShort((int) (n >>> 8));
+            out.writeByte((int) n);
+        } else {
+            out.writeByte(8 - 129);
+            out.writeLong(n);
+        }
+    }
+
+    private static void writeString(final DataOutput out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] compress(final byte[] raw, final String compression) throws IOException {
+        if (compression.equals("none")) {
+            return raw;
+        }
+
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed)) {
+            out.write(raw);
+        }
+
+        return compressed.toByteArray();
+    }
+
+    private static void writeRecord(final DataOutputStream block, final String key, final byte[] value)
+            throws IOException {
+        final ByteArrayOutputStream keyBytes = new ByteArrayOutputStream();
+        new DataOutputStream(keyBytes).writeUTF(key);
+        writeVLong(block, keyBytes.size());
+        block.write(keyBytes.toByteArray());
+
+        // The value in the chunks of at most 7 bytes, the non-last chunk lengths are negative
+        int offset = 0;
+        while (value.length - offset > 7) {
+            writeVLong(block, -7);
+            block.write(value, offset, 7);
+            offset += 7;
+        }
+
+        writeVLong(block, value.length - offset);
+        block.write(value, offset, value.length - offset);
+    }
+
+    private byte[] getContainerValue(final Map<String, String> logs) throws IOException {
+        final ByteArrayOutputStream value = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(value);
+
+        for (Map.Entry<String, String> typeLogs : logs.entrySet()) {
+            final byte[] content = typeLogs.getValue().getBytes(StandardCharsets.UTF_8);
+            out.writeUTF(typeLogs.getKey());
+            out.writeUTF(String.valueOf(content.length));
+            out.write(content);
+        }
+
+        return value.toByteArray();
+    }
+
+    /**
+     * Write the logs added as a TFile log aggregation file.
+     *
+     * @param file the file to write
+     * @param compression the compression, `none` or `gz`
+     * @param containersPerBlock the containers in each data block
+     * @throws IOException the file writing exceptions
+     */
+    void writeTFile(final File file, final String compression, final int containersPerBlock) throws IOException {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(content);
+        final List<long[]> blocks = new ArrayList<>();
+        final List<String> containerIds = new ArrayList<>(containerLogs.keySet());
+
+        for (int start = 0; start < containerIds.size(); start += containersPerBlock) {
+            final ByteArrayOutputStream raw = new ByteArrayOutputStream();
+            final DataOutputStream block = new DataOutputStream(raw);
+
+            if (start == 0) {
+                final ByteArrayOutputStream version = new ByteArrayOutputStream();
+                new DataOutputStream(version).writeInt(1);
+                writeRecord(block, "VERSION", version.toByteArray());
+
+                final ByteArrayOutputStream owner = new ByteArrayOutputStream();
+                new DataOutputStream(owner).writeUTF("livy");
+                writeRecord(block, "APPLICATION_OWNER", owner.toByteArray());
+            }
+
+            for (String containerId
+                    : containerIds.subList(start, Math.min(start + containersPerBlock, containerIds.size()))) {
+                writeRecord(block, containerId, getContainerValue(containerLogs.get(containerId)));
+            }
+
+            final byte[] compressed = compress(raw.toByteArray(), compression);
+            blocks.add(new long[] { out.size(), compressed.length, raw.size() });
+            out.write(compressed);
+        }
+
+        // The data index as a meta block
+        final ByteArrayOutputStream dataIndexRaw = new ByteArrayOutputStream();
+        final DataOutputStream dataIndex = new DataOutputStream(dataIndexRaw);
+        writeString(dataIndex, compression);
+        writeVLong(dataIndex, blocks.size());
+        for (long[] region : blocks) {
+            for (long value : region) {
+                writeVLong(dataIndex, value);
+            }
+        }
+
+        final byte[] dataIndexCompressed = compress(dataIndexRaw.toByteArray(), compression);
+        final long dataIndexOffset = out.size();
+        out.write(dataIndexCompressed);
+
+        final long metaIndexOffset = out.size();
+        writeVLong(out, 2);
+        writeString(out, "data:TFile.meta");
+        writeString(out, "none");
+        writeVLong(out, 0);
+        writeVLong(out, 0);
+        writeVLong(out, 0);
+        writeString(out, "data:BCFile.index");
+        writeString(out, compression);
+        writeVLong(out, dataIndexOffset);
+        writeVLong(out, dataIndexCompressed.length);
+        writeVLong(out, dataIndexRaw.size());
+
+        out.writeLong(metaIndexOffset);
+        out.writeShort(1);
+        out.writeShort(0);
+        out.write(BCFILE_MAGIC);
+
+        write(file, content.toByteArray());
+    }
+
+    /**
+     * Write the logs added as an IndexedFormat log aggregation file.
+     *
+     * @param file the file to write
+     * @param applicationId the application ID
+     * @param compression the compression, `none` or `gz`
+     * @throws IOException the file writing exceptions
+     */
+    void writeIndexedFile(final File file, final String applicationId, final String compression) throws IOException {
+        final byte[] uuid = YarnIndexedLogFormat.createUuid(applicationId);
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(content);
+        final IndexedPerAggregationLogMeta aggregationMeta = new IndexedPerAggregationLogMeta();
+
+        out.write(uuid);
+
+        for (Map.Entry<String, Map<String, String>> logs : containerLogs.entrySet()) {
+            final List<IndexedFileLogMeta> fileMetas = new ArrayList<>();
+
+            for (Map.Entry<String, String> typeLogs : logs.getValue().entrySet()) {
+                final byte[] raw = typeLogs.getValue().getBytes(StandardCharsets.UTF_8);
+                final byte[] compressed = compress(raw, compression);
+                final IndexedFileLogMeta fileMeta = new IndexedFileLogMeta();
+
+                fileMeta.containerId = logs.getKey();
+                fileMeta.fileName = typeLogs.getKey();
+                fileMeta.fileSize = raw.length;
+                fileMeta.fileCompressedSize = compressed.length;
+                fileMeta.startIndex = out.size();
+                fileMetas.add(fileMeta);
+                out.write(compressed);
+            }
+
+            aggregationMeta.logMetas.put(logs.getKey(), fileMetas);
+        }
+
+        final IndexedLogsMeta meta = new IndexedLogsMeta();
+        meta.nodeId = file.getName();
+        meta.compressName = compression;
+        meta.user = "livy";
+        meta.logMetas.add(aggregationMeta);
+
+        final ByteArrayOutputStream metaBytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream metaOut = new ObjectOutputStream(metaBytes)) {
+            metaOut.writeObject(meta);
+        }
+
+        out.write(metaBytes.toByteArray());
+        out.writeInt(metaBytes.size());
+        out.write(uuid);
+
+        write(file, content.toByteArray());
+    }
+
+    static void write(final File file, final byte[] content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content);
+    }
+}
@@ -0,0 +1,160 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import org.apache.commons.io.IOUtils;
+
+import com.microsoft.azure.spark.tools.job.YarnAppContainerLogHarvester.ContainerLogChunk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class YarnAggregatedLogReaderScenario {
+    private Path storageRoot;
+    private YarnAggregatedLogReader reader;
+    private String user;
+    private String applicationId;
+    private List<ContainerLogChunk> logsRead;
+
+    @Before("@YarnAggregatedLogReaderScenario")
+    public void setUp() throws IOException {
+        storageRoot = Files.createTempDirectory("yarn-aggregated-logs");
+    }
+
+    @After("@YarnAggregatedLogReaderScenario")
+    public void cleanUp() throws IOException {
+        try (Stream<Path> paths = Files.walk(storageRoot)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private File getLogFile(String suffix, String fileName) {
+        return storageRoot.resolve(String.join("/", "app-logs", user, suffix, applicationId, fileName)).toFile();
+    }
+
+    private YarnAggregatedLogFileWriter createWriter(List<Map<String, String>> logs) {
+        YarnAggregatedLogFileWriter writer = new YarnAggregatedLogFileWriter();
+
+        for (Map<String, String> containerLogs : logs) {
+            String content = containerLogs.get("LOGS");
+            writer.addLogs(containerLogs.get("CONTAINER"), containerLogs.get("TYPE"), content == null ? "" : content);
+        }
+
+        return writer;
+    }
+
+    @Given("create a Yarn aggregated log reader for user {string} and application {string}")
+    public void createYarnAggregatedLogReader(String user, String applicationId) {
+        this.user = user;
+        this.applicationId = applicationId;
+        this.reader = new YarnAggregatedLogReader(new YarnAggregatedLogLocalStorage(storageRoot.toFile()));
+    }
+
+    @And("set the aggregated log reader range read bytes to {int}")
+    public void setTheAggregatedLogReaderRangeReadBytes(int rangeReadBytes) {
+        reader.setRangeReadBytes(rangeReadBytes);
+    }
+
+    @And("set the aggregated log reader chunk bytes to {int}")
+    public void setTheAggregatedLogReaderChunkBytes(int chunkBytes) {
+        reader.setChunkBytes(chunkBytes);
+    }
+
+    @And("set the aggregated log reader log types to {string}")
+    public void setTheAggregatedLogReaderLogTypes(String types) {
+        reader.setLogTypes(Arrays.asList(types.split(",")));
+    }
+
+    @Given("write the {string} TFile aggregated logs of node {string} with {int} containers per block")
+    public void writeTheTFileAggregatedLogs(String compression,
+                                            String nodeId,
+                                            int containersPerBlock,
+                                            List<Map<String, String>> logs) throws IOException {
+        createWriter(logs).writeTFile(
+                getLogFile("logs", nodeId.replace(':', '_')), compression, containersPerBlock);
+    }
+
+    @Given("write the {string} IndexedFormat aggregated logs of node {string}")
+    public void writeTheIndexedFormatAggregatedLogs(String compression,
+                                                    String nodeId,
+                                                    List<Map<String, String>> logs) throws IOException {
+        createWriter(logs).writeIndexedFile(
+                getLogFile("logs-ifile", nodeId.replace(':', '_')), applicationId, compression);
+    }
+
+    @Given("copy the aggregated log file {string} written by Hadoop into {string} as the logs of node {string}")
+    public void copyTheAggregatedLogFileWrittenByHadoop(String resourceName,
+                                                        String suffix,
+                                                        String nodeId) throws IOException {
+        try (InputStream resource = getClass().getClassLoader().getResourceAsStream(
+                getClass().getPackage().getName().replace('.', File.separatorChar)
+                        + File.separator + resourceName)) {
+            YarnAggregatedLogFileWriter.write(
+                    getLogFile(suffix, nodeId.replace(':', '_')), IOUtils.toByteArray(resource));
+        }
+    }
+
+    @And("write the aggregated log file {string} as {string}")
+    public void writeTheAggregatedLogFile(String fileName, String content) throws IOException {
+        YarnAggregatedLogFileWriter.write(getLogFile("logs", fileName), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @When("read the aggregated logs of the application")
+    public void readTheAggregatedLogsOfTheApplication() {
+        logsRead = reader.read(user, applicationId).toList().toBlocking().single();
+    }
+
+    @When("read the aggregated logs of container {string}")
+    public void readTheAggregatedLogsOfContainer(String containerId) {
+        logsRead = reader.read(user, applicationId, containerId).toList().toBlocking().single();
+    }
+
+    @Then("check the aggregated logs read should be")
+    public void checkTheAggregatedLogsReadShouldBe(List<Map<String, String>> expectLogs) {
+        Map<String, StringBuilder> logsByContainerType = new HashMap<>();
+        Map<String, Integer> chunksByContainerType = new HashMap<>();
+        Map<String, ContainerLogChunk> lastByContainerType = new HashMap<>();
+
+        for (ContainerLogChunk logChunk : logsRead) {
+            String key = logChunk.getNodeId() + "/" + logChunk.getContainerId() + "/" + logChunk.getType();
+            ContainerLogChunk last = lastByContainerType.get(key);
+
+            // The chunks of a container log type are in order without gaps, and the last one is EOF
+            assertEquals(key, last == null ? 0 : last.getChunk().getEnd(), logChunk.getChunk().getStart());
+
+            lastByContainerType.put(key, logChunk);
+            logsByContainerType.computeIfAbsent(key, k -> new StringBuilder()).append(logChunk.getChunk().getText());
+            chunksByContainerType.merge(key, 1, Integer::sum);
+        }
+
+        assertEquals(expectLogs.size(), logsByContainerType.size());
+
+        for (Map<String, String> expect : expectLogs) {
+            String key = expect.get("NODE") + "/" + expect.get("CONTAINER") + "/" + expect.get("TYPE");
+
+            assertEquals(key, expect.get("LOGS"), String.valueOf(logsByContainerType.get(key)));
+            assertEquals(key, Integer.valueOf(expect.get("CHUNKS")), chunksByContainerType.get(key));
+            assertTrue(key, lastByContainerType.get(key).getChunk().isEof());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+
+import com.microsoft.azure.spark.tools.clusters.YarnCluster;
+import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.job.YarnAppContainerLogHarvester.ContainerLogChunk;
+import com.microsoft.azure.spark.tools.job.YarnAppContainerLogHarvester.Mode;
+import com.microsoft.azure.spark.tools.utils.MockHttpService;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class YarnAppContainerLogHarvesterScenario {
+    private MockHttpService httpServerMock;
+    private YarnCluster cluster;
+    private YarnLogConversionModeCache logConversionModeCache;
+    private YarnAppContainerLogHarvester harvester;
+    private List<ContainerLogChunk> harvested;
+
+    @Before("@YarnAppContainerLogHarvesterScenario")
+    public void setUp() {
+        httpServerMock = MockHttpService.create();
+        WireMock.configureFor(httpServerMock.getPort());
+        logConversionModeCache = YarnLogConversionModeCache.create();
+    }
+
+    @After("@YarnAppContainerLogHarvesterScenario")
+    public void cleanUp() {
+        httpServerMock.stop();
+    }
+
+    private void stubGet(String path, int statusCode, String body) {
+        WireMock.stubFor(get(urlPathEqualTo(path))
+                .willReturn(aResponse().withStatus(statusCode).withBody(body)));
+    }
+
+    private String nodeBasePath(String nodeHttpAddress) {
+        // With the WITH_PORT conversion mode
+        String[] hostPort = nodeHttpAddress.split(":");
+
+        return "/yarnui/" + hostPort[0] + "/port/" + hostPort[1];
+    }
+
+    @Given("create a Yarn application container log harvester for {string}")
+    public void createYarnApplicationContainerLogHarvester(String applicationId) {
+        cluster = mock(YarnCluster.class);
+        when(cluster.getYarnUIBaseUrl()).thenReturn(httpServerMock.completeUrl("/yarnui/"));
+        when(cluster.getYarnNMConnectionUrl()).thenReturn(httpServerMock.completeUrl("/yarnui/ws/v1/cluster/apps/"));
+
+        harvester = new YarnAppContainerLogHarvester(applicationId, cluster, new HttpObservable());
+        harvester.setLogConversionModeCache(logConversionModeCache);
+    }
+
+    @And("mock the Yarn cluster nodes")
+    public void mockTheYarnClusterNodes(List<Map<String, String>> nodes) {
+        String nodesJson = nodes.stream()
+                .map(node -> String.format("{\"id\": \"%s\", \"state\": \"%s\", \"nodeHTTPAddress\": \"%s\"}",
+                        node.get("ID"), node.get("STATE"), node.get("HTTP_ADDRESS")))
+                .collect(Collectors.joining(", "));
+
+        stubGet("/yarnui/ws/v1/cluster/nodes", 200, "{\"nodes\": {\"node\": [" + nodesJson + "]}}");
+    }
+
+    @And("cache the Yarn log conversion mode {string}")
+    public void cacheTheYarnLogConversionMode(String mode) {
+        logConversionModeCache.put(cluster, YarnLogConversionMode.valueOf(mode));
+    }
+
+    @And("mock the Yarn application attempt logs link {string}")
+    public void mockTheYarnApplicationAttemptLogsLink(String logsLink) {
+        stubGet("/yarnui/ws/v1/cluster/apps/" + harvester.getApplicationId() + "/appattempts", 200,
+                "{\"appAttempts\": {\"appAttempt\": [{\"id\": 1, \"logsLink\": \"" + logsLink + "\"}]}}");
+    }
+
+    @And("mock the Yarn UI GET request {string} with status code {int}")
+    public void mockTheYarnUIGetRequest(String path, int statusCode) {
+        stubGet(path, statusCode, "{}");
+    }
+
+    @And("mock the containers {string} of the application on node {string}")
+    public void mockTheContainersOfTheApplicationOnNode(String containerIds, String nodeHttpAddress) {
+        String containerIdsJson = Arrays.stream(containerIds.split(","))
+                .map(containerId -> "\"" + containerId + "\"")
+                .collect(Collectors.joining(", "));
+
+        stubGet(nodeBasePath(nodeHttpAddress) + "/ws/v1/node/apps/" + harvester.getApplicationId(), 200,
+                "{\"app\": {\"id\": \"" + harvester.getApplicationId() + "\", \"state\": \"RUNNING\", "
+                        + "\"user\": \"livy\", \"containerids\": [" + containerIdsJson + "]}}");
+    }
+
+    @And("mock the {string} logs of container {string} on node {string} as {string}")
+    public void mockTheLogsOfContainerOnNode(String type, String containerId, String nodeHttpAddress, String logs) {
+        // The range is ignored and the whole log file is returned
+        WireMock.stubFor(get(urlPathEqualTo(
+                nodeBasePath(nodeHttpAddress) + "/ws/v1/node/containers/" + containerId + "/logs/" + type))
+                .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "text/plain").withBody(logs)));
+    }
+
+    @And("set the container log harvester chunk bytes to {int}")
+    public void setTheContainerLogHarvesterChunkBytes(int chunkBytes) {
+        harvester.setChunkBytes(chunkBytes);
+    }
+
+    @And("set the container log harvester tail bytes to {int}")
+    public void setTheContainerLogHarvesterTailBytes(int tailBytes) {
+        harvester.setTailBytes(tailBytes);
+    }
+
+    @And("set the container log harvester log types to {string}")
+    public void setTheContainerLogHarvesterLogTypes(String types) {
+        harvester.setLogTypes(Arrays.asList(types.split(",")));
+    }
+
+    @When("harvest the container logs in {string} mode")
+    public void harvestTheContainerLogsInMode(String mode) {
+        harvested = harvester.harvest(Mode.valueOf(mode)).toList().toBlocking().single();
+    }
+
+    @Then("check the harvested container logs should be")
+    public void checkTheHarvestedContainerLogsShouldBe(List<Map<String, String>> expectLogs) {
+        Map<String, StringBuilder> logsByContainerType = new HashMap<>();
+        Map<String, Integer> chunksByContainerType = new HashMap<>();
+        Map<String, Long> endByContainerType = new HashMap<>();
+
+        for (ContainerLogChunk logChunk : harvested) {
+            String key = logChunk.getContainerId() + "/" + logChunk.getType();
+            Long lastEnd = endByContainerType.get(key);
+
+            // The chunks of a container log type are in order without gaps
+            if (lastEnd != null) {
+                assertEquals((long) lastEnd, logChunk.getChunk().getStart());
+            }
+
+            endByContainerType.put(key, logChunk.getChunk().getEnd());
+            logsByContainerType.computeIfAbsent(key, k -> new StringBuilder()).append(logChunk.getChunk().getText());
+            chunksByContainerType.merge(key, 1, Integer::sum);
+        }
+
+        assertEquals(expectLogs.size(), logsByContainerType.size());
+
+        for (Map<String, String> expect : expectLogs) {
+            String key = expect.get("CONTAINER") + "/" + expect.get("TYPE");
+
+            assertEquals(key, expect.get("LOGS"), String.valueOf(logsByContainerType.get(key)));
+            assertEquals(key, Integer.valueOf(expect.get("CHUNKS")), chunksByContainerType.get(key));
+        }
+    }
+
+    @Then("check the Yarn UI GET request {string} should be sent {int} times")
+    public void checkTheYarnUIGetRequestShouldBeSent(String path, int count) {
+        WireMock.verify(count, getRequestedFor(urlEqualTo(path)));
+    }
+
+    @Then("check the Yarn UI GET request {string} should be sent {int} times with Range {string}")
+    public void checkTheYarnUIGetRequestShouldBeSentWithRange(String path, int count, String range) {
+        WireMock.verify(count, getRequestedFor(urlEqualTo(path)).withHeader("Range", equalTo(range)));
+    }
+}
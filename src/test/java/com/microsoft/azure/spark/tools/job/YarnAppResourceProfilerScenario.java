@@ -0,0 +1,152 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import com.microsoft.azure.spark.tools.job.YarnAppResourceProfiler.Sample;
+import com.microsoft.azure.spark.tools.job.YarnAppResourceProfiler.Summary;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.App;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class YarnAppResourceProfilerScenario {
+    private TestScheduler scheduler;
+    private volatile App app;
+    private YarnAppResourceProfiler profiler;
+    private TestSubscriber<Summary> summarySubscriber;
+
+    @Before("@YarnAppResourceProfilerScenario")
+    public void setUp() {
+        scheduler = new TestScheduler();
+        app = null;
+        summarySubscriber = new TestSubscriber<>();
+    }
+
+    @After("@YarnAppResourceProfilerScenario")
+    public void cleanUp() {
+        profiler.close();
+    }
+
+    @Given("create a Yarn application resource profiler with history size {int} and interval {int} milliseconds")
+    public void createYarnApplicationResourceProfiler(int historySize, int intervalMillis) {
+        Observable<App> appRequest = Observable.defer(() -> {
+            App current = app;
+
+            return current == null
+                    ? Observable.error(new IOException("Yarn application request failed"))
+                    : Observable.just(current);
+        });
+
+        profiler = new YarnAppResourceProfiler(appRequest, historySize, scheduler);
+        profiler.setSampleIntervalMillis(intervalMillis);
+        profiler.getSummary().subscribe(summarySubscriber);
+    }
+
+    @And("mock the Yarn application {string} with {int} MB, {int} vcores, {int} containers and {float} progress")
+    public void mockTheYarnApplication(String state, int allocatedMB, int allocatedVCores, int runningContainers,
+                                       float progress) {
+        App mocked = mock(App.class);
+        when(mocked.getState()).thenReturn(state);
+        when(mocked.getAllocatedMB()).thenReturn(allocatedMB);
+        when(mocked.getAllocatedVCores()).thenReturn(allocatedVCores);
+        when(mocked.getRunningContainers()).thenReturn(runningContainers);
+        when(mocked.getProgress()).thenReturn(progress);
+
+        app = mocked;
+    }
+
+    @And("mock the Yarn application cost with {int} MB-seconds and {int} vcore-seconds")
+    public void mockTheYarnApplicationCost(int memorySeconds, int vcoreSeconds) {
+        when(app.getMemorySeconds()).thenReturn((long) memorySeconds);
+        when(app.getVcoreSeconds()).thenReturn((long) vcoreSeconds);
+    }
+
+    @And("mock the profiled Yarn application request to fail")
+    public void mockTheProfiledYarnApplicationRequestToFail() {
+        app = null;
+    }
+
+    @When("start the Yarn application resource profiler")
+    public void startTheYarnApplicationResourceProfiler() {
+        profiler.start();
+        scheduler.triggerActions();
+    }
+
+    @When("advance the profiling time by {int} milliseconds")
+    public void advanceTheProfilingTime(int millis) {
+        scheduler.advanceTimeBy(millis, TimeUnit.MILLISECONDS);
+    }
+
+    @When("close the Yarn application resource profiler")
+    public void closeTheYarnApplicationResourceProfiler() {
+        profiler.close();
+    }
+
+    @Then("check the Yarn application resource samples should be")
+    public void checkTheYarnApplicationResourceSamplesShouldBe(List<Map<String, String>> expectSamples) {
+        List<Sample> samples = profiler.getSamples();
+
+        assertEquals(expectSamples.size(), samples.size());
+
+        for (int i = 0; i < samples.size(); i++) {
+            Map<String, String> expect = expectSamples.get(i);
+
+            assertEquals(Long.parseLong(expect.get("SEQUENCE")), samples.get(i).getSequence());
+            assertEquals(Long.parseLong(expect.get("TIMESTAMP")), samples.get(i).getTimestampMillis());
+            assertEquals(Integer.parseInt(expect.get("ALLOCATED_MB")), samples.get(i).getAllocatedMB());
+            assertEquals(Integer.parseInt(expect.get("RUNNING_CONTAINERS")), samples.get(i).getRunningContainers());
+            assertEquals(Float.parseFloat(expect.get("PROGRESS")), samples.get(i).getProgress(), 0.01);
+        }
+    }
+
+    @Then("check the Yarn application resource profiler should have {int} samples and {int} failures")
+    public void checkTheYarnApplicationResourceProfilerShouldHave(int expectSamples, int expectFailures) {
+        assertEquals(expectSamples, profiler.summarize().getSamples());
+        assertEquals(expectFailures, profiler.getFailures());
+    }
+
+    @Then("check the Yarn application resource summary should not be emitted")
+    public void checkTheYarnApplicationResourceSummaryShouldNotBeEmitted() {
+        summarySubscriber.assertNoValues();
+        summarySubscriber.assertNotCompleted();
+    }
+
+    @Then("check the Yarn application resource summary emitted should be")
+    public void checkTheYarnApplicationResourceSummaryEmittedShouldBe(List<Map<String, String>> expectSummaries) {
+        summarySubscriber.assertValueCount(1);
+        summarySubscriber.assertCompleted();
+
+        Summary summary = summarySubscriber.getOnNextEvents().get(0);
+        Map<String, String> expect = expectSummaries.get(0);
+
+        assertEquals(expect.get("STATE"), summary.getState());
+        assertEquals(Boolean.parseBoolean(expect.get("FINISHED")), summary.isAppFinished());
+        assertEquals(Long.parseLong(expect.get("DURATION")), summary.getDurationMillis());
+        assertEquals(Integer.parseInt(expect.get("PEAK_MB")), summary.getPeakAllocatedMB());
+        assertEquals(Integer.parseInt(expect.get("PEAK_VCORES")), summary.getPeakAllocatedVCores());
+        assertEquals(Integer.parseInt(expect.get("PEAK_EXECUTORS")), summary.getPeakExecutors());
+        assertEquals(Double.parseDouble(expect.get("AVERAGE_MB")), summary.getAverageAllocatedMB(), 0.01);
+        assertEquals(Double.parseDouble(expect.get("AVERAGE_VCORES")), summary.getAverageAllocatedVCores(), 0.01);
+        assertEquals(Double.parseDouble(expect.get("AVERAGE_CONTAINERS")),
+                summary.getAverageRunningContainers(), 0.01);
+        assertEquals(Long.parseLong(expect.get("MEMORY_SECONDS")), summary.getMemorySeconds());
+        assertEquals(Long.parseLong(expect.get("VCORE_SECONDS")), summary.getVcoreSeconds());
+    }
+}
@@ -0,0 +1,142 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import cucumber.api.java.Before;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import com.microsoft.azure.spark.tools.job.YarnAppStateTracker.Snapshot;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.App;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.YarnApplicationState;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class YarnAppStateTrackerScenario {
+    private static final URI DRIVER_LOG_URL = URI.create(
+            "http://127.0.0.1/yarnui/10.0.0.7/port/30060/node/containerlogs/container_1513565654634_0011_01_000001/livy");
+
+    private TestScheduler scheduler;
+    private AtomicInteger requests;
+    private volatile String appState;
+    private YarnAppStateTracker tracker;
+    private List<TestSubscriber<Snapshot>> subscribers;
+
+    @Before("@YarnAppStateTrackerScenario")
+    public void setUp() {
+        scheduler = new TestScheduler();
+        requests = new AtomicInteger();
+        appState = null;
+        subscribers = new ArrayList<>();
+    }
+
+    @Given("create a Yarn application state tracker with refresh interval {int} and request time {int} milliseconds")
+    public void createYarnApplicationStateTracker(int refreshIntervalMillis, int requestMillis) {
+        Observable<App> appRequest = Observable.defer(() -> {
+            requests.incrementAndGet();
+            String state = appState;
+
+            return Observable.timer(requestMillis, TimeUnit.MILLISECONDS, scheduler)
+                    .flatMap(any -> {
+                        if (state == null) {
+                            return Observable.error(new IOException("Yarn application request failed"));
+                        }
+
+                        App app = mock(App.class);
+                        when(app.getState()).thenReturn(state);
+
+                        return Observable.just(app);
+                    });
+        });
+
+        // The driver container is allocated after the application is accepted
+        tracker = new YarnAppStateTracker(
+                appRequest,
+                app -> app.getState().equals("ACCEPTED") ? Observable.empty() : Observable.just(DRIVER_LOG_URL),
+                refreshIntervalMillis,
+                scheduler);
+    }
+
+    @And("mock the Yarn application state {string}")
+    public void mockTheYarnApplicationState(String state) {
+        appState = state;
+    }
+
+    @And("mock the Yarn application request to fail")
+    public void mockTheYarnApplicationRequestToFail() {
+        appState = null;
+    }
+
+    @When("get the Yarn application snapshot {int} times")
+    public void getTheYarnApplicationSnapshot(int times) {
+        subscribers.clear();
+
+        for (int i = 0; i < times; i++) {
+            TestSubscriber<Snapshot> subscriber = new TestSubscriber<>();
+            tracker.get().subscribe(subscriber);
+            subscribers.add(subscriber);
+        }
+    }
+
+    @When("advance the Yarn application state tracker time by {int} milliseconds")
+    public void advanceTheYarnApplicationStateTrackerTime(int millis) {
+        scheduler.advanceTimeBy(millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Then("check the Yarn application snapshots got should be {string} with driver log URL")
+    public void checkTheYarnApplicationSnapshotsGotWithDriverLogUrl(String state) {
+        for (TestSubscriber<Snapshot> subscriber : subscribers) {
+            subscriber.assertValueCount(1);
+            subscriber.assertCompleted();
+
+            Snapshot snapshot = subscriber.getOnNextEvents().get(0);
+            assertEquals(YarnApplicationState.valueOf(state), snapshot.getState());
+            assertEquals(DRIVER_LOG_URL, snapshot.getDriverLogUrl());
+        }
+    }
+
+    @Then("check the Yarn application snapshots got should be {string} without driver log URL")
+    public void checkTheYarnApplicationSnapshotsGotWithoutDriverLogUrl(String state) {
+        for (TestSubscriber<Snapshot> subscriber : subscribers) {
+            subscriber.assertValueCount(1);
+            subscriber.assertCompleted();
+
+            Snapshot snapshot = subscriber.getOnNextEvents().get(0);
+            assertEquals(YarnApplicationState.valueOf(state), snapshot.getState());
+            assertNull(snapshot.getDriverLogUrl());
+        }
+    }
+
+    @Then("check the Yarn application snapshots got should fail")
+    public void checkTheYarnApplicationSnapshotsGotShouldFail() {
+        for (TestSubscriber<Snapshot> subscriber : subscribers) {
+            subscriber.assertNoValues();
+            subscriber.assertError(IOException.class);
+        }
+
+        assertNull(tracker.getLatest());
+    }
+
+    @And("check the Yarn application should be requested {int} times")
+    public void checkTheYarnApplicationShouldBeRequested(int times) {
+        assertEquals(times, requests.get());
+        assertNotNull(tracker.getLatest());
+    }
+}
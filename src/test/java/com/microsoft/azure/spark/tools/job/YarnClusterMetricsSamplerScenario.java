@@ -0,0 +1,137 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import rx.schedulers.TestScheduler;
+
+import com.microsoft.azure.spark.tools.clusters.YarnCluster;
+import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.job.YarnClusterMetricsSampler.QueueUsage;
+import com.microsoft.azure.spark.tools.job.YarnClusterMetricsSampler.Sample;
+import com.microsoft.azure.spark.tools.utils.MockHttpService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class YarnClusterMetricsSamplerScenario {
+    private MockHttpService httpServerMock;
+    private TestScheduler scheduler;
+    private YarnClusterMetricsSampler sampler;
+
+    @Before("@YarnClusterMetricsSamplerScenario")
+    public void setUp() {
+        httpServerMock = MockHttpService.create();
+        WireMock.configureFor(httpServerMock.getPort());
+        scheduler = new TestScheduler();
+    }
+
+    @After("@YarnClusterMetricsSamplerScenario")
+    public void cleanUp() {
+        sampler.close();
+        httpServerMock.stop();
+    }
+
+    @Given("create the Yarn cluster metrics sampler with history size {int}")
+    public void createTheYarnClusterMetricsSampler(int historySize) {
+        YarnCluster cluster = mock(YarnCluster.class);
+        when(cluster.getYarnUIBaseUrl()).thenReturn(httpServerMock.completeUrl("/yarnui/"));
+        when(cluster.getYarnNMConnectionUrl()).thenReturn(httpServerMock.completeUrl("/yarnui/ws/v1/cluster/apps/"));
+
+        sampler = new YarnClusterMetricsSampler(cluster, new HttpObservable(), historySize, scheduler);
+    }
+
+    @And("mock the Yarn cluster metrics with {int} available MB and {int} available vcores")
+    public void mockTheYarnClusterMetrics(int availableMB, int availableVCores) {
+        WireMock.stubFor(get(urlEqualTo("/yarnui/ws/v1/cluster/metrics"))
+                .willReturn(aResponse().withStatus(200).withBody(String.format(
+                        "{\"clusterMetrics\": {\"availableMB\": %d, \"totalMB\": 8192, "
+                                + "\"availableVirtualCores\": %d, \"totalVirtualCores\": 8, \"appsPending\": 0}}",
+                        availableMB, availableVCores))));
+    }
+
+    @And("mock the Yarn cluster metrics to fail")
+    public void mockTheYarnClusterMetricsToFail() {
+        WireMock.stubFor(get(urlEqualTo("/yarnui/ws/v1/cluster/metrics"))
+                .willReturn(aResponse().withStatus(500).withBody("Internal error")));
+    }
+
+    @And("mock the Yarn scheduler queue {string} with {float} used and {float} max capacity")
+    public void mockTheYarnSchedulerQueue(String queue, float usedCapacity, float maxCapacity) {
+        WireMock.stubFor(get(urlEqualTo("/yarnui/ws/v1/cluster/scheduler"))
+                .willReturn(aResponse().withStatus(200).withBody(String.format(
+                        "{\"scheduler\": {\"schedulerInfo\": {\"type\": \"capacityScheduler\", \"queueName\": "
+                                + "\"root\", \"queues\": {\"queue\": [{\"queueName\": \"%s\", "
+                                + "\"absoluteUsedCapacity\": %f, \"absoluteMaxCapacity\": %f, "
+                                + "\"numApplications\": 1}]}}}}",
+                        queue, usedCapacity, maxCapacity))));
+    }
+
+    @When("sample the Yarn cluster metrics once")
+    public void sampleTheYarnClusterMetricsOnce() {
+        sampler.sampleOnce().toBlocking().single();
+    }
+
+    @When("start the Yarn cluster metrics sampler with interval {int} milliseconds")
+    public void startTheYarnClusterMetricsSampler(int intervalMillis) {
+        sampler.setSampleIntervalMillis(intervalMillis);
+        sampler.start();
+        scheduler.triggerActions();
+    }
+
+    @When("advance the sampling time by {int} milliseconds")
+    public void advanceTheSamplingTime(int millis) {
+        scheduler.advanceTimeBy(millis, TimeUnit.MILLISECONDS);
+    }
+
+    @When("close the Yarn cluster metrics sampler")
+    public void closeTheYarnClusterMetricsSampler() {
+        sampler.close();
+    }
+
+    @Then("check the Yarn cluster metrics samples should be")
+    public void checkTheYarnClusterMetricsSamplesShouldBe(List<Map<String, String>> expectSamples) {
+        List<Sample> samples = sampler.getSamples();
+
+        assertEquals(expectSamples.size(), samples.size());
+
+        for (int i = 0; i < samples.size(); i++) {
+            assertEquals(Long.parseLong(expectSamples.get(i).get("SEQUENCE")), samples.get(i).getSequence());
+            assertEquals(Long.parseLong(expectSamples.get(i).get("AVAILABLE_MB")), samples.get(i).getAvailableMB());
+            assertEquals(Long.parseLong(expectSamples.get(i).get("AVAILABLE_VCORES")),
+                    samples.get(i).getAvailableVirtualCores());
+        }
+    }
+
+    @Then("check the latest Yarn cluster metrics sample should have queue {string} with {float} headroom")
+    public void checkTheLatestSampleShouldHaveQueueHeadroom(String queue, float expectHeadroom) {
+        Sample latest = sampler.getLatest();
+        assertNotNull(latest);
+
+        QueueUsage usage = latest.getQueueUsage(queue);
+        assertNotNull(usage);
+        assertEquals(expectHeadroom, usage.getHeadroomPercentage(), 0.01);
+    }
+
+    @Then("check the Yarn cluster metrics sampler should have {int} samples and {int} failures")
+    public void checkTheYarnClusterMetricsSamplerShouldHave(int expectSamples, int expectFailures) {
+        assertEquals(expectSamples, sampler.getSamples().size());
+        assertEquals(expectFailures, sampler.getFailures());
+    }
+}
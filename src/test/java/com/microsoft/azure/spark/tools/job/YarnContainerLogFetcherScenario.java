@@ -3,25 +3,48 @@
 
 package com.microsoft.azure.spark.tools.job;
 
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.matching.RequestPatternBuilder;
 import com.microsoft.azure.spark.tools.clusters.YarnCluster;
 import com.microsoft.azure.spark.tools.http.AmbariHttpObservable;
 import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.processes.SparkJobLogInputStream;
+import com.microsoft.azure.spark.tools.restapi.yarn.rm.apps.appid.App;
 import com.microsoft.azure.spark.tools.utils.LaterInit;
 import com.microsoft.azure.spark.tools.utils.MockHttpService;
 import cucumber.api.java.After;
 import cucumber.api.java.Before;
 import cucumber.api.java.en.Given;
 import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
 import org.apache.commons.io.IOUtils;
 import uk.org.lidalia.slf4jtest.TestLogger;
 import uk.org.lidalia.slf4jtest.TestLoggerFactory;
 
+import com.github.tomakehurst.wiremock.client.WireMock;
+
 import java.io.File;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.configureFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -35,12 +58,18 @@ public class YarnContainerLogFetcherScenario {
     private YarnContainerLogFetcher yarnDriverLogFetcherMock;
     private TestLogger logger = TestLoggerFactory.getTestLogger(YarnContainerLogFetcher.class);
     private Map<String, String> logsByType = Collections.emptyMap();
+    private String logsFetched;
+    private YarnLogConversionModeCache logConversionModeCache;
+    private SparkLogChunk chunkFetched;
+    private byte[] logsRead;
+    private long logsReadOffset;
 
     @Before("@YarnContainerLogFetcherScenario")
     public void setUp() throws Throwable {
         httpMock = new AmbariHttpObservable();
         caught = null;
         this.httpServerMock = MockHttpService.create();
+        this.logConversionModeCache = YarnLogConversionModeCache.create();
     }
 
     @After("@YarnContainerLogFetcherScenario")
@@ -64,6 +93,7 @@ public class YarnContainerLogFetcherScenario {
     @Given("^create a yarn application driver with id (.+)$")
     public void createAYarnApplicationDriverWithId(String appIdMock) {
         yarnDriverLogFetcherMock = new YarnContainerLogFetcher(appIdMock, yarnClusterMock, httpMock);
+        yarnDriverLogFetcherMock.setLogConversionModeCache(logConversionModeCache);
     }
 
     @Then("^Parsing driver HTTP address '(.+)' should get host '(.+)'$")
@@ -105,6 +135,18 @@ public class YarnContainerLogFetcherScenario {
         assertEquals(httpServerMock.normalizeResponse(expect), url.toString());
     }
 
+    @Given("set the driver log URL hint to {string}")
+    public void setTheDriverLogURLHintTo(String hint) {
+        yarnDriverLogFetcherMock.setDriverLogUrlHint(() -> httpServerMock.normalizeResponse(hint));
+    }
+
+    @Then("check the Yarn request {string} to {string} should be sent {int} times")
+    public void checkTheYarnRequestShouldBeSentTimes(String method, String targetUrl, int expectCount) {
+        configureFor(httpServerMock.getPort());
+        verify(expectCount, new RequestPatternBuilder(
+                RequestMethod.fromString(method.toUpperCase()), urlEqualTo(targetUrl)));
+    }
+
     @Then("^getting Spark Job driver log URL Observable should be empty$")
     public void gettingSparkJobDriverLogURLObservableShouldBeEmpty() throws Throwable {
         assertTrue(yarnDriverLogFetcherMock.getSparkJobDriverLogUrl().isEmpty().toBlocking().last());
@@ -138,4 +180,194 @@ public class YarnContainerLogFetcherScenario {
     public void checkTheTypeLogPrelaunchErrShouldNotExist(String type) {
         assertFalse("Should not exist log type: " + type, logsByType.containsKey(type));
     }
+
+    @Given("cache the Yarn log URL conversion mode {string} of the Yarn cluster")
+    public void cacheTheYarnLogURLConversionModeOfTheYarnCluster(String mode) {
+        logConversionModeCache.put(yarnClusterMock, YarnLogConversionMode.valueOf(mode));
+    }
+
+    @Then("check the Yarn log URL conversion mode cached of the Yarn cluster should be {string}")
+    public void checkTheYarnLogURLConversionModeCachedShouldBe(String expectMode) {
+        assertEquals(YarnLogConversionMode.valueOf(expectMode), logConversionModeCache.getIfPresent(yarnClusterMock));
+    }
+
+    @Given("fetch {string} logs from offset {int} with the Yarn container log fetcher")
+    public void fetchLogsWithTheYarnContainerLogFetcher(String type, int offset) {
+        logsFetched = yarnDriverLogFetcherMock.fetch(type, offset, 0).toBlocking().firstOrDefault("");
+    }
+
+    @Then("check the Yarn container logs fetched should be {string} from {string}")
+    public void checkTheYarnContainerLogsFetchedShouldBe(String expectLogs, String expectSource) {
+        assertEquals(expectLogs, logsFetched);
+        assertEquals(expectSource, yarnDriverLogFetcherMock.getLogSource().getName());
+    }
+
+    @Then("check the Yarn container log fetcher should know the tail offset: {string}")
+    public void checkTheYarnContainerLogFetcherShouldKnowTheTailOffset(String expect) {
+        assertEquals(Boolean.parseBoolean(expect), yarnDriverLogFetcherMock.isTailOffsetKnown());
+    }
+
+    @Given("mock the NodeManager REST logs {string} at {string} in byte ranges")
+    public void mockTheNodeManagerRestLogsInByteRanges(String logs, String logPath) {
+        byte[] bytes = logs.getBytes(UTF_8);
+
+        configureFor(httpServerMock.getPort());
+        for (int start = 0; start < bytes.length; start++) {
+            WireMock.stubFor(WireMock.get(urlEqualTo(logPath))
+                    .withHeader("Range", WireMock.equalTo("bytes=" + start + "-"))
+                    .willReturn(WireMock.aResponse().withStatus(206)
+                            .withHeader("Content-Type", "text/plain")
+                            .withHeader("Content-Range",
+                                    "bytes " + start + "-" + (bytes.length - 1) + "/" + bytes.length)
+                            .withBody(Arrays.copyOfRange(bytes, start, bytes.length))));
+        }
+
+        WireMock.stubFor(WireMock.get(urlEqualTo(logPath))
+                .withHeader("Range", WireMock.equalTo("bytes=" + bytes.length + "-"))
+                .willReturn(WireMock.aResponse().withStatus(416)
+                        .withHeader("Content-Range", "bytes */" + bytes.length)));
+    }
+
+    @Given("fetch {string} log chunk from byte offset {int} with the Yarn container log fetcher")
+    public void fetchLogChunkWithTheYarnContainerLogFetcher(String type, int byteOffset) {
+        chunkFetched = yarnDriverLogFetcherMock.fetchChunk(type, byteOffset, 0).toBlocking().firstOrDefault(null);
+    }
+
+    @Then("check the Yarn container log chunk fetched should be {string} in bytes {int} to {int}")
+    public void checkTheYarnContainerLogChunkFetchedShouldBe(String expectLogs, int expectStart, int expectEnd) {
+        assertNotNull(chunkFetched);
+        assertEquals(expectLogs, chunkFetched.getText());
+        assertEquals(expectStart, chunkFetched.getStart());
+        assertEquals(expectEnd, chunkFetched.getEnd());
+    }
+
+    @Then("check the Yarn container log chunk fetched should be none")
+    public void checkTheYarnContainerLogChunkFetchedShouldBeNone() {
+        assertNull(chunkFetched);
+    }
+
+    @Given("read all {string} logs from the Spark job log input stream with the Yarn container log fetcher")
+    public void readAllLogsFromTheSparkJobLogInputStream(String type) throws Throwable {
+        SparkJobLogInputStream inputStream = new SparkJobLogInputStream(type);
+        inputStream.attachLogFetcher(yarnDriverLogFetcherMock);
+
+        logsRead = IOUtils.toByteArray(inputStream);
+        logsReadOffset = inputStream.getOffset();
+    }
+
+    @Then("check the Spark job log input stream should read {string} till byte offset {int}")
+    public void checkTheSparkJobLogInputStreamShouldRead(String expectLogs, int expectOffset) {
+        assertEquals(expectLogs, new String(logsRead, UTF_8));
+        assertEquals(expectOffset, logsReadOffset);
+    }
+
+    private final List<String> stressViolations = Collections.synchronizedList(new ArrayList<>());
+    private Map<String, Long> largestOffsetSet;
+    private long latestRequestSeq;
+    private Map<App, Long> requestSeqByApp;
+
+    private void runConcurrently(int threads, IntConsumer task) throws InterruptedException {
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            for (int i = 0; i < threads; i++) {
+                int threadIndex = i;
+
+                executor.execute(() -> {
+                    try {
+                        barrier.await();
+                        task.accept(threadIndex);
+                    } catch (Exception ex) {
+                        stressViolations.add(ex.toString());
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        }
+    }
+
+    @When("set the completed offsets of {string} logs concurrently with {int} threads and {int} times each")
+    public void setTheCompletedOffsetsConcurrently(String types, int threads, int times) throws InterruptedException {
+        List<String> logTypes = Arrays.asList(types.split(","));
+        largestOffsetSet = new ConcurrentHashMap<>();
+
+        runConcurrently(threads, threadIndex -> {
+            Random random = new Random(threadIndex);
+            Map<String, Long> lastSeen = new HashMap<>();
+
+            for (int i = 0; i < times; i++) {
+                String type = logTypes.get(random.nextInt(logTypes.size()));
+                long offset = random.nextInt(1_000_000);
+
+                yarnDriverLogFetcherMock.setCompleted(type, offset);
+                largestOffsetSet.merge(type, offset, Math::max);
+
+                // The offset set by this thread is seen at once, and the offsets seen never go back
+                Long seen = yarnDriverLogFetcherMock.getCompletedOffset(type);
+                Long lastSeenOffset = lastSeen.put(type, seen);
+                if (seen == null || seen < offset || (lastSeenOffset != null && seen < lastSeenOffset)) {
+                    stressViolations.add(type + " offset " + seen + " after setting " + offset
+                            + " and seeing " + lastSeenOffset);
+                }
+
+                // The logs before the offset set are still fetchable, but none after all offsets set
+                if ((offset > 0 && !yarnDriverLogFetcherMock.isFetchable(type, offset - 1))
+                        || yarnDriverLogFetcherMock.isFetchable(type, 1_000_000)) {
+                    stressViolations.add(type + " fetchable is wrong after setting " + offset);
+                }
+            }
+        });
+    }
+
+    @Then("check the completed offsets should only grow to the largest one set")
+    public void checkTheCompletedOffsetsShouldOnlyGrowToTheLargestOneSet() {
+        assertEquals(Collections.emptyList(), stressViolations);
+
+        for (Map.Entry<String, Long> largest : largestOffsetSet.entrySet()) {
+            assertEquals(largest.getValue(), yarnDriverLogFetcherMock.getCompletedOffset(largest.getKey()));
+        }
+    }
+
+    @When("publish the Yarn applications of {int} requests concurrently with {int} threads")
+    public void publishTheYarnApplicationsConcurrently(int requests, int threads) throws InterruptedException {
+        AtomicLong requestSeq = new AtomicLong();
+        List<App> apps = new ArrayList<>();
+        requestSeqByApp = new IdentityHashMap<>();
+
+        for (int i = 0; i <= requests; i++) {
+            App app = new App();
+            apps.add(app);
+            requestSeqByApp.put(app, (long) i);
+        }
+
+        runConcurrently(threads, threadIndex -> {
+            long lastSeenSeq = 0;
+
+            for (long first = requestSeq.getAndAdd(2) + 1; first < requests; first = requestSeq.getAndAdd(2) + 1) {
+                // The response of the request started earlier is published later
+                for (long seq : new long[] { first + 1, first }) {
+                    boolean isPublished = yarnDriverLogFetcherMock.publishApp(seq, apps.get((int) seq));
+                    long seenSeq = requestSeqByApp.get(yarnDriverLogFetcherMock.getLastApp());
+
+                    if (seenSeq < lastSeenSeq || (isPublished && seenSeq < seq) || (!isPublished && seenSeq <= seq)) {
+                        stressViolations.add("Request " + seq + " published " + isPublished + " but saw request "
+                                + seenSeq + " after " + lastSeenSeq);
+                    }
+
+                    lastSeenSeq = seenSeq;
+                }
+            }
+        });
+
+        latestRequestSeq = requests;
+    }
+
+    @Then("check the Yarn application published should only move to the latest request")
+    public void checkTheYarnApplicationPublishedShouldOnlyMoveToTheLatestRequest() {
+        assertEquals(Collections.emptyList(), stressViolations);
+        assertEquals(Long.valueOf(latestRequestSeq), requestSeqByApp.get(yarnDriverLogFetcherMock.getLastApp()));
+    }
 }
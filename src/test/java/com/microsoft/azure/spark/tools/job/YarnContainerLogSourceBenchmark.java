@@ -0,0 +1,135 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.microsoft.azure.spark.tools.http.HttpObservable;
+import com.microsoft.azure.spark.tools.utils.MockHttpService;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Yarn container log fetching throughput between the NodeManager REST API plain text and the Yarn UI
+ * log page HTML scraping, with a local mock HTTP service serving a driver log of the given size. The incremental
+ * polling of the last logs is compared as well, since the mock service ignores the `Range` header as some
+ * NodeManagers do. Run with the main method to get the allocations by GC profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class YarnContainerLogSourceBenchmark {
+    private static final String CONTAINER_LOGS_PATH =
+            "/yarnui/10.0.0.7/port/30060/node/containerlogs/container_1513565654634_0011_01_000002/livy";
+    private static final int INCREMENT_BYTES = 4096;
+
+    @Param({ "1", "8" })
+    public int logMegaBytes = 1;
+
+    private MockHttpService httpServerMock;
+    private URI containerLogUrl;
+    private final HttpObservable http = new HttpObservable();
+    private final YarnNodeManagerRestLogSource restLogSource = new YarnNodeManagerRestLogSource(http);
+    private final YarnLogPageLogSource pageLogSource = new YarnLogPageLogSource(http);
+    private final YarnNodeManagerRestLogSource restLogSourceWithFallback =
+            new YarnNodeManagerRestLogSource(http, pageLogSource);
+    private long incrementStart;
+
+    @Setup
+    public void setUp() {
+        StringBuilder logs = new StringBuilder();
+        for (int i = 0; logs.length() < logMegaBytes * 1024 * 1024; i++) {
+            logs.append(String.format("19/06/12 08:%02d:%02d INFO Executor: Finished task %d.0 in stage 0.0 "
+                    + "(TID %d). 1089 bytes result sent to driver <exit code 0>%n", i / 60 % 60, i % 60, i, i));
+        }
+
+        // Stub with WireMock directly, the MockHttpService template rendering is too slow for the large logs
+        httpServerMock = MockHttpService.create();
+        WireMock.configureFor(httpServerMock.getPort());
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo(
+                "/yarnui/10.0.0.7/port/30060/ws/v1/node/containers/container_1513565654634_0011_01_000002/logs/stdout"))
+                .willReturn(WireMock.aResponse().withStatus(200)
+                        .withHeader("Content-Type", "text/plain")
+                        .withBody(logs.toString())));
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo(CONTAINER_LOGS_PATH + "/stdout?start=0"))
+                .willReturn(WireMock.aResponse().withStatus(200)
+                        .withHeader("Content-Type", "text/html")
+                        .withBody("<html><body><table><tr><td id=\"navcell\"></td><td><p>Log Type: stdout</p><pre>"
+                                + StringEscapeUtils.escapeHtml4(logs.toString())
+                                + "</pre></td></tr></table></body></html>")));
+
+        // The log page reads from the offset on the server
+        incrementStart = logs.length() - INCREMENT_BYTES;
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo(CONTAINER_LOGS_PATH + "/stdout?start=" + incrementStart))
+                .willReturn(WireMock.aResponse().withStatus(200)
+                        .withHeader("Content-Type", "text/html")
+                        .withBody("<html><body><table><tr><td id=\"navcell\"></td><td><p>Log Type: stdout</p><pre>"
+                                + StringEscapeUtils.escapeHtml4(logs.substring((int) incrementStart))
+                                + "</pre></td></tr></table></body></html>")));
+
+        containerLogUrl = URI.create(httpServerMock.completeUrl(CONTAINER_LOGS_PATH));
+
+        // Find the `Range` header ignored before measuring
+        restLogSourceWithFallback.fetch(containerLogUrl, "stdout", incrementStart, 0).toBlocking().single();
+    }
+
+    @TearDown
+    public void tearDown() {
+        httpServerMock.stop();
+    }
+
+    @Benchmark
+    public Object fetchFromNodeManagerRestApi() {
+        return restLogSource.fetch(containerLogUrl, "stdout", 0, 0).toBlocking().single().getLength();
+    }
+
+    @Benchmark
+    public Object fetchFromYarnLogPage() {
+        return pageLogSource.fetch(containerLogUrl, "stdout", 0, 0).toBlocking().single().getLength();
+    }
+
+    @Benchmark
+    public Object fetchIncrementFromNodeManagerRestApi() {
+        return restLogSource.fetch(containerLogUrl, "stdout", incrementStart, 0).toBlocking().single().getLength();
+    }
+
+    @Benchmark
+    public Object fetchIncrementFromNodeManagerRestApiWithFallback() {
+        return restLogSourceWithFallback.fetch(containerLogUrl, "stdout", incrementStart, 0)
+                .toBlocking()
+                .single()
+                .getLength();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(YarnContainerLogSourceBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
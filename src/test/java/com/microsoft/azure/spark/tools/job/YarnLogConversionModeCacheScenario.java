@@ -0,0 +1,131 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import com.microsoft.azure.spark.tools.clusters.YarnCluster;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class YarnLogConversionModeCacheScenario {
+    private File cacheFile;
+    private TestScheduler scheduler;
+    private YarnLogConversionModeCache cache;
+    private AtomicInteger proberCalls;
+    private Observable<YarnLogConversionMode> prober;
+    private List<TestSubscriber<YarnLogConversionMode>> getting;
+
+    @Before("@YarnLogConversionModeCacheScenario")
+    public void setUp() throws IOException {
+        cacheFile = Files.createTempFile("yarn-log-conversion-mode", ".json").toFile();
+        Files.delete(cacheFile.toPath());
+        scheduler = new TestScheduler();
+        proberCalls = new AtomicInteger();
+        getting = new ArrayList<>();
+    }
+
+    @After("@YarnLogConversionModeCacheScenario")
+    public void cleanUp() throws IOException {
+        Files.deleteIfExists(cacheFile.toPath());
+    }
+
+    private YarnCluster createCluster(String yarnUIBaseUrl) {
+        YarnCluster cluster = mock(YarnCluster.class);
+        when(cluster.getYarnUIBaseUrl()).thenReturn(yarnUIBaseUrl);
+
+        return cluster;
+    }
+
+    @Given("open the Yarn log conversion mode cache file")
+    public void openTheYarnLogConversionModeCacheFile() {
+        cache = YarnLogConversionModeCache.open(cacheFile);
+    }
+
+    @When("reopen the Yarn log conversion mode cache file")
+    public void reopenTheYarnLogConversionModeCacheFile() {
+        cache = YarnLogConversionModeCache.open(cacheFile);
+    }
+
+    @And("the Yarn log conversion mode prober returns {string} after {int} milliseconds")
+    public void theYarnLogConversionModeProberReturns(String mode, int delayMillis) {
+        prober = Observable.defer(() -> {
+            proberCalls.incrementAndGet();
+
+            return Observable.just(YarnLogConversionMode.valueOf(mode))
+                    .delay(delayMillis, TimeUnit.MILLISECONDS, scheduler);
+        });
+    }
+
+    @And("the Yarn log conversion mode prober fails")
+    public void theYarnLogConversionModeProberFails() {
+        prober = Observable.defer(() -> {
+            proberCalls.incrementAndGet();
+
+            return Observable.error(new YarnContainerLogFetcher.NoContainerPublicUriConversionException(
+                    "Can't find conversion mode"));
+        });
+    }
+
+    @When("get the Yarn log conversion mode of cluster {string} from cache {int} times concurrently")
+    public void getTheYarnLogConversionModeFromCache(String yarnUIBaseUrl, int times) {
+        getting.clear();
+
+        for (int i = 0; i < times; i++) {
+            TestSubscriber<YarnLogConversionMode> subscriber = new TestSubscriber<>();
+            cache.get(createCluster(yarnUIBaseUrl), prober).subscribe(subscriber);
+            getting.add(subscriber);
+        }
+
+        scheduler.triggerActions();
+    }
+
+    @And("advance the Yarn log conversion mode probing by {int} milliseconds")
+    public void advanceTheYarnLogConversionModeProbing(int millis) {
+        scheduler.advanceTimeBy(millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Then("check the Yarn log conversion modes got should be {string} for {int} times")
+    public void checkTheYarnLogConversionModesGotShouldBe(String expectMode, int expectTimes) {
+        assertEquals(expectTimes, getting.size());
+
+        for (TestSubscriber<YarnLogConversionMode> subscriber : getting) {
+            subscriber.assertValue(YarnLogConversionMode.valueOf(expectMode));
+            subscriber.assertCompleted();
+        }
+    }
+
+    @Then("check the Yarn log conversion mode prober should be called {int} times")
+    public void checkTheYarnLogConversionModeProberShouldBeCalled(int expectCalls) {
+        assertEquals(expectCalls, proberCalls.get());
+    }
+
+    @Then("check the Yarn log conversion mode of cluster {string} should not be cached")
+    public void checkTheYarnLogConversionModeShouldNotBeCached(String yarnUIBaseUrl) {
+        for (TestSubscriber<YarnLogConversionMode> subscriber : getting) {
+            subscriber.assertError(YarnContainerLogFetcher.NoContainerPublicUriConversionException.class);
+        }
+
+        assertNull(cache.getIfPresent(createCluster(yarnUIBaseUrl)));
+    }
+}
@@ -0,0 +1,156 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyMap;
+
+/**
+ * Compares the Yarn UI container logs page scraping between the legacy Jsoup DOM parsing and the streaming
+ * {@link YarnLogPageExtractor}, both from the page bytes as received. The page has the `directory.info`, `stdout` and
+ * `stderr` logs of the same size, with the HTML escaped characters. Run with the main method to get the allocations
+ * by GC profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class YarnLogPageExtractorBenchmark {
+    private static final Pattern LOG_TYPE_PATTERN = Pattern.compile("Log Type:\\s+(?<type>\\S+)");
+
+    @Param({ "1", "8" })
+    public int logMegaBytes = 1;
+
+    private byte[] page = new byte[0];
+    private final YarnLogPageExtractor extractor = new YarnLogPageExtractor();
+
+    @Setup
+    public void setUp() {
+        StringBuilder html = new StringBuilder("<html><head><style>#navcell { width: 11em; }</style></head><body>"
+                + "<table><tbody><tr><td id=\"navcell\"><div><ul><li><a href=\"/yarnui/logs\">Local logs</a></ul>"
+                + "</div></td><td class=\"content\"><pre>\n\n</pre>");
+
+        for (String type : new String[] { "directory.info", "stdout", "stderr" }) {
+            html.append("<p>\n  Log Type: ").append(type).append("\n<p>\n  Log Upload Time: Thu May 09 03:16:31 2019")
+                    .append("\n<p>\n  Log Length: ").append(logMegaBytes * 1024 * 1024).append("\n<pre>");
+
+            StringBuilder logs = new StringBuilder();
+            for (int i = 0; logs.length() < logMegaBytes * 1024 * 1024; i++) {
+                logs.append(String.format("19/06/12 08:%02d:%02d INFO Executor: Finished task %d.0 in stage 0.0 "
+                        + "(TID %d). 1089 bytes result sent to driver <exit code 0> & \"done\"%n", i / 60 % 60, i % 60,
+                        i, i));
+            }
+
+            html.append(StringEscapeUtils.escapeHtml4(logs.toString())).append("</pre><pre>\n\n</pre>");
+        }
+
+        page = html.append("</td></tr></tbody></table></body></html>").toString().getBytes(UTF_8);
+    }
+
+    /**
+     * The legacy Yarn UI container logs page parsing with Jsoup DOM, which unescapes the whole `&lt;pre&gt;` content.
+     *
+     * @param defaultType the log type of the logs before any `Log Type: xxx` paragraph
+     * @param webPage the container logs HTML page
+     * @return the map of the log type to the logs
+     */
+    static Map<String, String> parseLogsWithJsoup(final String defaultType, final String webPage) {
+        final Document doc = Jsoup.parse(webPage);
+        final Element navCell = doc.getElementById("navcell");
+        final Element content = navCell == null ? null : navCell.nextElementSibling();
+
+        if (content == null) {
+            return emptyMap();
+        }
+
+        final Map<String, String> logTypeMap = new HashMap<>();
+        String lastLogTypeFound = defaultType;
+
+        for (Element node : content.children()) {
+            final List<Node> children = node.childNodes();
+
+            if (StringUtils.equalsIgnoreCase(node.tagName(), "p")) {
+                if (children.isEmpty()) {
+                    continue;
+                }
+
+                final Matcher matcher = LOG_TYPE_PATTERN.matcher(children.get(0).toString().trim());
+
+                if (matcher.matches()) {
+                    logTypeMap.remove(matcher.group("type"));
+                    lastLogTypeFound = matcher.group("type");
+                }
+            } else if (StringUtils.equalsIgnoreCase(node.tagName(), "pre") && lastLogTypeFound != null) {
+                if (!children.isEmpty()) {
+                    final String logs = StringEscapeUtils.unescapeHtml4(String.valueOf(children.get(0)));
+
+                    if (StringUtils.isNotEmpty(logs)) {
+                        logTypeMap.put(lastLogTypeFound, logs);
+                    }
+                }
+
+                lastLogTypeFound = null;
+            }
+        }
+
+        return logTypeMap;
+    }
+
+    @Benchmark
+    public Object parseWithJsoup() {
+        return parseLogsWithJsoup("stdout", new String(page, UTF_8)).get("stdout").length();
+    }
+
+    @Benchmark
+    public Object extractAsStream() throws IOException {
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(page), UTF_8)) {
+            return extractor.extractType(reader, "stdout", "stdout").length();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(YarnLogPageExtractorBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,101 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.job;
+
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class YarnLogPageExtractorScenario {
+    private YarnLogPageExtractor extractor;
+    private String defaultType;
+    private String html;
+    private Map<String, String> logsByType;
+    private int maxChunkLength;
+
+    private void extract(int bufferSize, String webPage, String logType) throws Throwable {
+        extractor = new YarnLogPageExtractor(bufferSize);
+        defaultType = logType;
+        html = webPage;
+        logsByType = new HashMap<>();
+        maxChunkLength = 0;
+
+        StringBuilder logs = new StringBuilder();
+
+        extractor.extract(new StringReader(html), defaultType, new YarnLogPageExtractor.LogsHandler() {
+            @Override
+            public void onLogType(String type) {
+                logsByType.remove(type);
+            }
+
+            @Override
+            public void onLogs(String type, char[] chars, int offset, int length) {
+                assertTrue(length > 0);
+                maxChunkLength = Math.max(maxChunkLength, length);
+                logs.append(chars, offset, length);
+            }
+
+            @Override
+            public void onLogsEnd(String type) {
+                logsByType.put(type, logs.toString());
+                logs.setLength(0);
+            }
+        });
+    }
+
+    @Given("extract the logs with the Yarn log page extractor of buffer size {int} from HTML page {string} "
+            + "with default type {string}")
+    public void extractFromHtmlPage(int bufferSize, String webPageFileName, String logType) throws Throwable {
+        InputStream pageFileInput = getClass().getClassLoader().getResourceAsStream(
+                getClass().getPackage().getName().replace('.', File.separatorChar)
+                        + File.separator + webPageFileName);
+
+        extract(bufferSize, IOUtils.toString(pageFileInput, UTF_8), logType);
+    }
+
+    @Given("extract the logs with the Yarn log page extractor of buffer size {int} from HTML {string} "
+            + "with default type {string}")
+    public void extractFromHtml(int bufferSize, String webPage, String logType) throws Throwable {
+        extract(bufferSize, webPage.replace("\\n", "\n"), logType);
+    }
+
+    @Then("check the extracted logs should be the same as parsed by Jsoup")
+    public void checkTheExtractedLogsShouldBeTheSameAsParsedByJsoup() {
+        assertEquals(YarnLogPageExtractorBenchmark.parseLogsWithJsoup(defaultType, html), logsByType);
+        assertEquals(logsByType, extractor.extractAll(defaultType, html));
+    }
+
+    @Then("check the extracted logs chunks should be at most {int} characters")
+    public void checkTheExtractedLogsChunksShouldBeAtMost(int expectMaxLength) {
+        assertTrue("The chunk length " + maxChunkLength + " exceeds " + expectMaxLength,
+                maxChunkLength <= expectMaxLength);
+    }
+
+    @Then("check the extracted {string} logs as a stream should be the same as parsed by Jsoup")
+    public void checkTheExtractedLogsAsAStreamShouldBeTheSameAsParsedByJsoup(String type) throws Throwable {
+        assertEquals(YarnLogPageExtractorBenchmark.parseLogsWithJsoup(defaultType, html).getOrDefault(type, ""),
+                extractor.extractType(new StringReader(html), defaultType, type));
+    }
+
+    @Then("check the extracted {string} logs should be {string}")
+    public void checkTheExtractedLogsShouldBe(String type, String expectLogs) {
+        assertEquals(expectLogs, logsByType.get(type));
+    }
+
+    @Then("check the extracted {string} logs should not exist")
+    public void checkTheExtractedLogsShouldNotExist(String type) {
+        assertFalse("Should not exist log type: " + type, logsByType.containsKey(type));
+    }
+}
@@ -0,0 +1,174 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.processes;
+
+import cucumber.api.java.Before;
+import cucumber.api.java.en.And;
+import cucumber.api.java.en.Given;
+import cucumber.api.java.en.Then;
+import cucumber.api.java.en.When;
+import org.apache.commons.io.IOUtils;
+import rx.Observable;
+
+import com.microsoft.azure.spark.tools.job.SparkLogChunk;
+import com.microsoft.azure.spark.tools.job.SparkLogFetcher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+public class SparkJobLogInputStreamScenario {
+    /**
+     * The log fetcher of a growing log file in memory, with the Yarn log servlet semantics.
+     */
+    private static class InMemoryLogFetcher implements SparkLogFetcher {
+        private final ByteArrayOutputStream logs = new ByteArrayOutputStream();
+        private boolean isTailOffsetKnown = true;
+        private boolean isTailStartNegative = false;
+        private int tailFetches = 0;
+
+        @Override
+        public Observable<String> fetch(String type, long logOffset, int size) {
+            return fetchChunk(type, logOffset, size).map(SparkLogChunk::getText);
+        }
+
+        @Override
+        public Observable<SparkLogChunk> fetchChunk(String type, long byteOffset, int maxBytes) {
+            byte[] content = logs.toByteArray();
+
+            if (byteOffset < 0) {
+                int from = (int) Math.max(content.length + byteOffset, 0);
+                byte[] tail = Arrays.copyOfRange(content, from, content.length);
+
+                tailFetches++;
+
+                return Observable.just(new SparkLogChunk(isTailStartNegative ? byteOffset : from, tail, true));
+            }
+
+            int from = (int) Math.min(byteOffset, content.length);
+            int to = maxBytes > 0 ? Math.min(from + maxBytes, content.length) : content.length;
+
+            return from == to
+                    ? Observable.empty()
+                    : Observable.just(new SparkLogChunk(from, Arrays.copyOfRange(content, from, to),
+                                                        to == content.length));
+        }
+
+        @Override
+        public boolean isTailOffsetKnown() {
+            return isTailOffsetKnown;
+        }
+    }
+
+    private InMemoryLogFetcher fetcher;
+    private SparkJobLogInputStream inputStream;
+    private StringBuilder logsRead;
+    private AtomicLong offsetRecorded;
+
+    @Before("@SparkJobLogInputStreamScenario")
+    public void setUp() {
+        fetcher = new InMemoryLogFetcher();
+        logsRead = new StringBuilder();
+        offsetRecorded = new AtomicLong(-1);
+    }
+
+    private static String unescape(String logs) {
+        return logs.replace("\\n", "\n");
+    }
+
+    @Given("create a Spark job log input stream with the {string} logs {string}")
+    public void createSparkJobLogInputStream(String type, String logs) throws IOException {
+        fetcher.logs.write(unescape(logs).getBytes(UTF_8));
+        inputStream = new SparkJobLogInputStream(type);
+        inputStream.attachLogFetcher(fetcher);
+    }
+
+    @And("mock the log fetcher not to know the tail offset")
+    public void mockTheLogFetcherNotToKnowTheTailOffset() {
+        fetcher.isTailOffsetKnown = false;
+        fetcher.isTailStartNegative = true;
+    }
+
+    @And("mock the log fetcher to return the tail at the negative offset")
+    public void mockTheLogFetcherToReturnTheTailAtTheNegativeOffset() {
+        fetcher.isTailStartNegative = true;
+    }
+
+    @Then("check the log fetcher should fetch the tail {int} times")
+    public void checkTheLogFetcherShouldFetchTheTail(int expectTailFetches) {
+        assertEquals(expectTailFetches, fetcher.tailFetches);
+    }
+
+    @And("set the log input stream to tail the last {int} bytes")
+    public void setTheLogInputStreamToTailTheLastBytes(int lastBytes) {
+        inputStream.tail(lastBytes);
+    }
+
+    @And("set the log input stream to tail the last {int} lines in {int} bytes")
+    public void setTheLogInputStreamToTailTheLastLines(int lastLines, int maxTailBytes) {
+        inputStream.tailLines(lastLines, maxTailBytes);
+    }
+
+    @And("set the log input stream max lag to {int} bytes")
+    public void setTheLogInputStreamMaxLag(int maxLagBytes) {
+        inputStream.setMaxLagBytes(maxLagBytes);
+    }
+
+    @And("resume the log input stream from the offset {int}")
+    public void resumeTheLogInputStreamFromTheOffset(int offset) {
+        inputStream.resumeFrom(offset, null);
+    }
+
+    @And("resume the log input stream from the offset {int} with the offset recorder")
+    public void resumeTheLogInputStreamWithTheOffsetRecorder(int offset) {
+        offsetRecorded.set(offset);
+        inputStream.resumeFrom(offset, offsetRecorded::set);
+    }
+
+    @And("append the logs {string}")
+    public void appendTheLogs(String logs) throws IOException {
+        fetcher.logs.write(unescape(logs).getBytes(UTF_8));
+    }
+
+    @When("read {int} bytes from the log input stream")
+    public void readBytesFromTheLogInputStream(int length) throws IOException {
+        byte[] bytes = new byte[length];
+
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) inputStream.read();
+        }
+
+        logsRead.append(new String(bytes, UTF_8));
+    }
+
+    @When("read the log input stream to the end")
+    public void readTheLogInputStreamToTheEnd() throws IOException {
+        logsRead.append(IOUtils.toString(inputStream, UTF_8));
+    }
+
+    @Then("check the logs read should be {string}")
+    public void checkTheLogsReadShouldBe(String expect) {
+        assertEquals(unescape(expect), logsRead.toString());
+    }
+
+    @When("close the log input stream")
+    public void closeTheLogInputStream() throws IOException {
+        inputStream.close();
+    }
+
+    @Then("check the log offset recorded should be {int}")
+    public void checkTheLogOffsetRecordedShouldBe(int expectOffset) {
+        assertEquals(expectOffset, offsetRecorded.get());
+    }
+
+    @And("check the log input stream offset should be {int} with {int} bytes skipped")
+    public void checkTheLogInputStreamOffset(int offset, int skippedBytes) {
+        assertEquals(offset, inputStream.getOffset());
+        assertEquals(skippedBytes, inputStream.getSkippedBytes());
+    }
+}
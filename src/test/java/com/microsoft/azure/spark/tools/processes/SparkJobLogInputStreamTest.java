@@ -0,0 +1,24 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.azure.spark.tools.processes;
+
+import cucumber.api.CucumberOptions;
+import cucumber.api.junit.Cucumber;
+import org.junit.runner.RunWith;
+
+@RunWith(Cucumber.class)
+@CucumberOptions(
+        plugin = {
+                "html:target/cucumber/"
+                        + SparkJobLogInputStreamTest.SCENARIO_ID
+        },
+        features = {
+                "src/test/resources/com/microsoft/azure/spark/tools/"
+                        + SparkJobLogInputStreamTest.SCENARIO_ID
+                        + ".feature"
+        }
+)
+public class SparkJobLogInputStreamTest {
+    static final String SCENARIO_ID = "processes/SparkJobLogInputStreamScenario";
+}
@@ -0,0 +1,29 @@
+@AmbariConfigurationClientScenario
+Feature: AmbariConfigurationClient unit tests
+
+  Scenario: Fetch the Ambari config again only after its tag changed
+    Given mock Ambari cluster 'hdicluster' desired config 'core-site' with tag 'version1'
+    And mock Ambari cluster 'hdicluster' config 'core-site' with tag 'version1' and properties
+      | fs.defaultFS | wasbs://container1@account.blob.core.windows.net/ |
+    And mock Ambari cluster 'hdicluster' config 'core-site' with tag 'version2' and properties
+      | fs.defaultFS | wasbs://container2@account.blob.core.windows.net/ |
+    When get the core site config of Ambari cluster 'hdicluster' 2 times
+    Then check the core site config got should have 'fs.defaultFS' = 'wasbs://container1@account.blob.core.windows.net/'
+    And check the Ambari configs fetched should be 1
+    Given mock Ambari cluster 'hdicluster' desired config 'core-site' with tag 'version2'
+    When get the core site config of Ambari cluster 'hdicluster' 2 times
+    Then check the core site config got should have 'fs.defaultFS' = 'wasbs://container2@account.blob.core.windows.net/'
+    And check the Ambari configs fetched should be 2
+
+  Scenario: Fetch the HDInsight cluster metadata with the Ambari core site config
+    Given mock Ambari cluster 'hdicluster' desired config 'core-site' with tag 'version1'
+    And mock Ambari cluster 'hdicluster' config 'core-site' with tag 'version1' and properties
+      | fs.defaultFS                                    | wasbs://container@account.blob.core.windows.net/ |
+      | fs.azure.account.key.account.blob.core.windows.net | dGVzdGtleQ==                                  |
+    When fetch the HDInsight cluster metadata of Ambari cluster 'hdicluster' with user 'admin'
+    Then check the HDInsight cluster metadata should have HTTP user 'admin' and default storage account 'account'
+
+  Scenario: Fail to get the Ambari config type not existing
+    Given mock Ambari cluster 'hdicluster' desired config 'core-site' with tag 'version1'
+    When get the config 'spark2-defaults' of Ambari cluster 'hdicluster'
+    Then check the Ambari config getting error should be 'No config type `spark2-defaults` found in Ambari cluster hdicluster'
@@ -0,0 +1,32 @@
+@HdiClusterMetadataCacheScenario
+Feature: HdiClusterMetadataCache unit tests
+
+  Scenario: Fetch the cluster metadata once and reuse the cache file after reopening
+    Given open the HDInsight cluster metadata cache with TTL 60000 milliseconds
+    And the cluster metadata loader returns 'https://hdicluster.azurehdinsight.net/' with default FS 'wasbs://container@account.blob.core.windows.net/'
+    When get the cluster metadata of 'hdicluster' from cache
+    And reopen the HDInsight cluster metadata cache
+    And get the cluster metadata of 'hdicluster' from cache
+    Then check the cluster metadata loader should be called 1 times
+    And check the cluster metadata got should have Livy URL 'https://hdicluster.azurehdinsight.net/livy/' and Yarn NM URL 'https://hdicluster.azurehdinsight.net/yarnui/ws/v1/clusters/apps/'
+    And check the cluster metadata got should have HTTP user 'admin'
+
+  Scenario: Return the expired cluster metadata at once and refresh it in background
+    Given open the HDInsight cluster metadata cache with TTL 60000 milliseconds
+    And the cluster metadata loader returns 'https://hdicluster.azurehdinsight.net' with default FS 'wasbs://container@account.blob.core.windows.net/'
+    And get the cluster metadata of 'hdicluster' from cache
+    And the cluster metadata loader returns 'https://hdicluster2.azurehdinsight.net' with default FS 'wasbs://container@account.blob.core.windows.net/'
+    When advance 60000 milliseconds and get the cluster metadata of 'hdicluster' from cache twice
+    Then check the cluster metadata got should have Livy URL 'https://hdicluster.azurehdinsight.net/livy/' and Yarn NM URL 'https://hdicluster.azurehdinsight.net/yarnui/ws/v1/clusters/apps/'
+    When run the background cluster metadata refreshing
+    And get the cluster metadata of 'hdicluster' from cache
+    Then check the cluster metadata loader should be called 2 times
+    And check the cluster metadata got should have Livy URL 'https://hdicluster2.azurehdinsight.net/livy/' and Yarn NM URL 'https://hdicluster2.azurehdinsight.net/yarnui/ws/v1/clusters/apps/'
+
+  Scenario: Start from empty with the broken cache file
+    Given write 'not a json' into the HDInsight cluster metadata cache file
+    And open the HDInsight cluster metadata cache with TTL 60000 milliseconds
+    And the cluster metadata loader returns 'https://hdicluster.azurehdinsight.net' with default FS 'wasbs://container@account.blob.core.windows.net/'
+    When get the cluster metadata of 'hdicluster' from cache
+    Then check the cluster metadata loader should be called 1 times
+    And check the cluster metadata got should have Livy URL 'https://hdicluster.azurehdinsight.net/livy/' and Yarn NM URL 'https://hdicluster.azurehdinsight.net/yarnui/ws/v1/clusters/apps/'
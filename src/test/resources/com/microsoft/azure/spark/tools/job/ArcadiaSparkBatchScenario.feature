@@ -1,7 +1,7 @@
 @ArcadiaSparkBatchScenario
 Feature: ArcadiaSparkBatch integration test
 
-  Scenario: Submit an Arcadia Spark job with artifact in shared storage
+  Scenario: Submit and monitor an Arcadia Spark job with artifact in shared storage
     Given create PostBatches with the following job config for ArcadiaBatch
       | className | sample.JavaSparkPi |
       | name      | sample.JavaSparkPi |
@@ -16,3 +16,12 @@ Feature: ArcadiaSparkBatch integration test
     And mock the Arcadia workspace to 'zhwe-0801'
     And submit Arcadia Spark job
     Then no any error after submitting Arcadia Spark job
+    And check the Arcadia Spark job state should be 'success' with scheduler state 'Ended'
+
+  Scenario: Poll the state of an Arcadia Spark job ended before Livy got it with the batch state API
+    Given mock the Arcadia workspace to 'zhwe-0801'
+    And stub the Arcadia GET request '/batches/7/state' to return '{"id": 7, "state": "not_started"}' with scheduler state 'Ended' and job result 'Failed'
+    And stub the Arcadia GET request '/batches/7' to return '{"id": 7, "state": "not_started"}' with scheduler state 'Ended' and job result 'Failed'
+    When poll the state of Arcadia Spark batch 7
+    Then check the Arcadia Spark batch polled should be 'dead' with scheduler state 'Ended'
+    And check the Arcadia GET request '/batches/7/state' should be sent 1 times
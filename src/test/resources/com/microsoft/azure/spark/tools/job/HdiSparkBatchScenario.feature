@@ -1 +1,17 @@
+@HdiSparkBatchScenario
 Feature: HdiSparkBatch unit tests
+
+  Scenario: Know the driver log tail offset only after the driver log fetcher is located
+    Given create a HDInsight Spark batch job
+    Then check the HDInsight Spark batch job should know the driver log tail offset: 'false'
+    When locate the driver log fetcher of the HDInsight Spark batch job with the logs 'line 1\n'
+    Then check the HDInsight Spark batch job should know the driver log tail offset: 'true'
+
+  Scenario: Start from the last lines of the driver logs and skip to the latest ones after falling behind
+    Given create a HDInsight Spark batch job
+    And locate the driver log fetcher of the HDInsight Spark batch job with the logs 'line 1\nline 2\nline 3\n'
+    And create a log input stream of the HDInsight Spark batch job 'stdout' logs with the last 1 lines in 8 bytes and the max lag 8 bytes
+    When read 7 bytes from the HDInsight Spark batch job log input stream
+    And append the HDInsight Spark batch job driver logs 'line 4\nline 5\nline 6\n'
+    And read the HDInsight Spark batch job log input stream to the end
+    Then check the HDInsight Spark batch job logs read should be 'line 3\nline 6\n' with 14 bytes skipped
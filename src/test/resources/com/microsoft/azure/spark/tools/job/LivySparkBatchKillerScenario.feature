@@ -0,0 +1,44 @@
+@LivySparkBatchKillerScenario
+Feature: LivySparkBatchKiller unit tests
+
+  Scenario: Bulk kill Spark batch jobs with the bounded concurrency per cluster
+    Given Livy Spark batch jobs to kill
+      | BATCH_ID | CLUSTER | APP_ID |
+      | 1        | livy1   |        |
+      | 2        | livy1   |        |
+      | 3        | livy1   |        |
+      | 4        | livy1   |        |
+      | 5        | livy2   |        |
+    And mock Livy 'livy1' killing batch 1 to return status 200 after 300 ms
+    And mock Livy 'livy1' killing batch 2 to return status 200 after 300 ms
+    And mock Livy 'livy1' killing batch 3 to return status 200 after 300 ms
+    And mock Livy 'livy1' killing batch 4 to return status 200 after 300 ms
+    And mock Livy 'livy2' killing batch 5 to return status 200 after 300 ms
+    When bulk kill the Spark batch jobs with max concurrency 2 per cluster and Livy timeout 5000 ms
+    Then check the bulk killing results should be
+      | BATCH_ID | OUTCOME        |
+      | 1        | KILLED_BY_LIVY |
+      | 2        | KILLED_BY_LIVY |
+      | 3        | KILLED_BY_LIVY |
+      | 4        | KILLED_BY_LIVY |
+      | 5        | KILLED_BY_LIVY |
+    Then check the bulk killing should take at least 600 ms
+    Then check the bulk killing latency of each job should be at least 300 ms
+
+  Scenario: Bulk kill falls back to kill Yarn application when Livy is slow or fails
+    Given Livy Spark batch jobs to kill
+      | BATCH_ID | CLUSTER | APP_ID                         |
+      | 1        | livy1   | application_1560324880016_0001 |
+      | 2        | livy1   | application_1560324880016_0002 |
+      | 3        | livy1   |                                |
+    And mock Livy 'livy1' killing batch 1 to return status 200 after 3000 ms
+    And mock Livy 'livy1' killing batch 2 to return status 500 after 0 ms
+    And mock Livy 'livy1' killing batch 3 to return status 500 after 0 ms
+    And mock Yarn killing application 'application_1560324880016_0001' to return status 200 with state 'KILLED'
+    And mock Yarn killing application 'application_1560324880016_0002' to return status 202 with state 'RUNNING'
+    When bulk kill the Spark batch jobs with max concurrency 5 per cluster and Livy timeout 200 ms
+    Then check the bulk killing results should be
+      | BATCH_ID | OUTCOME        |
+      | 1        | KILLED_BY_YARN |
+      | 2        | KILLED_BY_YARN |
+      | 3        | FAILED         |
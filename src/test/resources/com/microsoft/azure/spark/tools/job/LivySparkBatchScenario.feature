@@ -7,7 +7,8 @@ Feature: LivySparkBatch unit tests
     And mock Spark job batch id to 9
     Then getting spark job application id should be 'application_1492415936046_0015'
     Then check the spark job request 'GET' to '/batch/9' should include headers
-      | X-Invoked-By-Method | invoke0 |
+      | X-Invoked-By-Method | get |
+    Then check the HTTP request metrics should include operation 'get' for 'GET' to '/batch/9' with status 200
 
   Scenario: getSparkJobApplicationId negative integration test with broken Livy response
     Given setup a mock Livy service for GET request '/batch/9' to return '{"id":9,' with status code 200
@@ -34,6 +35,31 @@ Feature: LivySparkBatch unit tests
     And mock Spark job connect URI to be 'http://localhost:$port/batch/'
     And mock Spark job batch id to 9
     Then await Livy Spark job done should get state 'success'
+    Then check Livy batch state API should be unsupported
+    Then check the HTTP request metrics should include operation 'awaitDone' for 'GET' to '/batch/9/state' with status 404
+    Then check the spark job request 'GET' to '/batch/9' should include headers
+      | X-Invoked-By-Method | awaitDone |
+
+  Scenario: await Spark job is done with the batch state API
+    Given setup a mock Livy service with the following scenario 'awaitJobIsDoneWithStateUT'
+      | ACTION | URI            | RESPONSE_STATUS | RESPONSE_BODY                     | PREV_STATE | NEXT_STATE |
+      | GET    | /batch/9/state | 200             | {"id": 9, "state": "starting"}    | Started    | starting_1 |
+      | GET    | /batch/9/state | 200             | {"id": 9, "state": "starting"}    | starting_1 | starting_2 |
+      | GET    | /batch/9/state | 200             | {"id": 9, "state": "running"}     | starting_2 | running_1  |
+      | GET    | /batch/9/state | 200             | {"id": 9, "state": "running"}     | running_1  | running_2  |
+      | GET    | /batch/9/state | 200             | {"id": 9, "state": "running"}     | running_2  | running_3  |
+      | GET    | /batch/9/state | 200             | {"id": 9, "state": "success"}     | running_3  | end        |
+    Given setup a mock Livy service with the following scenario 'awaitJobIsDoneWithStateFullBatchUT'
+      | ACTION | URI      | RESPONSE_STATUS | RESPONSE_BODY                                      | PREV_STATE | NEXT_STATE |
+      | GET    | /batch/9 | 200             | {"id": 9, "state": "starting", "log": ["one"]}     | Started    | running    |
+      | GET    | /batch/9 | 200             | {"id": 9, "state": "running"}                      | running    | success    |
+      | GET    | /batch/9 | 200             | {"id": 9, "state": "success", "log": ["done"]}     | success    | end        |
+    And mock Spark job connect URI to be 'http://localhost:$port/batch/'
+    And mock Spark job batch id to 9
+    Then await Livy Spark job done should get state 'success'
+    Then check Livy batch state API should be supported
+    Then check the spark job request 'GET' to '/batch/9/state' should be sent 6 times
+    Then check the spark job request 'GET' to '/batch/9' should be sent 3 times
 
   Scenario: await Spark job is started with running behavior
     Given setup a mock Livy service with the following scenario 'awaitJobIsStartedWithRunningUT'
@@ -106,3 +132,96 @@ Feature: LivySparkBatch unit tests
       | \\nYARN Diagnostics: |
       | error log 1          |
       | error log 2          |
+
+  Scenario: parseLivyLogs unit tests with duplicated log type
+    Given parse Livy Logs from the following
+      | one        |
+      | \\nstderr: |
+      | err 1      |
+      | \\nstderr: |
+    Then throw exception 'java.util.UnknownFormatConversionException' with checking type only
+
+  Scenario: parseTypedLogs unit tests drop the sections with title only
+    Then parse Livy typed logs from the following should be
+      | LOG                  | TYPE    |
+      | one                  | Warning |
+      | \\nstderr:           | -       |
+      | \\nYARN Diagnostics: | Error   |
+      | error log 1          | Error   |
+
+  Scenario: Livy log paging grows page size for backlog and backs off for idle
+    Then Livy log paging with page size from 128 to 1024 and delay from 200 to 1600 should be
+      | LINES_GOT | PAGE_SIZE | DELAY |
+      | 128       | 256       | 200   |
+      | 256       | 512       | 200   |
+      | 512       | 1024      | 200   |
+      | 1024      | 1024      | 200   |
+      | 10        | 1024      | 200   |
+      | 0         | 128       | 400   |
+      | 0         | 128       | 800   |
+      | 0         | 128       | 1600  |
+      | 0         | 128       | 1600  |
+      | 1         | 128       | 200   |
+
+  Scenario: Livy submission logs in catch-up mode start from the last lines
+    Given setup a mock Livy service for GET request '/batch/9' to return '{"id": 9, "state": "dead"}' with status code 200
+    Given setup a mock Livy service for GET request '/batch/9/log?size=3' to return '{"id": 9, "from": 97, "total": 100, "log": ["line 97", "line 98", "line 99"]}' with status code 200
+    Given setup a mock Livy service for GET request '/batch/9/log?from=100&size=128' to return '{"id": 9, "from": 100, "total": 100, "log": []}' with status code 200
+    And mock Spark job connect URI to be 'http://localhost:$port/batch/'
+    And mock Spark job batch id to 9
+    And mock Spark job Livy log tail lines to 3
+    Then getting spark job submission logs should be
+      | Log: line 97 |
+      | Log: line 98 |
+      | Log: line 99 |
+
+  Scenario: Submit Spark job idempotently attaches the batch created by a timed out submission
+    Given setup a mock Livy service for POST request '/batch/' to return 'Gateway Timeout' with status code 504
+    Given setup a mock Livy service for GET request '/batch/?from=0&size=0' to return '{"from": 0, "total": 2, "sessions": []}' with status code 200
+    Given setup a mock Livy service for GET request '/batch/?from=0&size=100' to return '{"from": 0, "total": 2, "sessions": [{"id": 7, "name": "job [k0]", "state": "dead"}, {"id": 8, "name": "job [k1]", "state": "starting"}]}' with status code 200
+    And mock Spark job connect URI to be 'http://localhost:$port/batch/'
+    And mock Spark job submission key 'k1' with 3 retries
+    And submit Spark job
+    Then check Spark job batch id should be 8
+    Then check the spark job request 'POST' to '/batch/' should be sent 1 times
+    Then check the spark job request 'GET' to '/batch/?from=0&size=100' should be sent 1 times
+
+  Scenario: Submit Spark job idempotently resubmits when no batch is found with the key
+    Given setup a mock Livy service with the following scenario 'submitIdempotentlyUT'
+      | ACTION | URI     | RESPONSE_STATUS | RESPONSE_BODY                        | PREV_STATE | NEXT_STATE |
+      | POST   | /batch/ | 503             | Service Unavailable                  | Started    | retried    |
+      | POST   | /batch/ | 201             | {"id": 9, "state": "starting"}       | retried    | end        |
+    Given setup a mock Livy service for GET request '/batch/?from=0&size=0' to return '{"from": 0, "total": 1, "sessions": []}' with status code 200
+    Given setup a mock Livy service for GET request '/batch/?from=0&size=100' to return '{"from": 0, "total": 1, "sessions": [{"id": 7, "name": "job [k0]", "state": "dead"}]}' with status code 200
+    And mock Spark job connect URI to be 'http://localhost:$port/batch/'
+    And mock Spark job submission key 'k1' with 3 retries
+    And submit Spark job
+    Then check Spark job batch id should be 9
+    Then check the spark job request 'POST' to '/batch/' should be sent 2 times
+    Then check the HTTP request metrics should include operation 'findSubmittedBatch' for 'GET' to '/batch/' with status 200
+
+  Scenario: Submit Spark job idempotently fails rather than resubmits when the listing has no batch names
+    Given setup a mock Livy service for POST request '/batch/' to return 'Gateway Timeout' with status code 504
+    Given setup a mock Livy service for GET request '/batch/?from=0&size=0' to return '{"from": 0, "total": 2, "sessions": []}' with status code 200
+    Given setup a mock Livy service for GET request '/batch/?from=0&size=100' to return '{"from": 0, "total": 2, "sessions": [{"id": 7, "state": "dead"}, {"id": 8, "state": "starting"}]}' with status code 200
+    And mock Spark job connect URI to be 'http://localhost:$port/batch/'
+    And mock Spark job submission key 'k1' with 3 retries
+    And submit Spark job
+    Then throw exception caused by 'com.microsoft.azure.spark.tools.job.LivySparkBatch$SubmissionLookupUnsupportedException'
+    Then check the spark job request 'POST' to '/batch/' should be sent 1 times
+    Then check the spark job request 'GET' to '/batch/?from=0&size=100' should be sent 1 times
+
+  Scenario: Submit Spark job idempotently doesn't retry the rejected submission
+    Given setup a mock Livy service for POST request '/batch/' to return 'Bad Request' with status code 400
+    And mock Spark job connect URI to be 'http://localhost:$port/batch/'
+    And mock Spark job submission key 'k1' with 3 retries
+    And submit Spark job
+    Then throw exception caused by 'com.microsoft.azure.spark.tools.http.status.ClientError$BadRequestHttpErrorStatus'
+    Then check the spark job request 'POST' to '/batch/' should be sent 1 times
+    Then check the spark job request 'GET' to '/batch/?from=0&size=0' should be sent 0 times
+
+  Scenario: Get the driver log URL from Livy application info
+    Given setup a mock Livy service for GET request '/batch/9' to return '{"id": 9, "state": "running", "appId": "application_1560324880016_0001", "appInfo": {"driverLogUrl": "http://10.0.0.15:30060/node/containerlogs/container_e02_1560324880016_0001_01_000001/livy", "sparkUiUrl": null}}' with status code 200
+    And mock Spark job connect URI to be 'http://localhost:$port/batch/'
+    And mock Spark job batch id to 9
+    Then getting spark job driver log URL should be 'http://10.0.0.15:30060/node/containerlogs/container_e02_1560324880016_0001_01_000001/livy'
@@ -54,3 +54,11 @@ Feature: PostBatches unit test
       | spark.driver.extraJavaOptions | -agentlib:jdwp=transport=dt_socket,server=y,suspend=y,address=6006 |
       | other                         | Other values                                                       |
     Then the convertToJson result should be '{"driverMemory":"2G","file":"fFilePath","className":"fakeClassName","conf":{"other":"Other values","spark.driver.extraJavaOptions":"-agentlib:jdwp=transport=dt_socket,server=y,suspend=y,address=6006"}}'
+
+  Scenario: serializeToJson would tag the submission key into the name and conf once
+    Given mock file to fFilePath
+    And mock className to fakeClassName
+    And mock application name to fakeAppName
+    And mock submission key to k1
+    Then the serialized JSON should be '{"name":"fakeAppName [k1]","file":"fFilePath","className":"fakeClassName","conf":{"spark.azure.submission.key":"k1"}}'
+    Then the serialized JSON rebuilt from the PostBatches should be '{"name":"fakeAppName [k1]","file":"fFilePath","className":"fakeClassName","conf":{"spark.azure.submission.key":"k1"}}'
@@ -0,0 +1,51 @@
+@RoutingSparkBatchJobFactoryScenario
+Feature: RoutingSparkBatchJobFactory unit tests
+
+  Scenario: Route to the least loaded cluster and stick to it within the margin
+    Given create the routing Spark batch job factory to clusters 'c1,c2'
+    And mock the routing target 'c1' with 2 active batches and 60.0 Yarn cluster usage
+    And mock the routing target 'c2' with 1 active batches and 20.0 Yarn cluster usage
+    When probe the routing targets
+    Then check the routing target stats should be
+      | CLUSTER | HEALTHY | ACTIVE_BATCHES | CLUSTER_USAGE | LOAD |
+      | c1      | true    | 2              | 60.0          | 70.0 |
+      | c2      | true    | 1              | 20.0          | 25.0 |
+    And check the Spark batch jobs created by the routing factory should go to
+      | CLUSTER | REASON  |
+      | c2      | INITIAL |
+      | c2      | STICKY  |
+    When mock the routing target 'c1' with 0 active batches and 20.0 Yarn cluster usage
+    And probe the routing targets
+    Then check the Spark batch jobs created by the routing factory should go to
+      | CLUSTER | REASON |
+      | c2      | STICKY |
+    When mock the routing target 'c2' with 4 active batches and 80.0 Yarn cluster usage
+    And probe the routing targets
+    Then check the Spark batch jobs created by the routing factory should go to
+      | CLUSTER | REASON        |
+      | c1      | BETTER_TARGET |
+      | c1      | STICKY        |
+    And check the routing failovers should be 0
+
+  Scenario: Fail over after the consecutive probe failures
+    Given create the routing Spark batch job factory to clusters 'c1,c2'
+    And mock the routing target 'c1' with 0 active batches and 50.0 Yarn cluster usage
+    And mock the routing target 'c2' with 0 active batches and 10.0 Yarn cluster usage
+    When probe the routing targets
+    Then check the Spark batch jobs created by the routing factory should go to
+      | CLUSTER | REASON  |
+      | c2      | INITIAL |
+    When mock the routing target 'c2' Livy to return status 503
+    And probe the routing targets
+    Then check the Spark batch jobs created by the routing factory should go to
+      | CLUSTER | REASON |
+      | c2      | STICKY |
+    When probe the routing targets
+    Then check the routing target stats should be
+      | CLUSTER | HEALTHY | ACTIVE_BATCHES | CLUSTER_USAGE | LOAD |
+      | c1      | true    | 0              | 50.0          | 50.0 |
+      | c2      | false   | 0              | 10.0          | 20.0 |
+    And check the Spark batch jobs created by the routing factory should go to
+      | CLUSTER | REASON   |
+      | c1      | FAILOVER |
+    And check the routing failovers should be 1
@@ -0,0 +1,102 @@
+@SparkBatchJobJournalScenario
+Feature: SparkBatchJobJournal unit tests
+
+  Scenario: Replay the Spark batch job journal after reopening
+    Given record Spark batch jobs into journal
+      | BATCH_ID | RECORD    | VALUE    |
+      | 9        | submitted | job_9    |
+      | 9        | state     | starting |
+      | 10       | submitted | job_10   |
+      | 9        | appId     | app_9    |
+      | 9        | state     | running  |
+      | 9        | livy      | 40       |
+      | 9        | stdout    | 1024     |
+      | 9        | stdout    | 512      |
+      | 10       | stdout    | 8        |
+      | 9        | stdout    | 2048     |
+    When reopen the Spark batch job journal
+    Then check the Spark batch job journal entries should be
+      | BATCH_ID | NAME   | STATE   | APP_ID | STDOUT_OFFSET | LIVY_OFFSET |
+      | 9        | job_9  | running | app_9  | 2048          | 40          |
+      | 10       | job_10 |         |        | 8             | 0           |
+
+  Scenario: Keep the job snapshot got unchanged by the later records
+    Given record Spark batch jobs into journal
+      | BATCH_ID | RECORD    | VALUE    |
+      | 9        | submitted | job_9    |
+      | 9        | state     | starting |
+      | 9        | stdout    | 1024     |
+    When get the Spark batch job 9 snapshot from journal
+    And record Spark batch jobs into journal
+      | BATCH_ID | RECORD    | VALUE    |
+      | 9        | state     | running  |
+      | 9        | stdout    | 2048     |
+    Then check the Spark batch job snapshot got should keep state 'starting' and stdout offset 1024
+    And check the Spark batch job journal entries should be
+      | BATCH_ID | NAME   | STATE   | APP_ID | STDOUT_OFFSET | LIVY_OFFSET |
+      | 9        | job_9  | running |        | 2048          | 0           |
+
+  Scenario Outline: Compact the superseded records of the journal at reopening
+    Given record Spark batch jobs into journal
+      | BATCH_ID | RECORD    | VALUE    |
+      | 9        | submitted | job_9    |
+      | 9        | state     | starting |
+      | 10       | submitted | job_10   |
+      | 10       | state     | running  |
+      | 9        | state     | running  |
+      | 9        | appId     | app_9    |
+      | 9        | stdout    | 1024     |
+      | 9        | stdout    | 2048     |
+      | 9        | livy      | 40       |
+      | 9        | stdout    | 4096     |
+      | 10       | state     | success  |
+    When reopen the Spark batch job journal compacting over <threshold> superseded records and keeping finished jobs for <retention> days
+    Then check the Spark batch job journal file should be compacted: '<compacted>'
+    And check the Spark batch job 9 in journal should have state 'running', app ID 'app_9' and stdout offset 4096
+    And check the Spark batch job 10 in journal should be kept: '<kept>'
+    When record Spark batch jobs into journal
+      | BATCH_ID | RECORD    | VALUE    |
+      | 9        | stdout    | 8192     |
+    And reopen the Spark batch job journal
+    Then check the Spark batch job 9 in journal should have state 'running', app ID 'app_9' and stdout offset 8192
+    And check the Spark batch job 10 in journal should be kept: '<kept>'
+
+    Examples:
+      | threshold | retention | compacted | kept  |
+      | 5         | 7         | false     | true  |
+      | 4         | 7         | true      | true  |
+      | 4         | 0         | true      | false |
+
+  Scenario: Truncate the torn records at the journal tail
+    Given record Spark batch jobs into journal
+      | BATCH_ID | RECORD    | VALUE    |
+      | 9        | submitted | job_9    |
+      | 9        | state     | running  |
+    And append 13 torn bytes to the Spark batch job journal
+    When reopen the Spark batch job journal
+    Then check the Spark batch job journal entries should be
+      | BATCH_ID | NAME   | STATE   | APP_ID | STDOUT_OFFSET | LIVY_OFFSET |
+      | 9        | job_9  | running |        | 0             | 0           |
+    Then check the Spark batch job journal file size should be the same as the one before tearing
+
+  Scenario: Skip the oversized record to keep the records after it replayable
+    Given record Spark batch job 9 submitted with a name of 65500 characters into journal
+    And record Spark batch jobs into journal
+      | BATCH_ID | RECORD    | VALUE    |
+      | 9        | state     | running  |
+      | 9        | stdout    | 1024     |
+    When reopen the Spark batch job journal
+    Then check the Spark batch job journal entries should be
+      | BATCH_ID | NAME   | STATE   | APP_ID | STDOUT_OFFSET | LIVY_OFFSET |
+      | 9        |        | running |        | 1024          | 0           |
+
+  Scenario: Reattach Livy Spark batch job with the journal recorded
+    Given record Spark batch jobs into journal
+      | BATCH_ID | RECORD    | VALUE    |
+      | 9        | submitted | job_9    |
+      | 9        | appId     | app_9    |
+      | 9        | state     | starting |
+      | 9        | livy      | 40       |
+    Given setup a mock Livy service for GET request '/batch/9' to return '{"id": 9, "state": "running"}'
+    When reattach Livy Spark batch job 9 with journal
+    Then check the reattached Livy Spark batch job state should be 'running', app ID should be 'app_9' and Livy log offset should be 40
@@ -0,0 +1,48 @@
+@SparkBatchJobStateMachineScenario
+Feature: SparkBatchJobStateMachine unit tests
+
+  Scenario: Transit with the Livy and Yarn states polled
+    Given subscribe the Spark batch job state transitions
+    Then check the Spark batch job state transitions by the states polled should be
+      | SOURCE | POLLED        | TRANSITED | STATE         |
+      | livy   | not_started   | true      | NOT_STARTED   |
+      | livy   | not_started   | false     | NOT_STARTED   |
+      | livy   | unknown       | false     | NOT_STARTED   |
+      | yarn   | ACCEPTED      | true      | STARTING      |
+      | livy   | running       | true      | RUNNING       |
+      | livy   | starting      | false     | RUNNING       |
+      | livy   | idle          | false     | RUNNING       |
+      | livy   | shutting_down | true      | SHUTTING_DOWN |
+      | yarn   | FINISHED      | true      | SUCCESS       |
+      | livy   | dead          | false     | SUCCESS       |
+    And check the Spark batch job state transition events should be
+      | FROM          | TO            |
+      | NEW           | NOT_STARTED   |
+      | NOT_STARTED   | STARTING      |
+      | STARTING      | RUNNING       |
+      | RUNNING       | SHUTTING_DOWN |
+      | SHUTTING_DOWN | SUCCESS       |
+    And check the Spark batch job state transitions should be completed
+
+  Scenario: Transit to the done state directly
+    Given subscribe the Spark batch job state transitions
+    Then check the Spark batch job state transitions by the states polled should be
+      | SOURCE | POLLED  | TRANSITED | STATE  |
+      | yarn   | KILLED  | true      | KILLED |
+      | yarn   | RUNNING | false     | KILLED |
+    And check the Spark batch job state transition events should be
+      | FROM | TO     |
+      | NEW  | KILLED |
+    And check the Spark batch job state transitions should be completed
+
+  Scenario: Check the Livy batch state strings
+    Then check the Livy batch state predicates should be
+      | STATE         | DONE  | RUNNING | SUCCESS |
+      | success       | true  | false   | true    |
+      | dead          | true  | false   | false   |
+      | Killed        | true  | false   | false   |
+      | idle          | false | true    | false   |
+      | busy          | false | true    | false   |
+      | starting      | false | false   | false   |
+      | shutting_down | true  | false   | false   |
+      | unknown       | false | false   | false   |
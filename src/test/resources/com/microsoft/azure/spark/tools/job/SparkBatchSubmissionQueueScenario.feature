@@ -0,0 +1,64 @@
+@SparkBatchSubmissionQueueScenario
+Feature: SparkBatchSubmissionQueue unit tests
+
+  Scenario: Probe the capacity with Livy batches and Yarn running applications
+    Given mock Livy batches with states 'running,success,starting,dead,not_started'
+    And mock Yarn running applications
+      | QUEUE        | CLUSTER_USAGE | QUEUE_USAGE |
+      | default      | 30.0          | 60.0        |
+      | root.default | 10.5          | 21.0        |
+      | etl          | 5.0           | 40.0        |
+    Then check the probed submission queue capacity should be 3 active batches with 45.5 cluster usage
+    And check the probed submission queue capacity usage of Yarn queue 'default' should be 81.0
+    And check the probed submission queue capacity usage of Yarn queue 'root.etl' should be 40.0
+    And check the probed submission queue capacity usage of Yarn queue 'adhoc' should be 0.0
+
+  Scenario: Admit the jobs by priority, then fair share among tenants by weight
+    Given create the submission queue with max 6 running batches
+    And set the submission queue tenant 'etl' weight to 2
+    And set the submission queue capacity to 6 active batches with 0 cluster usage
+    And enqueue Spark batch jobs into the submission queue
+      | NAME | PRIORITY | TENANT | QUEUE   |
+      | a1   | 0        | adhoc  | default |
+      | a2   | 0        | adhoc  | default |
+      | a3   | 0        | adhoc  | default |
+      | e1   | 0        | etl    | default |
+      | e2   | 0        | etl    | default |
+      | e3   | 0        | etl    | default |
+      | e4   | 0        | etl    | default |
+      | u1   | 5        | adhoc  | default |
+    Then check the admitted Spark batch jobs should be ''
+    When set the submission queue capacity to 0 active batches with 0 cluster usage
+    And wait for the next submission queue capacity polling
+    Then check the admitted Spark batch jobs should be 'u1,e1,e2,e3,a1,e4'
+    And check the submission queue metrics should be 2 waiting and 6 admitted
+
+  Scenario: Hold the jobs while the Yarn queue or cluster is busy
+    Given create the submission queue with max 10 running batches
+    And set the submission queue capacity to 0 active batches with 95 cluster usage
+    And enqueue Spark batch jobs into the submission queue
+      | NAME | PRIORITY | TENANT | QUEUE   |
+      | e1   | 1        | etl    | etl     |
+      | e2   | 0        | etl    | default |
+      | d1   | 0        | adhoc  | default |
+    Then check the admitted Spark batch jobs should be ''
+    When set the submission queue capacity to 0 active batches with 50 cluster usage and Yarn queue 'etl' usage 95
+    And wait for the next submission queue capacity polling
+    Then check the admitted Spark batch jobs should be 'd1'
+    When set the submission queue capacity to 0 active batches with 50 cluster usage and Yarn queue 'etl' usage 10
+    And wait for the next submission queue capacity polling
+    Then check the admitted Spark batch jobs should be 'd1,e1,e2'
+    And check the submission queue metrics should be 0 waiting and 3 admitted
+
+  Scenario: Remove the job from the submission queue once unsubscribed
+    Given create the submission queue with max 1 running batches
+    And set the submission queue capacity to 1 active batches with 0 cluster usage
+    And enqueue Spark batch jobs into the submission queue
+      | NAME | PRIORITY | TENANT | QUEUE   |
+      | a1   | 0        | adhoc  | default |
+      | a2   | 0        | adhoc  | default |
+    When cancel the Spark batch job 'a1' in the submission queue
+    And set the submission queue capacity to 0 active batches with 0 cluster usage
+    And wait for the next submission queue capacity polling
+    Then check the admitted Spark batch jobs should be 'a2'
+    And check the submission queue metrics should be 0 waiting and 1 admitted
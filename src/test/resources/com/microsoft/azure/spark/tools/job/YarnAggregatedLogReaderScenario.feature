@@ -0,0 +1,91 @@
+@YarnAggregatedLogReaderScenario
+Feature: YarnAggregatedLogReader unit tests
+
+  Background:
+    Given create a Yarn aggregated log reader for user 'livy' and application 'application_1513565654634_0011'
+    And set the aggregated log reader range read bytes to 16
+
+  Scenario: Read the TFile aggregated logs of all containers on two nodes
+    Given write the 'none' TFile aggregated logs of node '10.0.0.7:30050' with 1 containers per block
+      | CONTAINER                              | TYPE   | LOGS             |
+      | container_1513565654634_0011_01_000001 | stdout | driver started   |
+      | container_1513565654634_0011_01_000001 | stderr |                  |
+      | container_1513565654634_0011_01_000002 | stdout | executor 1       |
+      | container_1513565654634_0011_01_000002 | stderr | OutOfMemoryError |
+    And write the 'none' TFile aggregated logs of node '10.0.0.8:30050' with 2 containers per block
+      | CONTAINER                              | TYPE   | LOGS             |
+      | container_1513565654634_0011_01_000003 | stdout | executor 2       |
+      | container_1513565654634_0011_01_000003 | stderr | lost             |
+    And set the aggregated log reader chunk bytes to 4
+    When read the aggregated logs of the application
+    Then check the aggregated logs read should be
+      | NODE           | CONTAINER                              | TYPE   | LOGS             | CHUNKS |
+      | 10.0.0.7:30050 | container_1513565654634_0011_01_000001 | stdout | driver started   | 4      |
+      | 10.0.0.7:30050 | container_1513565654634_0011_01_000002 | stdout | executor 1       | 3      |
+      | 10.0.0.7:30050 | container_1513565654634_0011_01_000002 | stderr | OutOfMemoryError | 4      |
+      | 10.0.0.8:30050 | container_1513565654634_0011_01_000003 | stdout | executor 2       | 3      |
+      | 10.0.0.8:30050 | container_1513565654634_0011_01_000003 | stderr | lost             | 1      |
+
+  Scenario: Read the compressed TFile aggregated logs of a container with the log type filter
+    Given write the 'gz' TFile aggregated logs of node '10.0.0.7:30050' with 2 containers per block
+      | CONTAINER                              | TYPE   | LOGS                          |
+      | container_1513565654634_0011_01_000001 | stdout | driver started                |
+      | container_1513565654634_0011_01_000002 | stdout | executor 1                    |
+      | container_1513565654634_0011_01_000002 | stderr | Task failed: OutOfMemoryError |
+      | container_1513565654634_0011_01_000003 | stderr | lost                          |
+    And set the aggregated log reader log types to 'stderr'
+    When read the aggregated logs of container 'container_1513565654634_0011_01_000002'
+    Then check the aggregated logs read should be
+      | NODE           | CONTAINER                              | TYPE   | LOGS                          | CHUNKS |
+      | 10.0.0.7:30050 | container_1513565654634_0011_01_000002 | stderr | Task failed: OutOfMemoryError | 1      |
+
+  Scenario: Read the IndexedFormat aggregated logs
+    Given write the 'gz' IndexedFormat aggregated logs of node '10.0.0.7:30050'
+      | CONTAINER                              | TYPE   | LOGS                          |
+      | container_1513565654634_0011_01_000001 | stdout | driver started                |
+      | container_1513565654634_0011_01_000002 | stdout | executor 1                    |
+      | container_1513565654634_0011_01_000002 | stderr | Task failed: OutOfMemoryError |
+    And write the 'none' IndexedFormat aggregated logs of node '10.0.0.8:30050'
+      | CONTAINER                              | TYPE   | LOGS                          |
+      | container_1513565654634_0011_01_000003 | stderr | lost                          |
+    And set the aggregated log reader chunk bytes to 16
+    When read the aggregated logs of the application
+    Then check the aggregated logs read should be
+      | NODE           | CONTAINER                              | TYPE   | LOGS                          | CHUNKS |
+      | 10.0.0.7:30050 | container_1513565654634_0011_01_000001 | stdout | driver started                | 1      |
+      | 10.0.0.7:30050 | container_1513565654634_0011_01_000002 | stdout | executor 1                    | 1      |
+      | 10.0.0.7:30050 | container_1513565654634_0011_01_000002 | stderr | Task failed: OutOfMemoryError | 2      |
+      | 10.0.0.8:30050 | container_1513565654634_0011_01_000003 | stderr | lost                          | 1      |
+
+  Scenario Outline: Read the aggregated log files written by the Hadoop 3.3.6 log aggregation file controllers
+    Given copy the aggregated log file '<FILE>' written by Hadoop into '<SUFFIX>' as the logs of node '10.0.0.7:30050'
+    And set the aggregated log reader chunk bytes to 16
+    When read the aggregated logs of the application
+    Then check the aggregated logs read should be
+      | NODE           | CONTAINER                              | TYPE   | LOGS                          | CHUNKS |
+      | 10.0.0.7:30050 | container_1513565654634_0011_01_000001 | stdout | driver started                | 1      |
+      | 10.0.0.7:30050 | container_1513565654634_0011_01_000002 | stdout | executor 1                    | 1      |
+      | 10.0.0.7:30050 | container_1513565654634_0011_01_000002 | stderr | Task failed: OutOfMemoryError | 2      |
+
+    Examples:
+      | FILE                                             | SUFFIX     |
+      | YarnAggregatedLogTFile-hadoop-3.3.6-none         | logs       |
+      | YarnAggregatedLogTFile-hadoop-3.3.6-gz           | logs       |
+      | YarnAggregatedLogIndexedFormat-hadoop-3.3.6-none | logs-ifile |
+      | YarnAggregatedLogIndexedFormat-hadoop-3.3.6-gz   | logs-ifile |
+
+  Scenario: Skip the aggregated log files being uploaded and of unknown formats
+    Given write the 'none' TFile aggregated logs of node '10.0.0.7:30050' with 1 containers per block
+      | CONTAINER                              | TYPE   | LOGS             |
+      | container_1513565654634_0011_01_000001 | stdout | driver started   |
+    And write the aggregated log file '10.0.0.8_30050.tmp' as 'partial'
+    And write the aggregated log file 'README' as 'not an aggregated log file'
+    When read the aggregated logs of the application
+    Then check the aggregated logs read should be
+      | NODE           | CONTAINER                              | TYPE   | LOGS             | CHUNKS |
+      | 10.0.0.7:30050 | container_1513565654634_0011_01_000001 | stdout | driver started   | 1      |
+
+  Scenario: Read nothing if the logs are not aggregated
+    When read the aggregated logs of the application
+    Then check the aggregated logs read should be
+      | NODE | CONTAINER | TYPE | LOGS | CHUNKS |
@@ -0,0 +1,65 @@
+@YarnAppContainerLogHarvesterScenario
+Feature: YarnAppContainerLogHarvester unit tests
+
+  Background:
+    Given create a Yarn application container log harvester for 'application_1513565654634_0011'
+    And mock the Yarn cluster nodes
+      | ID             | STATE   | HTTP_ADDRESS  |
+      | 10.0.0.7:30050 | RUNNING | 10.0.0.7:30060 |
+      | 10.0.0.8:30050 | RUNNING | 10.0.0.8:30060 |
+      | 10.0.0.9:30050 | LOST    | 10.0.0.9:30060 |
+
+  Scenario: Harvest the full logs of all containers in chunks after probing the conversion mode
+    Given mock the Yarn application attempt logs link 'http://10.0.0.7:30060/node/containerlogs/container_1513565654634_0011_01_000001/livy'
+    And mock the Yarn UI GET request '/yarnui/10.0.0.7/node/containerlogs/container_1513565654634_0011_01_000001/livy' with status code 404
+    And mock the Yarn UI GET request '/yarnui/10.0.0.7/port/30060/node/containerlogs/container_1513565654634_0011_01_000001/livy' with status code 200
+    And mock the containers 'container_1513565654634_0011_01_000001,container_1513565654634_0011_01_000002' of the application on node '10.0.0.7:30060'
+    And mock the containers 'container_1513565654634_0011_01_000003' of the application on node '10.0.0.8:30060'
+    And mock the 'stdout' logs of container 'container_1513565654634_0011_01_000001' on node '10.0.0.7:30060' as 'driver started'
+    And mock the 'stderr' logs of container 'container_1513565654634_0011_01_000001' on node '10.0.0.7:30060' as ''
+    And mock the 'stdout' logs of container 'container_1513565654634_0011_01_000002' on node '10.0.0.7:30060' as 'executor 1'
+    And mock the 'stderr' logs of container 'container_1513565654634_0011_01_000002' on node '10.0.0.7:30060' as 'OutOfMemoryError'
+    And mock the 'stdout' logs of container 'container_1513565654634_0011_01_000003' on node '10.0.0.8:30060' as 'executor 2'
+    And mock the 'stderr' logs of container 'container_1513565654634_0011_01_000003' on node '10.0.0.8:30060' as 'lost'
+    And set the container log harvester chunk bytes to 4
+    When harvest the container logs in 'FULL' mode
+    Then check the harvested container logs should be
+      | CONTAINER                              | TYPE   | LOGS             | CHUNKS |
+      | container_1513565654634_0011_01_000001 | stdout | driver started   | 4      |
+      | container_1513565654634_0011_01_000002 | stdout | executor 1       | 3      |
+      | container_1513565654634_0011_01_000002 | stderr | OutOfMemoryError | 4      |
+      | container_1513565654634_0011_01_000003 | stdout | executor 2       | 3      |
+      | container_1513565654634_0011_01_000003 | stderr | lost             | 1      |
+    And check the Yarn UI GET request '/yarnui/10.0.0.9/port/30060/ws/v1/node/apps/application_1513565654634_0011' should be sent 0 times
+    And check the Yarn UI GET request '/yarnui/10.0.0.8/port/30060/ws/v1/node/containers/container_1513565654634_0011_01_000003/logs/stdout' should be sent 1 times with Range 'bytes=0-3'
+    And check the Yarn UI GET request '/yarnui/10.0.0.8/port/30060/ws/v1/node/containers/container_1513565654634_0011_01_000003/logs/stdout' should be sent 1 times with Range 'bytes=0-'
+    And check the Yarn UI GET request '/yarnui/10.0.0.8/port/30060/ws/v1/node/containers/container_1513565654634_0011_01_000003/logs/stderr' should be sent 0 times with Range 'bytes=0-3'
+    And check the Yarn UI GET request '/yarnui/10.0.0.8/port/30060/ws/v1/node/containers/container_1513565654634_0011_01_000003/logs/stderr' should be sent 1 times with Range 'bytes=0-'
+
+  Scenario: Harvest the logs tail of all containers with the cached conversion mode
+    Given cache the Yarn log conversion mode 'WITH_PORT'
+    And mock the containers 'container_1513565654634_0011_01_000002' of the application on node '10.0.0.7:30060'
+    And mock the containers 'container_1513565654634_0011_01_000003' of the application on node '10.0.0.8:30060'
+    And mock the 'stderr' logs of container 'container_1513565654634_0011_01_000002' on node '10.0.0.7:30060' as 'Task failed: OutOfMemoryError'
+    And mock the 'stderr' logs of container 'container_1513565654634_0011_01_000003' on node '10.0.0.8:30060' as 'lost'
+    And set the container log harvester log types to 'stderr'
+    And set the container log harvester tail bytes to 16
+    When harvest the container logs in 'TAIL' mode
+    Then check the harvested container logs should be
+      | CONTAINER                              | TYPE   | LOGS             | CHUNKS |
+      | container_1513565654634_0011_01_000002 | stderr | OutOfMemoryError | 1      |
+      | container_1513565654634_0011_01_000003 | stderr | lost             | 1      |
+    And check the Yarn UI GET request '/yarnui/10.0.0.7/port/30060/ws/v1/node/containers/container_1513565654634_0011_01_000002/logs/stderr' should be sent 1 times with Range 'bytes=-16'
+    And check the Yarn UI GET request '/yarnui/ws/v1/cluster/apps/application_1513565654634_0011/appattempts' should be sent 0 times
+
+  Scenario: Skip the nodes and containers failed to harvest
+    Given cache the Yarn log conversion mode 'WITH_PORT'
+    And mock the containers 'container_1513565654634_0011_01_000001,container_1513565654634_0011_01_000002' of the application on node '10.0.0.7:30060'
+    And mock the Yarn UI GET request '/yarnui/10.0.0.8/port/30060/ws/v1/node/apps/application_1513565654634_0011' with status code 404
+    And mock the 'stdout' logs of container 'container_1513565654634_0011_01_000001' on node '10.0.0.7:30060' as 'driver started'
+    And mock the Yarn UI GET request '/yarnui/10.0.0.7/port/30060/ws/v1/node/containers/container_1513565654634_0011_01_000002/logs/stdout' with status code 500
+    And set the container log harvester log types to 'stdout'
+    When harvest the container logs in 'FULL' mode
+    Then check the harvested container logs should be
+      | CONTAINER                              | TYPE   | LOGS             | CHUNKS |
+      | container_1513565654634_0011_01_000001 | stdout | driver started   | 1      |
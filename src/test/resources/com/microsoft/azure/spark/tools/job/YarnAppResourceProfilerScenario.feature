@@ -0,0 +1,46 @@
+@YarnAppResourceProfilerScenario
+Feature: YarnAppResourceProfiler unit tests
+
+  Scenario: Profile the Yarn application until it finishes and emit the summary
+    Given create a Yarn application resource profiler with history size 2 and interval 1000 milliseconds
+    And mock the Yarn application 'RUNNING' with 1024 MB, 1 vcores, 1 containers and 10.0 progress
+    When start the Yarn application resource profiler
+    And mock the Yarn application 'RUNNING' with 3072 MB, 3 vcores, 3 containers and 50.0 progress
+    And advance the profiling time by 1000 milliseconds
+    And mock the Yarn application 'RUNNING' with 2048 MB, 2 vcores, 2 containers and 90.0 progress
+    And advance the profiling time by 1000 milliseconds
+    Then check the Yarn application resource summary should not be emitted
+    Given mock the Yarn application 'FINISHED' with -1 MB, -1 vcores, -1 containers and 100.0 progress
+    And mock the Yarn application cost with 6200 MB-seconds and 7 vcore-seconds
+    When advance the profiling time by 1000 milliseconds
+    And advance the profiling time by 5000 milliseconds
+    Then check the Yarn application resource samples should be
+      | SEQUENCE | TIMESTAMP | ALLOCATED_MB | RUNNING_CONTAINERS | PROGRESS |
+      | 2        | 2000      | 2048         | 2                  | 90.0     |
+      | 3        | 3000      | 0            | 0                  | 100.0    |
+    And check the Yarn application resource profiler should have 4 samples and 0 failures
+    And check the Yarn application resource summary emitted should be
+      | STATE    | FINISHED | DURATION | PEAK_MB | PEAK_VCORES | PEAK_EXECUTORS | AVERAGE_MB | AVERAGE_VCORES | AVERAGE_CONTAINERS | MEMORY_SECONDS | VCORE_SECONDS |
+      | FINISHED | true     | 3000     | 3072    | 3           | 2              | 2048.0     | 2.0            | 2.0                | 6200           | 7             |
+
+  Scenario: Estimate the cost by the samples and emit the summary so far on closing
+    Given create a Yarn application resource profiler with history size 10 and interval 1000 milliseconds
+    And mock the Yarn application 'RUNNING' with 1000 MB, 2 vcores, 2 containers and 0.0 progress
+    When start the Yarn application resource profiler
+    And advance the profiling time by 1000 milliseconds
+    And mock the profiled Yarn application request to fail
+    And advance the profiling time by 1000 milliseconds
+    And mock the Yarn application 'RUNNING' with 3000 MB, 4 vcores, 3 containers and 60.0 progress
+    And advance the profiling time by 1000 milliseconds
+    Then check the Yarn application resource profiler should have 3 samples and 1 failures
+    And check the Yarn application resource summary should not be emitted
+    When close the Yarn application resource profiler
+    And advance the profiling time by 5000 milliseconds
+    Then check the Yarn application resource samples should be
+      | SEQUENCE | TIMESTAMP | ALLOCATED_MB | RUNNING_CONTAINERS | PROGRESS |
+      | 0        | 0         | 1000         | 2                  | 0.0      |
+      | 1        | 1000      | 1000         | 2                  | 0.0      |
+      | 2        | 3000      | 3000         | 3                  | 60.0     |
+    And check the Yarn application resource summary emitted should be
+      | STATE   | FINISHED | DURATION | PEAK_MB | PEAK_VCORES | PEAK_EXECUTORS | AVERAGE_MB | AVERAGE_VCORES | AVERAGE_CONTAINERS | MEMORY_SECONDS | VCORE_SECONDS |
+      | RUNNING | false    | 3000     | 3000    | 4           | 2              | 1000.0     | 2.0            | 2.0                | 3000           | 6             |
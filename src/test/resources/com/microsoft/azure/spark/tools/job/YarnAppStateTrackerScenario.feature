@@ -0,0 +1,52 @@
+@YarnAppStateTrackerScenario
+Feature: YarnAppStateTracker unit tests
+
+  Scenario: Share the refreshing and refresh the stale snapshot in background
+    Given create a Yarn application state tracker with refresh interval 1000 and request time 100 milliseconds
+    And mock the Yarn application state 'ACCEPTED'
+    When get the Yarn application snapshot 3 times
+    And advance the Yarn application state tracker time by 100 milliseconds
+    Then check the Yarn application snapshots got should be 'ACCEPTED' without driver log URL
+    And check the Yarn application should be requested 1 times
+    Given mock the Yarn application state 'RUNNING'
+    When advance the Yarn application state tracker time by 500 milliseconds
+    And get the Yarn application snapshot 2 times
+    Then check the Yarn application snapshots got should be 'ACCEPTED' without driver log URL
+    And check the Yarn application should be requested 1 times
+    When advance the Yarn application state tracker time by 500 milliseconds
+    And get the Yarn application snapshot 2 times
+    Then check the Yarn application snapshots got should be 'ACCEPTED' without driver log URL
+    When advance the Yarn application state tracker time by 100 milliseconds
+    And get the Yarn application snapshot 1 times
+    Then check the Yarn application snapshots got should be 'RUNNING' with driver log URL
+    And check the Yarn application should be requested 2 times
+
+  Scenario: Stop refreshing after the application reaches a final state
+    Given create a Yarn application state tracker with refresh interval 1000 and request time 100 milliseconds
+    And mock the Yarn application state 'FINISHED'
+    When get the Yarn application snapshot 1 times
+    And advance the Yarn application state tracker time by 100 milliseconds
+    Then check the Yarn application snapshots got should be 'FINISHED' with driver log URL
+    When advance the Yarn application state tracker time by 5000 milliseconds
+    And get the Yarn application snapshot 1 times
+    And advance the Yarn application state tracker time by 100 milliseconds
+    Then check the Yarn application snapshots got should be 'FINISHED' with driver log URL
+    And check the Yarn application should be requested 1 times
+
+  Scenario: Keep the stale snapshot if the background refreshing fails
+    Given create a Yarn application state tracker with refresh interval 1000 and request time 100 milliseconds
+    And mock the Yarn application request to fail
+    When get the Yarn application snapshot 1 times
+    And advance the Yarn application state tracker time by 100 milliseconds
+    Then check the Yarn application snapshots got should fail
+    Given mock the Yarn application state 'RUNNING'
+    When get the Yarn application snapshot 1 times
+    And advance the Yarn application state tracker time by 100 milliseconds
+    Then check the Yarn application snapshots got should be 'RUNNING' with driver log URL
+    Given mock the Yarn application request to fail
+    When advance the Yarn application state tracker time by 1000 milliseconds
+    And get the Yarn application snapshot 1 times
+    And advance the Yarn application state tracker time by 100 milliseconds
+    And get the Yarn application snapshot 1 times
+    Then check the Yarn application snapshots got should be 'RUNNING' with driver log URL
+    And check the Yarn application should be requested 3 times
@@ -0,0 +1,31 @@
+@YarnClusterMetricsSamplerScenario
+Feature: YarnClusterMetricsSampler unit tests
+
+  Scenario: Keep the latest samples in the ring buffer
+    Given create the Yarn cluster metrics sampler with history size 2
+    And mock the Yarn cluster metrics with 4096 available MB and 4 available vcores
+    And mock the Yarn scheduler queue 'default' with 30.0 used and 80.0 max capacity
+    When sample the Yarn cluster metrics once
+    And mock the Yarn cluster metrics with 2048 available MB and 2 available vcores
+    And sample the Yarn cluster metrics once
+    And mock the Yarn cluster metrics with 1024 available MB and 1 available vcores
+    And sample the Yarn cluster metrics once
+    Then check the Yarn cluster metrics samples should be
+      | SEQUENCE | AVAILABLE_MB | AVAILABLE_VCORES |
+      | 1        | 2048         | 2                |
+      | 2        | 1024         | 1                |
+    And check the latest Yarn cluster metrics sample should have queue 'root.default' with 50.0 headroom
+
+  Scenario: Sample the Yarn cluster metrics periodically and skip the failures
+    Given create the Yarn cluster metrics sampler with history size 10
+    And mock the Yarn cluster metrics with 4096 available MB and 4 available vcores
+    And mock the Yarn scheduler queue 'default' with 30.0 used and 80.0 max capacity
+    When start the Yarn cluster metrics sampler with interval 1000 milliseconds
+    And advance the sampling time by 1000 milliseconds
+    And mock the Yarn cluster metrics to fail
+    And advance the sampling time by 1000 milliseconds
+    Then check the Yarn cluster metrics sampler should have 2 samples and 1 failures
+    When close the Yarn cluster metrics sampler
+    And mock the Yarn cluster metrics with 1024 available MB and 1 available vcores
+    And advance the sampling time by 5000 milliseconds
+    Then check the Yarn cluster metrics sampler should have 2 samples and 1 failures
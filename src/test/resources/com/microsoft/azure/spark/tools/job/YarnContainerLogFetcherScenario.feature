@@ -37,6 +37,23 @@ Feature: YarnContainerLogFetcher unit tests
     And setup a mock Yarn service for GET request '/yarnui/ws/v1/cluster/apps/application_1513565654634_0011/appattempts' to return '{"appAttempts":{"appAttempt":[{"id":1,"startTime":1513673984219,"finishedTime":0,"containerId":"container_1513565654634_0011_01_000001","nodeHttpAddress":"10.0.0.6:30060","nodeId":"10.0.0.6:30050","logsLink":"http://10.0.0.6:30060/node/containerlogs/container_1513565654634_0011_01_000001/livy","blacklistedNodes":"","appAttemptId":"appattempt_1513565654634_0011_000001"},{"id":2,"startTime":1513673985219,"finishedTime":0,"containerId":"container_1513565654634_0011_01_000002","nodeHttpAddress":"10.0.0.7:30060","nodeId":"10.0.0.7:30050","logsLink":"","blacklistedNodes":"","appAttemptId":"appattempt_1513565654634_0011_000002"}]}}' with status code 200
     Then getting Spark Job driver log URL Observable should be empty
 
+  Scenario: getSparkJobDriverLogUrlObservable with the driver log URL hint skips app attempts looking up
+    Given prepare a Yarn cluster with Node Manager base URL http://127.0.0.1:$port/yarnui/ws/v1/cluster/apps/ and UI base URL http://127.0.0.1:$port/yarnui/
+    And create a yarn application driver with id application_1513565654634_0011
+    And set the driver log URL hint to 'http://10.0.0.7:30060/node/containerlogs/container_1513565654634_0011_01_000002/livy'
+    When setup a mock Yarn service for GET request '/yarnui/10.0.0.7/node/containerlogs/container_1513565654634_0011_01_000002/livy' to return '{}' with status code 200
+    Then getting Spark Job driver log URL Observable should be 'http://127.0.0.1:$port/yarnui/10.0.0.7/node/containerlogs/container_1513565654634_0011_01_000002/livy'
+    Then getting Spark Job driver log URL Observable should be 'http://127.0.0.1:$port/yarnui/10.0.0.7/node/containerlogs/container_1513565654634_0011_01_000002/livy'
+    Then check the Yarn request 'GET' to '/yarnui/ws/v1/cluster/apps/application_1513565654634_0011/appattempts' should be sent 0 times
+    Then check the Yarn request 'GET' to '/yarnui/10.0.0.7/node/containerlogs/container_1513565654634_0011_01_000002/livy' should be sent 1 times
+
+  Scenario: getSparkJobDriverLogUrlObservable with the public driver log URL hint skips mode probing
+    Given prepare a Yarn cluster with Node Manager base URL http://127.0.0.1:$port/yarnui/ws/v1/cluster/apps/ and UI base URL http://127.0.0.1:$port/yarnui/
+    And create a yarn application driver with id application_1513565654634_0011
+    And set the driver log URL hint to 'http://127.0.0.1:$port/yarnui/10.0.0.7/node/containerlogs/container_1513565654634_0011_01_000002/livy'
+    Then getting Spark Job driver log URL Observable should be 'http://127.0.0.1:$port/yarnui/10.0.0.7/node/containerlogs/container_1513565654634_0011_01_000002/livy'
+    Then check the Yarn request 'GET' to '/yarnui/10.0.0.7/node/containerlogs/container_1513565654634_0011_01_000002/livy' should be sent 0 times
+
   Scenario: parse logs from history server HTML page
     Given prepare a Yarn cluster with Node Manager base URL http://127.0.0.1:$port/yarnui/ws/v1/cluster/apps/ and UI base URL http://127.0.0.1:$port/yarnui/
     And create a yarn application driver with id mockId
@@ -63,3 +80,134 @@ Feature: YarnContainerLogFetcher unit tests
     Given prepare a Yarn cluster with Node Manager base URL http://127.0.0.1:$port/yarnui/ws/v1/cluster/apps/ and UI base URL http://127.0.0.1:$port/yarnui/
     And create a yarn application driver with id mockId
     Then parse 'stdout' from Yarn container log fetched HTML ''
+
+  Scenario: fetch the container logs from the NodeManager REST API in plain text
+    Given prepare a Yarn cluster with Node Manager base URL http://127.0.0.1:$port/yarnui/ws/v1/cluster/apps/ and UI base URL http://127.0.0.1:$port/yarnui/
+    And create a yarn application driver with id application_1513565654634_0011
+    And set the driver log URL hint to 'http://127.0.0.1:$port/yarnui/10.0.0.7/port/30060/node/containerlogs/container_1513565654634_0011_01_000002/livy'
+    And setup a mock Yarn service for GET request '/yarnui/ws/v1/cluster/apps/application_1513565654634_0011' to return '{"app": {"id": "application_1513565654634_0011", "state": "RUNNING"}}' with status code 200
+    And setup a mock Yarn service for GET request '/yarnui/10.0.0.7/port/30060/ws/v1/node/containers/container_1513565654634_0011_01_000002/logs/stdout' to return 'Pi is 3.14 roughly' with status code 200
+    When fetch 'stdout' logs from offset 6 with the Yarn container log fetcher
+    Then check the Yarn container logs fetched should be '3.14 roughly' from 'NodeManager REST API'
+    Then check the Yarn request 'GET' to '/yarnui/10.0.0.7/port/30060/node/containerlogs/container_1513565654634_0011_01_000002/livy/stdout?start=6' should be sent 0 times
+
+  Scenario: fetch the incremental logs from the Yarn UI log page if the NodeManager ignores the Range header
+    Given prepare a Yarn cluster with Node Manager base URL http://127.0.0.1:$port/yarnui/ws/v1/cluster/apps/ and UI base URL http://127.0.0.1:$port/yarnui/
+    And create a yarn application driver with id application_1513565654634_0011
+    And set the driver log URL hint to 'http://127.0.0.1:$port/yarnui/10.0.0.7/port/30060/node/containerlogs/container_1513565654634_0011_01_000002/livy'
+    And setup a mock Yarn service for GET request '/yarnui/ws/v1/cluster/apps/application_1513565654634_0011' to return '{"app": {"id": "application_1513565654634_0011", "state": "RUNNING"}}' with status code 200
+    And setup a mock Yarn service for GET request '/yarnui/10.0.0.7/port/30060/ws/v1/node/containers/container_1513565654634_0011_01_000002/logs/stdout' to return 'Pi is 3.14 roughly' with status code 200
+    And setup a mock Yarn service for GET request '/yarnui/10.0.0.7/port/30060/node/containerlogs/container_1513565654634_0011_01_000002/livy/stdout?start=18' to return '<html><body><table><tr><td id="navcell"></td><td><pre>, done</pre></td></tr></table></body></html>' with status code 200
+    When fetch 'stdout' log chunk from byte offset 6 with the Yarn container log fetcher
+    Then check the Yarn container log chunk fetched should be '3.14 roughly' in bytes 6 to 18
+    When fetch 'stdout' log chunk from byte offset 18 with the Yarn container log fetcher
+    Then check the Yarn container log chunk fetched should be ', done' in bytes 18 to 24
+    When fetch 'stdout' log chunk from byte offset 18 with the Yarn container log fetcher
+    Then check the Yarn request 'GET' to '/yarnui/10.0.0.7/port/30060/ws/v1/node/containers/container_1513565654634_0011_01_000002/logs/stdout' should be sent 1 times
+    Then check the Yarn request 'GET' to '/yarnui/10.0.0.7/port/30060/node/containerlogs/container_1513565654634_0011_01_000002/livy/stdout?start=18' should be sent 2 times
+    Then check the Yarn container log fetcher should know the tail offset: 'false'
+
+  Scenario: fall back to the Yarn UI log page if the NodeManager REST API fails
+    Given prepare a Yarn cluster with Node Manager base URL http://127.0.0.1:$port/yarnui/ws/v1/cluster/apps/ and UI base URL http://127.0.0.1:$port/yarnui/
+    And create a yarn application driver with id application_1513565654634_0011
+    And set the driver log URL hint to 'http://127.0.0.1:$port/yarnui/10.0.0.7/port/30060/node/containerlogs/container_1513565654634_0011_01_000002/livy'
+    And setup a mock Yarn service for GET request '/yarnui/ws/v1/cluster/apps/application_1513565654634_0011' to return '{"app": {"id": "application_1513565654634_0011", "state": "RUNNING"}}' with status code 200
+    And setup a mock Yarn service for GET request '/yarnui/10.0.0.7/port/30060/ws/v1/node/containers/container_1513565654634_0011_01_000002/logs/stdout' to return 'Not found' with status code 404
+    And setup a mock Yarn service for GET request '/yarnui/10.0.0.7/port/30060/node/containerlogs/container_1513565654634_0011_01_000002/livy/stdout?start=0' to return '<html><body><table><tr><td id="navcell"></td><td><pre>Pi is 3.14 &amp; roughly</pre></td></tr></table></body></html>' with status code 200
+    When fetch 'stdout' logs from offset 0 with the Yarn container log fetcher
+    Then check the Yarn container logs fetched should be 'Pi is 3.14 & roughly' from 'Yarn UI log page'
+    When fetch 'stdout' logs from offset 0 with the Yarn container log fetcher
+    Then check the Yarn request 'GET' to '/yarnui/10.0.0.7/port/30060/ws/v1/node/containers/container_1513565654634_0011_01_000002/logs/stdout' should be sent 1 times
+    Then check the Yarn container log fetcher should know the tail offset: 'false'
+
+  Scenario: fetch the multi-byte container logs in byte ranges from the NodeManager REST API
+    Given prepare a Yarn cluster with Node Manager base URL http://127.0.0.1:$port/yarnui/ws/v1/cluster/apps/ and UI base URL http://127.0.0.1:$port/yarnui/
+    And create a yarn application driver with id application_1513565654634_0011
+    And set the driver log URL hint to 'http://127.0.0.1:$port/yarnui/10.0.0.7/port/30060/node/containerlogs/container_1513565654634_0011_01_000002/livy'
+    And setup a mock Yarn service for GET request '/yarnui/ws/v1/cluster/apps/application_1513565654634_0011' to return '{"app": {"id": "application_1513565654634_0011", "state": "FINISHED"}}' with status code 200
+    And mock the NodeManager REST logs 'Pi ≈ 3.14 → roughly' at '/yarnui/10.0.0.7/port/30060/ws/v1/node/containers/container_1513565654634_0011_01_000002/logs/stdout' in byte ranges
+    When fetch 'stdout' log chunk from byte offset 7 with the Yarn container log fetcher
+    Then check the Yarn container log chunk fetched should be '3.14 → roughly' in bytes 7 to 23
+    When fetch 'stdout' log chunk from byte offset 23 with the Yarn container log fetcher
+    Then check the Yarn container log chunk fetched should be none
+    Then check the Yarn request 'GET' to '/yarnui/10.0.0.7/port/30060/ws/v1/node/containers/container_1513565654634_0011_01_000002/logs/stdout' should be sent 1 times
+    When fetch 'stdout' log chunk from byte offset 20 with the Yarn container log fetcher
+    Then check the Yarn container log chunk fetched should be 'hly' in bytes 20 to 23
+    Then check the Yarn container log fetcher should know the tail offset: 'true'
+
+  Scenario: read the multi-byte container logs from the Spark job log input stream exactly once
+    Given prepare a Yarn cluster with Node Manager base URL http://127.0.0.1:$port/yarnui/ws/v1/cluster/apps/ and UI base URL http://127.0.0.1:$port/yarnui/
+    And create a yarn application driver with id application_1513565654634_0011
+    And set the driver log URL hint to 'http://127.0.0.1:$port/yarnui/10.0.0.7/port/30060/node/containerlogs/container_1513565654634_0011_01_000002/livy'
+    And setup a mock Yarn service for GET request '/yarnui/ws/v1/cluster/apps/application_1513565654634_0011' to return '{"app": {"id": "application_1513565654634_0011", "state": "FINISHED"}}' with status code 200
+    And mock the NodeManager REST logs 'Pi ≈ 3.14 → roughly' at '/yarnui/10.0.0.7/port/30060/ws/v1/node/containers/container_1513565654634_0011_01_000002/logs/stdout' in byte ranges
+    When read all 'stdout' logs from the Spark job log input stream with the Yarn container log fetcher
+    Then check the Spark job log input stream should read 'Pi ≈ 3.14 → roughly' till byte offset 23
+    Then check the Yarn request 'GET' to '/yarnui/10.0.0.7/port/30060/ws/v1/node/containers/container_1513565654634_0011_01_000002/logs/stdout' should be sent 1 times
+
+  Scenario: count the bytes of the unescaped Yarn UI log page logs for the chunk range
+    Given prepare a Yarn cluster with Node Manager base URL http://127.0.0.1:$port/yarnui/ws/v1/cluster/apps/ and UI base URL http://127.0.0.1:$port/yarnui/
+    And create a yarn application driver with id application_1513565654634_0011
+    And set the driver log URL hint to 'http://127.0.0.1:$port/yarnui/10.0.0.7/port/30060/node/containerlogs/container_1513565654634_0011_01_000002/livy'
+    And setup a mock Yarn service for GET request '/yarnui/ws/v1/cluster/apps/application_1513565654634_0011' to return '{"app": {"id": "application_1513565654634_0011", "state": "RUNNING"}}' with status code 200
+    And setup a mock Yarn service for GET request '/yarnui/10.0.0.7/port/30060/ws/v1/node/containers/container_1513565654634_0011_01_000002/logs/stdout' to return 'Not found' with status code 404
+    And setup a mock Yarn service for GET request '/yarnui/10.0.0.7/port/30060/node/containerlogs/container_1513565654634_0011_01_000002/livy/stdout?start=3' to return '<html><body><table><tr><td id="navcell"></td><td><pre>3.14 &#8776; &lt;&pi;&gt;</pre></td></tr></table></body></html>' with status code 200
+    When fetch 'stdout' log chunk from byte offset 3 with the Yarn container log fetcher
+    Then check the Yarn container log chunk fetched should be '3.14 ≈ <π>' in bytes 3 to 16
+
+  Scenario: share the probed Yarn log URL conversion mode between the jobs of a cluster
+    Given prepare a Yarn cluster with Node Manager base URL http://127.0.0.1:$port/yarnui/ws/v1/cluster/apps/ and UI base URL http://127.0.0.1:$port/yarnui/
+    And create a yarn application driver with id application_1513565654634_0011
+    And set the driver log URL hint to 'http://10.0.0.7:30060/node/containerlogs/container_1513565654634_0011_01_000002/livy'
+    And setup a mock Yarn service for GET request '/yarnui/10.0.0.7/node/containerlogs/container_1513565654634_0011_01_000002/livy' to return '{}' with status code 404
+    And setup a mock Yarn service for GET request '/yarnui/10.0.0.7/port/30060/node/containerlogs/container_1513565654634_0011_01_000002/livy' to return '{}' with status code 200
+    Then getting Spark Job driver log URL Observable should be 'http://127.0.0.1:$port/yarnui/10.0.0.7/port/30060/node/containerlogs/container_1513565654634_0011_01_000002/livy'
+    Given create a yarn application driver with id application_1513565654634_0012
+    And set the driver log URL hint to 'http://10.0.0.8:30060/node/containerlogs/container_1513565654634_0012_01_000001/livy'
+    Then getting Spark Job driver log URL Observable should be 'http://127.0.0.1:$port/yarnui/10.0.0.8/port/30060/node/containerlogs/container_1513565654634_0012_01_000001/livy'
+    Then check the Yarn request 'GET' to '/yarnui/10.0.0.8/node/containerlogs/container_1513565654634_0012_01_000001/livy' should be sent 0 times
+    Then check the Yarn request 'GET' to '/yarnui/10.0.0.8/port/30060/node/containerlogs/container_1513565654634_0012_01_000001/livy' should be sent 0 times
+
+  Scenario: probe the Yarn log URL conversion mode again if the log URL converted in the cached mode fails
+    Given prepare a Yarn cluster with Node Manager base URL http://127.0.0.1:$port/yarnui/ws/v1/cluster/apps/ and UI base URL http://127.0.0.1:$port/yarnui/
+    And create a yarn application driver with id application_1513565654634_0011
+    And cache the Yarn log URL conversion mode 'WITHOUT_PORT' of the Yarn cluster
+    And setup a mock Yarn service for GET request '/yarnui/ws/v1/cluster/apps/application_1513565654634_0011' to return '{"app": {"id": "application_1513565654634_0011", "state": "RUNNING", "amContainerLogs": "http://10.0.0.7:30060/node/containerlogs/container_1513565654634_0011_01_000002/livy"}}' with status code 200
+    And setup a mock Yarn service for GET request '/yarnui/10.0.0.7/ws/v1/node/containers/container_1513565654634_0011_01_000002/logs/stdout' to return 'Not found' with status code 404
+    And setup a mock Yarn service for GET request '/yarnui/10.0.0.7/node/containerlogs/container_1513565654634_0011_01_000002/livy/stdout?start=0' to return 'Not found' with status code 404
+    And setup a mock Yarn service for GET request '/yarnui/10.0.0.7/node/containerlogs/container_1513565654634_0011_01_000002/livy' to return 'Not found' with status code 404
+    And setup a mock Yarn service for GET request '/yarnui/10.0.0.7/port/30060/node/containerlogs/container_1513565654634_0011_01_000002/livy' to return '{}' with status code 200
+    And setup a mock Yarn service for GET request '/yarnui/10.0.0.7/port/30060/ws/v1/node/containers/container_1513565654634_0011_01_000002/logs/stdout' to return 'Pi is 3.14' with status code 200
+    When fetch 'stdout' logs from offset 0 with the Yarn container log fetcher
+    Then check the Yarn container logs fetched should be 'Pi is 3.14' from 'NodeManager REST API'
+    Then check the Yarn log URL conversion mode cached of the Yarn cluster should be 'WITH_PORT'
+    When fetch 'stdout' logs from offset 0 with the Yarn container log fetcher
+    Then check the Yarn request 'GET' to '/yarnui/10.0.0.7/ws/v1/node/containers/container_1513565654634_0011_01_000002/logs/stdout' should be sent 1 times
+    Then check the Yarn request 'GET' to '/yarnui/10.0.0.7/port/30060/node/containerlogs/container_1513565654634_0011_01_000002/livy' should be sent 1 times
+
+  Scenario: share the Yarn application state between the log fetching of all types
+    Given prepare a Yarn cluster with Node Manager base URL http://127.0.0.1:$port/yarnui/ws/v1/cluster/apps/ and UI base URL http://127.0.0.1:$port/yarnui/
+    And create a yarn application driver with id application_1513565654634_0011
+    And setup a mock Yarn service for GET request '/yarnui/ws/v1/cluster/apps/application_1513565654634_0011' to return '{"app": {"id": "application_1513565654634_0011", "state": "RUNNING", "amContainerLogs": "http://10.0.0.7:30060/node/containerlogs/container_1513565654634_0011_01_000002/livy"}}' with status code 200
+    And setup a mock Yarn service for GET request '/yarnui/10.0.0.7/node/containerlogs/container_1513565654634_0011_01_000002/livy' to return '{}' with status code 200
+    And setup a mock Yarn service for GET request '/yarnui/10.0.0.7/ws/v1/node/containers/container_1513565654634_0011_01_000002/logs/stdout' to return 'Pi is 3.14' with status code 200
+    And setup a mock Yarn service for GET request '/yarnui/10.0.0.7/ws/v1/node/containers/container_1513565654634_0011_01_000002/logs/stderr' to return 'roughly' with status code 200
+    When fetch 'stdout' logs from offset 0 with the Yarn container log fetcher
+    Then check the Yarn container logs fetched should be 'Pi is 3.14' from 'NodeManager REST API'
+    When fetch 'stderr' logs from offset 0 with the Yarn container log fetcher
+    Then check the Yarn container logs fetched should be 'roughly' from 'NodeManager REST API'
+    Then check the Yarn request 'GET' to '/yarnui/ws/v1/cluster/apps/application_1513565654634_0011' should be sent 1 times
+    Then check the Yarn request 'GET' to '/yarnui/ws/v1/cluster/apps/application_1513565654634_0011/appattempts' should be sent 0 times
+    Then check the Yarn request 'GET' to '/yarnui/10.0.0.7/node/containerlogs/container_1513565654634_0011_01_000002/livy' should be sent 1 times
+
+  Scenario: Set and check the completed log offsets concurrently
+    Given prepare a Yarn cluster with Node Manager base URL http://127.0.0.1:$port/yarnui/ws/v1/cluster/apps/ and UI base URL http://127.0.0.1:$port/yarnui/
+    And create a yarn application driver with id application_1513565654634_0011
+    When set the completed offsets of 'stdout,stderr,directory.info' logs concurrently with 8 threads and 5000 times each
+    Then check the completed offsets should only grow to the largest one set
+
+  Scenario: Publish the Yarn applications got by the requests concurrently
+    Given prepare a Yarn cluster with Node Manager base URL http://127.0.0.1:$port/yarnui/ws/v1/cluster/apps/ and UI base URL http://127.0.0.1:$port/yarnui/
+    And create a yarn application driver with id application_1513565654634_0011
+    When publish the Yarn applications of 5000 requests concurrently with 8 threads
+    Then check the Yarn application published should only move to the latest request
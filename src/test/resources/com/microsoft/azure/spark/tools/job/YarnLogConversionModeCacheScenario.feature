@@ -0,0 +1,24 @@
+@YarnLogConversionModeCacheScenario
+Feature: YarnLogConversionModeCache unit tests
+
+  Scenario: Probe the conversion mode once for the concurrent getting and reuse the cache file after reopening
+    Given open the Yarn log conversion mode cache file
+    And the Yarn log conversion mode prober returns 'WITH_PORT' after 1000 milliseconds
+    When get the Yarn log conversion mode of cluster 'https://hdicluster.azurehdinsight.net/yarnui' from cache 2 times concurrently
+    And advance the Yarn log conversion mode probing by 1000 milliseconds
+    Then check the Yarn log conversion modes got should be 'WITH_PORT' for 2 times
+    And check the Yarn log conversion mode prober should be called 1 times
+    When reopen the Yarn log conversion mode cache file
+    And get the Yarn log conversion mode of cluster 'https://hdicluster.azurehdinsight.net/yarnui/' from cache 1 times concurrently
+    Then check the Yarn log conversion modes got should be 'WITH_PORT' for 1 times
+    And check the Yarn log conversion mode prober should be called 1 times
+
+  Scenario: Probe the conversion mode again after the probing failed
+    Given open the Yarn log conversion mode cache file
+    And the Yarn log conversion mode prober fails
+    When get the Yarn log conversion mode of cluster 'https://hdicluster.azurehdinsight.net/yarnui/' from cache 1 times concurrently
+    Then check the Yarn log conversion mode of cluster 'https://hdicluster.azurehdinsight.net/yarnui/' should not be cached
+    Given the Yarn log conversion mode prober returns 'WITHOUT_PORT' after 0 milliseconds
+    When get the Yarn log conversion mode of cluster 'https://hdicluster.azurehdinsight.net/yarnui/' from cache 1 times concurrently
+    Then check the Yarn log conversion modes got should be 'WITHOUT_PORT' for 1 times
+    And check the Yarn log conversion mode prober should be called 2 times
@@ -0,0 +1,31 @@
+@YarnLogPageExtractorScenario
+Feature: YarnLogPageExtractor unit tests
+
+  Scenario Outline: extract logs from the history server and running container HTML pages as Jsoup parsing
+    Given extract the logs with the Yarn log page extractor of buffer size <BUFFER_SIZE> from HTML page '<PAGE>' with default type 'stdout'
+    Then check the extracted logs should be the same as parsed by Jsoup
+    Then check the extracted logs chunks should be at most <BUFFER_SIZE> characters
+    Then check the extracted 'stdout' logs as a stream should be the same as parsed by Jsoup
+
+    Examples:
+      | PAGE                    | BUFFER_SIZE |
+      | YarnContainerLog01.html | 8192        |
+      | YarnContainerLog01.html | 16          |
+      | YarnContainerLog02.html | 64          |
+      | YarnContainerLog03.html | 16          |
+
+  Scenario: unescape HTML entities across the buffer boundaries
+    Given extract the logs with the Yarn log page extractor of buffer size 16 from HTML '<html><body><table><tr><td id="navcell"><div><p>Log Type: nav</p><pre>x</pre></div></td><td><p>Log Type: stdout<pre>0123456789abcde&lt;&#x41;&#66;&amp;&quot;&eacute;&unknown;</pre></td></tr></table></body></html>' with default type 'stdout'
+    Then check the extracted logs should be the same as parsed by Jsoup
+    Then check the extracted 'stdout' logs should be '0123456789abcde<AB&"é&unknown;'
+    Then check the extracted 'nav' logs should not exist
+
+  Scenario: the later logs of a type override the earlier and the empty pre clears the type
+    Given extract the logs with the Yarn log page extractor of buffer size 16 from HTML '<table><tr><td id=navcell></td><td><pre>default</pre><p>Log Type: stderr<pre>first</pre><p>Log Type: stderr</p><pre></pre><pre>orphan</pre><p>Log Type: stdout</p><pre>\nsecond</pre></td></tr></table>' with default type 'stdout'
+    Then check the extracted logs should be the same as parsed by Jsoup
+    Then check the extracted 'stdout' logs should be 'second'
+    Then check the extracted 'stderr' logs should not exist
+
+  Scenario: skip the navcell in the style and script text
+    Given extract the logs with the Yarn log page extractor of buffer size 16 from HTML '<style>#navcell { id="navcell" }</style><script>var s = "<td id=navcell>";</script><pre>outside</pre>' with default type 'stdout'
+    Then check the extracted 'stdout' logs should not exist
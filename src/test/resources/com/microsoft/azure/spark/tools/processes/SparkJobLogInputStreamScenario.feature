@@ -0,0 +1,86 @@
+@SparkJobLogInputStreamScenario
+Feature: SparkJobLogInputStream unit tests
+
+  Scenario: Read the logs from the file start by default
+    Given create a Spark job log input stream with the 'stdout' logs 'line 1\nline 2\n'
+    When read the log input stream to the end
+    Then check the logs read should be 'line 1\nline 2\n'
+    And check the log input stream offset should be 14 with 0 bytes skipped
+
+  Scenario: Record the log offset consumed rather than the one fetched
+    Given create a Spark job log input stream with the 'stdout' logs '0123456789'
+    And resume the log input stream from the offset 2 with the offset recorder
+    When read 3 bytes from the log input stream
+    Then check the log offset recorded should be 2
+    When append the logs 'abc'
+    And read 6 bytes from the log input stream
+    Then check the logs read should be '23456789a'
+    And check the log offset recorded should be 10
+    When close the log input stream
+    Then check the log offset recorded should be 11
+
+  Scenario: Start from the last bytes and follow the logs
+    Given create a Spark job log input stream with the 'stdout' logs 'line 1\nline 2\nline 3\n'
+    And set the log input stream to tail the last 9 bytes
+    When read 9 bytes from the log input stream
+    And append the logs 'line 4\n'
+    And read the log input stream to the end
+    Then check the logs read should be '2\nline 3\nline 4\n'
+    And check the log input stream offset should be 28 with 0 bytes skipped
+
+  Scenario: Start from the last lines
+    Given create a Spark job log input stream with the 'stdout' logs 'line 1\nline 2\nline 3\nline 4\nline 5\n'
+    And set the log input stream to tail the last 2 lines in 64 bytes
+    When read the log input stream to the end
+    Then check the logs read should be 'line 4\nline 5\n'
+
+  Scenario: Start from the first whole line if there are fewer lines in the tail bytes
+    Given create a Spark job log input stream with the 'stdout' logs 'aaaa\nbbbb\ncccc\n'
+    And set the log input stream to tail the last 10 lines in 8 bytes
+    When read the log input stream to the end
+    Then check the logs read should be 'cccc\n'
+
+  Scenario: Read from the file start if the tail offset is unknown
+    Given create a Spark job log input stream with the 'stdout' logs 'line 1\nline 2\n'
+    And mock the log fetcher not to know the tail offset
+    And set the log input stream to tail the last 7 bytes
+    When read the log input stream to the end
+    Then check the logs read should be 'line 1\nline 2\n'
+    And check the log fetcher should fetch the tail 0 times
+
+  Scenario: Stop fetching the tail once the log fetcher returns it at the negative offset
+    Given create a Spark job log input stream with the 'stdout' logs 'line 1\nline 2\n'
+    And mock the log fetcher to return the tail at the negative offset
+    And set the log input stream to tail the last 7 bytes
+    And set the log input stream max lag to 4 bytes
+    When read the log input stream to the end
+    Then check the logs read should be 'line 1\nline 2\n'
+    And check the log input stream offset should be 14 with 0 bytes skipped
+    And check the log fetcher should fetch the tail 1 times
+
+  Scenario: Start from the resumed offset rather than the tail before it
+    Given create a Spark job log input stream with the 'stdout' logs 'line 1\nline 2\nline 3\n'
+    And resume the log input stream from the offset 19
+    And set the log input stream to tail the last 10 bytes
+    When read the log input stream to the end
+    Then check the logs read should be '3\n'
+
+  Scenario: Skip to the latest logs after falling behind
+    Given create a Spark job log input stream with the 'stdout' logs '0123456789'
+    And set the log input stream to tail the last 10 bytes
+    And set the log input stream max lag to 8 bytes
+    When read 10 bytes from the log input stream
+    And append the logs 'abcdefghijklmnopqrstuvwxyz'
+    And read the log input stream to the end
+    Then check the logs read should be '0123456789qrstuvwxyz'
+    And check the log input stream offset should be 36 with 16 bytes skipped
+
+  Scenario: Skip to the first whole line of the latest logs after falling behind
+    Given create a Spark job log input stream with the 'stdout' logs 'aaa\n'
+    And set the log input stream to tail the last 12 bytes
+    And set the log input stream max lag to 8 bytes
+    When read 4 bytes from the log input stream
+    And append the logs 'bbbb\ncccc\ndddd\neeee\nffff\n'
+    And read the log input stream to the end
+    Then check the logs read should be 'aaa\neeee\nffff\n'
+    And check the log input stream offset should be 29 with 15 bytes skipped